@@ -0,0 +1,75 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.benchmarks.support.ConverterFixtures;
+import com.grafysi.horizpipes.utils.debezium.PooledHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.json.StreamingJsonConverter;
+import io.debezium.engine.ChangeEvent;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Convert-consume-acknowledge cycle of one Json record with heap and pooled output buffers.
+ * Run with {@code -Pjmh.includes=BufferAllocation -Pjmh.profilers=gc} and compare
+ * {@code gc.alloc.rate.norm}, the bytes allocated per record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BufferAllocationBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"heap", "pooled"})
+    public String buffers;
+
+    @Param({"patients", "admissions"})
+    public String table;
+
+    private Function<SourceRecord, Object> toFormat;
+    private Function<Object, SourceRecord> fromFormat;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var props = ConverterFixtures.jsonProperties();
+        props.put("converter.custom.json.converter", StreamingJsonConverter.class.getName());
+        props.remove("key.converter");
+        props.remove("value.converter");
+        props.put("hzp.conversion.buffers", buffers);
+
+        var builder = ConverterFixtures.builder("json", props);
+        toFormat = builder.toFormat(builder.headerConverter());
+        fromFormat = builder.fromFormat();
+        records = MimicFixtures.table(table).records(RECORD_COUNT);
+    }
+
+    @Benchmark
+    public void convertAndAcknowledge(Blackhole blackhole) {
+        var record = records[next];
+        next = (next + 1) % RECORD_COUNT;
+
+        var event = toFormat.apply(record);
+        if (event instanceof PooledHzpChangeEvent<?, ?, ?> pooled) {
+            blackhole.consume(pooled.keyBuffer());
+            blackhole.consume(pooled.valueBuffer());
+        } else {
+            var heapEvent = (ChangeEvent<?, ?>) event;
+            blackhole.consume(heapEvent.key());
+            blackhole.consume(heapEvent.value());
+        }
+        blackhole.consume(fromFormat.apply(event));
+    }
+}
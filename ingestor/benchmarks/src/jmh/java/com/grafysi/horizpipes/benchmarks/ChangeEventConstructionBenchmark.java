@@ -0,0 +1,64 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.benchmarks.support.ConverterFixtures;
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import io.debezium.embedded.EmbeddedEngineChangeEvent;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Records/s of {@code HzpConverterBuilder.toFormat} with the direct {@link HzpChangeEvent}
+ * construction against the previous per-record reflective {@code EmbeddedEngineChangeEvent} path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChangeEventConstructionBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"json", "avro"})
+    public String format;
+
+    private Function<SourceRecord, Object> toFormat;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        toFormat = ConverterFixtures.toFormat(format);
+        records = MimicFixtures.ADMISSIONS.records(RECORD_COUNT);
+    }
+
+    @Benchmark
+    public Object direct() {
+        return toFormat.apply(nextRecord());
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        var event = (HzpChangeEvent<?, ?, ?>) toFormat.apply(nextRecord());
+        // what HzpConverterBuilder did for every record before the event type was owned by horizpipes
+        var clazz = Class.forName(EmbeddedEngineChangeEvent.class.getName());
+        var constructor = clazz.getDeclaredConstructors()[0];
+        constructor.setAccessible(true);
+        return constructor.newInstance(event.key(), event.value(), event.headers(), event.sourceRecord());
+    }
+
+    private SourceRecord nextRecord() {
+        var record = records[next];
+        next = (next + 1) % RECORD_COUNT;
+        return record;
+    }
+}
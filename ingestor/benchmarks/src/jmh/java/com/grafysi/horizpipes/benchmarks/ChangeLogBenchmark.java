@@ -0,0 +1,108 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.changelog.ChangeLogReader;
+import com.grafysi.horizpipes.utils.debezium.changelog.ChangeLogSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append and zero-copy transfer throughput of the change log in the temporary directory, which should be on the
+ * disk to measure, e.g. with {@code -Djava.io.tmpdir=/mnt/nvme}. Every invocation moves 1024 records of exactly
+ * 1 KiB framed, so the score is in MiB/s. Transfers go to {@code /dev/null}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChangeLogBenchmark {
+
+    private static final int RECORDS_PER_INVOCATION = 1024;
+    private static final int RECORD_BYTES = 1024;
+    // record header and fixed body, see ChangeLogFormat
+    private static final int FRAMING_BYTES = 8 + 36;
+    private static final int KEY_BYTES = 24;
+    private static final int PREFILLED_RECORDS = 64 * 1024;
+
+    private Path appendDir;
+    private Path transferDir;
+    private ChangeLogSink<byte[], byte[]> sink;
+    private ChangeLogReader reader;
+    private FileChannel target;
+    private HzpChangeEvent<byte[], byte[], Object> event;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var value = new byte[RECORD_BYTES - FRAMING_BYTES - KEY_BYTES];
+        Arrays.fill(value, (byte) 'x');
+        event = new HzpChangeEvent<>(new byte[KEY_BYTES], value, List.of(), null);
+
+        appendDir = Files.createTempDirectory("hzp-changelog-append");
+        sink = new ChangeLogSink<>(appendDir, ChangeLogSink.DEFAULT_SEGMENT_BYTES,
+                ChangeLogSink.DEFAULT_INDEX_INTERVAL_BYTES, 4L * ChangeLogSink.DEFAULT_SEGMENT_BYTES, -1,
+                ChangeLogSink.DEFAULT_FLUSH_INTERVAL_MS);
+
+        transferDir = Files.createTempDirectory("hzp-changelog-transfer");
+        try (var prefill = new ChangeLogSink<byte[], byte[]>(transferDir, ChangeLogSink.DEFAULT_SEGMENT_BYTES,
+                ChangeLogSink.DEFAULT_INDEX_INTERVAL_BYTES, -1, -1, 0)) {
+            for (int i = 0; i < PREFILLED_RECORDS; i++) {
+                prefill.accept(event);
+            }
+        }
+        reader = new ChangeLogReader(transferDir);
+        target = FileChannel.open(Path.of("/dev/null"), StandardOpenOption.WRITE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sink.close();
+        reader.close();
+        target.close();
+        delete(appendDir);
+        delete(transferDir);
+    }
+
+    @Benchmark
+    public long append() {
+        for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+            sink.accept(event);
+        }
+        return sink.nextSequence();
+    }
+
+    @Benchmark
+    public int transferTo() {
+        var sent = reader.transferTo(target, (long) RECORDS_PER_INVOCATION * RECORD_BYTES);
+        if (sent < RECORDS_PER_INVOCATION) {
+            // end of the prefilled log, start over and send the rest
+            reader.seek(0);
+            sent += reader.transferTo(target, (long) (RECORDS_PER_INVOCATION - sent) * RECORD_BYTES);
+        }
+        return sent;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.benchmarks.support.ConverterFixtures;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Throughput of {@code toFormat} called concurrently from a fixed pool, the way the engine calls it
+ * with {@code record.processing.threads} > 1, for each converter sharding mode. Reported in records/s:
+ * every invocation converts the same {@value #RECORDS_PER_INVOCATION} records, split evenly across the threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConverterShardingBenchmark {
+
+    private static final int RECORDS_PER_INVOCATION = 4096;
+
+    @Param({"avro", "json"})
+    public String format;
+
+    @Param({"shared", "thread", "striped"})
+    public String sharding;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Function<SourceRecord, Object> toFormat;
+    private SourceRecord[] records;
+    private ExecutorService processingThreads;
+    private ArrayList<Callable<Object>> tasks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var props = ConverterFixtures.properties(format);
+        props.setProperty(Configs.CONVERTER_SHARDING, sharding);
+        props.setProperty(Configs.RECORD_PROCESSING_THREADS, Integer.toString(threads));
+        if (RECORDS_PER_INVOCATION % threads != 0) {
+            throw new IllegalArgumentException("Threads must divide " + RECORDS_PER_INVOCATION + ": " + threads);
+        }
+        toFormat = ConverterFixtures.toFormat(format, props);
+        records = MimicFixtures.ADMISSIONS.records(RECORDS_PER_INVOCATION);
+        processingThreads = Executors.newFixedThreadPool(threads);
+
+        var recordsPerThread = RECORDS_PER_INVOCATION / threads;
+        tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            var from = i * recordsPerThread;
+            tasks.add(() -> {
+                Object last = null;
+                for (int j = from; j < from + recordsPerThread; j++) {
+                    last = toFormat.apply(records[j]);
+                }
+                return last;
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processingThreads.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS_PER_INVOCATION)
+    public Object convertConcurrently() throws Exception {
+        Object last = null;
+        for (var future : processingThreads.invokeAll(tasks)) {
+            last = future.get();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,92 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.benchmarks.support.ConverterFixtures;
+import com.grafysi.horizpipes.benchmarks.support.WarmSchemaResolver;
+import com.grafysi.horizpipes.utils.connect.apicurio.CustomStrategy;
+import com.grafysi.horizpipes.utils.connect.schema.SchemaIdentityRegistry;
+import io.apicurio.registry.resolver.SchemaLookupResult;
+import io.apicurio.registry.serde.avro.AvroSchemaParser;
+import io.apicurio.registry.serde.avro.DefaultAvroDatumProvider;
+import io.apicurio.registry.serde.data.KafkaSerdeMetadata;
+import io.apicurio.registry.serde.data.KafkaSerdeRecord;
+import io.apicurio.registry.utils.converter.avro.AvroData;
+import org.apache.avro.Schema;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups/s of {@code CustomSchemaResolver.resolveSchema} when every schema is already cached,
+ * the steady state of a running Avro connector, i.e. the inverse of the resolve cost per record.
+ * The schemas are cached by auto registration against a stub client; a lookup that misses the cache fails
+ * the run. Without {@code schemaIds} records are resolved by content, with it they carry the schema id header
+ * that {@code HzpConverterBuilder} adds and are resolved by id.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CustomSchemaResolverBenchmark {
+
+    private static final int RECORD_COUNT = 64;
+
+    @Param({"true", "false"})
+    public boolean isKey;
+
+    @Param({"true", "false"})
+    public boolean schemaIds;
+
+    private WarmSchemaResolver<Schema, Object> resolver;
+    private KafkaSerdeRecord<Object>[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        resolver = new WarmSchemaResolver<>();
+        resolver.configure(Map.of(
+                "apicurio.registry.url", ConverterFixtures.DUMMY_REGISTRY_URL,
+                "apicurio.registry.auto-register", "true",
+                "apicurio.registry.artifact-resolver-strategy", CustomStrategy.class.getName(),
+                // keep cached entries for the whole run
+                "apicurio.registry.check-period-ms", String.valueOf(TimeUnit.HOURS.toMillis(1))),
+                new AvroSchemaParser<>(new DefaultAvroDatumProvider<>()));
+
+        var avroData = new AvroData(100);
+        records = new KafkaSerdeRecord[RECORD_COUNT];
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            var fixture = i % 2 == 0 ? MimicFixtures.PATIENTS : MimicFixtures.ADMISSIONS;
+            var headers = new RecordHeaders();
+            var header = "{\"schema\":{\"type\":\"string\",\"optional\":false},\"payload\":\""
+                    + fixture.tableIdHeaderValue() + "\"}";
+            headers.add(CustomStrategy.TABLE_ID_HEADER, header.getBytes(StandardCharsets.UTF_8));
+            if (schemaIds) {
+                SchemaIdentityRegistry.get().tag(headers,
+                        isKey ? fixture.keySchema() : null, isKey ? null : fixture.envelopeSchema());
+            }
+            var payload = isKey
+                    ? avroData.fromConnectData(fixture.keySchema(), fixture.key(i))
+                    : avroData.fromConnectData(fixture.envelopeSchema(), fixture.envelope(i, "r"));
+            records[i] = new KafkaSerdeRecord<>(new KafkaSerdeMetadata(MimicFixtures.ROUTED_TOPIC, isKey, headers), payload);
+        }
+        resolver.seed(records[0]);
+        resolver.seed(records[1]);
+    }
+
+    @Benchmark
+    public SchemaLookupResult<Schema> resolveSchema() {
+        var record = records[next];
+        next = (next + 1) % RECORD_COUNT;
+        return resolver.resolveSchema(record);
+    }
+}
@@ -0,0 +1,62 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.utils.connect.apicurio.CustomStrategy;
+import io.apicurio.registry.resolver.strategy.ArtifactReference;
+import io.apicurio.registry.serde.data.KafkaSerdeMetadata;
+import io.apicurio.registry.serde.data.KafkaSerdeRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups/s of {@link CustomStrategy#artifactReference}, which derives the artifact id from the Json-converted
+ * {@code __from_table} header the Avro converter passes along with every key and value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CustomStrategyBenchmark {
+
+    private static final int RECORD_COUNT = 64;
+
+    @Param({"true", "false"})
+    public boolean isKey;
+
+    private CustomStrategy<Object> strategy;
+    private KafkaSerdeRecord<Object>[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        strategy = new CustomStrategy<>();
+        records = new KafkaSerdeRecord[RECORD_COUNT];
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            var fixture = i % 2 == 0 ? MimicFixtures.PATIENTS : MimicFixtures.ADMISSIONS;
+            var headers = new RecordHeaders();
+            // what the Json header converter makes of the header ExtractTopicName adds
+            var header = "{\"schema\":{\"type\":\"string\",\"optional\":false},\"payload\":\""
+                    + fixture.tableIdHeaderValue() + "\"}";
+            headers.add(CustomStrategy.TABLE_ID_HEADER, header.getBytes(StandardCharsets.UTF_8));
+            var metadata = new KafkaSerdeMetadata(MimicFixtures.ROUTED_TOPIC, isKey, headers);
+            records[i] = new KafkaSerdeRecord<>(metadata, isKey ? fixture.key(i) : fixture.envelope(i, "r"));
+        }
+    }
+
+    @Benchmark
+    public ArtifactReference artifactReference() {
+        var record = records[next];
+        next = (next + 1) % RECORD_COUNT;
+        return strategy.artifactReference(record, null);
+    }
+}
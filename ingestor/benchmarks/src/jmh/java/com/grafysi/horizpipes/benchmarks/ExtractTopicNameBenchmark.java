@@ -0,0 +1,64 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.utils.connect.apicurio.CustomStrategy;
+import com.grafysi.horizpipes.utils.connect.transforms.ExtractTopicName;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records/s of {@link ExtractTopicName#apply} configured as in the Avro connector tests, on records
+ * of one table or alternating between two.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExtractTopicNameBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"patients", "mixed"})
+    public String tables;
+
+    private ExtractTopicName<SourceRecord> transform;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        transform = new ExtractTopicName<>();
+        transform.configure(Map.of(
+                ExtractTopicName.TOPIC_REGEX, "test_dbz.mimiciv_hosp.(.*)",
+                ExtractTopicName.HEADER_NAME, CustomStrategy.TABLE_ID_HEADER,
+                ExtractTopicName.HEADER_VALUE_FORMAT, "__from_table__test_dbz.mimiciv_hosp.$1"));
+
+        records = new SourceRecord[RECORD_COUNT];
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            var fixture = tables.equals("mixed") && i % 2 == 1 ? MimicFixtures.ADMISSIONS : MimicFixtures.PATIENTS;
+            records[i] = fixture.sourceRecord(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transform.close();
+    }
+
+    @Benchmark
+    public SourceRecord apply() {
+        var record = records[next];
+        next = (next + 1) % RECORD_COUNT;
+        return transform.apply(record);
+    }
+}
@@ -0,0 +1,70 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.utils.debezium.json.StreamingJsonConverter;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.storage.Converter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records/s of serializing MIMIC change records (key and envelope value) with Kafka's {@link JsonConverter}
+ * against {@link StreamingJsonConverter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonConverterBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"kafka", "streaming"})
+    public String converter;
+
+    @Param({"patients", "admissions"})
+    public String table;
+
+    @Param({"true", "false"})
+    public String schemasEnable;
+
+    private Converter keyConverter;
+    private Converter valueConverter;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keyConverter = newConverter(true);
+        valueConverter = newConverter(false);
+        records = MimicFixtures.table(table).records(RECORD_COUNT);
+    }
+
+    private Converter newConverter(boolean isKey) {
+        Converter converter = switch (this.converter) {
+            case "kafka" -> new JsonConverter();
+            case "streaming" -> new StreamingJsonConverter();
+            default -> throw new IllegalArgumentException("Unknown converter: " + this.converter);
+        };
+        converter.configure(Map.of("schemas.enable", schemasEnable), isKey);
+        return converter;
+    }
+
+    @Benchmark
+    public void fromConnectData(Blackhole blackhole) {
+        var record = records[next];
+        next = (next + 1) % RECORD_COUNT;
+        blackhole.consume(keyConverter.fromConnectData(record.topic(), record.keySchema(), record.key()));
+        blackhole.consume(valueConverter.fromConnectData(record.topic(), record.valueSchema(), record.value()));
+    }
+}
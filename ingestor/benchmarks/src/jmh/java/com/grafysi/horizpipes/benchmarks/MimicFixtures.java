@@ -0,0 +1,250 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.utils.connect.apicurio.CustomStrategy;
+import com.grafysi.horizpipes.utils.debezium.synthetic.PostgresSchemas;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.Map;
+
+/**
+ * Debezium-shaped Postgres change records modelled on the MIMIC-IV demo {@code patients}
+ * and {@code admissions} tables, as they look after the ExtractTopic and Reroute transforms.
+ */
+public final class MimicFixtures {
+
+    public static final String TOPIC_PREFIX = "test_dbz";
+    public static final String ROUTED_TOPIC = "test_dbz.mimic4demo.hosp.all";
+
+    private static final Schema DATE_SCHEMA = SchemaBuilder.int32().name("io.debezium.time.Date").version(1).build();
+    private static final Schema OPTIONAL_DATE_SCHEMA = SchemaBuilder.int32().optional().name("io.debezium.time.Date").version(1).build();
+    private static final Schema MICRO_TIMESTAMP_SCHEMA = SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").version(1).build();
+    private static final Schema OPTIONAL_MICRO_TIMESTAMP_SCHEMA = SchemaBuilder.int64().optional().name("io.debezium.time.MicroTimestamp").version(1).build();
+
+    private static final String[] GENDERS = {"F", "M"};
+    private static final String[] YEAR_GROUPS = {"2008 - 2010", "2011 - 2013", "2014 - 2016", "2017 - 2019"};
+    private static final String[] ADMISSION_TYPES = {"URGENT", "EW EMER.", "ELECTIVE", "OBSERVATION ADMIT", "SURGICAL SAME DAY ADMISSION"};
+    private static final String[] LOCATIONS = {"EMERGENCY ROOM", "PHYSICIAN REFERRAL", "TRANSFER FROM HOSPITAL", "WALK-IN/SELF REFERRAL"};
+    private static final String[] DISCHARGE_LOCATIONS = {"HOME", "HOME HEALTH CARE", "SKILLED NURSING FACILITY", "REHAB"};
+    private static final String[] INSURANCES = {"Medicare", "Medicaid", "Other"};
+    private static final String[] RACES = {"WHITE", "BLACK/AFRICAN AMERICAN", "HISPANIC/LATINO - PUERTO RICAN", "ASIAN", "OTHER"};
+
+    public static final TableFixture PATIENTS = new TableFixture("patients",
+            SchemaBuilder.struct()
+                    .name("test_dbz.mimic4demo.hosp.all.Key")
+                    .field("subject_id", Schema.INT32_SCHEMA)
+                    .field("__dbz__physicalTableIdentifier", Schema.STRING_SCHEMA)
+                    .build(),
+            SchemaBuilder.struct()
+                    .name("test_dbz.mimiciv_hosp.patients.Value")
+                    .optional()
+                    .field("subject_id", Schema.INT32_SCHEMA)
+                    .field("gender", Schema.STRING_SCHEMA)
+                    .field("anchor_age", Schema.INT16_SCHEMA)
+                    .field("anchor_year", Schema.INT16_SCHEMA)
+                    .field("anchor_year_group", Schema.STRING_SCHEMA)
+                    .field("dod", OPTIONAL_DATE_SCHEMA)
+                    .build()) {
+
+        @Override
+        protected void fillKey(Struct key, int row) {
+            key.put("subject_id", 10_000_000 + row);
+        }
+
+        @Override
+        protected void fillRow(Struct value, int row) {
+            value.put("subject_id", 10_000_000 + row);
+            value.put("gender", GENDERS[row % GENDERS.length]);
+            value.put("anchor_age", (short) (18 + row % 73));
+            value.put("anchor_year", (short) (2110 + row % 80));
+            value.put("anchor_year_group", YEAR_GROUPS[row % YEAR_GROUPS.length]);
+            value.put("dod", row % 7 == 0 ? 19_000 + row % 3_000 : null);
+        }
+    };
+
+    public static final TableFixture ADMISSIONS = new TableFixture("admissions",
+            SchemaBuilder.struct()
+                    .name("test_dbz.mimic4demo.hosp.all.Key")
+                    .field("hadm_id", Schema.INT32_SCHEMA)
+                    .field("__dbz__physicalTableIdentifier", Schema.STRING_SCHEMA)
+                    .build(),
+            SchemaBuilder.struct()
+                    .name("test_dbz.mimiciv_hosp.admissions.Value")
+                    .optional()
+                    .field("subject_id", Schema.INT32_SCHEMA)
+                    .field("hadm_id", Schema.INT32_SCHEMA)
+                    .field("admittime", MICRO_TIMESTAMP_SCHEMA)
+                    .field("dischtime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("deathtime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("admission_type", Schema.STRING_SCHEMA)
+                    .field("admit_provider_id", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("admission_location", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("discharge_location", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("insurance", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("language", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("marital_status", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("race", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("edregtime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("edouttime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("hospital_expire_flag", Schema.OPTIONAL_INT16_SCHEMA)
+                    .build()) {
+
+        @Override
+        protected void fillKey(Struct key, int row) {
+            key.put("hadm_id", 20_000_000 + row);
+        }
+
+        @Override
+        protected void fillRow(Struct value, int row) {
+            var admitTime = 4_400_000_000_000_000L + row * 86_400_000_000L;
+            value.put("subject_id", 10_000_000 + row / 3);
+            value.put("hadm_id", 20_000_000 + row);
+            value.put("admittime", admitTime);
+            value.put("dischtime", admitTime + (1 + row % 12) * 86_400_000_000L);
+            value.put("deathtime", row % 50 == 0 ? admitTime + 3_600_000_000L : null);
+            value.put("admission_type", ADMISSION_TYPES[row % ADMISSION_TYPES.length]);
+            value.put("admit_provider_id", "P" + (10_000 + row % 5_000));
+            value.put("admission_location", LOCATIONS[row % LOCATIONS.length]);
+            value.put("discharge_location", DISCHARGE_LOCATIONS[row % DISCHARGE_LOCATIONS.length]);
+            value.put("insurance", INSURANCES[row % INSURANCES.length]);
+            value.put("language", row % 9 == 0 ? "?" : "ENGLISH");
+            value.put("marital_status", row % 2 == 0 ? "MARRIED" : "SINGLE");
+            value.put("race", RACES[row % RACES.length]);
+            value.put("edregtime", row % 3 == 0 ? admitTime - 7_200_000_000L : null);
+            value.put("edouttime", row % 3 == 0 ? admitTime - 1_800_000_000L : null);
+            value.put("hospital_expire_flag", (short) (row % 50 == 0 ? 1 : 0));
+        }
+    };
+
+    public static TableFixture table(String name) {
+        return switch (name) {
+            case "patients" -> PATIENTS;
+            case "admissions" -> ADMISSIONS;
+            default -> throw new IllegalArgumentException("Unknown MIMIC fixture table: " + name);
+        };
+    }
+
+    private MimicFixtures() {
+    }
+
+    public abstract static class TableFixture {
+
+        private final String table;
+        private final Schema keySchema;
+        private final Schema rowSchema;
+        private final Schema envelopeSchema;
+
+        private TableFixture(String table, Schema keySchema, Schema rowSchema) {
+            this.table = table;
+            this.keySchema = keySchema;
+            this.rowSchema = rowSchema;
+            this.envelopeSchema = PostgresSchemas.envelopeSchema("test_dbz.mimiciv_hosp." + table, rowSchema);
+        }
+
+        protected abstract void fillKey(Struct key, int row);
+
+        protected abstract void fillRow(Struct value, int row);
+
+        public String table() {
+            return table;
+        }
+
+        public String tableIdHeaderValue() {
+            return "__from_table__test_dbz.mimiciv_hosp." + table;
+        }
+
+        public Schema keySchema() {
+            return keySchema;
+        }
+
+        public Schema envelopeSchema() {
+            return envelopeSchema;
+        }
+
+        public Struct key(int row) {
+            var key = new Struct(keySchema);
+            fillKey(key, row);
+            key.put("__dbz__physicalTableIdentifier", "test_dbz.mimiciv_hosp." + table);
+            return key;
+        }
+
+        public Struct after(int row) {
+            var after = new Struct(rowSchema);
+            fillRow(after, row);
+            return after;
+        }
+
+        public Struct envelope(int row, String op) {
+            var tsMs = 1_726_000_000_000L + row;
+            var source = PostgresSchemas.source(TOPIC_PREFIX, "mimic4demo", "mimiciv_hosp", table, tsMs)
+                    .put("snapshot", "true")
+                    .put("sequence", "[null,\"" + (40_000_000L + row * 64L) + "\"]")
+                    .put("txId", 780L + row / 100)
+                    .put("lsn", 40_000_000L + row * 64L);
+            var envelope = new Struct(envelopeSchema)
+                    .put("source", source)
+                    .put("op", op)
+                    .put("ts_ms", tsMs + 3);
+            switch (op) {
+                case "d" -> envelope.put("before", after(row));
+                case "u" -> envelope.put("before", after(row)).put("after", after(row + 1));
+                default -> envelope.put("after", after(row));
+            }
+            return envelope;
+        }
+
+        public SourceRecord record(int row) {
+            return record(row, "r");
+        }
+
+        public SourceRecord record(int row, String op) {
+            var envelope = envelope(row, op);
+            var headers = new ConnectHeaders();
+            headers.addString(CustomStrategy.TABLE_ID_HEADER, tableIdHeaderValue());
+            return new SourceRecord(
+                    Map.of("server", TOPIC_PREFIX),
+                    Map.of("lsn", 40_000_000L + row * 64L, "txId", 780L + row / 100),
+                    ROUTED_TOPIC,
+                    null,
+                    keySchema,
+                    key(row),
+                    envelopeSchema,
+                    envelope,
+                    envelope.getInt64("ts_ms"),
+                    headers);
+        }
+
+        /**
+         * The record as the Postgres connector emits it, before the ExtractTopic and Reroute transforms.
+         */
+        public SourceRecord sourceRecord(int row) {
+            var envelope = envelope(row, "r");
+            return new SourceRecord(
+                    Map.of("server", TOPIC_PREFIX),
+                    Map.of("lsn", 40_000_000L + row * 64L, "txId", 780L + row / 100),
+                    sourceTopic(),
+                    null,
+                    keySchema,
+                    key(row),
+                    envelopeSchema,
+                    envelope,
+                    envelope.getInt64("ts_ms"),
+                    new ConnectHeaders());
+        }
+
+        public String sourceTopic() {
+            return TOPIC_PREFIX + ".mimiciv_hosp." + table;
+        }
+
+        public SourceRecord[] records(int count) {
+            var records = new SourceRecord[count];
+            for (int i = 0; i < count; i++) {
+                records[i] = record(i);
+            }
+            return records;
+        }
+    }
+}
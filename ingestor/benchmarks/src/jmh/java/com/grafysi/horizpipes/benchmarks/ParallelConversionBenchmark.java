@@ -0,0 +1,82 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.benchmarks.support.ConverterFixtures;
+import com.grafysi.horizpipes.benchmarks.support.NoopCommitter;
+import com.grafysi.horizpipes.utils.debezium.ThreadPools;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.pipeline.ParallelConversionStage;
+import io.debezium.engine.ChangeEvent;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Scaling of {@link ParallelConversionStage} over 1 to N conversion threads for a
+ * {@code max.batch.size} poll batch. Reported in records/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParallelConversionBenchmark {
+
+    private static final int BATCH_SIZE = 2048;
+
+    @Param({"avro", "json"})
+    public String format;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    @Param({"forkjoin", "virtual"})
+    public String pool;
+
+    private Function<SourceRecord, Object> toFormat;
+    private SourceRecord[] records;
+    private ParallelConversionStage<Object, Object> stage;
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var props = ConverterFixtures.properties(format);
+        props.setProperty(Configs.CONVERSION_LAZY, "true");
+        this.toFormat = ConverterFixtures.toFormat(format, props);
+        this.records = MimicFixtures.ADMISSIONS.records(BATCH_SIZE);
+        this.stage = new ParallelConversionStage<>(this::consume, threads, ThreadPools.Kind.parse(pool));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stage.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    @SuppressWarnings("unchecked")
+    public void convertBatch(Blackhole blackhole) throws InterruptedException {
+        this.blackhole = blackhole;
+        List<ChangeEvent<Object, Object>> batch = new ArrayList<>(BATCH_SIZE);
+        for (var record : records) {
+            batch.add((ChangeEvent<Object, Object>) toFormat.apply(record));
+        }
+        stage.handleBatch(batch, new NoopCommitter<>());
+    }
+
+    private void consume(ChangeEvent<Object, Object> event) {
+        blackhole.consume(event.value());
+    }
+}
@@ -0,0 +1,51 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.utils.connect.apicurio.SchemaFingerprints;
+import io.apicurio.registry.utils.IoUtil;
+import io.apicurio.registry.utils.converter.avro.AvroData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keys/s of the schema cache content index: the raw schema text plus the artifact id that
+ * {@code CustomSchemaResolver} used to build, against the fingerprint key it builds now.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SchemaContentKeyBenchmark {
+
+    @Param({"patients", "admissions"})
+    public String table;
+
+    private byte[] rawSchema;
+    private String artifactId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var fixture = "patients".equals(table) ? MimicFixtures.PATIENTS : MimicFixtures.ADMISSIONS;
+        rawSchema = new AvroData(100).fromConnectSchema(fixture.envelopeSchema()).toString()
+                .getBytes(StandardCharsets.UTF_8);
+        artifactId = fixture.tableIdHeaderValue() + "-value";
+    }
+
+    @Benchmark
+    public String textKey() {
+        return IoUtil.toString(rawSchema) + "\n__artifact_id=" + artifactId;
+    }
+
+    @Benchmark
+    public String fingerprintKey() {
+        return SchemaFingerprints.contentKey(rawSchema, artifactId);
+    }
+}
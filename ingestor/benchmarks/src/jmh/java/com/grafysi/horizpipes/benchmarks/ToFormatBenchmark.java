@@ -0,0 +1,53 @@
+package com.grafysi.horizpipes.benchmarks;
+
+import com.grafysi.horizpipes.benchmarks.support.ConverterFixtures;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Records/s of {@code HzpConverterBuilder.toFormat} for each output format, headers, key and value included.
+ * Avro schemas are registered in memory, see {@code InMemorySchemaResolver}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ToFormatBenchmark {
+
+    private static final int RECORD_COUNT = 1024;
+
+    @Param({"json", "avro", "connect"})
+    public String format;
+
+    @Param({"patients", "admissions"})
+    public String table;
+
+    private Function<SourceRecord, Object> toFormat;
+    private SourceRecord[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        toFormat = ConverterFixtures.toFormat(format);
+        records = MimicFixtures.table(table).records(RECORD_COUNT);
+        // registers the Avro schemas before measuring
+        toFormat.apply(records[0]);
+    }
+
+    @Benchmark
+    public Object toFormat() {
+        var record = records[next];
+        next = (next + 1) % RECORD_COUNT;
+        return toFormat.apply(record);
+    }
+}
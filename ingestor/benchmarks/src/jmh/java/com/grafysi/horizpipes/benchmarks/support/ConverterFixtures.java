@@ -0,0 +1,72 @@
+package com.grafysi.horizpipes.benchmarks.support;
+
+import com.grafysi.horizpipes.utils.connect.apicurio.CustomStrategy;
+import com.grafysi.horizpipes.utils.debezium.HzpConverterBuilder;
+import io.debezium.embedded.Connect;
+import io.debezium.engine.format.Avro;
+import io.debezium.engine.format.Json;
+import io.debezium.engine.format.KeyValueHeaderChangeEventFormat;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Builds {@link HzpConverterBuilder} conversion functions configured the way
+ * the connectors and tests configure them.
+ */
+public final class ConverterFixtures {
+
+    public static final String DUMMY_REGISTRY_URL = "http://localhost:0/apis/registry/v2";
+
+    public static Properties jsonProperties() {
+        var props = new Properties();
+        props.put("key.converter", "org.apache.kafka.connect.json.JsonConverter");
+        props.put("value.converter", "org.apache.kafka.connect.json.JsonConverter");
+        return props;
+    }
+
+    public static Properties avroProperties() {
+        var props = new Properties();
+        for (var prefix : new String[] {"key.converter.", "value.converter."}) {
+            props.put(prefix + "apicurio.registry.url", DUMMY_REGISTRY_URL);
+            props.put(prefix + "apicurio.registry.auto-register", "true");
+            props.put(prefix + "apicurio.registry.schema-resolver", InMemorySchemaResolver.class.getName());
+            props.put(prefix + "apicurio.registry.artifact-resolver-strategy", CustomStrategy.class.getName());
+        }
+        return props;
+    }
+
+    public static Properties properties(String format) {
+        return switch (format) {
+            case "json" -> jsonProperties();
+            case "avro" -> avroProperties();
+            case "connect" -> new Properties();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    public static Function<SourceRecord, Object> toFormat(String format) {
+        return toFormat(format, properties(format));
+    }
+
+    public static Function<SourceRecord, Object> toFormat(String format, Properties props) {
+        var builder = builder(format, props);
+        return builder.toFormat(builder.headerConverter());
+    }
+
+    public static HzpConverterBuilder<Object> builder(String format, Properties props) {
+        var builder = new HzpConverterBuilder<Object>();
+        switch (format) {
+            case "json" -> builder.using(KeyValueHeaderChangeEventFormat.of(Json.class, Json.class, Json.class));
+            case "avro" -> builder.using(KeyValueHeaderChangeEventFormat.of(Avro.class, Avro.class, Json.class));
+            case "connect" -> builder.using(KeyValueHeaderChangeEventFormat.of(null, Connect.class, null));
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        builder.using(props);
+        return builder;
+    }
+
+    private ConverterFixtures() {
+    }
+}
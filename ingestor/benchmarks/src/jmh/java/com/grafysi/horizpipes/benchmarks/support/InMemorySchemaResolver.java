@@ -0,0 +1,54 @@
+package com.grafysi.horizpipes.benchmarks.support;
+
+import io.apicurio.registry.resolver.AbstractSchemaResolver;
+import io.apicurio.registry.resolver.ParsedSchema;
+import io.apicurio.registry.resolver.SchemaLookupResult;
+import io.apicurio.registry.resolver.data.Record;
+import io.apicurio.registry.resolver.strategy.ArtifactReference;
+import io.apicurio.registry.utils.IoUtil;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schema resolver that registers schemas in process memory, so the Apicurio converters
+ * can be benchmarked without a running registry.
+ */
+public class InMemorySchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong(1);
+
+    private final ConcurrentHashMap<String, SchemaLookupResult<S>> byContent = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, SchemaLookupResult<S>> byGlobalId = new ConcurrentHashMap<>();
+
+    @Override
+    public SchemaLookupResult<S> resolveSchema(Record<T> data) {
+        ParsedSchema<S> parsedSchema = schemaParser.getSchemaFromData(data);
+        ArtifactReference reference = resolveArtifactReference(data, parsedSchema, false, null);
+        var contentKey = IoUtil.toString(parsedSchema.getRawSchema()) + "\n__artifact_id=" + reference.getArtifactId();
+        return byContent.computeIfAbsent(contentKey, key -> register(parsedSchema, reference));
+    }
+
+    @Override
+    public SchemaLookupResult<S> resolveSchemaByArtifactReference(ArtifactReference reference) {
+        var result = reference.getGlobalId() == null ? null : byGlobalId.get(reference.getGlobalId());
+        if (result == null) {
+            throw new IllegalStateException("Schema not registered in memory: " + reference);
+        }
+        return result;
+    }
+
+    private SchemaLookupResult<S> register(ParsedSchema<S> parsedSchema, ArtifactReference reference) {
+        var id = ID_SEQUENCE.getAndIncrement();
+        SchemaLookupResult<S> result = SchemaLookupResult.<S>builder()
+                .groupId(reference.getGroupId())
+                .artifactId(reference.getArtifactId())
+                .version("1")
+                .globalId(id)
+                .contentId(id)
+                .parsedSchema(parsedSchema)
+                .build();
+        byGlobalId.put(id, result);
+        return result;
+    }
+}
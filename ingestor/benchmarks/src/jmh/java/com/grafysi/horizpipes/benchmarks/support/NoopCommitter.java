@@ -0,0 +1,27 @@
+package com.grafysi.horizpipes.benchmarks.support;
+
+import io.debezium.engine.DebeziumEngine;
+
+/**
+ * Committer that drops every acknowledgement, for driving batch consumers outside an engine.
+ */
+public class NoopCommitter<R> implements DebeziumEngine.RecordCommitter<R> {
+
+    @Override
+    public void markProcessed(R record) {
+    }
+
+    @Override
+    public void markBatchFinished() {
+    }
+
+    @Override
+    public void markProcessed(R record, DebeziumEngine.Offsets sourceOffsets) {
+    }
+
+    @Override
+    public DebeziumEngine.Offsets buildOffsets() {
+        return (key, value) -> {
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.grafysi.horizpipes.benchmarks.support;
+
+import com.grafysi.horizpipes.utils.connect.apicurio.CustomSchemaResolver;
+import io.apicurio.registry.resolver.data.Record;
+import io.apicurio.registry.rest.client.RegistryClient;
+import io.apicurio.registry.rest.v2.beans.ArtifactMetaData;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CustomSchemaResolver} whose cache can be filled without a registry, so lookups
+ * on a warm cache can be measured.
+ */
+public class WarmSchemaResolver<S, T> extends CustomSchemaResolver<S, T> {
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong(1);
+
+    /**
+     * Resolves {@code data} once against a client that registers every artifact, so its schema is cached
+     * the way auto registration caches it, by content. The client stays in place and fails any other
+     * registry call, i.e. a lookup that misses the cache afterwards.
+     */
+    public void seed(Record<T> data) {
+        client = registeringClient();
+        resolveSchema(data);
+    }
+
+    private static RegistryClient registeringClient() {
+        return (RegistryClient) Proxy.newProxyInstance(WarmSchemaResolver.class.getClassLoader(),
+                new Class<?>[]{RegistryClient.class}, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> "RegisteringClient";
+                        };
+                    }
+                    if (!method.getName().equals("createArtifact")) {
+                        throw new IllegalStateException("Registry call on a warm cache: " + method.getName());
+                    }
+                    var id = ID_SEQUENCE.getAndIncrement();
+                    var metadata = new ArtifactMetaData();
+                    metadata.setGroupId((String) args[0]);
+                    metadata.setId((String) args[1]);
+                    metadata.setVersion("1");
+                    metadata.setGlobalId(id);
+                    metadata.setContentId(id);
+                    return metadata;
+                });
+    }
+}
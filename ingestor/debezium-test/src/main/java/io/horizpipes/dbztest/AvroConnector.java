@@ -1,7 +1,11 @@
 package io.horizpipes.dbztest;
 
+import com.grafysi.horizpipes.utils.debezium.HzpConnector;
 import com.grafysi.horizpipes.utils.debezium.HzpConvertingAsyncEngineBuilderFactory;
-import io.apicurio.registry.resolver.DefaultSchemaResolver;
+import com.grafysi.horizpipes.utils.debezium.pipeline.BatchConsumer;
+import com.grafysi.horizpipes.utils.debezium.pipeline.EnginePipeline;
+import com.grafysi.horizpipes.utils.debezium.pipeline.RingBufferHandoff;
+import com.grafysi.horizpipes.utils.debezium.registry.SchemaWarmup;
 import io.debezium.engine.ChangeEvent;
 import io.debezium.engine.DebeziumEngine;
 import io.debezium.engine.format.Avro;
@@ -11,32 +15,48 @@ import io.debezium.engine.format.KeyValueHeaderChangeEventFormat;
 import java.util.Properties;
 import java.util.function.Consumer;
 
-public class AvroConnector implements Runnable {
+public class AvroConnector implements HzpConnector {
 
-    private final DebeziumEngine<?> dbzEngine;
+    private final EnginePipeline<byte[], byte[]> pipeline;
 
     public AvroConnector(Properties props, Consumer<ChangeEvent<byte[], byte[]>> consumer) {
-        this.dbzEngine = DebeziumEngine.create(
+        this.pipeline = EnginePipeline.create(warmedUp(props), builder(), consumer);
+    }
+
+    public AvroConnector(Properties props, BatchConsumer<byte[], byte[]> consumer) {
+        this.pipeline = EnginePipeline.create(warmedUp(props), builder(), consumer);
+    }
+
+    /**
+     * Prefetches the table schemas with hzp.registry.warmup, before the converters are configured.
+     */
+    private static Properties warmedUp(Properties props) {
+        SchemaWarmup.run(props);
+        return props;
+    }
+
+    private static DebeziumEngine.Builder<ChangeEvent<byte[], byte[]>> builder() {
+        return DebeziumEngine.create(
                 KeyValueHeaderChangeEventFormat.of(Avro.class, Avro.class, Json.class),
-                        HzpConvertingAsyncEngineBuilderFactory.class.getName())
-                .using(props)
-                .notifying(consumer)
-                .build();
-
-        /*this.dbzEngine = DebeziumEngine.create(Avro.class)
-                .using(props)
-                .notifying(consumer)
-                .build();*/
+                HzpConvertingAsyncEngineBuilderFactory.class.getName());
+    }
+
+    /**
+     * Returns the ring buffer between engine and consumer, null unless {@code hzp.handoff.capacity} is set.
+     */
+    public RingBufferHandoff<byte[], byte[]> handoff() {
+        return pipeline.handoff();
     }
 
     @Override
     public void run() {
-        dbzEngine.run();
+        pipeline.engine().run();
     }
 
+    @Override
     public void stop() {
         try {
-            dbzEngine.close();
+            pipeline.close();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
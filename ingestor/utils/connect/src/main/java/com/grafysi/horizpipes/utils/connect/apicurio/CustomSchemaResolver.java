@@ -17,25 +17,40 @@
 /*
  * Edited by Grafysi team
  * Summary: change new artifact creation cache strategy from using contentId as key
- * to using both contentId and user provided artifact id as key
+ * to using both contentId and user provided artifact id as key, keyed by a fingerprint
+ * of the content, and skip the registry path on cache hits. Records tagged with a
+ * schema id by SchemaIdentityRegistry are resolved by that id once seen, and concurrent
+ * misses for the same key share one registry call. Registered schemas can be kept in a
+ * local file, which seeds the cache on start, as do schemas prefetched by SchemaPrefetch.
+ * Registry call counts are exposed over JMX.
  */
 
 package com.grafysi.horizpipes.utils.connect.apicurio;
 
+import com.grafysi.horizpipes.utils.connect.schema.SchemaIdentityRegistry;
 import io.apicurio.registry.resolver.*;
 import io.apicurio.registry.resolver.data.Record;
 import io.apicurio.registry.resolver.strategy.ArtifactCoordinates;
 import io.apicurio.registry.resolver.strategy.ArtifactReference;
+import io.apicurio.registry.rest.client.exception.NotFoundException;
 import io.apicurio.registry.rest.v2.beans.ArtifactMetaData;
 import io.apicurio.registry.rest.v2.beans.IfExists;
 import io.apicurio.registry.rest.v2.beans.VersionMetaData;
+import io.apicurio.registry.serde.SerdeConfig;
+import io.apicurio.registry.serde.data.KafkaSerdeRecord;
 import io.apicurio.registry.types.ContentTypes;
 import io.apicurio.registry.utils.IoUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.ObjectName;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
 
 /**
  * Default implementation of {@link SchemaResolver}
@@ -47,17 +62,62 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomSchemaResolver.class);
 
+    /**
+     * File keeping registered schemas across restarts, see {@link PersistentSchemaCache}. Not set by default.
+     */
+    public static final String REGISTRY_CACHE_FILE = "hzp.registry.cache.file";
+
+    /**
+     * Whether schemas loaded from {@link #REGISTRY_CACHE_FILE} are checked against the registry in the background.
+     */
+    public static final String REGISTRY_CACHE_VALIDATE = "hzp.registry.cache.validate";
+
     private boolean autoCreateArtifact;
     private IfExists autoCreateBehavior;
     private boolean findLatest;
     private boolean registerDereferenced;
 
+    /**
+     * Cache misses of concurrent threads for the same key share one registry call.
+     */
+    private SingleFlight<RegistryCall, SchemaLookupResult<S>> registryCalls;
+    private ObjectName registryCallsName;
+
+    /**
+     * Results by schema id. Only kept when the registered content decides the result, i.e. with auto
+     * registration and without find-latest, so they never go stale. Equal schemas of different tables
+     * share an id, so every result is pinned to what the strategy derives the artifact from.
+     */
+    private boolean resolveBySchemaId;
+    private volatile AtomicReferenceArray<ResolvedSchema<S>> resolvedBySchemaId = new AtomicReferenceArray<>(64);
+
+    /**
+     * Auto registered results by content key, under the same condition as {@link #resolvedBySchemaId}. The schema
+     * cache indexes them by versioned coordinates that a record's reference never matches, so cache hits are
+     * looked up here instead of through the registry path.
+     */
+    private final Map<String, SchemaLookupResult<S>> registeredByContent = new ConcurrentHashMap<>();
+
+    /**
+     * Registered schemas of previous runs, only results the registered content decides are kept.
+     */
+    private PersistentSchemaCache persistentCache;
+
+    /**
+     * {@link SchemaPrefetch#version()} of the prefetched schemas seeded last.
+     */
+    private volatile int prefetchVersion = -1;
+
     /**
      * @see AbstractSchemaResolver#reset()
      */
     @Override
     public void reset() {
         super.reset();
+        resolvedBySchemaId = new AtomicReferenceArray<>(64);
+        registeredByContent.clear();
+        // seeded again on the next miss
+        prefetchVersion = -1;
     }
 
     /**
@@ -75,11 +135,177 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
         this.registerDereferenced = config.registerDereferenced();
         this.autoCreateBehavior = IfExists.fromValue(config.autoRegisterArtifactIfExists());
         this.findLatest = config.findLatest();
+        this.resolveBySchemaId = autoCreateArtifact && !findLatest;
+        this.registryCalls = new SingleFlight<>();
+        // configured again on reconfiguration
+        RegistryCallMetrics.unregister(registryCallsName);
+        this.registryCallsName = RegistryCallMetrics.register(registryCalls,
+                Boolean.parseBoolean(String.valueOf(configs.get(SerdeConfig.IS_KEY))));
 
         schemaCache.configureContentKeyExtractor(schema ->
-                Optional.of(schemaCacheContentKeyFrom(schema.getParsedSchema(), schema.toArtifactReference())).orElse(null));
+                schemaCacheContentKeyFrom(schema.getParsedSchema(), schema.toArtifactReference()));
+
+        var cacheFile = configs.get(REGISTRY_CACHE_FILE);
+        if (cacheFile != null && !cacheFile.toString().isBlank()) {
+            try {
+                this.persistentCache = PersistentSchemaCache.shared(Paths.get(cacheFile.toString().trim()));
+            } catch (IOException e) {
+                LOGGER.warn("Not using schema cache {}", cacheFile, e);
+            }
+        }
+        if (persistentCache != null) {
+            var seeded = seed(persistentCache.entries());
+            LOGGER.info("Seeded {} schemas from the schema cache", seeded.size());
+            var validate = configs.get(REGISTRY_CACHE_VALIDATE);
+            if (!seeded.isEmpty() && (validate == null || Boolean.parseBoolean(validate.toString().trim()))) {
+                var validator = new Thread(() -> validatePersistentCache(seeded), "hzp-registry-cache-validator");
+                validator.setDaemon(true);
+                validator.start();
+            }
+        }
+        // after the file, prefetched schemas are fresh from the registry
+        seedPrefetched();
+    }
+
+    @Override
+    public void close() throws IOException {
+        RegistryCallMetrics.unregister(registryCallsName);
+        registryCallsName = null;
+        super.close();
+    }
+
+    /**
+     * Returns the registry calls of this resolver, with the number of calls in flight, made and coalesced.
+     * They are also registered over JMX, see {@link RegistryCallMetrics}.
+     */
+    public SingleFlight<?, ?> registryCalls() {
+        return registryCalls;
+    }
+
+    private <K> Function<K, SchemaLookupResult<S>> coalesced(String kind, Function<K, SchemaLookupResult<S>> loader) {
+        return key -> registryCalls.call(new RegistryCall(kind, key), () -> loader.apply(key));
+    }
+
+    private record RegistryCall(String kind, Object key) {
+    }
+
+    /**
+     * Seeds the schemas prefetched since the last call, only reads a counter if there are none.
+     */
+    private void seedPrefetched() {
+        if (SchemaPrefetch.version() == prefetchVersion) {
+            return;
+        }
+        synchronized (this) {
+            var version = SchemaPrefetch.version();
+            if (version == prefetchVersion) {
+                return;
+            }
+            var seeded = seed(SchemaPrefetch.entries());
+            prefetchVersion = version;
+            if (!seeded.isEmpty()) {
+                LOGGER.info("Seeded {} prefetched schemas", seeded.size());
+            }
+        }
     }
 
+    private List<PersistentSchemaCache.Entry> seed(Collection<PersistentSchemaCache.Entry> entries) {
+        var seeded = new ArrayList<PersistentSchemaCache.Entry>();
+        for (var entry : entries) {
+            if (entry.globalId() == null) {
+                continue;
+            }
+            try {
+                schemaCache.put(lookupResult(entry));
+                seeded.add(entry);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Ignoring cached schema of artifact {} that cannot be parsed", entry.artifactId(), e);
+            }
+        }
+        return seeded;
+    }
+
+    private SchemaLookupResult<S> lookupResult(PersistentSchemaCache.Entry entry) {
+        SchemaLookupResult.SchemaLookupResultBuilder<S> result = SchemaLookupResult.builder();
+        result.groupId(entry.groupId())
+                .artifactId(entry.artifactId())
+                .version(entry.version())
+                .globalId(entry.globalId());
+        if (entry.contentId() != null) {
+            result.contentId(entry.contentId());
+        }
+        result.parsedSchema(new ParsedSchemaImpl<S>()
+                .setParsedSchema(schemaParser.parseSchema(entry.rawSchema(), new HashMap<>()))
+                .setRawSchema(entry.rawSchema()));
+        return result.build();
+    }
+
+    /**
+     * Keeps {@code result} in the schema cache file, if there is one. Only results of content lookups and
+     * auto registration without references are kept, they never go stale unless the registry loses them.
+     */
+    private SchemaLookupResult<S> persisted(SchemaLookupResult<S> result) {
+        if (persistentCache == null) {
+            return result;
+        }
+        Long globalId = result.getGlobalId();
+        Long contentId = result.getContentId();
+        var parsedSchema = result.getParsedSchema();
+        if (globalId == null || result.getArtifactId() == null || parsedSchema == null
+                || parsedSchema.getRawSchema() == null || parsedSchema.hasReferences()) {
+            return result;
+        }
+        try {
+            persistentCache.put(PersistentSchemaCache.Entry.of(result.getGroupId(), result.getArtifactId(),
+                    result.getVersion(), globalId, contentId, parsedSchema.getRawSchema()));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to keep schema of artifact {} in the schema cache", result.getArtifactId(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Checks that the registry still maps every seeded schema to the same global id, e.g. it was not
+     * reset since. Stale entries are dropped from the file and the cache is reseeded without them; records
+     * serialized before that carry the stale ids. Stops at the first failure other than a missing artifact,
+     * the seeded entries then stay until the next start.
+     */
+    private void validatePersistentCache(List<PersistentSchemaCache.Entry> seeded) {
+        var valid = new ArrayList<PersistentSchemaCache.Entry>();
+        var stale = 0;
+        for (var entry : seeded) {
+            Long globalId;
+            try {
+                globalId = client.getArtifactVersionMetaDataByContent(entry.groupId(), entry.artifactId(), true,
+                        IoUtil.toStream(entry.rawSchema())).getGlobalId();
+            } catch (NotFoundException e) {
+                globalId = null;
+            } catch (RuntimeException e) {
+                LOGGER.warn("Stopped validating the schema cache after {} of {} schemas", valid.size() + stale, seeded.size(), e);
+                return;
+            }
+            if (Objects.equals(globalId, entry.globalId())) {
+                valid.add(entry);
+                continue;
+            }
+            stale++;
+            try {
+                persistentCache.remove(entry.artifactId(), entry.fingerprint());
+            } catch (IOException e) {
+                LOGGER.warn("Failed to drop stale schema of artifact {} from the schema cache", entry.artifactId(), e);
+            }
+        }
+        if (stale > 0) {
+            LOGGER.warn("Dropped {} stale schemas from the schema cache", stale);
+            reset();
+            valid.forEach(entry -> schemaCache.put(lookupResult(entry)));
+        }
+        LOGGER.info("Validated {} cached schemas against the registry", valid.size());
+    }
+
+    /**
+     * Computed per record only for records without a schema id, whose artifact coordinates miss the cache.
+     */
     private String schemaCacheContentKeyFrom(ParsedSchema<?> parsedSchema, ArtifactReference artifactReference) {
         if (parsedSchema == null) {
             return null;
@@ -88,8 +314,7 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
         // if not set, throw for bug detection
         String artifactId = Optional.of(artifactReference.getArtifactId()).orElseThrow();
 
-        return IoUtil.toString(parsedSchema.getRawSchema())
-                + "\n__artifact_id=" + artifactId;
+        return SchemaFingerprints.contentKey(parsedSchema.getRawSchema(), artifactId);
     }
 
     /**
@@ -100,6 +325,19 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
         Objects.requireNonNull(data);
         Objects.requireNonNull(data.payload());
 
+        final KafkaSerdeRecord<?> kafkaRecord = resolveBySchemaId && data instanceof KafkaSerdeRecord<?> record
+                && record.metadata() != null ? record : null;
+        final int schemaId = kafkaRecord != null
+                ? SchemaIdentityRegistry.schemaId(kafkaRecord.metadata().getHeaders(), kafkaRecord.metadata().isKey())
+                : 0;
+        final Object artifactSource = schemaId > 0 ? artifactSource(kafkaRecord) : null;
+        if (artifactSource != null) {
+            var resolved = resolvedBySchemaId;
+            var cached = schemaId < resolved.length() ? resolved.get(schemaId) : null;
+            if (cached != null && cached.matches(artifactSource)) {
+                return cached.result();
+            }
+        }
 
         ParsedSchema<S> parsedSchema = null;
         if (artifactResolverStrategy.loadSchema() && schemaParser.supportsExtractSchemaFromData()) {
@@ -108,8 +346,62 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
 
         final ArtifactReference artifactReference = resolveArtifactReference(data, parsedSchema, false, null);
 
-        return getSchemaFromCache(artifactReference)
-                .orElse(getSchemaFromRegistry(parsedSchema, data, artifactReference));
+        var cached = getSchemaFromCache(artifactReference);
+        if (cached.isEmpty() && resolveBySchemaId && schemaParser.supportsExtractSchemaFromData()) {
+            if (parsedSchema == null) {
+                parsedSchema = schemaParser.getSchemaFromData(data, registerDereferenced);
+            }
+            cached = Optional.ofNullable(registeredByContent.get(schemaCacheContentKeyFrom(parsedSchema, artifactReference)));
+        }
+
+        final ParsedSchema<S> schemaFromData = parsedSchema;
+        var result = cached
+                .orElseGet(() -> {
+                    // a shared converter may be configured before the connector prefetched its schemas
+                    seedPrefetched();
+                    return getSchemaFromRegistry(schemaFromData, data, artifactReference);
+                });
+        if (artifactSource != null) {
+            rememberBySchemaId(schemaId, new ResolvedSchema<>(artifactSource, result));
+        }
+        return result;
+    }
+
+    /**
+     * What the artifact reference is derived from besides the schema: the table id header for
+     * {@link CustomStrategy}, the topic for the built-in strategies. Null if it is unknown.
+     */
+    private Object artifactSource(KafkaSerdeRecord<?> kafkaRecord) {
+        if (artifactResolverStrategy instanceof CustomStrategy<?>) {
+            var headers = kafkaRecord.metadata().getHeaders();
+            var header = headers != null ? headers.lastHeader(CustomStrategy.TABLE_ID_HEADER) : null;
+            return header != null ? header.value() : null;
+        }
+        return kafkaRecord.metadata().getTopic();
+    }
+
+    private synchronized void rememberBySchemaId(int schemaId, ResolvedSchema<S> resolvedSchema) {
+        var resolved = resolvedBySchemaId;
+        if (schemaId >= resolved.length()) {
+            var grown = new AtomicReferenceArray<ResolvedSchema<S>>(Math.max(schemaId + 1, resolved.length() * 2));
+            for (int i = 0; i < resolved.length(); i++) {
+                grown.set(i, resolved.get(i));
+            }
+            resolvedBySchemaId = grown;
+            resolved = grown;
+        }
+        resolved.set(schemaId, resolvedSchema);
+    }
+
+    private record ResolvedSchema<S>(Object artifactSource, SchemaLookupResult<S> result) {
+
+        boolean matches(Object other) {
+            if (artifactSource instanceof byte[] bytes) {
+                // header bytes of a table are usually the same array, memoized by the header conversion
+                return other instanceof byte[] otherBytes && (bytes == otherBytes || Arrays.equals(bytes, otherBytes));
+            }
+            return artifactSource.equals(other);
+        }
     }
 
     private Optional<SchemaLookupResult<S>> getSchemaFromCache(ArtifactReference artifactReference) {
@@ -119,8 +411,10 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
             return Optional.of(resolveSchemaByContentId(artifactReference.getContentId()));
         } else if (artifactReference.getContentHash() != null && schemaCache.containsByContentHash(artifactReference.getContentHash())) {
             return Optional.of(resolveSchemaByContentHash(artifactReference.getContentHash()));
-        } else if (schemaCache.containsByArtifactCoordinates(ArtifactCoordinates.fromArtifactReference(artifactReference))) {
-            return Optional.of(resolveSchemaByArtifactCoordinatesCached(ArtifactCoordinates.fromArtifactReference(artifactReference)));
+        }
+        ArtifactCoordinates artifactCoordinates = ArtifactCoordinates.fromArtifactReference(artifactReference);
+        if (schemaCache.containsByArtifactCoordinates(artifactCoordinates)) {
+            return Optional.of(resolveSchemaByArtifactCoordinatesCached(artifactCoordinates));
         }
         return Optional.empty();
     }
@@ -212,7 +506,7 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
     }
 
     protected SchemaLookupResult<S> resolveSchemaByContentId(long contentId) {
-        return schemaCache.getByContentId(contentId, contentIdKey -> {
+        return schemaCache.getByContentId(contentId, coalesced("content-id", contentIdKey -> {
 
             // it's impossible to retrieve more info about the artifact with only the contentId, and that's ok for this case
             InputStream rawSchema = client.getContentById(contentIdKey);
@@ -235,11 +529,11 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
                     .contentId(contentIdKey)
                     .parsedSchema(ps)
                     .build();
-        });
+        }));
     }
 
     protected SchemaLookupResult<S> resolveSchemaByContentHash(String contentHash) {
-        return schemaCache.getByContentHash(contentHash, contentHashKey -> {
+        return schemaCache.getByContentHash(contentHash, coalesced("content-hash", contentHashKey -> {
 
             // it's impossible to retrieve more info about the artifact with only the contentHash, and that's ok for this case
             InputStream rawSchema = client.getContentByHash(contentHashKey);
@@ -262,7 +556,7 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
                     .contentHash(contentHashKey)
                     .parsedSchema(ps)
                     .build();
-        });
+        }));
     }
 
     /**
@@ -273,10 +567,10 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
     private SchemaLookupResult<S> handleResolveSchemaByContent(ParsedSchema<S> parsedSchema,
                                                                final ArtifactReference artifactReference) {
 
-        return schemaCache.getByContent(schemaCacheContentKeyFrom(parsedSchema, artifactReference), contentKey -> {
+        return schemaCache.getByContent(schemaCacheContentKeyFrom(parsedSchema, artifactReference), coalesced("content", contentKey -> {
 
             VersionMetaData artifactMetadata = client.getArtifactVersionMetaDataByContent(
-                    artifactReference.getGroupId(), artifactReference.getArtifactId(), true, IoUtil.toStream(contentKey));
+                    artifactReference.getGroupId(), artifactReference.getArtifactId(), true, IoUtil.toStream(parsedSchema.getRawSchema()));
 
             SchemaLookupResult.SchemaLookupResultBuilder<S> result = SchemaLookupResult.builder();
 
@@ -284,14 +578,15 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
 
             result.parsedSchema(parsedSchema);
 
-            return result.build();
-        });
+            return persisted(result.build());
+        }));
     }
 
     private SchemaLookupResult<S> handleAutoCreateArtifact(ParsedSchema<S> parsedSchema,
                                                            final ArtifactReference artifactReference) {
 
-        return schemaCache.getByContent(schemaCacheContentKeyFrom(parsedSchema, artifactReference), contentKey -> {
+        var contentKey = schemaCacheContentKeyFrom(parsedSchema, artifactReference);
+        var registered = schemaCache.getByContent(contentKey, coalesced("create", key -> {
 
             ArtifactMetaData artifactMetadata = client.createArtifact(artifactReference.getGroupId(), artifactReference.getArtifactId(), artifactReference.getVersion(),
                     schemaParser.artifactType(), this.autoCreateBehavior, false, IoUtil.toStream(parsedSchema.getRawSchema()));
@@ -304,8 +599,12 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
 
             LOGGER.info("Created apicurio artifact with id {}", artifactReference.getArtifactId());
 
-            return result.build();
-        });
+            return persisted(result.build());
+        }));
+        if (resolveBySchemaId) {
+            registeredByContent.put(contentKey, registered);
+        }
+        return registered;
     }
 
     private SchemaLookupResult<S> handleAutoCreateArtifact(ParsedSchema<S> parsedSchema,
@@ -313,7 +612,7 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
 
         final List<io.apicurio.registry.rest.v2.beans.ArtifactReference> artifactReferences = parseReferences(referenceLookups);
 
-        return schemaCache.getByContent(schemaCacheContentKeyFrom(parsedSchema, artifactReference), contentKey -> {
+        return schemaCache.getByContent(schemaCacheContentKeyFrom(parsedSchema, artifactReference), coalesced("create", contentKey -> {
 
             ArtifactMetaData artifactMetadata = client.createArtifact(artifactReference.getGroupId(), artifactReference.getArtifactId(), artifactReference.getVersion(),
                     schemaParser.artifactType(), this.autoCreateBehavior, false, null, null, ContentTypes.APPLICATION_CREATE_EXTENDED, null, null, IoUtil.toStream(parsedSchema.getRawSchema()), artifactReferences);
@@ -327,7 +626,7 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
             //LOGGER.info("Created apicurio artifact with id {}", artifactReference.getArtifactId());
 
             return result.build();
-        });
+        }));
     }
 
     private List<io.apicurio.registry.rest.v2.beans.ArtifactReference> parseReferences(List<SchemaLookupResult<S>> referenceLookups) {
@@ -346,19 +645,20 @@ public class CustomSchemaResolver<S, T> extends AbstractSchemaResolver<S, T> {
     }
 
     private SchemaLookupResult<S> resolveSchemaByArtifactCoordinatesCached(ArtifactCoordinates artifactCoordinates) {
-        return schemaCache.getByArtifactCoordinates(artifactCoordinates, artifactCoordinatesKey -> resolveByCoordinates(artifactCoordinatesKey.getGroupId(), artifactCoordinatesKey.getArtifactId(), artifactCoordinatesKey.getVersion()));
+        return schemaCache.getByArtifactCoordinates(artifactCoordinates, coalesced("coordinates", artifactCoordinatesKey -> resolveByCoordinates(artifactCoordinatesKey.getGroupId(), artifactCoordinatesKey.getArtifactId(), artifactCoordinatesKey.getVersion())));
     }
 
 
     private SchemaLookupResult<S> resolveSchemaByArtifactReferenceCached(ArtifactReference artifactReference) {
         if (artifactReference.getGlobalId() != null) {
-            return schemaCache.getByGlobalId(artifactReference.getGlobalId(), this::resolveSchemaByGlobalId);
+            return schemaCache.getByGlobalId(artifactReference.getGlobalId(), coalesced("global-id", this::resolveSchemaByGlobalId));
         } else if (artifactReference.getContentId() != null) {
+            // coalesced by resolveSchemaByContentId itself
             return schemaCache.getByContentId(artifactReference.getContentId(), this::resolveSchemaByContentId);
         } else if (artifactReference.getContentHash() != null) {
             return schemaCache.getByContentHash(artifactReference.getContentHash(), this::resolveSchemaByContentHash);
         } else {
-            return schemaCache.getByArtifactCoordinates(ArtifactCoordinates.fromArtifactReference(artifactReference), artifactReferenceKey -> resolveByCoordinates(artifactReferenceKey.getGroupId(), artifactReferenceKey.getArtifactId(), artifactReferenceKey.getVersion()));
+            return schemaCache.getByArtifactCoordinates(ArtifactCoordinates.fromArtifactReference(artifactReference), coalesced("coordinates", artifactReferenceKey -> resolveByCoordinates(artifactReferenceKey.getGroupId(), artifactReferenceKey.getArtifactId(), artifactReferenceKey.getVersion())));
         }
     }
 
@@ -19,7 +19,10 @@ public class CustomStrategy<T> implements ArtifactReferenceResolverStrategy<T, O
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomStrategy.class);
 
-    private static final String TABLE_ID_HEADER = "__from_table";
+    /**
+     * Header holding the table id artifacts are named after.
+     */
+    public static final String TABLE_ID_HEADER = "__from_table";
 
     private final Pattern PATTERN = Pattern.compile("\\{\"schema\":.*,\"payload\":\"(.*)\"}");
 
@@ -0,0 +1,339 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Registered schemas kept across restarts in a memory-mapped, append-only file, keyed by artifact id
+ * and {@link SchemaFingerprints fingerprint} of the raw schema. Every change appends one CRC-framed record;
+ * the mapping is not forced per record, written records survive a process crash and are forced on close.
+ * <p>
+ * When the file is full it is compacted into a new one holding the live entries, doubling the size if
+ * they need it. On open the file is scanned up to the first missing or corrupt record and compacted.
+ * <p>
+ * Record layout: {@code [int payload length][int crc32c][long fingerprint][string artifact id][byte kind]},
+ * followed for a put by {@code [string group id][string version][long global id][long content id][int length][raw schema]},
+ * where a string is {@code [int length][utf-8]}, a length of -1 is null and an id of -1 is absent.
+ */
+public final class PersistentSchemaCache implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentSchemaCache.class);
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private static final int MAGIC = 0x485A5053;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte PUT = 0;
+    private static final byte REMOVE = 1;
+    private static final long NO_ID = -1;
+
+    private static final Map<Path, PersistentSchemaCache> SHARED = new ConcurrentHashMap<>();
+
+    /**
+     * A registered schema, {@code globalId} and {@code contentId} are null if unknown.
+     */
+    public record Entry(String groupId, String artifactId, String version, Long globalId, Long contentId,
+                        long fingerprint, byte[] rawSchema) {
+
+        public Entry {
+            Objects.requireNonNull(artifactId, "artifactId");
+            Objects.requireNonNull(rawSchema, "rawSchema");
+        }
+
+        public static Entry of(String groupId, String artifactId, String version, Long globalId, Long contentId,
+                               byte[] rawSchema) {
+            return new Entry(groupId, artifactId, version, globalId, contentId,
+                    SchemaFingerprints.fingerprint(rawSchema), rawSchema);
+        }
+
+        private Key key() {
+            return new Key(artifactId, fingerprint);
+        }
+
+        private boolean sameAs(Entry other) {
+            return Objects.equals(groupId, other.groupId) && Objects.equals(version, other.version)
+                    && Objects.equals(globalId, other.globalId) && Objects.equals(contentId, other.contentId);
+        }
+    }
+
+    private record Key(String artifactId, long fingerprint) {
+    }
+
+    private final Path path;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int position;
+
+    private PersistentSchemaCache(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens the cache at {@code path}, creating the file if it does not exist.
+     */
+    public static PersistentSchemaCache open(Path path) throws IOException {
+        var cache = new PersistentSchemaCache(path);
+        cache.recover();
+        cache.compact(cache.requiredCapacity());
+        LOGGER.info("Loaded {} cached schemas from {}", cache.entries.size(), path);
+        return cache;
+    }
+
+    /**
+     * Returns the cache at {@code path} shared by all resolvers of the process, opened on first use.
+     * The key and value resolvers of a connector, or several connectors, may point to the same file.
+     */
+    public static PersistentSchemaCache shared(Path path) throws IOException {
+        try {
+            return SHARED.computeIfAbsent(path.toAbsolutePath().normalize(), absolutePath -> {
+                try {
+                    return open(absolutePath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public Entry get(String artifactId, long fingerprint) {
+        return entries.get(new Key(artifactId, fingerprint));
+    }
+
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stores {@code entry}, returns false if an equal entry was stored already and nothing was written.
+     */
+    public synchronized boolean put(Entry entry) throws IOException {
+        var previous = entries.get(entry.key());
+        if (previous != null && previous.sameAs(entry)) {
+            return false;
+        }
+        entries.put(entry.key(), entry);
+        append(putPayload(entry));
+        return true;
+    }
+
+    public synchronized boolean remove(String artifactId, long fingerprint) throws IOException {
+        if (entries.remove(new Key(artifactId, fingerprint)) == null) {
+            return false;
+        }
+        append(removePayload(artifactId, fingerprint));
+        return true;
+    }
+
+    /**
+     * Current size of the mapped file in bytes.
+     */
+    public synchronized int capacity() {
+        return mapped == null ? 0 : mapped.capacity();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        SHARED.remove(path.toAbsolutePath().normalize(), this);
+        if (channel != null) {
+            mapped.force();
+            channel.close();
+            channel = null;
+            mapped = null;
+        }
+    }
+
+    private void append(byte[] payload) throws IOException {
+        if (channel == null) {
+            throw new IOException("Schema cache " + path + " is closed");
+        }
+        if (position + RECORD_HEADER_SIZE + payload.length > mapped.capacity()) {
+            // entries already hold the change, so the compacted file covers this record as well
+            compact(requiredCapacity());
+            return;
+        }
+        writeRecord(mapped, position, payload);
+        position += RECORD_HEADER_SIZE + payload.length;
+    }
+
+    private int requiredCapacity() {
+        var liveBytes = (long) HEADER_SIZE;
+        for (var entry : entries.values()) {
+            liveBytes += RECORD_HEADER_SIZE + putPayloadSize(entry);
+        }
+        var capacity = DEFAULT_CAPACITY;
+        while (capacity < 2 * liveBytes) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void recover() throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return;
+        }
+        try (var readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var log = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            if (log.getInt(0) != MAGIC || log.getInt(4) != VERSION) {
+                throw new IOException(path + " is not a horizpipes schema cache");
+            }
+            var offset = HEADER_SIZE;
+            while (offset + RECORD_HEADER_SIZE <= log.capacity()) {
+                var payloadSize = log.getInt(offset);
+                if (payloadSize <= 0 || offset + RECORD_HEADER_SIZE + payloadSize > log.capacity()) {
+                    break;
+                }
+                var payload = log.slice(offset + RECORD_HEADER_SIZE, payloadSize);
+                if (crc(payload) != log.getInt(offset + 4)) {
+                    LOGGER.warn("Dropping corrupt schema cache record at {} of {}", offset, path);
+                    break;
+                }
+                readRecord(payload);
+                offset += RECORD_HEADER_SIZE + payloadSize;
+            }
+        }
+    }
+
+    /**
+     * Rewrites the live entries into a new file of {@code capacity} bytes, which replaces the current one.
+     */
+    private void compact(int capacity) throws IOException {
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        var compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (var compactChannel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var log = compactChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            log.putInt(0, MAGIC);
+            log.putInt(4, VERSION);
+            var end = HEADER_SIZE;
+            for (var entry : entries.values()) {
+                var payload = putPayload(entry);
+                writeRecord(log, end, payload);
+                end += RECORD_HEADER_SIZE + payload.length;
+            }
+            log.force();
+            position = end;
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        LOGGER.debug("Compacted {} cached schemas into {} ({} of {} bytes)", entries.size(), path, position, capacity);
+    }
+
+    private void readRecord(ByteBuffer payload) {
+        var fingerprint = payload.getLong();
+        var artifactId = readString(payload);
+        if (payload.get() == REMOVE) {
+            entries.remove(new Key(artifactId, fingerprint));
+            return;
+        }
+        var groupId = readString(payload);
+        var version = readString(payload);
+        var globalId = payload.getLong();
+        var contentId = payload.getLong();
+        var rawSchema = new byte[payload.getInt()];
+        payload.get(rawSchema);
+        var entry = new Entry(groupId, artifactId, version, globalId == NO_ID ? null : globalId,
+                contentId == NO_ID ? null : contentId, fingerprint, rawSchema);
+        entries.put(entry.key(), entry);
+    }
+
+    private static byte[] putPayload(Entry entry) {
+        var payload = ByteBuffer.allocate(putPayloadSize(entry));
+        payload.putLong(entry.fingerprint());
+        writeString(payload, entry.artifactId());
+        payload.put(PUT);
+        writeString(payload, entry.groupId());
+        writeString(payload, entry.version());
+        payload.putLong(entry.globalId() == null ? NO_ID : entry.globalId());
+        payload.putLong(entry.contentId() == null ? NO_ID : entry.contentId());
+        payload.putInt(entry.rawSchema().length);
+        payload.put(entry.rawSchema());
+        return payload.array();
+    }
+
+    private static int putPayloadSize(Entry entry) {
+        return 8 + stringSize(entry.artifactId()) + 1 + stringSize(entry.groupId()) + stringSize(entry.version())
+                + 16 + 4 + entry.rawSchema().length;
+    }
+
+    private static byte[] removePayload(String artifactId, long fingerprint) {
+        var payload = ByteBuffer.allocate(8 + stringSize(artifactId) + 1);
+        payload.putLong(fingerprint);
+        writeString(payload, artifactId);
+        payload.put(REMOVE);
+        return payload.array();
+    }
+
+    private static void writeRecord(ByteBuffer log, int offset, byte[] payload) {
+        log.put(offset + RECORD_HEADER_SIZE, payload);
+        log.putInt(offset + 4, crc(ByteBuffer.wrap(payload)));
+        // the length goes last, until then a torn record reads as the end of the file
+        log.putInt(offset, payload.length);
+    }
+
+    private static int stringSize(String value) {
+        return 4 + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int crc(ByteBuffer payload) {
+        var crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+}
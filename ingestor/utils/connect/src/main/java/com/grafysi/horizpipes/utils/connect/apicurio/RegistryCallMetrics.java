@@ -0,0 +1,84 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exposes the registry calls of a {@link CustomSchemaResolver} over JMX, as
+ * {@code com.grafysi.horizpipes:type=RegistryCalls,resolver=<key|value>,id=<n>}.
+ */
+public final class RegistryCallMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistryCallMetrics.class);
+
+    public static final String DOMAIN = "com.grafysi.horizpipes";
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    public interface RegistryCallsMXBean {
+
+        int getInFlight();
+
+        long getCalls();
+
+        long getCoalesced();
+
+        long getFailed();
+    }
+
+    /**
+     * Registers the counters of {@code calls}, returns the name to unregister them with, null if that failed.
+     */
+    static ObjectName register(SingleFlight<?, ?> calls, boolean isKey) {
+        var bean = new RegistryCallsMXBean() {
+            @Override
+            public int getInFlight() {
+                return calls.inFlight();
+            }
+
+            @Override
+            public long getCalls() {
+                return calls.calls();
+            }
+
+            @Override
+            public long getCoalesced() {
+                return calls.coalesced();
+            }
+
+            @Override
+            public long getFailed() {
+                return calls.failed();
+            }
+        };
+        try {
+            var name = new ObjectName(DOMAIN + ":type=RegistryCalls,resolver=" + (isKey ? "key" : "value")
+                    + ",id=" + IDS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(bean, RegistryCallsMXBean.class, true), name);
+            return name;
+        } catch (JMException e) {
+            LOGGER.warn("Failed to register registry call metrics", e);
+            return null;
+        }
+    }
+
+    static void unregister(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            LOGGER.debug("Failed to unregister {}", name, e);
+        }
+    }
+
+    private RegistryCallMetrics() {
+    }
+}
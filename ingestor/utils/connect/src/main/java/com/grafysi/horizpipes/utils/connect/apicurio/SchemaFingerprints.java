@@ -0,0 +1,41 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+/**
+ * 64-bit Rabin fingerprints (CRC-64-AVRO) of raw schemas, used instead of the schema text to key
+ * the content index of the schema cache.
+ */
+public final class SchemaFingerprints {
+
+    static final long EMPTY = 0xc15d213aa4d7a795L;
+
+    private static final long[] TABLE = new long[256];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++) {
+            long fingerprint = i;
+            for (int j = 0; j < 8; j++) {
+                fingerprint = (fingerprint >>> 1) ^ (EMPTY & -(fingerprint & 1L));
+            }
+            TABLE[i] = fingerprint;
+        }
+    }
+
+    public static long fingerprint(byte[] rawSchema) {
+        long fingerprint = EMPTY;
+        for (byte b : rawSchema) {
+            fingerprint = (fingerprint >>> 8) ^ TABLE[(int) (fingerprint ^ b) & 0xff];
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Content cache key of {@code rawSchema} registered as {@code artifactId}, so equal schemas
+     * of different tables stay separate artifacts.
+     */
+    public static String contentKey(byte[] rawSchema, String artifactId) {
+        return Long.toHexString(fingerprint(rawSchema)) + '/' + artifactId;
+    }
+
+    private SchemaFingerprints() {
+    }
+}
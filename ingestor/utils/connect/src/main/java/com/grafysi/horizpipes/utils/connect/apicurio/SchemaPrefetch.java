@@ -0,0 +1,147 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import io.apicurio.registry.resolver.DefaultSchemaResolver;
+import io.apicurio.registry.rest.client.RegistryClient;
+import io.apicurio.registry.rest.client.exception.NotFoundException;
+import io.apicurio.registry.serde.SerdeConfig;
+import io.apicurio.registry.utils.IoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latest registered schemas of known artifacts, fetched ahead of the first records, e.g. at connector
+ * start, and seeded into the cache of every {@link CustomSchemaResolver}. Seeded schemas are found by
+ * content, so records of a table deriving another schema than the latest registered one just miss.
+ */
+public final class SchemaPrefetch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaPrefetch.class);
+
+    private static final Map<String, PersistentSchemaCache.Entry> PREFETCHED = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger VERSION = new AtomicInteger();
+
+    /**
+     * Connectors warming up side by side fetch a shared artifact once.
+     */
+    private static final SingleFlight<String, PersistentSchemaCache.Entry> FETCHES = new SingleFlight<>();
+
+    /**
+     * Fetches the latest version of every artifact in {@code artifactIds} from the registry configured by
+     * {@code converterConfig}, the {@code apicurio.registry.*} config of the converter without its prefix,
+     * {@code parallelism} at a time. The client authenticates like the converter's, and artifacts are looked up
+     * in its {@code apicurio.registry.artifact.group-id}, if any. Artifacts that are not registered yet are
+     * skipped, they are registered by their first record. Returns the number of schemas fetched.
+     */
+    public static int prefetch(Map<String, ?> converterConfig, Collection<String> artifactIds, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Prefetch parallelism must be positive: " + parallelism);
+        }
+        var groupId = converterConfig.get(SerdeConfig.EXPLICIT_ARTIFACT_GROUP_ID);
+        // not an overload taking the client, callers need not have the registry client on their compile path
+        var client = ClientFactory.create(converterConfig);
+        try {
+            return prefetchAll(client, groupId == null ? null : groupId.toString(), artifactIds, parallelism);
+        } finally {
+            try {
+                client.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close registry client", e);
+            }
+        }
+    }
+
+    /**
+     * Builds the registry client the way the converter's resolver does, with its authentication and TLS settings.
+     */
+    private static final class ClientFactory extends DefaultSchemaResolver<Object, Object> {
+
+        static RegistryClient create(Map<String, ?> converterConfig) {
+            var config = new HashMap<String, Object>(converterConfig);
+            // only the client is used, a strategy loading no schema from the data needs no parser
+            config.put(SerdeConfig.ARTIFACT_RESOLVER_STRATEGY, CustomStrategy.class.getName());
+            var factory = new ClientFactory();
+            factory.configure(config, null);
+            return factory.client;
+        }
+    }
+
+    private static int prefetchAll(RegistryClient client, String groupId, Collection<String> artifactIds, int parallelism) {
+        var threads = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(artifactIds.size(), 1)), task -> {
+            var thread = new Thread(task, "hzp-schema-prefetch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        var futures = new ArrayList<CompletableFuture<PersistentSchemaCache.Entry>>();
+        for (var artifactId : artifactIds) {
+            futures.add(FETCHES.callAsync(groupId + "/" + artifactId, () -> fetch(client, groupId, artifactId), executor));
+        }
+        var fetched = 0;
+        try {
+            for (var future : futures) {
+                var entry = future.get();
+                if (entry != null) {
+                    PREFETCHED.put(entry.artifactId(), entry);
+                    fetched++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // fetch() handles its own failures
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (fetched > 0) {
+            VERSION.incrementAndGet();
+        }
+        return fetched;
+    }
+
+    private static PersistentSchemaCache.Entry fetch(RegistryClient client, String groupId, String artifactId) {
+        try {
+            var metadata = client.getArtifactMetaData(groupId, artifactId);
+            var rawSchema = IoUtil.toBytes(client.getContentByGlobalId(metadata.getGlobalId()));
+            return PersistentSchemaCache.Entry.of(metadata.getGroupId(), artifactId, metadata.getVersion(),
+                    metadata.getGlobalId(), metadata.getContentId(), rawSchema);
+        } catch (NotFoundException e) {
+            LOGGER.debug("Artifact {} is not registered yet", artifactId);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to prefetch schema of artifact {}", artifactId, e);
+        }
+        return null;
+    }
+
+    public static Collection<PersistentSchemaCache.Entry> entries() {
+        return Collections.unmodifiableCollection(PREFETCHED.values());
+    }
+
+    /**
+     * Incremented whenever a prefetch added schemas, so resolvers configured before can seed them as well.
+     */
+    public static int version() {
+        return VERSION.get();
+    }
+
+    public static void clear() {
+        PREFETCHED.clear();
+        VERSION.incrementAndGet();
+    }
+
+    private SchemaPrefetch() {
+    }
+}
@@ -0,0 +1,127 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into one in-flight call, so threads missing the same
+ * schema wait for a single registry request. The first caller of a key makes the call on its own thread
+ * and the others wait for its result; calls for different keys never wait on each other.
+ * {@link #callAsync} makes the call on an executor instead, for callers that do not wait, e.g. a prefetch.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private record Flight<V>(CompletableFuture<V> future, Thread caller) {
+    }
+
+    /**
+     * Returns the result of {@code call} for {@code key}, joining the call already in flight for it if there is one.
+     * Failures are rethrown to every waiting caller and are not remembered.
+     */
+    public V call(K key, Supplier<V> call) {
+        var created = new Flight<V>(new CompletableFuture<>(), Thread.currentThread());
+        var flight = inFlight.putIfAbsent(key, created);
+        if (flight != null) {
+            if (flight.caller() == Thread.currentThread()) {
+                // reentrant call for the same key, e.g. while resolving references, would wait on itself
+                return call.get();
+            }
+            coalesced.increment();
+            return await(flight.future());
+        }
+        calls.increment();
+        run(key, created, call);
+        return await(created.future());
+    }
+
+    /**
+     * Like {@link #call}, but a call that is not in flight yet runs on {@code executor}.
+     */
+    public CompletableFuture<V> callAsync(K key, Supplier<V> call, Executor executor) {
+        var created = new Flight<V>(new CompletableFuture<>(), null);
+        var flight = inFlight.putIfAbsent(key, created);
+        if (flight != null) {
+            coalesced.increment();
+            return flight.future();
+        }
+        calls.increment();
+        try {
+            executor.execute(() -> run(key, created, call));
+        } catch (RuntimeException e) {
+            // e.g. rejected
+            inFlight.remove(key, created);
+            failed.increment();
+            created.future().completeExceptionally(e);
+        }
+        return created.future();
+    }
+
+    /**
+     * Calls currently in flight.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Calls started, i.e. not joined to one in flight.
+     */
+    public long calls() {
+        return calls.sum();
+    }
+
+    /**
+     * Calls that joined one in flight instead of being made.
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    private void run(K key, Flight<V> flight, Supplier<V> call) {
+        V result;
+        try {
+            result = call.get();
+        } catch (Throwable e) {
+            failed.increment();
+            inFlight.remove(key, flight);
+            flight.future().completeExceptionally(e);
+            return;
+        }
+        // removed before completing, so a caller woken by the result never joins a finished call
+        inFlight.remove(key, flight);
+        flight.future().complete(result);
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for registry call", e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+}
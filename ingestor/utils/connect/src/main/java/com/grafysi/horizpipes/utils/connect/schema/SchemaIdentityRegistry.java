@@ -0,0 +1,122 @@
+package com.grafysi.horizpipes.utils.connect.schema;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.connect.data.Schema;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JVM-wide registry giving every distinct Connect schema a stable positive int id. Debezium reuses the
+ * same schema instance for all records of a table until its structure changes, so schemas are looked up
+ * by identity first; {@code Schema#equals} and {@code hashCode}, which walk the whole schema, only run
+ * when a new instance shows up. An equal new instance gets the id of the old one.
+ * <p>
+ * The ids travel to the key/value converters as {@link #KEY_SCHEMA_ID_HEADER} and {@link #VALUE_SCHEMA_ID_HEADER}
+ * Kafka headers, which are never part of the emitted event, so the schema resolver can skip its own lookups.
+ */
+public final class SchemaIdentityRegistry {
+
+    public static final String KEY_SCHEMA_ID_HEADER = "__hzp_key_schema_id";
+    public static final String VALUE_SCHEMA_ID_HEADER = "__hzp_value_schema_id";
+
+    /**
+     * Bound of the identity index. Dropping it only costs deep lookups for the schemas seen next,
+     * their ids are kept.
+     */
+    private static final int MAX_INSTANCES = 16_384;
+
+    private static final SchemaIdentityRegistry INSTANCE = new SchemaIdentityRegistry();
+
+    private final ConcurrentHashMap<SchemaIdentity, Ids> byInstance = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Schema, Ids> byContent = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    public static SchemaIdentityRegistry get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the id of {@code schema}, 0 for a null schema.
+     */
+    public int id(Schema schema) {
+        return schema == null ? 0 : ids(schema).id();
+    }
+
+    /**
+     * Adds the ids of {@code keySchema} and {@code valueSchema} to the Kafka headers handed to the converters.
+     * Only named schemas are tagged: an unnamed one, e.g. a plain string key, may be shared by tables that
+     * resolve to different artifacts.
+     */
+    public void tag(Headers kafkaHeaders, Schema keySchema, Schema valueSchema) {
+        if (keySchema != null && keySchema.name() != null) {
+            kafkaHeaders.add(ids(keySchema).keyHeader());
+        }
+        if (valueSchema != null && valueSchema.name() != null) {
+            kafkaHeaders.add(ids(valueSchema).valueHeader());
+        }
+    }
+
+    /**
+     * Returns the schema id of the key or value carried in {@code kafkaHeaders}, 0 if there is none.
+     */
+    public static int schemaId(Headers kafkaHeaders, boolean isKey) {
+        if (kafkaHeaders == null) {
+            return 0;
+        }
+        var header = kafkaHeaders.lastHeader(isKey ? KEY_SCHEMA_ID_HEADER : VALUE_SCHEMA_ID_HEADER);
+        var value = header != null ? header.value() : null;
+        return value != null && value.length == Integer.BYTES ? ByteBuffer.wrap(value).getInt() : 0;
+    }
+
+    /**
+     * Number of distinct schemas, by content, that got an id.
+     */
+    public int size() {
+        return byContent.size();
+    }
+
+    private Ids ids(Schema schema) {
+        var identity = new SchemaIdentity(schema);
+        var ids = byInstance.get(identity);
+        if (ids != null) {
+            return ids;
+        }
+        ids = byContent.computeIfAbsent(schema, s -> Ids.of(sequence.incrementAndGet()));
+        if (byInstance.size() >= MAX_INSTANCES) {
+            byInstance.clear();
+        }
+        byInstance.put(identity, ids);
+        return ids;
+    }
+
+    /**
+     * An id with its headers, which are created once and shared by all records.
+     */
+    private record Ids(int id, Header keyHeader, Header valueHeader) {
+
+        static Ids of(int id) {
+            var value = ByteBuffer.allocate(Integer.BYTES).putInt(id).array();
+            return new Ids(id, new RecordHeader(KEY_SCHEMA_ID_HEADER, value), new RecordHeader(VALUE_SCHEMA_ID_HEADER, value));
+        }
+    }
+
+    private record SchemaIdentity(Schema schema) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SchemaIdentity other && other.schema == schema;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(schema);
+        }
+    }
+
+    private SchemaIdentityRegistry() {
+    }
+}
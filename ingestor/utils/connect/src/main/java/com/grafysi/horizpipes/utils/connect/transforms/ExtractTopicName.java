@@ -13,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 
@@ -31,6 +32,13 @@ public class ExtractTopicName<R extends ConnectRecord<R>> implements Transformat
     public static final String TOPIC_REGEX = "topic.regex";
     public static final String HEADER_NAME = "header.name";
     public static final String HEADER_VALUE_FORMAT = "header.value.format";
+    public static final String CACHE_SHARED = "cache.shared";
+
+    /**
+     * Header values only depend on the regex, the format and the topic, so instances with the
+     * same regex and format (e.g. one per connector in a shared runtime) can use one cache.
+     */
+    private static final Map<String, Cache<String, String>> SHARED_CACHES = new ConcurrentHashMap<>();
 
     private static final ConfigDef CONFIG_DEF = new ConfigDef()
             .define(TOPIC_REGEX, ConfigDef.Type.STRING,
@@ -45,7 +53,12 @@ public class ExtractTopicName<R extends ConnectRecord<R>> implements Transformat
                     NO_DEFAULT_VALUE, new ConfigDef.NonEmptyString(),
                     ConfigDef.Importance.HIGH,
                     "The format of the value of the new header, can be formed by word group extracted from "
-                            + TOPIC_REGEX + " using $n where n is group index starting from 1");
+                            + TOPIC_REGEX + " using $n where n is group index starting from 1")
+            .define(CACHE_SHARED, ConfigDef.Type.BOOLEAN,
+                    false,
+                    ConfigDef.Importance.LOW,
+                    "Share the header value cache with other instances configured with the same "
+                            + TOPIC_REGEX + " and " + HEADER_VALUE_FORMAT);
 
     private Pattern topicRegex;
 
@@ -71,7 +84,13 @@ public class ExtractTopicName<R extends ConnectRecord<R>> implements Transformat
         topicRegex = Pattern.compile(config.getString(TOPIC_REGEX));
         headerName = config.getString(HEADER_NAME);
         headerValueFormat = config.getString(HEADER_VALUE_FORMAT);
-        headerValueCache = new SynchronizedCache<>(new LRUCache<>(CACHE_SIZE));
+        headerValueCache = config.getBoolean(CACHE_SHARED)
+                ? SHARED_CACHES.computeIfAbsent(topicRegex.pattern() + "\n" + headerValueFormat, k -> newCache())
+                : newCache();
+    }
+
+    private static Cache<String, String> newCache() {
+        return new SynchronizedCache<>(new LRUCache<>(CACHE_SIZE));
     }
 
     @Override
@@ -83,7 +102,7 @@ public class ExtractTopicName<R extends ConnectRecord<R>> implements Transformat
     public R apply(R record) {
         var topic = record.topic();
 
-        var headerValue = formHeaderValueWith(topic);
+        var headerValue = headerValue(topic);
 
         //LOGGER.debug("Header value: {}", headerValue);
 
@@ -118,7 +137,10 @@ public class ExtractTopicName<R extends ConnectRecord<R>> implements Transformat
                 .toArray(String[]::new);
     }
 
-    private String formHeaderValueWith(String topic) {
+    /**
+     * Returns the header value added to records of {@code topic}, null if the topic does not match.
+     */
+    public String headerValue(String topic) {
         var cachedValue = headerValueCache.get(topic);
         if (cachedValue != null) {
             return cachedValue;
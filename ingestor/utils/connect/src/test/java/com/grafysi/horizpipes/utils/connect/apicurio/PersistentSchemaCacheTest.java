@@ -0,0 +1,113 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersistentSchemaCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private static PersistentSchemaCache.Entry entry(String artifactId, long globalId, String schema) {
+        return PersistentSchemaCache.Entry.of(null, artifactId, "1", globalId, globalId + 100,
+                schema.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long fingerprint(String schema) {
+        return SchemaFingerprints.fingerprint(schema.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void entriesSurviveRestart() throws Exception {
+        var file = dir.resolve("schemas.cache");
+        try (var cache = PersistentSchemaCache.open(file)) {
+            assertTrue(cache.put(entry("patients-key", 1, "\"int\"")));
+            assertTrue(cache.put(entry("patients-value", 2, "\"string\"")));
+            assertFalse(cache.put(entry("patients-value", 2, "\"string\"")));
+            // same schema of another table is another entry
+            assertTrue(cache.put(entry("admissions-key", 3, "\"int\"")));
+        }
+
+        try (var cache = PersistentSchemaCache.open(file)) {
+            assertEquals(3, cache.size());
+            var value = cache.get("patients-value", fingerprint("\"string\""));
+            assertEquals(2L, value.globalId());
+            assertEquals(102L, value.contentId());
+            assertEquals("1", value.version());
+            assertNull(value.groupId());
+            assertArrayEquals("\"string\"".getBytes(StandardCharsets.UTF_8), value.rawSchema());
+            assertEquals(3L, cache.get("admissions-key", fingerprint("\"int\"")).globalId());
+        }
+    }
+
+    @Test
+    void removedAndReplacedEntriesSurviveRestart() throws Exception {
+        var file = dir.resolve("schemas.cache");
+        try (var cache = PersistentSchemaCache.open(file)) {
+            cache.put(entry("patients-key", 1, "\"int\""));
+            cache.put(entry("patients-value", 2, "\"string\""));
+            assertTrue(cache.remove("patients-key", fingerprint("\"int\"")));
+            assertFalse(cache.remove("patients-key", fingerprint("\"int\"")));
+            // re-registered after a registry reset
+            assertTrue(cache.put(entry("patients-value", 7, "\"string\"")));
+        }
+
+        try (var cache = PersistentSchemaCache.open(file)) {
+            assertEquals(1, cache.size());
+            assertNull(cache.get("patients-key", fingerprint("\"int\"")));
+            assertEquals(7L, cache.get("patients-value", fingerprint("\"string\"")).globalId());
+        }
+    }
+
+    @Test
+    void growsWhenFull() throws Exception {
+        var file = dir.resolve("schemas.cache");
+        var schema = "{\"type\":\"record\",\"name\":\"Value\",\"fields\":[{\"name\":\"%s\",\"type\":\"string\"}]}";
+        try (var cache = PersistentSchemaCache.open(file)) {
+            assertEquals(PersistentSchemaCache.DEFAULT_CAPACITY, cache.capacity());
+            for (int i = 0; i < 2000; i++) {
+                cache.put(entry("table" + i + "-value", i, schema.formatted("column" + i)));
+            }
+            assertTrue(cache.capacity() > PersistentSchemaCache.DEFAULT_CAPACITY);
+        }
+
+        try (var cache = PersistentSchemaCache.open(file)) {
+            assertEquals(2000, cache.size());
+            assertEquals(1234L, cache.get("table1234-value", fingerprint(schema.formatted("column1234"))).globalId());
+        }
+    }
+
+    @Test
+    void stopsAtTornRecord() throws Exception {
+        var file = dir.resolve("schemas.cache");
+        try (var cache = PersistentSchemaCache.open(file)) {
+            cache.put(entry("patients-key", 1, "\"int\""));
+            cache.put(entry("patients-value", 2, "\"string\""));
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // corrupt the last byte of the second record's raw schema
+            var log = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            var first = log.getInt(8);
+            var second = log.getInt(16 + first);
+            var last = 16 + first + 8 + second - 1;
+            log.put(last, (byte) (log.get(last) + 1));
+            log.force();
+        }
+
+        try (var cache = PersistentSchemaCache.open(file)) {
+            assertEquals(1, cache.size());
+            assertEquals(1L, cache.get("patients-key", fingerprint("\"int\"")).globalId());
+        }
+    }
+}
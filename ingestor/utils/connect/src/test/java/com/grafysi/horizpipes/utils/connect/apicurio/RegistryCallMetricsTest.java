@@ -0,0 +1,34 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RegistryCallMetricsTest {
+
+    @Test
+    void countsAreReadableOverJmx() throws Exception {
+        var calls = new SingleFlight<String, String>();
+        var name = RegistryCallMetrics.register(calls, false);
+        var server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals("value", name.getKeyProperty("resolver"));
+            calls.call("patients-value", () -> "global-id-1");
+            assertThrows(IllegalStateException.class, () -> calls.call("patients-key", () -> {
+                throw new IllegalStateException("registry unavailable");
+            }));
+
+            assertEquals(2L, server.getAttribute(name, "Calls"));
+            assertEquals(1L, server.getAttribute(name, "Failed"));
+            assertEquals(0L, server.getAttribute(name, "Coalesced"));
+            assertEquals(0, server.getAttribute(name, "InFlight"));
+        } finally {
+            RegistryCallMetrics.unregister(name);
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,35 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class SchemaFingerprintsTest {
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void matchesAvroFingerprint64() {
+        // value from the Avro specification for the canonical form of "int"
+        assertEquals(0x7275d51a3f395c8fL, SchemaFingerprints.fingerprint(bytes("\"int\"")));
+        assertEquals(SchemaFingerprints.EMPTY, SchemaFingerprints.fingerprint(new byte[0]));
+    }
+
+    @Test
+    void contentKeySeparatesSchemasAndArtifacts() {
+        var patients = bytes("{\"type\":\"record\",\"name\":\"Key\",\"fields\":[{\"name\":\"subject_id\",\"type\":\"int\"}]}");
+        var admissions = bytes("{\"type\":\"record\",\"name\":\"Key\",\"fields\":[{\"name\":\"hadm_id\",\"type\":\"int\"}]}");
+
+        assertEquals(SchemaFingerprints.contentKey(patients, "patients-key"),
+                SchemaFingerprints.contentKey(patients.clone(), "patients-key"));
+        assertNotEquals(SchemaFingerprints.contentKey(patients, "patients-key"),
+                SchemaFingerprints.contentKey(admissions, "patients-key"));
+        assertNotEquals(SchemaFingerprints.contentKey(patients, "patients-key"),
+                SchemaFingerprints.contentKey(patients, "admissions-key"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.grafysi.horizpipes.utils.connect.apicurio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met in time");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void concurrentMissesShareOneCall() throws Exception {
+        var flight = new SingleFlight<String, String>();
+        var release = new CountDownLatch(1);
+        var executions = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            var results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> flight.call("patients-value", () -> {
+                    executions.incrementAndGet();
+                    awaitQuietly(release);
+                    return "global-id-1";
+                })));
+            }
+            awaitCondition(() -> flight.coalesced() == 7);
+            assertEquals(1, flight.inFlight());
+
+            release.countDown();
+            for (var result : results) {
+                assertEquals("global-id-1", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+            assertEquals(1, flight.calls());
+            awaitCondition(() -> flight.inFlight() == 0);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void slowCallDoesNotHoldBackOtherKeys() throws Exception {
+        var flight = new SingleFlight<String, String>();
+        var release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            var slow = callers.submit(() -> flight.call("patients-value", () -> {
+                awaitQuietly(release);
+                return "slow";
+            }));
+            awaitCondition(() -> flight.inFlight() == 1);
+
+            var fast = callers.submit(() -> flight.call("admissions-value", () -> "fast"));
+            assertEquals("fast", fast.get(5, TimeUnit.SECONDS));
+            assertTrue(!slow.isDone());
+
+            release.countDown();
+            assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+            assertEquals(2, flight.calls());
+            assertEquals(0, flight.coalesced());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void failuresAreRethrownAndNotRemembered() throws Exception {
+        var flight = new SingleFlight<String, String>();
+
+        assertThrows(IllegalStateException.class, () -> flight.call("patients-key", () -> {
+            throw new IllegalStateException("registry unavailable");
+        }));
+        assertEquals(1, flight.failed());
+        awaitCondition(() -> flight.inFlight() == 0);
+
+        assertEquals("global-id-2", flight.call("patients-key", () -> "global-id-2"));
+        assertEquals(2, flight.calls());
+    }
+
+    @Test
+    void leaderCallsOnItsOwnThread() {
+        var flight = new SingleFlight<String, Thread>();
+        assertSame(Thread.currentThread(), flight.call("patients-value", Thread::currentThread));
+        // a nested call for the same key runs instead of waiting on itself
+        var nested = new SingleFlight<String, String>();
+        assertEquals("inner", nested.call("patients-value", () -> nested.call("patients-value", () -> "inner")));
+    }
+
+    @Test
+    void asyncCallsJoinTheCallInFlight() throws Exception {
+        var flight = new SingleFlight<String, String>();
+        var release = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        ExecutorService callers = Executors.newFixedThreadPool(1);
+        try {
+            var blocking = callers.submit(() -> flight.call("patients-value", () -> {
+                awaitQuietly(release);
+                return "global-id-1";
+            }));
+            awaitCondition(() -> flight.inFlight() == 1);
+
+            var prefetched = flight.callAsync("patients-value", () -> "other", executor);
+            var other = flight.callAsync("admissions-value", () -> "global-id-2", executor);
+            assertEquals("global-id-2", other.get(5, TimeUnit.SECONDS));
+            assertTrue(!prefetched.isDone());
+
+            release.countDown();
+            assertEquals("global-id-1", prefetched.get(5, TimeUnit.SECONDS));
+            assertEquals("global-id-1", blocking.get(5, TimeUnit.SECONDS));
+            assertEquals(2, flight.calls());
+            assertEquals(1, flight.coalesced());
+        } finally {
+            callers.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
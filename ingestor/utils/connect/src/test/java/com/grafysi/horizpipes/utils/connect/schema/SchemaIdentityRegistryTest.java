@@ -0,0 +1,49 @@
+package com.grafysi.horizpipes.utils.connect.schema;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SchemaIdentityRegistryTest {
+
+    private final SchemaIdentityRegistry registry = SchemaIdentityRegistry.get();
+
+    private static Schema keySchema(String table, String idField) {
+        return SchemaBuilder.struct()
+                .name("hzp.mimiciv_hosp." + table + ".Key")
+                .field(idField, Schema.INT32_SCHEMA)
+                .build();
+    }
+
+    @Test
+    void idsAreStableAcrossEqualInstances() {
+        var patients = keySchema("patients", "subject_id");
+        var id = registry.id(patients);
+
+        assertTrue(id > 0);
+        assertEquals(id, registry.id(patients));
+        // e.g. rebuilt after a connector restart without a DDL change
+        assertEquals(id, registry.id(keySchema("patients", "subject_id")));
+        assertNotEquals(id, registry.id(keySchema("admissions", "hadm_id")));
+        assertEquals(0, registry.id(null));
+    }
+
+    @Test
+    void tagsConverterHeadersWithNamedSchemasOnly() {
+        var keySchema = keySchema("admissions", "hadm_id");
+        var headers = new RecordHeaders();
+
+        registry.tag(headers, keySchema, Schema.STRING_SCHEMA);
+
+        assertEquals(registry.id(keySchema), SchemaIdentityRegistry.schemaId(headers, true));
+        assertEquals(0, SchemaIdentityRegistry.schemaId(headers, false));
+        assertNull(headers.lastHeader(SchemaIdentityRegistry.VALUE_SCHEMA_ID_HEADER));
+        assertEquals(0, SchemaIdentityRegistry.schemaId(null, true));
+    }
+}
@@ -12,6 +12,8 @@ import java.util.stream.IntStream;
 
 import static java.util.Collections.singletonMap;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class ExtractTopicNameTest {
 
@@ -82,6 +84,33 @@ public class ExtractTopicNameTest {
                 .forEach(this::testWithTableName);
     }
 
+    @Test
+    void sharedCacheAcrossInstances() {
+        var props = new HashMap<String, Object>(config("mimic4demo.(.*)", "__dbz_table", "__$1"));
+        props.put(ExtractTopicName.CACHE_SHARED, true);
+
+        var first = new ExtractTopicName<SourceRecord>();
+        var second = new ExtractTopicName<SourceRecord>();
+        first.configure(props);
+        second.configure(props);
+
+        var expected = new ConnectHeaders();
+        expected.addString("__dbz_table", "__mimiciv_hosp.patients");
+
+        var topic = "mimic4demo.mimiciv_hosp.patients";
+        assertEquals(expected, first.apply(sourceRecord(topic)).headers());
+        assertEquals(expected, second.apply(sourceRecord(topic)).headers());
+
+        // a value built once is returned as the same instance, so the second hits the entry of the first
+        var cachedTopic = "mimic4demo.mimiciv_hosp.admissions";
+        assertSame(first.headerValue(cachedTopic), second.headerValue(cachedTopic));
+
+        var unshared = new ExtractTopicName<SourceRecord>();
+        unshared.configure(config("mimic4demo.(.*)", "__dbz_table", "__$1"));
+        assertEquals(first.headerValue(cachedTopic), unshared.headerValue(cachedTopic));
+        assertNotSame(first.headerValue(cachedTopic), unshared.headerValue(cachedTopic));
+    }
+
     private void testWithTableName(String tableName) {
         final var topicPrefix = "mimic4demo.excluded_segment.mimiciv_hosp.";
         final var topic = topicPrefix + tableName;
@@ -0,0 +1,122 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import org.apache.kafka.connect.storage.Converter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Hands out the key, value and header converters used by the calling thread.
+ * <ul>
+ *     <li>{@code shared}: one converter set for all threads.</li>
+ *     <li>{@code thread}: every processing thread lazily gets its own converter set.</li>
+ *     <li>{@code striped}: a fixed number of converter sets, selected by thread id.</li>
+ * </ul>
+ * The per-thread mode suits a fixed pool such as the engine's {@code record.processing.threads};
+ * for virtual-thread pools use {@code striped}, which bounds the number of converter instances.
+ * <p>
+ * {@link #close()} closes the converter sets the pool created for threads or stripes, the shared set
+ * belongs to the caller.
+ */
+final class ConverterPool implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConverterPool.class);
+
+    enum Sharding {
+        SHARED, THREAD, STRIPED;
+
+        static Sharding parse(String value) {
+            return value == null ? SHARED : Sharding.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    record ConverterSet(Converter keyConverter, Converter valueConverter, HeaderConversionStage headerStage) {
+
+        private void close() {
+            closeQuietly(keyConverter);
+            closeQuietly(valueConverter);
+            closeQuietly(headerStage);
+        }
+    }
+
+    private final Sharding sharding;
+    private final ConverterSet shared;
+    private final ThreadLocal<ConverterSet> perThread;
+    private final ConverterSet[] stripes;
+    // the sets created for threads or stripes, closed with the pool
+    private final Queue<ConverterSet> created;
+
+    private ConverterPool(Sharding sharding, ConverterSet shared, ThreadLocal<ConverterSet> perThread, ConverterSet[] stripes,
+                          Queue<ConverterSet> created) {
+        this.sharding = sharding;
+        this.shared = shared;
+        this.perThread = perThread;
+        this.stripes = stripes;
+        this.created = created;
+    }
+
+    static ConverterPool shared(ConverterSet converters) {
+        return new ConverterPool(Sharding.SHARED, converters, null, null, new ConcurrentLinkedQueue<>());
+    }
+
+    static ConverterPool perThread(Supplier<ConverterSet> factory) {
+        var created = new ConcurrentLinkedQueue<ConverterSet>();
+        return new ConverterPool(Sharding.THREAD, null, ThreadLocal.withInitial(() -> {
+            var converters = factory.get();
+            created.add(converters);
+            return converters;
+        }), null, created);
+    }
+
+    static ConverterPool striped(int stripeCount, Supplier<ConverterSet> factory) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Converter stripe count must be positive: " + stripeCount);
+        }
+        var stripes = new ConverterSet[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = factory.get();
+        }
+        return new ConverterPool(Sharding.STRIPED, null, null, stripes, new ConcurrentLinkedQueue<>(List.of(stripes)));
+    }
+
+    ConverterSet select() {
+        return switch (sharding) {
+            case SHARED -> shared;
+            case THREAD -> perThread.get();
+            case STRIPED -> stripes[(int) Math.floorMod(Thread.currentThread().getId(), (long) stripes.length)];
+        };
+    }
+
+    Sharding sharding() {
+        return sharding;
+    }
+
+    /**
+     * Closes the converters created for threads or stripes. Sets of threads still running are closed as well,
+     * so the pool must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        ConverterSet converters;
+        while ((converters = created.poll()) != null) {
+            converters.close();
+        }
+    }
+
+    private static void closeQuietly(Object converter) {
+        if (converter instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Failed to close converter {}", converter.getClass().getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import io.debezium.embedded.EmbeddedEngineHeader;
+import io.debezium.engine.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.storage.HeaderConverter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serializes each Connect header of a record once. The resulting bytes are shared between
+ * the Kafka headers handed to the key/value converters and the headers of the emitted event.
+ * Headers with a primitive value (e.g. {@code __from_table}) are memoized by key and value.
+ */
+class HeaderConversionStage implements Closeable {
+
+    private static final int MEMO_MAX_ENTRIES = 4096;
+
+    private final HeaderConverter headerConverter;
+    private final boolean headersAsString;
+    private final ConcurrentHashMap<MemoKey, ConvertedHeader> memo = new ConcurrentHashMap<>();
+
+    HeaderConversionStage(HeaderConverter headerConverter, boolean headersAsString) {
+        this.headerConverter = headerConverter;
+        this.headersAsString = headersAsString;
+    }
+
+    ConvertedHeaders convert(SourceRecord record, String topicName) {
+        var kafkaHeaders = new RecordHeaders();
+        var connectHeaders = record.headers();
+        if (headerConverter == null || connectHeaders == null || connectHeaders.isEmpty()) {
+            return new ConvertedHeaders(kafkaHeaders, Collections.emptyList());
+        }
+
+        List<Header<?>> headers = new ArrayList<>(connectHeaders.size());
+        for (org.apache.kafka.connect.header.Header header : connectHeaders) {
+            var converted = convertHeader(topicName, header);
+            kafkaHeaders.add(header.key(), converted.raw());
+            headers.add(converted.header());
+        }
+        return new ConvertedHeaders(kafkaHeaders, headers);
+    }
+
+    private ConvertedHeader convertHeader(String topicName, org.apache.kafka.connect.header.Header header) {
+        if (!isMemoizable(header.schema(), header.value())) {
+            return serialize(topicName, header);
+        }
+
+        var memoKey = new MemoKey(header.key(), header.schema(), header.value());
+        var converted = memo.get(memoKey);
+        if (converted == null) {
+            converted = serialize(topicName, header);
+            if (memo.size() >= MEMO_MAX_ENTRIES) {
+                memo.clear();
+            }
+            memo.put(memoKey, converted);
+        }
+        return converted;
+    }
+
+    private ConvertedHeader serialize(String topicName, org.apache.kafka.connect.header.Header header) {
+        var key = header.key();
+        var raw = headerConverter.fromConnectHeader(topicName, key, header.schema(), header.value());
+        Header<?> emitted = headersAsString
+                ? new EmbeddedEngineHeader<>(key, raw == null ? null : new String(raw, StandardCharsets.UTF_8))
+                : new EmbeddedEngineHeader<>(key, raw);
+        return new ConvertedHeader(raw, emitted);
+    }
+
+    private static boolean isMemoizable(Schema schema, Object value) {
+        if (schema != null && (schema.name() != null || !schema.type().isPrimitive())) {
+            return false;
+        }
+        return value instanceof String || value instanceof Number || value instanceof Boolean;
+    }
+
+    /**
+     * Closes the header converter, if the stage was created with one.
+     */
+    @Override
+    public void close() throws IOException {
+        memo.clear();
+        if (headerConverter != null) {
+            headerConverter.close();
+        }
+    }
+
+    record ConvertedHeaders(RecordHeaders kafkaHeaders, List<Header<?>> headers) {
+    }
+
+    private record ConvertedHeader(byte[] raw, Header<?> header) {
+    }
+
+    private record MemoKey(String key, Schema schema, Object value) {
+    }
+}
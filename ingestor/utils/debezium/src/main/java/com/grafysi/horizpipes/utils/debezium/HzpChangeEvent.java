@@ -0,0 +1,81 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import com.grafysi.horizpipes.utils.debezium.trace.LatencyTrace;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.Header;
+import io.debezium.engine.RecordChangeEvent;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.List;
+
+/**
+ * Change event emitted by {@link HzpConverterBuilder}.
+ * Replaces {@code EmbeddedEngineChangeEvent}, whose constructor is package-private
+ * and could only be invoked reflectively for every record.
+ */
+public class HzpChangeEvent<K, V, H> implements ChangeEvent<K, V>, RecordChangeEvent<V> {
+
+    private final K key;
+    private final V value;
+    private final List<Header<H>> headers;
+    private final SourceRecord sourceRecord;
+
+    private LatencyTrace trace;
+
+    public HzpChangeEvent(K key, V value, List<Header<H>> headers, SourceRecord sourceRecord) {
+        this.key = key;
+        this.value = value;
+        this.headers = headers;
+        this.sourceRecord = sourceRecord;
+    }
+
+    @Override
+    public K key() {
+        return key;
+    }
+
+    @Override
+    public V value() {
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<Header<T>> headers() {
+        return (List) headers;
+    }
+
+    @Override
+    public V record() {
+        return value;
+    }
+
+    @Override
+    public String destination() {
+        return sourceRecord.topic();
+    }
+
+    public Integer partition() {
+        return sourceRecord.kafkaPartition();
+    }
+
+    public SourceRecord sourceRecord() {
+        return sourceRecord;
+    }
+
+    /**
+     * Returns the latency trace of a sampled event with {@code hzp.trace.enabled}, null otherwise.
+     */
+    public LatencyTrace trace() {
+        return trace;
+    }
+
+    public void trace(LatencyTrace trace) {
+        this.trace = trace;
+    }
+
+    @Override
+    public String toString() {
+        return "HzpChangeEvent [key=" + key + ", value=" + value + ", sourceRecord=" + sourceRecord + "]";
+    }
+}
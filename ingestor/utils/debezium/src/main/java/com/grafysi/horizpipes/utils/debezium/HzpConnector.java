@@ -0,0 +1,9 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+/**
+ * A connector that runs its engine on the calling thread until {@link #stop()} is called.
+ */
+public interface HzpConnector extends Runnable {
+
+    void stop();
+}
@@ -9,11 +9,12 @@
  */
 package com.grafysi.horizpipes.utils.debezium;
 
+import java.io.Closeable;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -23,17 +24,23 @@ import io.debezium.embedded.ConverterBuilder;
 import io.debezium.embedded.EmbeddedEngineChangeEvent;
 import io.debezium.embedded.EmbeddedEngineHeader;
 
-import org.apache.kafka.common.header.internals.RecordHeaders;
-import org.apache.kafka.connect.header.Headers;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.storage.Converter;
 import org.apache.kafka.connect.storage.ConverterConfig;
 import org.apache.kafka.connect.storage.HeaderConverter;
 
+import com.grafysi.horizpipes.utils.connect.schema.SchemaIdentityRegistry;
+import com.grafysi.horizpipes.utils.debezium.buffer.BufferPool;
+import com.grafysi.horizpipes.utils.debezium.buffer.BufferedConverter;
+import com.grafysi.horizpipes.utils.debezium.buffer.PooledBuffer;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.runtime.SharedConverters;
+import com.grafysi.horizpipes.utils.debezium.trace.LatencyTracer;
 import io.debezium.DebeziumException;
 import io.debezium.config.CommonConnectorConfig;
 import io.debezium.config.Configuration;
-import io.debezium.engine.Header;
 import io.debezium.engine.format.Avro;
 import io.debezium.engine.format.Binary;
 import io.debezium.engine.format.CloudEvents;
@@ -48,8 +55,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A builder which creates converter functions for requested format.
+ * Closing it closes the converters created for its conversion functions, which must not be used afterwards.
  */
-public class HzpConverterBuilder<R> extends ConverterBuilder<R> {
+public class HzpConverterBuilder<R> extends ConverterBuilder<R> implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HzpConverterBuilder.class);
 
@@ -67,6 +75,7 @@ public class HzpConverterBuilder<R> extends ConverterBuilder<R> {
     private Class<? extends SerializationFormat<?>> formatKey;
     private Class<? extends SerializationFormat<?>> formatValue;
     private Configuration config;
+    private final List<ConverterPool> converterPools = new CopyOnWriteArrayList<>();
 
     public HzpConverterBuilder<R> using(KeyValueHeaderChangeEventFormat<?, ?, ?> format) {
         this.formatKey = format.getKeyFormat();
@@ -96,65 +105,104 @@ public class HzpConverterBuilder<R> extends ConverterBuilder<R> {
 
     public Function<SourceRecord, R> toFormat(HeaderConverter headerConverter) {
         Function<SourceRecord, R> toFormat;
-
-        Converter keyConverter;
-        Converter valueConverter;
+        var lazy = formatValue != Connect.class && config.getBoolean(Configs.CONVERSION_LAZY, false);
 
         if (formatValue == Connect.class) {
-            /*toFormat = (record) -> (R) new EmbeddedEngineChangeEvent<Void, SourceRecord, Object>(
-                    null,
-                    record,
-                    StreamSupport.stream(record.headers().spliterator(), false)
-                            .map(EmbeddedEngineHeader::new).collect(Collectors.toList()),
-                    record);*/
-            toFormat = (record) -> (R) newEmbeddedEngineChangeEvent(
+            toFormat = (record) -> (R) new HzpChangeEvent<Void, SourceRecord, Object>(
                     null,
                     record,
-                    StreamSupport.stream(record.headers().spliterator(), false)
+                    (List) StreamSupport.stream(record.headers().spliterator(), false)
                             .map(EmbeddedEngineHeader::new).collect(Collectors.toList()),
                     record);
         }
         else {
-            keyConverter = createConverter(formatKey, true);
-            valueConverter = createConverter(formatValue, false);
+            var converters = createConverterPool(headerConverter);
+            converterPools.add(converters);
+            var pool = createBufferPool(lazy);
+            // lets the schema resolver of Apicurio converters skip its lookups
+            var schemaIds = config.getBoolean(Configs.CONVERTER_SCHEMA_IDS, true) ? SchemaIdentityRegistry.get() : null;
 
             toFormat = (record) -> {
-                String topicName = record.topic();
-                if (topicName == null) {
-                    topicName = TOPIC_NAME;
-                }
+                final String topicName = record.topic() != null ? record.topic() : TOPIC_NAME;
 
-                var kafkaHeaders = convertKafkaHeaders(record, headerConverter);
-                final byte[] key = keyConverter.fromConnectData(topicName, kafkaHeaders, record.keySchema(), record.key());
-                final byte[] value = valueConverter.fromConnectData(topicName, kafkaHeaders, record.valueSchema(), record.value());
-
-                List<Header<?>> headers = Collections.emptyList();
-                if (headerConverter != null) {
-                    List<Header<byte[]>> byteArrayHeaders = convertHeaders(record, topicName, headerConverter);
-                    headers = (List) byteArrayHeaders;
-                    if (shouldConvertHeadersToString()) {
-                        headers = byteArrayHeaders.stream()
-                                .map(h -> new EmbeddedEngineHeader<>(h.getKey(), new String(h.getValue(), StandardCharsets.UTF_8)))
-                                .collect(Collectors.toList());
-                    }
+                var converterSet = converters.select();
+                var convertedHeaders = converterSet.headerStage().convert(record, topicName);
+                var kafkaHeaders = convertedHeaders.kafkaHeaders();
+                if (schemaIds != null) {
+                    schemaIds.tag(kafkaHeaders, record.keySchema(), record.valueSchema());
                 }
-                Object convertedKey = key;
-                Object convertedValue = value;
-                if (key != null && shouldConvertKeyToString()) {
-                    convertedKey = new String(key, StandardCharsets.UTF_8);
+
+                if (lazy) {
+                    // select again on materialization, which may happen on a consumer or conversion-stage thread
+                    return (R) new LazyHzpChangeEvent<>(
+                            () -> convertKey(converters.select().keyConverter(), topicName, kafkaHeaders, record),
+                            () -> convertValue(converters.select().valueConverter(), topicName, kafkaHeaders, record),
+                            (List) convertedHeaders.headers(),
+                            record);
                 }
-                if (value != null && shouldConvertValueToString()) {
-                    convertedValue = new String(value, StandardCharsets.UTF_8);
+
+                if (pool != null) {
+                    return (R) new PooledHzpChangeEvent<>(
+                            encode(converterSet.keyConverter(), topicName, kafkaHeaders, record.keySchema(), record.key(), pool),
+                            encode(converterSet.valueConverter(), topicName, kafkaHeaders, record.valueSchema(), record.value(), pool),
+                            shouldConvertKeyToString(),
+                            shouldConvertValueToString(),
+                            (List) convertedHeaders.headers(),
+                            record);
                 }
-                return (R) newEmbeddedEngineChangeEvent(convertedKey, convertedValue, (List) headers, record);
+
+                return (R) new HzpChangeEvent<>(
+                        convertKey(converterSet.keyConverter(), topicName, kafkaHeaders, record),
+                        convertValue(converterSet.valueConverter(), topicName, kafkaHeaders, record),
+                        (List) convertedHeaders.headers(),
+                        record);
             };
         }
 
+        if (config.getBoolean(Configs.TRACE_ENABLED, false)) {
+            LOGGER.info("Tracing stage latencies");
+            toFormat = LatencyTracer.forConnector(config.getString(Configs.CONNECTOR_NAME)).tracing(toFormat, lazy);
+        }
         return toFormat;
     }
 
+    private Object convertKey(Converter keyConverter, String topicName, Headers kafkaHeaders, SourceRecord record) {
+        final byte[] key = keyConverter.fromConnectData(topicName, kafkaHeaders, record.keySchema(), record.key());
+        if (key != null && shouldConvertKeyToString()) {
+            return new String(key, StandardCharsets.UTF_8);
+        }
+        return key;
+    }
+
+    private Object convertValue(Converter valueConverter, String topicName, Headers kafkaHeaders, SourceRecord record) {
+        final byte[] value = valueConverter.fromConnectData(topicName, kafkaHeaders, record.valueSchema(), record.value());
+        if (value != null && shouldConvertValueToString()) {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static PooledBuffer encode(Converter converter, String topicName, Headers kafkaHeaders, Schema schema, Object value,
+                                       BufferPool pool) {
+        if (converter instanceof BufferedConverter bufferedConverter) {
+            return bufferedConverter.fromConnectData(topicName, kafkaHeaders, schema, value, pool);
+        }
+        final byte[] bytes = converter.fromConnectData(topicName, kafkaHeaders, schema, value);
+        return bytes == null ? null : PooledBuffer.wrap(bytes);
+    }
+
     public Function<R, SourceRecord> fromFormat() {
-        return (record) -> ((EmbeddedEngineChangeEvent<?, ?, ?>) record).sourceRecord();
+        return (record) -> {
+            if (record instanceof PooledHzpChangeEvent<?, ?, ?> event) {
+                // the committer maps records back once the consumer has processed them
+                event.release();
+                return event.sourceRecord();
+            }
+            if (record instanceof HzpChangeEvent<?, ?, ?> event) {
+                return event.sourceRecord();
+            }
+            return ((EmbeddedEngineChangeEvent<?, ?, ?>) record).sourceRecord();
+        };
     }
 
     private static boolean isFormat(Class<? extends SerializationFormat<?>> format1, Class<? extends SerializationFormat<?>> format2) {
@@ -173,31 +221,78 @@ public class HzpConverterBuilder<R> extends ConverterBuilder<R> {
         return isFormat(formatHeader, Json.class);
     }
 
-    private List<Header<byte[]>> convertHeaders(
-            SourceRecord record, String topicName, HeaderConverter headerConverter) {
-        List<Header<byte[]>> headers = new ArrayList<>();
-
-        for (org.apache.kafka.connect.header.Header header : record.headers()) {
-            String headerKey = header.key();
-            byte[] rawHeader = headerConverter.fromConnectHeader(topicName, headerKey, header.schema(), header.value());
-            headers.add(new EmbeddedEngineHeader<>(headerKey, rawHeader));
+    private BufferPool createBufferPool(boolean lazy) {
+        if (!"pooled".equalsIgnoreCase(config.getString(Configs.CONVERSION_BUFFERS, "heap"))) {
+            return null;
         }
+        if (lazy) {
+            LOGGER.warn("Pooled buffers are not used with lazy conversion, events are converted on the heap");
+            return null;
+        }
+        var valueConverterClass = converterConfig(formatValue, false).getString(FIELD_CLASS);
+        if (!isBufferedConverter(valueConverterClass)) {
+            // the converter's arrays would only be wrapped, which allocates more than heap events
+            LOGGER.warn("Pooled buffers are not used with {}, which cannot write into them, events are converted on the heap",
+                    valueConverterClass);
+            return null;
+        }
+        var maxBytes = config.getLong(Configs.BUFFER_POOL_MAX_BYTES, BufferPool.DEFAULT_MAX_POOLED_BYTES);
+        LOGGER.info("Converting into pooled buffers of at most {} bytes", maxBytes);
+        return new BufferPool(maxBytes);
+    }
 
-        return headers;
+    private static boolean isBufferedConverter(String className) {
+        try {
+            return className != null && BufferedConverter.class.isAssignableFrom(
+                    Class.forName(className, false, HzpConverterBuilder.class.getClassLoader()));
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
     }
 
-    private RecordHeaders convertKafkaHeaders(SourceRecord record, HeaderConverter headerConverter) {
-        Headers headers = record.headers();
-        RecordHeaders result = new RecordHeaders();
-        if (headers != null) {
-            String topic = record.topic();
-            for (org.apache.kafka.connect.header.Header header : headers) {
-                String key = header.key();
-                byte[] rawHeader = headerConverter.fromConnectHeader(topic, key, header.schema(), header.value());
-                result.add(key, rawHeader);
-            }
+    private ConverterPool createConverterPool(HeaderConverter headerConverter) {
+        var sharding = ConverterPool.Sharding.parse(config.getString(Configs.CONVERTER_SHARDING));
+        if (sharding == ConverterPool.Sharding.THREAD && convertsOnVirtualThreads()) {
+            // every virtual thread would create and keep its own converters
+            LOGGER.warn("Using striped instead of thread {}, records are converted on virtual threads", Configs.CONVERTER_SHARDING);
+            sharding = ConverterPool.Sharding.STRIPED;
+        }
+        LOGGER.info("Creating converters with {} sharding", sharding.name().toLowerCase(Locale.ROOT));
+
+        switch (sharding) {
+            case THREAD:
+                return ConverterPool.perThread(() -> createConverterSet(headerConverter != null));
+            case STRIPED:
+                var stripes = config.getInteger(Configs.CONVERTER_STRIPES, Math.max(1, Math.max(
+                        config.getInteger(Configs.RECORD_PROCESSING_THREADS, 1),
+                        config.getInteger(Configs.CONVERSION_PARALLEL_THREADS, 0))));
+                return ConverterPool.striped(stripes, () -> createConverterSet(headerConverter != null));
+            default:
+                var shareAcrossConnectors = config.getBoolean(Configs.CONVERTER_SHARED, false);
+                return ConverterPool.shared(new ConverterPool.ConverterSet(
+                        shareAcrossConnectors ? sharedConverter(formatKey, true) : createConverter(formatKey, true),
+                        shareAcrossConnectors ? sharedConverter(formatValue, false) : createConverter(formatValue, false),
+                        new HeaderConversionStage(headerConverter, shouldConvertHeadersToString())));
         }
-        return result;
+    }
+
+    /**
+     * Whether the conversion stage or the lanes, which may materialize lazy events, run on virtual threads.
+     */
+    private boolean convertsOnVirtualThreads() {
+        return config.getInteger(Configs.CONVERSION_PARALLEL_THREADS, 0) > 0
+                        && ThreadPools.Kind.parse(config.getString(Configs.CONVERSION_PARALLEL_POOL)) == ThreadPools.Kind.VIRTUAL
+                || config.getInteger(Configs.LANES, 0) > 0
+                        && ThreadPools.Kind.parse(config.getString(Configs.LANES_POOL)) == ThreadPools.Kind.VIRTUAL;
+    }
+
+    private ConverterPool.ConverterSet createConverterSet(boolean withHeaderConverter) {
+        return new ConverterPool.ConverterSet(
+                createConverter(formatKey, true),
+                createConverter(formatValue, false),
+                new HeaderConversionStage(
+                        withHeaderConverter ? createHeaderConverter(formatHeader) : null,
+                        shouldConvertHeadersToString()));
     }
 
     private HeaderConverter createHeaderConverter(Class<? extends SerializationFormat<?>> format) {
@@ -225,6 +320,21 @@ public class HzpConverterBuilder<R> extends ConverterBuilder<R> {
     }
 
     private Converter createConverter(Class<? extends SerializationFormat<?>> format, boolean key) {
+        return instantiate(converterConfig(format, key), key);
+    }
+
+    private Converter sharedConverter(Class<? extends SerializationFormat<?>> format, boolean key) {
+        var converterConfig = converterConfig(format, key);
+        return SharedConverters.get(converterConfig.asMap(), key, () -> instantiate(converterConfig, key));
+    }
+
+    private Converter instantiate(Configuration converterConfig, boolean key) {
+        final Converter converter = converterConfig.getInstance(FIELD_CLASS, Converter.class);
+        converter.configure(converterConfig.asMap(), key);
+        return converter;
+    }
+
+    private Configuration converterConfig(Class<? extends SerializationFormat<?>> format, boolean key) {
         // The converters can be configured both using converter.* prefix for cases when both converters
         // are the same or using key.converter.* and value.converter.* converter when converters
         // are different for key and value
@@ -237,8 +347,7 @@ public class HzpConverterBuilder<R> extends ConverterBuilder<R> {
                 converterConfig = converterConfig.edit().withDefault(FIELD_CLASS, "io.apicurio.registry.utils.converter.ExtJsonConverter").build();
             }
             else if (converterConfig.hasKey(CUSTOM_JSON_CONVERTER)) {
-                LOGGER.info("========== Use custom json converter");
-                //converterConfig = converterConfig.edit().withDefault(FIELD_CLASS, commonConverterConfig.getString(CUSTOM_JSON_CONVERTER)).build();
+                converterConfig = converterConfig.edit().withDefault(FIELD_CLASS, converterConfig.getString(CUSTOM_JSON_CONVERTER)).build();
             }
             else {
                 converterConfig = converterConfig.edit().withDefault(FIELD_CLASS, "org.apache.kafka.connect.json.JsonConverter").build();
@@ -277,22 +386,16 @@ public class HzpConverterBuilder<R> extends ConverterBuilder<R> {
         else {
             throw new DebeziumException("Converter '" + format.getSimpleName() + "' is not supported");
         }
-        final Converter converter = converterConfig.getInstance(FIELD_CLASS, Converter.class);
-        converter.configure(converterConfig.asMap(), key);
-        return converter;
+        return converterConfig;
     }
 
-    private<K, V, H> EmbeddedEngineChangeEvent<K, V, H> newEmbeddedEngineChangeEvent(
-            K key, V value, List<Header<H>> headers, SourceRecord record) {
-        try {
-            var clazz = Class.forName(EmbeddedEngineChangeEvent.class.getName());
-            var constructor = clazz.getDeclaredConstructors()[0];
-            constructor.setAccessible(true);
-            return (EmbeddedEngineChangeEvent<K, V, H>) constructor.newInstance(key, value, headers, record);
-        } catch (Exception e) {
-            LOGGER.error("Instantiate {} failed.", EmbeddedEngineChangeEvent.class.getName());
-            throw new RuntimeException(e);
-        }
+    /**
+     * Closes the converters created for threads or stripes by {@link #toFormat}.
+     */
+    @Override
+    public void close() {
+        converterPools.forEach(ConverterPool::close);
+        converterPools.clear();
     }
 }
 
@@ -44,6 +44,24 @@ public class HzpConvertingAsyncEngineBuilderFactory implements DebeziumEngine.Bu
         return builder;
     }
 
+    /**
+     * Returns the converter builder this factory set on {@code builder}, to be closed with the engine,
+     * null for builders of other factories.
+     */
+    public static HzpConverterBuilder<?> converterBuilder(DebeziumEngine.Builder<?> builder) {
+        if (!(builder instanceof AsyncEmbeddedEngine.AsyncEngineBuilder<?>)) {
+            return null;
+        }
+        try {
+            var field = AsyncEmbeddedEngine.AsyncEngineBuilder.class.getDeclaredField("converterBuilder");
+            field.setAccessible(true);
+            return field.get(builder) instanceof HzpConverterBuilder<?> converterBuilder ? converterBuilder : null;
+        } catch (Exception e) {
+            LOGGER.warn("Get converter builder failed, its converters are not closed with the engine.", e);
+            return null;
+        }
+    }
+
     private AsyncEmbeddedEngine.AsyncEngineBuilder<?> newAsyncEngineBuilder(Class<?> formatClass, Object format) {
         try {
             var clazz = Class.forName(AsyncEmbeddedEngine.AsyncEngineBuilder.class.getName());
@@ -1,5 +1,9 @@
 package com.grafysi.horizpipes.utils.debezium;
 
+import com.grafysi.horizpipes.utils.debezium.pipeline.AsyncBatchStage;
+import com.grafysi.horizpipes.utils.debezium.pipeline.BatchConsumer;
+import com.grafysi.horizpipes.utils.debezium.pipeline.EnginePipeline;
+import com.grafysi.horizpipes.utils.debezium.pipeline.RingBufferHandoff;
 import io.debezium.engine.ChangeEvent;
 import io.debezium.engine.DebeziumEngine;
 import io.debezium.engine.format.Json;
@@ -11,37 +15,51 @@ import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.function.Consumer;
 
-public class JsonConnector implements Runnable {
+public class JsonConnector implements HzpConnector {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JsonConnector.class);
 
-    private final DebeziumEngine<ChangeEvent<String, String>> engine;
+    private final EnginePipeline<String, String> pipeline;
 
     public JsonConnector(Properties props, Consumer<ChangeEvent<String, String>> consumer) {
+        this.pipeline = EnginePipeline.create(props, builder(), consumer);
+    }
+
+    /**
+     * Hands whole poll batches to {@code consumer}, see {@link AsyncBatchStage}. With {@code hzp.handoff.capacity}
+     * set, hands it adaptively sized batches drained from the handoff ring instead, see {@link RingBufferHandoff}.
+     */
+    public JsonConnector(Properties props, BatchConsumer<String, String> consumer) {
+        this.pipeline = EnginePipeline.create(props, builder(), consumer);
+    }
 
+    private static DebeziumEngine.Builder<ChangeEvent<String, String>> builder() {
         final var serviceLoader = ServiceLoader.load(DebeziumEngine.BuilderFactory.class);
 
         LOGGER.info("BuilderFactory implementations");
         serviceLoader.stream().forEach(provider -> LOGGER.info("{}", provider.get().getClass().getName()));
 
-
-
-        this.engine = DebeziumEngine.create(
+        return DebeziumEngine.create(
                 KeyValueHeaderChangeEventFormat.of(Json.class, Json.class, Json.class),
-                HzpConvertingAsyncEngineBuilderFactory.class.getName())
-                .using(props)
-                .notifying(consumer)
-                .build();
+                HzpConvertingAsyncEngineBuilderFactory.class.getName());
+    }
+
+    /**
+     * Returns the ring buffer between engine and consumer, null unless {@code hzp.handoff.capacity} is set.
+     */
+    public RingBufferHandoff<String, String> handoff() {
+        return pipeline.handoff();
     }
 
     @Override
     public void run() {
-        engine.run();
+        pipeline.engine().run();
     }
 
+    @Override
     public void stop() {
         try {
-            engine.close();
+            pipeline.close();
         } catch (Exception e) {
             LOGGER.error("Stop connector failed.");
             throw new RuntimeException(e);
@@ -0,0 +1,100 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import io.debezium.engine.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * {@link HzpChangeEvent} whose key and value are serialized on first access to {@link #key()}
+ * or {@link #value()} and memoized afterwards. Consumers routing or dropping events by
+ * {@link #destination()} or headers never pay for the key/value conversion.
+ * <p>
+ * For a traced event the conversion of the key and value is timed where it happens and recorded as
+ * {@code Stage.CONVERT} once both are converted; an event whose key or value is never read has no sample.
+ */
+public class LazyHzpChangeEvent<K, V, H> extends HzpChangeEvent<K, V, H> {
+
+    private final Memoized<K> key;
+    private final Memoized<V> value;
+
+    // conversion time of the parts converted so far, for the trace
+    private long convertNanos;
+    private boolean convertRecorded;
+
+    public LazyHzpChangeEvent(Supplier<K> key, Supplier<V> value, List<Header<H>> headers, SourceRecord sourceRecord) {
+        super(null, null, headers, sourceRecord);
+        this.key = new Memoized<>(key);
+        this.value = new Memoized<>(value);
+    }
+
+    @Override
+    public K key() {
+        return key.get(this);
+    }
+
+    @Override
+    public V value() {
+        return value.get(this);
+    }
+
+    @Override
+    public V record() {
+        return value.get(this);
+    }
+
+    public boolean isKeyConverted() {
+        return key.isResolved();
+    }
+
+    public boolean isValueConverted() {
+        return value.isResolved();
+    }
+
+    private synchronized void converted(long nanos) {
+        convertNanos += nanos;
+        if (!convertRecorded && key.isResolved() && value.isResolved()) {
+            convertRecorded = true;
+            trace().lazyConverted(convertNanos);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LazyHzpChangeEvent [destination=" + destination() + ", sourceRecord=" + sourceRecord() + "]";
+    }
+
+    private static final class Memoized<T> {
+
+        private Supplier<T> supplier;
+        private volatile boolean resolved;
+        private T value;
+
+        private Memoized(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        private T get(LazyHzpChangeEvent<?, ?, ?> event) {
+            if (!resolved) {
+                synchronized (this) {
+                    if (!resolved) {
+                        var traced = event.trace() != null;
+                        var start = traced ? System.nanoTime() : 0L;
+                        value = supplier.get();
+                        supplier = null;
+                        resolved = true;
+                        if (traced) {
+                            event.converted(System.nanoTime() - start);
+                        }
+                    }
+                }
+            }
+            return value;
+        }
+
+        private boolean isResolved() {
+            return resolved;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import com.grafysi.horizpipes.utils.debezium.buffer.PooledBuffer;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link HzpChangeEvent} whose serialized key and value live in {@link PooledBuffer}s.
+ * Buffer-aware consumers read them without copying through {@link #keyBuffer()} and {@link #valueBuffer()};
+ * {@link #key()} and {@link #value()} decode them on the first call, copying only bytes of a pooled slab,
+ * and return the same object afterwards, also once the buffers are released.
+ * <p>
+ * The buffers are released when the record is acknowledged: on {@code RecordCommitter#markProcessed}
+ * for change consumers, after {@code accept} returns for consumers wrapped with {@link #releasing(Consumer)}.
+ */
+public class PooledHzpChangeEvent<K, V, H> extends HzpChangeEvent<K, V, H> {
+
+    private final PooledBuffer keyBuffer;
+    private final PooledBuffer valueBuffer;
+    private final boolean keyAsString;
+    private final boolean valueAsString;
+
+    private volatile Object decodedKey;
+    private volatile Object decodedValue;
+
+    public PooledHzpChangeEvent(PooledBuffer keyBuffer, PooledBuffer valueBuffer, boolean keyAsString, boolean valueAsString,
+                                List<Header<H>> headers, SourceRecord sourceRecord) {
+        super(null, null, headers, sourceRecord);
+        this.keyBuffer = keyBuffer;
+        this.valueBuffer = valueBuffer;
+        this.keyAsString = keyAsString;
+        this.valueAsString = valueAsString;
+    }
+
+    /**
+     * Wraps {@code consumer} so that pooled events are released once it has handled them.
+     */
+    public static <E extends ChangeEvent<?, ?>> Consumer<E> releasing(Consumer<E> consumer) {
+        return event -> {
+            try {
+                consumer.accept(event);
+            } finally {
+                if (event instanceof PooledHzpChangeEvent<?, ?, ?> pooled) {
+                    pooled.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Releases the pooled events of a batch that is dropped instead of handed to a consumer.
+     */
+    public static void releaseAll(List<? extends ChangeEvent<?, ?>> events) {
+        for (var event : events) {
+            if (event instanceof PooledHzpChangeEvent<?, ?, ?> pooled) {
+                pooled.release();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public K key() {
+        var key = decodedKey;
+        if (key == null && keyBuffer != null) {
+            key = decode(keyBuffer, keyAsString);
+            decodedKey = key;
+        }
+        return (K) key;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V value() {
+        var value = decodedValue;
+        if (value == null && valueBuffer != null) {
+            value = decode(valueBuffer, valueAsString);
+            decodedValue = value;
+        }
+        return (V) value;
+    }
+
+    @Override
+    public V record() {
+        return value();
+    }
+
+    /**
+     * Read-only view over the serialized key, null if the key is null.
+     */
+    public ByteBuffer keyBuffer() {
+        return keyBuffer == null ? null : keyBuffer.view();
+    }
+
+    /**
+     * Read-only view over the serialized value, null if the value is null (e.g. tombstones).
+     */
+    public ByteBuffer valueBuffer() {
+        return valueBuffer == null ? null : valueBuffer.view();
+    }
+
+    public void release() {
+        if (keyBuffer != null) {
+            keyBuffer.release();
+        }
+        if (valueBuffer != null) {
+            valueBuffer.release();
+        }
+    }
+
+    private static Object decode(PooledBuffer buffer, boolean asString) {
+        if (asString) {
+            if (buffer.isReleased()) {
+                throw new IllegalStateException("Buffer has already been released");
+            }
+            return new String(buffer.array(), buffer.offset(), buffer.length(), StandardCharsets.UTF_8);
+        }
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledHzpChangeEvent [destination=" + destination() + ", sourceRecord=" + sourceRecord() + "]";
+    }
+}
@@ -0,0 +1,77 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors used by the horizpipes processing stages.
+ */
+public final class ThreadPools {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadPools.class);
+
+    public enum Kind {
+        FORKJOIN, VIRTUAL;
+
+        public static Kind parse(String value) {
+            return value == null ? FORKJOIN : Kind.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static ExecutorService create(Kind kind, int parallelism, String namePrefix) {
+        return kind == Kind.VIRTUAL
+                ? newVirtualThreadPerTaskExecutor(parallelism, namePrefix)
+                : newForkJoinPool(parallelism, namePrefix);
+    }
+
+    public static ExecutorService newForkJoinPool(int parallelism, String namePrefix) {
+        var counter = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(namePrefix + "-" + counter.incrementAndGet());
+            return thread;
+        };
+        return new ForkJoinPool(parallelism, factory, null, false);
+    }
+
+    /**
+     * Virtual threads need Java 21. On older runtimes, which the build toolchain still
+     * targets, this falls back to a ForkJoin pool of the given parallelism.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(int fallbackParallelism, String namePrefix) {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Virtual threads are not available on Java {}, using a ForkJoin pool for {}.",
+                    Runtime.version().feature(), namePrefix);
+            return newForkJoinPool(fallbackParallelism, namePrefix);
+        }
+    }
+
+    /**
+     * One thread per task, for long-running tasks such as connectors that would pin a fixed pool.
+     * Uses virtual threads on Java 21 and named platform threads otherwise.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        try {
+            var method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Virtual threads are not available on Java {}, using platform threads for {}.",
+                    Runtime.version().feature(), namePrefix);
+            var counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> new Thread(task, namePrefix + "-" + counter.incrementAndGet()));
+        }
+    }
+
+    private ThreadPools() {
+    }
+}
@@ -0,0 +1,91 @@
+package com.grafysi.horizpipes.utils.debezium.buffer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of serialization buffers in power-of-two size classes from 256 bytes to 1 MiB.
+ * Each size class carves its buffers out of 1 MiB slabs, so a snapshot producing millions
+ * of records reuses a fixed set of arrays instead of allocating two per record.
+ * Slabs are allocated until {@code maxPooledBytes} is reached, then requests that find
+ * no free buffer fall back to unpooled heap arrays.
+ */
+public final class BufferPool {
+
+    public static final long DEFAULT_MAX_POOLED_BYTES = 64L << 20;
+
+    private static final int MIN_CLASS_SHIFT = 8;
+    private static final int MAX_CLASS_SHIFT = 20;
+    private static final int SLAB_SIZE = 1 << 20;
+
+    private final long maxPooledBytes;
+    private final ConcurrentLinkedQueue<PooledBuffer>[] freeLists;
+    private final AtomicLong slabBytes = new AtomicLong();
+    private final AtomicLong unpooledAllocations = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.freeLists = new ConcurrentLinkedQueue[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+        for (int i = 0; i < freeLists.length; i++) {
+            freeLists[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Returns a buffer with room for at least {@code size} bytes.
+     */
+    public PooledBuffer acquire(int size) {
+        var sizeClass = sizeClass(size);
+        if (sizeClass >= 0) {
+            var freeList = freeLists[sizeClass];
+            PooledBuffer buffer;
+            while ((buffer = freeList.poll()) != null || (buffer = carveSlab(sizeClass)) != null) {
+                if (buffer.acquire()) {
+                    return buffer;
+                }
+            }
+        }
+        unpooledAllocations.incrementAndGet();
+        var buffer = new PooledBuffer(null, -1, new byte[size], 0, size);
+        buffer.acquire();
+        return buffer;
+    }
+
+    void release(PooledBuffer buffer) {
+        freeLists[buffer.sizeClass()].offer(buffer);
+    }
+
+    public long slabBytes() {
+        return slabBytes.get();
+    }
+
+    public long unpooledAllocations() {
+        return unpooledAllocations.get();
+    }
+
+    private PooledBuffer carveSlab(int sizeClass) {
+        long slab;
+        do {
+            slab = slabBytes.get();
+            if (slab + SLAB_SIZE > maxPooledBytes) {
+                return null;
+            }
+        } while (!slabBytes.compareAndSet(slab, slab + SLAB_SIZE));
+        var bufferSize = 1 << (sizeClass + MIN_CLASS_SHIFT);
+        var array = new byte[SLAB_SIZE];
+        var freeList = freeLists[sizeClass];
+        for (int offset = bufferSize; offset < SLAB_SIZE; offset += bufferSize) {
+            freeList.offer(new PooledBuffer(this, sizeClass, array, offset, bufferSize));
+        }
+        return new PooledBuffer(this, sizeClass, array, 0, bufferSize);
+    }
+
+    private static int sizeClass(int size) {
+        if (size > 1 << MAX_CLASS_SHIFT) {
+            return -1;
+        }
+        var shift = size <= 1 << MIN_CLASS_SHIFT ? MIN_CLASS_SHIFT : 32 - Integer.numberOfLeadingZeros(size - 1);
+        return shift - MIN_CLASS_SHIFT;
+    }
+}
@@ -0,0 +1,16 @@
+package com.grafysi.horizpipes.utils.debezium.buffer;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.connect.data.Schema;
+
+/**
+ * Implemented by converters that can serialize straight into a {@link BufferPool} buffer.
+ */
+public interface BufferedConverter {
+
+    /**
+     * Same as {@code Converter#fromConnectData(String, Headers, Schema, Object)}, but the result is written
+     * into a buffer acquired from {@code pool}. Returns null where the converter would return null.
+     */
+    PooledBuffer fromConnectData(String topic, Headers headers, Schema schema, Object value, BufferPool pool);
+}
@@ -0,0 +1,120 @@
+package com.grafysi.horizpipes.utils.debezium.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A slice of a {@link BufferPool} slab holding one serialized key or value.
+ * The slice goes back to its pool on {@link #release()}, after which views handed out
+ * earlier must no longer be read. Buffers larger than the biggest size class are plain
+ * heap arrays that are never pooled.
+ */
+public final class PooledBuffer {
+
+    private final BufferPool pool;
+    private final int sizeClass;
+    private final byte[] array;
+    private final int offset;
+    private final int capacity;
+    private final AtomicBoolean acquired = new AtomicBoolean();
+
+    private int length;
+
+    PooledBuffer(BufferPool pool, int sizeClass, byte[] array, int offset, int capacity) {
+        this.pool = pool;
+        this.sizeClass = sizeClass;
+        this.array = array;
+        this.offset = offset;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Wraps {@code bytes} without copying, for converters that already produced their own array.
+     */
+    public static PooledBuffer wrap(byte[] bytes) {
+        var buffer = new PooledBuffer(null, -1, bytes, 0, bytes.length);
+        buffer.acquired.set(true);
+        buffer.length = bytes.length;
+        return buffer;
+    }
+
+    boolean acquire() {
+        if (!acquired.compareAndSet(false, true)) {
+            return false;
+        }
+        length = 0;
+        return true;
+    }
+
+    int sizeClass() {
+        return sizeClass;
+    }
+
+    public void put(byte[] src, int srcOffset, int srcLength) {
+        if (srcLength > capacity) {
+            throw new IndexOutOfBoundsException("Buffer capacity " + capacity + " is smaller than " + srcLength + " bytes");
+        }
+        System.arraycopy(src, srcOffset, array, offset, srcLength);
+        length = srcLength;
+    }
+
+    public byte[] array() {
+        return array;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    public boolean isReleased() {
+        return !acquired.get();
+    }
+
+    /**
+     * Returns a read-only view over the written bytes.
+     */
+    public ByteBuffer view() {
+        ensureAcquired();
+        return ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the written bytes. An unpooled buffer they fill exactly, e.g. one {@link #wrap wrapping} a converter's
+     * output, returns its array without copying; a slice of a slab is copied, since the slab is reused after release.
+     */
+    public byte[] toByteArray() {
+        ensureAcquired();
+        if (pool == null && offset == 0 && length == array.length) {
+            return array;
+        }
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    /**
+     * Returns this buffer to its pool. Releasing twice is a no-op.
+     */
+    public void release() {
+        if (acquired.compareAndSet(true, false) && pool != null) {
+            pool.release(this);
+        }
+    }
+
+    private void ensureAcquired() {
+        if (!acquired.get()) {
+            throw new IllegalStateException("Buffer has already been released");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.grafysi.horizpipes.utils.debezium.changelog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk layout shared by {@link ChangeLogSink} and {@link ChangeLogReader}.
+ * <p>
+ * A change log is a directory of segments named by the sequence of their first record,
+ * {@code <sequence>.log}, each with a sparse {@code <sequence>.index}. A segment holds records
+ * {@code [int body length][int crc32c][body]} with the body
+ * {@code [long sequence][long lsn][long timestamp][int key length][key][int value length][value][int header count]
+ * {[int name length][name][int value length][value]}}, lengths of -1 for null. A zero length ends the
+ * written part of the active segment, whose file is preallocated. An index entry is
+ * {@code [long sequence][long lsn][long timestamp][int position]}.
+ */
+final class ChangeLogFormat {
+
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int FIXED_BODY_SIZE = 8 + 8 + 8 + 4 + 4 + 4;
+    static final int INDEX_ENTRY_SIZE = 28;
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".index";
+
+    record IndexEntry(long sequence, long lsn, long timestamp, int position) {
+    }
+
+    static Path segmentPath(Path dir, long baseSequence) {
+        return dir.resolve(String.format("%020d", baseSequence) + LOG_SUFFIX);
+    }
+
+    static Path indexPath(Path dir, long baseSequence) {
+        return dir.resolve(String.format("%020d", baseSequence) + INDEX_SUFFIX);
+    }
+
+    /**
+     * Returns the base sequences of the segments in {@code dir}, oldest first.
+     */
+    static List<Long> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(LOG_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static List<IndexEntry> readIndex(Path dir, long baseSequence) throws IOException {
+        var path = indexPath(dir, baseSequence);
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        var entries = new ArrayList<IndexEntry>(bytes.remaining() / INDEX_ENTRY_SIZE);
+        while (bytes.remaining() >= INDEX_ENTRY_SIZE) {
+            entries.add(new IndexEntry(bytes.getLong(), bytes.getLong(), bytes.getLong(), bytes.getInt()));
+        }
+        return entries;
+    }
+
+    static void writeIndexEntry(ByteBuffer buffer, IndexEntry entry) {
+        buffer.putLong(entry.sequence()).putLong(entry.lsn()).putLong(entry.timestamp()).putInt(entry.position());
+    }
+
+    /**
+     * Reads the body length of the record at {@code position}, 0 at the end of the written data.
+     */
+    static int bodyLength(FileChannel channel, long position, ByteBuffer scratch) throws IOException {
+        scratch.clear().limit(RECORD_HEADER_SIZE);
+        if (position + RECORD_HEADER_SIZE > channel.size() || readFully(channel, scratch, position) < RECORD_HEADER_SIZE) {
+            return 0;
+        }
+        var length = scratch.getInt(0);
+        return length > 0 && position + RECORD_HEADER_SIZE + length <= channel.size() ? length : 0;
+    }
+
+    /**
+     * Reads and verifies the record at {@code position}, null if it is missing or torn.
+     */
+    static ChangeLogRecord read(FileChannel channel, long position, ByteBuffer scratch) throws IOException {
+        var length = bodyLength(channel, position, scratch);
+        if (length == 0) {
+            return null;
+        }
+        var crc = scratch.getInt(4);
+        var body = ByteBuffer.allocate(length);
+        if (readFully(channel, body, position + RECORD_HEADER_SIZE) < length || crc(body.flip()) != crc) {
+            return null;
+        }
+        return decode(body);
+    }
+
+    /**
+     * Returns {@code {records, bytes}} of the complete records from {@code position} on whose checksum matches,
+     * at most {@code maxBytes} unless the first record alone is larger. Reads ahead through {@code window},
+     * so small records cost no read each.
+     */
+    static long[] countVerified(FileChannel channel, long position, long maxBytes, ByteBuffer window) throws IOException {
+        var size = channel.size();
+        var windowStart = position;
+        window.clear().limit(0);
+        long records = 0;
+        long bytes = 0;
+        while (true) {
+            var start = position + bytes;
+            if (start + RECORD_HEADER_SIZE > size) {
+                break;
+            }
+            if (start + RECORD_HEADER_SIZE > windowStart + window.limit()) {
+                fill(channel, window, windowStart = start, size);
+                if (window.limit() < RECORD_HEADER_SIZE) {
+                    break;
+                }
+            }
+            var offset = (int) (start - windowStart);
+            var length = window.getInt(offset);
+            var crc = window.getInt(offset + 4);
+            if (length <= 0 || start + RECORD_HEADER_SIZE + length > size
+                    || records > 0 && bytes + RECORD_HEADER_SIZE + length > maxBytes) {
+                break;
+            }
+
+            var checksum = new CRC32C();
+            var bodyStart = start + RECORD_HEADER_SIZE;
+            var remaining = (long) length;
+            while (remaining > 0) {
+                var at = bodyStart + length - remaining;
+                if (at >= windowStart + window.limit()) {
+                    fill(channel, window, windowStart = at, size);
+                    if (window.limit() == 0) {
+                        return new long[] {records, bytes};
+                    }
+                }
+                var from = (int) (at - windowStart);
+                var chunk = (int) Math.min(remaining, window.limit() - from);
+                checksum.update(window.duplicate().limit(from + chunk).position(from));
+                remaining -= chunk;
+            }
+            if ((int) checksum.getValue() != crc) {
+                break;
+            }
+            bytes += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+        return new long[] {records, bytes};
+    }
+
+    static ChangeLogRecord decode(ByteBuffer body) {
+        var sequence = body.getLong();
+        var lsn = body.getLong();
+        var timestamp = body.getLong();
+        var key = slice(body);
+        var value = slice(body);
+        var headerCount = body.getInt();
+        var headers = new ArrayList<ChangeLogRecord.Header>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            var name = slice(body);
+            headers.add(new ChangeLogRecord.Header(StandardCharsets.UTF_8.decode(name).toString(), slice(body)));
+        }
+        return new ChangeLogRecord(sequence, lsn, timestamp, key, value, headers);
+    }
+
+    static int crc(ByteBuffer body) {
+        var crc = new CRC32C();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer body) {
+        var length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var slice = body.slice(body.position(), length).asReadOnlyBuffer();
+        body.position(body.position() + length);
+        return slice;
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer window, long position, long size) throws IOException {
+        window.clear().limit((int) Math.min(window.capacity(), size - position));
+        readFully(channel, window, position);
+        window.flip();
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        var total = 0;
+        while (buffer.hasRemaining()) {
+            var read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private ChangeLogFormat() {
+    }
+}
@@ -0,0 +1,246 @@
+package com.grafysi.horizpipes.utils.debezium.changelog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ToLongFunction;
+
+import static com.grafysi.horizpipes.utils.debezium.changelog.ChangeLogFormat.RECORD_HEADER_SIZE;
+
+/**
+ * Reads a change log written by {@link ChangeLogSink}, possibly while it is being appended to.
+ * <p>
+ * Position it with {@link #seek}, {@link #seekToLsn} or {@link #seekToTime}, which use the sparse index and
+ * scan forward from the nearest entry, then either {@link #poll} decoded records or ship raw framed records
+ * with {@link #transferTo}, which copies file to channel without passing through the heap after checking the
+ * checksums of the records it sends.
+ * A reader is not thread safe. If retention deletes the segment after the current one, reading continues
+ * at the oldest remaining segment.
+ */
+public class ChangeLogReader implements Closeable {
+
+    private static final int WINDOW_SIZE = 64 << 10;
+
+    private final Path dir;
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    private ByteBuffer window;
+
+    private long baseSequence = -1;
+    private FileChannel channel;
+    private long position;
+    private long nextSequence;
+
+    public ChangeLogReader(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the sequence of the next record read.
+     */
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Positions the reader at the first record with a sequence of at least {@code sequence}.
+     */
+    public void seek(long sequence) {
+        seekBy(ChangeLogFormat.IndexEntry::sequence, ChangeLogRecord::sequence, sequence);
+    }
+
+    /**
+     * Positions the reader at the first record with a source LSN of at least {@code lsn}.
+     */
+    public void seekToLsn(long lsn) {
+        seekBy(ChangeLogFormat.IndexEntry::lsn, ChangeLogRecord::lsn, lsn);
+    }
+
+    /**
+     * Positions the reader at the first record appended at or after {@code timestamp}, in epoch milliseconds.
+     */
+    public void seekToTime(long timestamp) {
+        seekBy(ChangeLogFormat.IndexEntry::timestamp, ChangeLogRecord::timestamp, timestamp);
+    }
+
+    /**
+     * Returns the next record, or null if the reader has caught up with the writer.
+     */
+    public ChangeLogRecord poll() {
+        try {
+            if (!ensureOpen()) {
+                return null;
+            }
+            var record = ChangeLogFormat.read(channel, position, scratch);
+            if (record == null && nextSegment()) {
+                record = ChangeLogFormat.read(channel, position, scratch);
+            }
+            if (record != null) {
+                position += RECORD_HEADER_SIZE + scratch.getInt(0);
+                nextSequence = record.sequence() + 1;
+            }
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read change log " + dir, e);
+        }
+    }
+
+    /**
+     * Transfers whole framed records, at most {@code maxBytes} unless the next record alone is larger,
+     * from the current segment to {@code target} and returns the number of records sent.
+     * Records are sent as stored, see {@link ChangeLogFormat}, and like {@link #poll} stop before a corrupt one.
+     * {@code target} must be blocking, a non-blocking one could take part of a record and nothing more.
+     */
+    public int transferTo(WritableByteChannel target, long maxBytes) {
+        if (target instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+            throw new IllegalArgumentException("Change log transfer target must be blocking");
+        }
+        try {
+            if (!ensureOpen()) {
+                return 0;
+            }
+            var count = countRecords(maxBytes);
+            if (count[0] == 0 && nextSegment()) {
+                count = countRecords(maxBytes);
+            }
+            var bytes = count[1];
+            var sent = 0L;
+            while (sent < bytes) {
+                var transferred = channel.transferTo(position + sent, bytes - sent, target);
+                if (transferred == 0) {
+                    throw new IOException("Transfer target took no bytes after " + sent + " of " + bytes);
+                }
+                sent += transferred;
+            }
+            position += bytes;
+            nextSequence += count[0];
+            return (int) count[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to transfer change log " + dir, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closeChannel();
+    }
+
+    /**
+     * Returns {@code {records, bytes}} of the complete, verified records after the current position that fit
+     * in {@code maxBytes}.
+     */
+    private long[] countRecords(long maxBytes) throws IOException {
+        if (window == null) {
+            window = ByteBuffer.allocateDirect(WINDOW_SIZE);
+        }
+        return ChangeLogFormat.countVerified(channel, position, maxBytes, window);
+    }
+
+    private void seekBy(ToLongFunction<ChangeLogFormat.IndexEntry> indexKey, ToLongFunction<ChangeLogRecord> recordKey,
+                        long target) {
+        try {
+            var segments = ChangeLogFormat.segments(dir);
+            closeChannel();
+            if (segments.isEmpty()) {
+                baseSequence = -1;
+                return;
+            }
+            // start at the last indexed record before the target, the index is sparse
+            var startBase = segments.get(0);
+            var startPosition = 0L;
+            var startSequence = startBase;
+            for (var base : segments) {
+                for (var entry : ChangeLogFormat.readIndex(dir, base)) {
+                    if (indexKey.applyAsLong(entry) >= target) {
+                        break;
+                    }
+                    startBase = base;
+                    startPosition = entry.position();
+                    startSequence = entry.sequence();
+                }
+            }
+            open(startBase, startPosition, startSequence);
+
+            long mark;
+            long markSequence;
+            ChangeLogRecord record;
+            do {
+                mark = position;
+                markSequence = nextSequence;
+                var markBase = baseSequence;
+                record = poll();
+                if (record != null && recordKey.applyAsLong(record) >= target) {
+                    if (baseSequence != markBase) {
+                        open(baseSequence, 0, record.sequence());
+                    } else {
+                        position = mark;
+                        nextSequence = markSequence;
+                    }
+                    return;
+                }
+            } while (record != null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to seek change log " + dir, e);
+        }
+    }
+
+    private boolean ensureOpen() throws IOException {
+        if (channel != null) {
+            return true;
+        }
+        var segments = ChangeLogFormat.segments(dir);
+        if (segments.isEmpty()) {
+            return false;
+        }
+        if (baseSequence < 0) {
+            open(segments.get(0), 0, segments.get(0));
+            return true;
+        }
+        return nextSegment();
+    }
+
+    /**
+     * Moves to the segment after the current one once that is fully read. A sealed segment is truncated
+     * to its records, while the active one is preallocated past them.
+     */
+    private boolean nextSegment() throws IOException {
+        if (channel != null && position < channel.size()) {
+            return false;
+        }
+        for (var base : ChangeLogFormat.segments(dir)) {
+            if (base > baseSequence) {
+                try {
+                    open(base, 0, base);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void open(long base, long position, long sequence) throws IOException {
+        closeChannel();
+        channel = FileChannel.open(ChangeLogFormat.segmentPath(dir, base), StandardOpenOption.READ);
+        this.baseSequence = base;
+        this.position = position;
+        this.nextSequence = sequence;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+    }
+}
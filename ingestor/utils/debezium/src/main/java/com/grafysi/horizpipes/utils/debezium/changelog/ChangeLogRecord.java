@@ -0,0 +1,28 @@
+package com.grafysi.horizpipes.utils.debezium.changelog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A record read back from a change log. {@code key} and {@code value} are null for null keys and
+ * tombstones, {@code lsn} is -1 when the source offset has none and {@code timestamp} is the append time.
+ */
+public record ChangeLogRecord(long sequence, long lsn, long timestamp, ByteBuffer key, ByteBuffer value,
+                              List<Header> headers) {
+
+    public record Header(String name, ByteBuffer value) {
+
+        public String valueAsString() {
+            return value == null ? null : StandardCharsets.UTF_8.decode(value.duplicate()).toString();
+        }
+    }
+
+    public String keyAsString() {
+        return key == null ? null : StandardCharsets.UTF_8.decode(key.duplicate()).toString();
+    }
+
+    public String valueAsString() {
+        return value == null ? null : StandardCharsets.UTF_8.decode(value.duplicate()).toString();
+    }
+}
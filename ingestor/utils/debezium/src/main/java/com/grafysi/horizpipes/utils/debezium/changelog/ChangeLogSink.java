@@ -0,0 +1,433 @@
+package com.grafysi.horizpipes.utils.debezium.changelog;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.PooledHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.pipeline.BatchCommitter;
+import com.grafysi.horizpipes.utils.debezium.pipeline.BatchConsumer;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.grafysi.horizpipes.utils.debezium.changelog.ChangeLogFormat.FIXED_BODY_SIZE;
+import static com.grafysi.horizpipes.utils.debezium.changelog.ChangeLogFormat.INDEX_ENTRY_SIZE;
+import static com.grafysi.horizpipes.utils.debezium.changelog.ChangeLogFormat.RECORD_HEADER_SIZE;
+
+/**
+ * Durable local buffer of converted events, so downstream systems can lag behind without holding the
+ * replication slot. Create it with {@link #create(Properties)} and pass it as the batch consumer of a
+ * {@code JsonConnector} or {@code AvroConnector}, the connectors do not create it themselves. Every batch is
+ * appended to a memory-mapped segment in {@code hzp.changelog.dir} and forced to disk before it is finished,
+ * so the engine commits its offsets, and Postgres confirms its LSN, only once it is durable. Read it back
+ * with {@link ChangeLogReader}.
+ * <p>
+ * Keys and values are stored as produced, Strings as UTF-8, pooled buffers copied straight into the mapping.
+ * An index entry holding sequence, source LSN and append time is written every {@code hzp.changelog.index.interval.bytes}.
+ * Segments roll at {@code hzp.changelog.segment.bytes}; sealed segments are deleted, oldest first, while the log
+ * exceeds {@code hzp.changelog.retention.bytes} or their last record is older than {@code hzp.changelog.retention.ms}.
+ * Age is also checked periodically, so a quiet log expires too: an active segment not appended to for the retention
+ * time is sealed and deleted. Events appended one by one with {@link #accept} are only forced to disk every
+ * {@code hzp.changelog.flush.interval.ms} and on every roll.
+ * See {@link ChangeLogFormat} for the layout.
+ */
+public class ChangeLogSink<K, V> implements BatchConsumer<K, V>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeLogSink.class);
+
+    public static final int DEFAULT_SEGMENT_BYTES = 128 << 20;
+    public static final int DEFAULT_INDEX_INTERVAL_BYTES = 4096;
+    public static final int DEFAULT_FLUSH_INTERVAL_MS = 1000;
+
+    private static final long MAX_RETENTION_CHECK_INTERVAL_MS = 60_000;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int indexIntervalBytes;
+    private final long retentionBytes;
+    private final long retentionMs;
+    private final ScheduledExecutorService scheduler;
+
+    private long nextSequence;
+    private long baseSequence;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private FileChannel indexChannel;
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    private int position;
+    private int lastIndexedPosition;
+    private long lastAppendTime;
+    private boolean closed;
+
+    public ChangeLogSink(Path dir, int segmentBytes, int indexIntervalBytes, long retentionBytes, long retentionMs,
+                         long flushIntervalMs) {
+        if (segmentBytes <= RECORD_HEADER_SIZE + FIXED_BODY_SIZE) {
+            throw new IllegalArgumentException("Segment bytes too small: " + segmentBytes);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.retentionBytes = retentionBytes;
+        this.retentionMs = retentionMs;
+        try {
+            Files.createDirectories(dir);
+            recover();
+            openSegment(segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open change log " + dir, e);
+        }
+        LOGGER.info("Opened change log {} at sequence {}", dir, nextSequence);
+
+        if (flushIntervalMs > 0 || retentionMs >= 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                var thread = new Thread(task, "hzp-changelog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (flushIntervalMs > 0) {
+                scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            }
+            if (retentionMs >= 0) {
+                var checkInterval = Math.max(1, Math.min(retentionMs, MAX_RETENTION_CHECK_INTERVAL_MS));
+                scheduler.scheduleWithFixedDelay(this::expire, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public static <K, V> ChangeLogSink<K, V> create(Properties props) {
+        var dir = props.getProperty(Configs.CHANGELOG_DIR);
+        if (dir == null) {
+            throw new IllegalArgumentException("Missing required config: " + Configs.CHANGELOG_DIR);
+        }
+        return new ChangeLogSink<>(Paths.get(dir),
+                Integer.parseInt(props.getProperty(Configs.CHANGELOG_SEGMENT_BYTES, String.valueOf(DEFAULT_SEGMENT_BYTES))),
+                Integer.parseInt(props.getProperty(Configs.CHANGELOG_INDEX_INTERVAL_BYTES, String.valueOf(DEFAULT_INDEX_INTERVAL_BYTES))),
+                Long.parseLong(props.getProperty(Configs.CHANGELOG_RETENTION_BYTES, "-1")),
+                Long.parseLong(props.getProperty(Configs.CHANGELOG_RETENTION_MS, "-1")),
+                Long.parseLong(props.getProperty(Configs.CHANGELOG_FLUSH_INTERVAL_MS, String.valueOf(DEFAULT_FLUSH_INTERVAL_MS))));
+    }
+
+    /**
+     * Appends {@code records} and forces them to disk, then finishes the batch. A failed append or force
+     * is thrown, which fails the batch, so no offset is committed ahead of what is on disk.
+     */
+    @Override
+    public void handleBatch(List<ChangeEvent<K, V>> records, BatchCommitter committer) {
+        for (var record : records) {
+            accept(record);
+        }
+        force();
+        committer.markBatchFinished();
+    }
+
+    /**
+     * Appends {@code event} without forcing it, it is on disk after the next periodic flush or roll.
+     */
+    public void accept(ChangeEvent<K, V> event) {
+        ByteBuffer key;
+        ByteBuffer value;
+        if (event instanceof PooledHzpChangeEvent<?, ?, ?> pooled) {
+            key = pooled.keyBuffer();
+            value = pooled.valueBuffer();
+        } else {
+            key = bytes(event.key());
+            value = bytes(event.value());
+        }
+        var headers = headers(event.headers());
+        append(key, value, headers, lsn(event));
+    }
+
+    /**
+     * Returns the sequence the next appended record gets.
+     */
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    /**
+     * Forces the active segment to disk.
+     */
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            force();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to flush change log {}", dir, e);
+        }
+    }
+
+    private synchronized void force() {
+        if (closed) {
+            throw new IllegalStateException("Change log " + dir + " is closed");
+        }
+        try {
+            mapped.force();
+            indexChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to force change log " + dir, e);
+        }
+    }
+
+    /**
+     * Deletes the segments past {@code hzp.changelog.retention.ms}, sealing the active one first if it
+     * was not appended to for that long.
+     */
+    synchronized void expire() {
+        if (closed) {
+            return;
+        }
+        try {
+            if (position > 0 && lastAppendTime < System.currentTimeMillis() - retentionMs) {
+                roll(0);
+            } else {
+                applyRetention();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to apply retention to change log {}", dir, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        try {
+            seal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close change log " + dir, e);
+        } finally {
+            closed = true;
+        }
+    }
+
+    private synchronized void append(ByteBuffer key, ByteBuffer value, List<ByteBuffer> headers, long lsn) {
+        if (closed) {
+            throw new IllegalStateException("Change log " + dir + " is closed");
+        }
+        var bodySize = FIXED_BODY_SIZE + length(key) + length(value);
+        for (var header : headers) {
+            bodySize += 4 + length(header);
+        }
+        var recordSize = RECORD_HEADER_SIZE + bodySize;
+        try {
+            if (position + recordSize > mapped.capacity()) {
+                roll(recordSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll change log " + dir, e);
+        }
+
+        var timestamp = System.currentTimeMillis();
+        var body = mapped.slice(position + RECORD_HEADER_SIZE, bodySize);
+        body.putLong(nextSequence).putLong(lsn).putLong(timestamp);
+        put(body, key);
+        put(body, value);
+        body.putInt(headers.size() / 2);
+        for (var header : headers) {
+            put(body, header);
+        }
+        mapped.putInt(position + 4, ChangeLogFormat.crc(body.flip()));
+        // length last, so readers of the active segment never see a partial record
+        mapped.putInt(position, bodySize);
+
+        if (position == 0 || position - lastIndexedPosition >= indexIntervalBytes) {
+            writeIndex(new ChangeLogFormat.IndexEntry(nextSequence, lsn, timestamp, position));
+            lastIndexedPosition = position;
+        }
+        position += recordSize;
+        nextSequence++;
+        lastAppendTime = timestamp;
+    }
+
+    private void writeIndex(ChangeLogFormat.IndexEntry entry) {
+        ChangeLogFormat.writeIndexEntry(indexEntry.clear(), entry);
+        indexEntry.flip();
+        try {
+            while (indexEntry.hasRemaining()) {
+                indexChannel.write(indexEntry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write change log index " + dir, e);
+        }
+    }
+
+    private void roll(int recordSize) throws IOException {
+        seal();
+        openSegment(Math.max(segmentBytes, recordSize));
+        applyRetention();
+    }
+
+    private void openSegment(int capacity) throws IOException {
+        baseSequence = nextSequence;
+        channel = FileChannel.open(ChangeLogFormat.segmentPath(dir, baseSequence),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        indexChannel = FileChannel.open(ChangeLogFormat.indexPath(dir, baseSequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        position = 0;
+        lastIndexedPosition = 0;
+    }
+
+    /**
+     * Forces the active segment and truncates it to its written size, which marks it sealed for readers.
+     * Its modification time is set to its last append, which retention measures the age from.
+     */
+    private void seal() throws IOException {
+        mapped.force();
+        mapped = null;
+        channel.truncate(position);
+        channel.force(true);
+        channel.close();
+        indexChannel.force(true);
+        indexChannel.close();
+        if (position > 0) {
+            Files.setLastModifiedTime(ChangeLogFormat.segmentPath(dir, baseSequence), FileTime.fromMillis(lastAppendTime));
+        }
+    }
+
+    /**
+     * Scans the newest segment up to its first missing or corrupt record, seals it there and continues
+     * the sequence after it. An empty newest segment is removed and its sequence reused.
+     */
+    private void recover() throws IOException {
+        var segments = ChangeLogFormat.segments(dir);
+        if (segments.isEmpty()) {
+            return;
+        }
+        var base = segments.get(segments.size() - 1);
+        var path = ChangeLogFormat.segmentPath(dir, base);
+        var scratch = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        var sequence = base;
+        long end = 0;
+        try (var segment = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ChangeLogRecord record;
+            while ((record = ChangeLogFormat.read(segment, end, scratch)) != null) {
+                end += RECORD_HEADER_SIZE + scratch.getInt(0);
+                sequence = record.sequence() + 1;
+            }
+            segment.truncate(end);
+        }
+        nextSequence = sequence;
+        if (end == 0) {
+            Files.delete(path);
+            Files.deleteIfExists(ChangeLogFormat.indexPath(dir, base));
+            return;
+        }
+        var valid = new ArrayList<ChangeLogFormat.IndexEntry>();
+        for (var entry : ChangeLogFormat.readIndex(dir, base)) {
+            if (entry.position() < end) {
+                valid.add(entry);
+            }
+        }
+        var index = ByteBuffer.allocate(valid.size() * INDEX_ENTRY_SIZE);
+        valid.forEach(entry -> ChangeLogFormat.writeIndexEntry(index, entry));
+        Files.write(ChangeLogFormat.indexPath(dir, base), index.array());
+        LOGGER.info("Recovered change log segment {} up to sequence {}", path, sequence);
+    }
+
+    private void applyRetention() throws IOException {
+        if (retentionBytes < 0 && retentionMs < 0) {
+            return;
+        }
+        var segments = ChangeLogFormat.segments(dir);
+        var total = 0L;
+        for (var base : segments) {
+            total += Files.size(ChangeLogFormat.segmentPath(dir, base));
+        }
+        var now = System.currentTimeMillis();
+        // the newest segment is the active one
+        for (var base : segments.subList(0, segments.size() - 1)) {
+            var path = ChangeLogFormat.segmentPath(dir, base);
+            var size = Files.size(path);
+            var expired = retentionMs >= 0 && Files.getLastModifiedTime(path).toMillis() < now - retentionMs;
+            if (!expired && (retentionBytes < 0 || total <= retentionBytes)) {
+                break;
+            }
+            Files.delete(path);
+            Files.deleteIfExists(ChangeLogFormat.indexPath(dir, base));
+            total -= size;
+            LOGGER.debug("Deleted change log segment {}", path);
+        }
+    }
+
+    private static long lsn(ChangeEvent<?, ?> event) {
+        return event instanceof HzpChangeEvent<?, ?, ?> hzpEvent ? lsn(hzpEvent.sourceRecord()) : -1;
+    }
+
+    static long lsn(SourceRecord record) {
+        var offset = record == null ? null : record.sourceOffset();
+        return offset != null && offset.get("lsn") instanceof Number lsn ? lsn.longValue() : -1;
+    }
+
+    /**
+     * Flattens headers to alternating name and value buffers.
+     */
+    private static List<ByteBuffer> headers(List<? extends Header<?>> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return List.of();
+        }
+        var buffers = new ArrayList<ByteBuffer>(headers.size() * 2);
+        for (var header : headers) {
+            buffers.add(bytes(header.getKey()));
+            buffers.add(bytes(header.getValue()));
+        }
+        return buffers;
+    }
+
+    private static ByteBuffer bytes(Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof byte[] bytes) {
+            return ByteBuffer.wrap(bytes);
+        }
+        if (data instanceof ByteBuffer buffer) {
+            return buffer;
+        }
+        return ByteBuffer.wrap(data.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int length(ByteBuffer buffer) {
+        return buffer == null ? 0 : buffer.remaining();
+    }
+
+    private static void put(ByteBuffer body, ByteBuffer data) {
+        if (data == null) {
+            body.putInt(-1);
+        } else {
+            body.putInt(data.remaining()).put(data.duplicate());
+        }
+    }
+}
@@ -17,10 +17,62 @@ public final class Configs {
 
     public static final String POLL_INTERVAL_MS = "poll.interval.ms";
     public static final String MAX_BATCH_SIZE = "max.batch.size";
+    public static final String MAX_QUEUE_SIZE = "max.queue.size";
+    public static final String MAX_QUEUE_SIZE_IN_BYTES = "max.queue.size.in.bytes";
     public static final String RECORD_PROCESSING_THREADS = "record.processing.threads";
 
     public static final String KEY_CONVERTER = "key.converter";
     public static final String VALUE_CONVERTER = "value.converter";
 
     public static final String OFFSET_STORAGE = "offset.storage";
+    public static final String OFFSET_STORAGE_FILE_FILENAME = "offset.storage.file.filename";
+    public static final String OFFSET_FLUSH_INTERVAL_MS = "offset.flush.interval.ms";
+    public static final String OFFSET_STORAGE_SYNC = "hzp.offset.storage.sync";
+    public static final String OFFSET_STORAGE_FLUSH_INTERVAL_MS = "hzp.offset.storage.flush.interval.ms";
+    public static final String OFFSET_STORAGE_SEGMENT_BYTES = "hzp.offset.storage.segment.bytes";
+    public static final String OFFSET_STORAGE_COMPACT_BYTES = "hzp.offset.storage.compact.bytes";
+    public static final String OFFSET_STORAGE_COMPACT_INTERVAL_MS = "hzp.offset.storage.compact.interval.ms";
+
+    public static final String CHANGELOG_DIR = "hzp.changelog.dir";
+    public static final String CHANGELOG_SEGMENT_BYTES = "hzp.changelog.segment.bytes";
+    public static final String CHANGELOG_INDEX_INTERVAL_BYTES = "hzp.changelog.index.interval.bytes";
+    public static final String CHANGELOG_RETENTION_BYTES = "hzp.changelog.retention.bytes";
+    public static final String CHANGELOG_RETENTION_MS = "hzp.changelog.retention.ms";
+    public static final String CHANGELOG_FLUSH_INTERVAL_MS = "hzp.changelog.flush.interval.ms";
+
+    public static final String REPLAY_PACE = "hzp.replay.pace";
+
+    public static final String TRACE_ENABLED = "hzp.trace.enabled";
+    public static final String TRACE_SAMPLE_RATE = "hzp.trace.sample.rate";
+
+    public static final String PROFILE = "hzp.profile";
+    public static final String SNAPSHOT_PARALLELISM = "hzp.snapshot.parallelism";
+
+    public static final String CONVERSION_LAZY = "hzp.conversion.lazy";
+    public static final String CONVERSION_PARALLEL_THREADS = "hzp.conversion.parallel.threads";
+    public static final String CONVERSION_PARALLEL_POOL = "hzp.conversion.parallel.pool";
+    public static final String CONVERSION_BUFFERS = "hzp.conversion.buffers";
+    public static final String BUFFER_POOL_MAX_BYTES = "hzp.buffer.pool.max.bytes";
+    public static final String BATCH_MAX_IN_FLIGHT = "hzp.batch.max.in.flight";
+    public static final String BATCH_ADAPTIVE_MIN_SIZE = "hzp.batch.adaptive.min.size";
+    public static final String BATCH_ADAPTIVE_MAX_SIZE = "hzp.batch.adaptive.max.size";
+    public static final String BATCH_ADAPTIVE_MAX_LINGER_MS = "hzp.batch.adaptive.max.linger.ms";
+    public static final String BATCH_ADAPTIVE_TARGET_LATENCY_MS = "hzp.batch.adaptive.target.latency.ms";
+
+    public static final String LANES = "hzp.lanes";
+    public static final String LANES_AFFINITY = "hzp.lanes.affinity";
+    public static final String LANES_TABLE_HEADER = "hzp.lanes.table.header";
+    public static final String LANES_POOL = "hzp.lanes.pool";
+
+    public static final String HANDOFF_CAPACITY = "hzp.handoff.capacity";
+    public static final String HANDOFF_CONSUMERS = "hzp.handoff.consumers";
+    public static final String HANDOFF_WAIT_STRATEGY = "hzp.handoff.wait.strategy";
+
+    public static final String CONVERTER_SHARDING = "hzp.converter.sharding";
+    public static final String CONVERTER_STRIPES = "hzp.converter.stripes";
+    public static final String CONVERTER_SHARED = "hzp.converter.shared";
+    public static final String CONVERTER_SCHEMA_IDS = "hzp.converter.schema.ids";
+
+    public static final String REGISTRY_WARMUP = "hzp.registry.warmup";
+    public static final String REGISTRY_WARMUP_PARALLELISM = "hzp.registry.warmup.parallelism";
 }
@@ -1,11 +1,20 @@
 package com.grafysi.horizpipes.utils.debezium.config;
 
+import com.grafysi.horizpipes.utils.debezium.storage.MmapOffsetBackingStore;
+
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Properties;
 
 public class DbzConfigurer {
 
+    /**
+     * Directory of the offset logs when {@link Configs#OFFSET_STORAGE_FILE_FILENAME} is not set,
+     * each connector gets {@code <name>.offsets} in it.
+     */
+    public static final String DEFAULT_OFFSET_DIR = "offsets";
+
     private static final HashSet<Option> namedOptions;
 
     static {
@@ -34,10 +43,12 @@ public class DbzConfigurer {
 
         addOption(new Option(Configs.POLL_INTERVAL_MS, "1000"));
         addOption(new Option(Configs.MAX_BATCH_SIZE, "1000"));
+        addOption(new Option(Configs.MAX_QUEUE_SIZE, "8192"));
         addOption(new Option(Configs.RECORD_PROCESSING_THREADS, "1"));
 
-        addOption(new Option(Configs.OFFSET_STORAGE,
-                "org.apache.kafka.connect.storage.MemoryOffsetBackingStore"));
+        // offsets survive restarts; appends are cheap, so they can be flushed often
+        addOption(new Option(Configs.OFFSET_STORAGE, MmapOffsetBackingStore.class.getName()));
+        addOption(new Option(Configs.OFFSET_FLUSH_INTERVAL_MS, "1000"));
     }
 
     private static void addOption(Option option) {
@@ -60,8 +71,17 @@ public class DbzConfigurer {
 
     public Properties buildProperties() {
         var props = new Properties();
+        var profile = configMap.containsKey(Configs.PROFILE) ? Profile.parse(configMap.get(Configs.PROFILE)) : null;
+        if (profile != null) {
+            profile.settings(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory(), configMap)
+                    .forEach(configMap::putIfAbsent);
+        }
         setDefaultValuesIfNotPresent();
         validateRequiredConfigs();
+        if (profile != null) {
+            profile.validate(configMap);
+        }
+        setOffsetFileIfNotPresent();
         configMap.forEach(props::setProperty);
         return props;
     }
@@ -73,6 +93,14 @@ public class DbzConfigurer {
                 .forEach(option -> configMap.put(option.name(), option.defaultValue().get()));
     }
 
+    private void setOffsetFileIfNotPresent() {
+        if (MmapOffsetBackingStore.class.getName().equals(configMap.get(Configs.OFFSET_STORAGE))
+                && !configMap.containsKey(Configs.OFFSET_STORAGE_FILE_FILENAME)) {
+            configMap.put(Configs.OFFSET_STORAGE_FILE_FILENAME,
+                    Paths.get(DEFAULT_OFFSET_DIR, configMap.get(Configs.CONNECTOR_NAME) + ".offsets").toString());
+        }
+    }
+
     private void validateRequiredConfigs() {
         namedOptions.stream()
                 .filter(Option::required)
@@ -0,0 +1,131 @@
+package com.grafysi.horizpipes.utils.debezium.config;
+
+import com.grafysi.horizpipes.utils.debezium.json.StreamingJsonConverter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Named sets of engine and horizpipes settings, derived from the available cores and the max heap.
+ * Selected with {@code hzp.profile}; explicitly set keys always win over the profile.
+ * <ul>
+ *     <li>{@code latency}: small batches and short polls, delivered as soon as they are read.</li>
+ *     <li>{@code throughput}: one processing thread per core, large batches and queues, striped
+ *     converters, and pooled serialization buffers when the value converter is the streaming Json converter,
+ *     the only one writing into them.</li>
+ *     <li>{@code low-memory}: a single processing thread, small batches and a queue bounded in bytes.</li>
+ * </ul>
+ */
+public enum Profile {
+    LATENCY, THROUGHPUT, LOW_MEMORY;
+
+    private static final long MiB = 1024 * 1024;
+
+    public static Profile parse(String value) {
+        try {
+            return Profile.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + Configs.PROFILE + ": " + value
+                    + ", expected latency, throughput or low-memory");
+        }
+    }
+
+    /**
+     * Returns the settings for {@code cores} and {@code maxHeapBytes}, some of them depend on the explicitly
+     * set keys in {@code config}.
+     */
+    public Map<String, String> settings(int cores, long maxHeapBytes, Map<String, String> config) {
+        var settings = new HashMap<String, String>();
+        switch (this) {
+            case LATENCY -> {
+                var threads = Math.min(cores, 4);
+                settings.put(Configs.RECORD_PROCESSING_THREADS, String.valueOf(threads));
+                settings.put(Configs.MAX_BATCH_SIZE, "256");
+                settings.put(Configs.MAX_QUEUE_SIZE, "2048");
+                settings.put(Configs.POLL_INTERVAL_MS, "50");
+                settings.put(Configs.CONVERTER_SHARDING, threads > 1 ? "thread" : "shared");
+                settings.put(Configs.BATCH_ADAPTIVE_MAX_LINGER_MS, "0");
+            }
+            case THROUGHPUT -> {
+                // 4096 records per batch once the heap can hold a few of them in flight
+                var batchSize = maxHeapBytes >= 2048 * MiB ? 4096 : 2048;
+                settings.put(Configs.RECORD_PROCESSING_THREADS, String.valueOf(cores));
+                settings.put(Configs.MAX_BATCH_SIZE, String.valueOf(batchSize));
+                settings.put(Configs.MAX_QUEUE_SIZE, String.valueOf(4 * batchSize));
+                settings.put(Configs.POLL_INTERVAL_MS, "500");
+                settings.put(Configs.CONVERTER_SHARDING, "striped");
+                settings.put(Configs.CONVERTER_STRIPES, String.valueOf(cores));
+                if (streamingJsonValues(config)) {
+                    settings.put(Configs.CONVERSION_BUFFERS, "pooled");
+                    settings.put(Configs.BUFFER_POOL_MAX_BYTES,
+                            String.valueOf(Math.max(16 * MiB, Math.min(256 * MiB, maxHeapBytes / 16))));
+                }
+            }
+            case LOW_MEMORY -> {
+                settings.put(Configs.RECORD_PROCESSING_THREADS, "1");
+                settings.put(Configs.MAX_BATCH_SIZE, "256");
+                settings.put(Configs.MAX_QUEUE_SIZE, "1024");
+                settings.put(Configs.MAX_QUEUE_SIZE_IN_BYTES, String.valueOf(Math.max(4 * MiB, maxHeapBytes / 32)));
+                settings.put(Configs.POLL_INTERVAL_MS, "1000");
+                settings.put(Configs.CONVERTER_SHARDING, "shared");
+                settings.put(Configs.CONVERSION_BUFFERS, "heap");
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Whether the value converter resolves to {@link StreamingJsonConverter} the way {@code HzpConverterBuilder}
+     * resolves it: {@code value.converter.*} over {@code converter.*}, an explicit {@code class} first, then the
+     * Apicurio converter if a registry url is set, then {@code custom.json.converter}.
+     */
+    static boolean streamingJsonValues(Map<String, String> config) {
+        var converterClass = firstOf(config, "value.converter.class", "converter.class");
+        if (converterClass == null && firstOf(config, "value.converter.apicurio.registry.url",
+                "converter.apicurio.registry.url") == null) {
+            converterClass = firstOf(config, "value.converter.custom.json.converter", "converter.custom.json.converter");
+        }
+        return StreamingJsonConverter.class.getName().equals(converterClass);
+    }
+
+    private static String firstOf(Map<String, String> config, String... keys) {
+        return Stream.of(keys).map(config::get).filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    /**
+     * Rejects settings that cannot work together, typically an explicit key contradicting the profile.
+     */
+    public void validate(Map<String, String> config) {
+        var batchSize = Integer.parseInt(config.get(Configs.MAX_BATCH_SIZE));
+        var queueSize = Integer.parseInt(config.get(Configs.MAX_QUEUE_SIZE));
+        if (queueSize <= batchSize) {
+            throw new IllegalArgumentException(conflict(Configs.MAX_QUEUE_SIZE + "=" + queueSize
+                    + " must be larger than " + Configs.MAX_BATCH_SIZE + "=" + batchSize));
+        }
+        var pooled = "pooled".equalsIgnoreCase(config.get(Configs.CONVERSION_BUFFERS));
+        if (pooled && Boolean.parseBoolean(config.get(Configs.CONVERSION_LAZY))) {
+            throw new IllegalArgumentException(conflict("pooled " + Configs.CONVERSION_BUFFERS
+                    + " cannot be used with " + Configs.CONVERSION_LAZY));
+        }
+        if (pooled && this == LOW_MEMORY) {
+            throw new IllegalArgumentException(conflict("pooled " + Configs.CONVERSION_BUFFERS
+                    + " keeps up to " + Configs.BUFFER_POOL_MAX_BYTES + " on the heap"));
+        }
+        if (config.containsKey(Configs.CONVERTER_STRIPES) && !"striped".equalsIgnoreCase(config.get(Configs.CONVERTER_SHARDING))) {
+            throw new IllegalArgumentException(conflict(Configs.CONVERTER_STRIPES + " requires "
+                    + Configs.CONVERTER_SHARDING + "=striped"));
+        }
+        var threads = Integer.parseInt(config.get(Configs.RECORD_PROCESSING_THREADS));
+        if (this == LOW_MEMORY && threads > 1) {
+            throw new IllegalArgumentException(conflict(Configs.RECORD_PROCESSING_THREADS + "=" + threads
+                    + " multiplies the records held in memory"));
+        }
+    }
+
+    private String conflict(String reason) {
+        return "Conflicting settings for " + Configs.PROFILE + "=" + name().toLowerCase(Locale.ROOT).replace('_', '-') + ": " + reason;
+    }
+}
@@ -0,0 +1,213 @@
+package com.grafysi.horizpipes.utils.debezium.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 byte sink with the JSON encoding rules of Jackson's default generator,
+ * which is what {@code JsonConverter} serializes with.
+ */
+public final class JsonOutput {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    // 0: no escaping, -1: \\u00XX escaping, otherwise the character of the short escape
+    private static final int[] ESCAPES = new int[128];
+
+    static {
+        for (int i = 0; i < 32; i++) {
+            ESCAPES[i] = -1;
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES[0x08] = 'b';
+        ESCAPES[0x09] = 't';
+        ESCAPES[0x0C] = 'f';
+        ESCAPES[0x0A] = 'n';
+        ESCAPES[0x0D] = 'r';
+    }
+
+    private byte[] buffer;
+    private int length;
+
+    public JsonOutput(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    public void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) c;
+    }
+
+    public void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    public void writeNull() {
+        writeBytes(NULL);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeBytes(value ? TRUE : FALSE);
+    }
+
+    public void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(LONG_MIN);
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        var end = length + digitCount(value);
+        var pos = end;
+        do {
+            buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        length = end;
+    }
+
+    public void writeFloat(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            writeString(Float.toString(value));
+        } else {
+            writeAscii(Float.toString(value));
+        }
+    }
+
+    public void writeDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeString(Double.toString(value));
+        } else {
+            writeAscii(Double.toString(value));
+        }
+    }
+
+    /**
+     * Writes characters that are known to be ASCII and need no escaping, e.g. number literals.
+     */
+    public void writeAscii(String value) {
+        var size = value.length();
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            buffer[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    public void writeString(String value) {
+        var size = value.length();
+        ensureCapacity(size * 6 + 2);
+        buffer[length++] = '"';
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                var escape = ESCAPES[c];
+                if (escape == 0) {
+                    buffer[length++] = (byte) c;
+                } else if (escape > 0) {
+                    buffer[length++] = '\\';
+                    buffer[length++] = (byte) escape;
+                } else {
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'u';
+                    buffer[length++] = '0';
+                    buffer[length++] = '0';
+                    buffer[length++] = HEX[c >> 4];
+                    buffer[length++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Jackson does not combine surrogate pairs into a 4-byte sequence but escapes each half
+                buffer[length++] = '\\';
+                buffer[length++] = 'u';
+                buffer[length++] = HEX[(c >> 12) & 0xF];
+                buffer[length++] = HEX[(c >> 8) & 0xF];
+                buffer[length++] = HEX[(c >> 4) & 0xF];
+                buffer[length++] = HEX[c & 0xF];
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buffer[length++] = '"';
+    }
+
+    /**
+     * Writes {@code data} as a quoted base64 string, matching Jackson's binary node output.
+     */
+    public void writeBase64(byte[] data) {
+        ensureCapacity(((data.length + 2) / 3) * 4 + 2);
+        buffer[length++] = '"';
+        var i = 0;
+        var fullGroups = data.length - data.length % 3;
+        while (i < fullGroups) {
+            int bits = (data[i++] & 0xFF) << 16 | (data[i++] & 0xFF) << 8 | (data[i++] & 0xFF);
+            buffer[length++] = BASE64[(bits >>> 18) & 0x3F];
+            buffer[length++] = BASE64[(bits >>> 12) & 0x3F];
+            buffer[length++] = BASE64[(bits >>> 6) & 0x3F];
+            buffer[length++] = BASE64[bits & 0x3F];
+        }
+        var remaining = data.length - fullGroups;
+        if (remaining > 0) {
+            int bits = (data[i++] & 0xFF) << 16;
+            if (remaining == 2) {
+                bits |= (data[i] & 0xFF) << 8;
+            }
+            buffer[length++] = BASE64[(bits >>> 18) & 0x3F];
+            buffer[length++] = BASE64[(bits >>> 12) & 0x3F];
+            buffer[length++] = remaining == 2 ? BASE64[(bits >>> 6) & 0x3F] : (byte) '=';
+            buffer[length++] = '=';
+        }
+        buffer[length++] = '"';
+    }
+
+    private void ensureCapacity(int extra) {
+        var required = length + extra;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    private static int digitCount(long value) {
+        var count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,681 @@
+package com.grafysi.horizpipes.utils.debezium.json;
+
+import com.grafysi.horizpipes.utils.debezium.buffer.BufferPool;
+import com.grafysi.horizpipes.utils.debezium.buffer.BufferedConverter;
+import com.grafysi.horizpipes.utils.debezium.buffer.PooledBuffer;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.connect.data.ConnectSchema;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.storage.Converter;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drop-in replacement for {@link JsonConverter} on the write path. Every Connect schema is compiled once
+ * into a write plan (the serialized schema plus one writer per field), and values are streamed straight
+ * into a reusable per-thread buffer instead of going through a Jackson tree. The produced bytes are the
+ * same as the ones of {@code JsonConverter} for the same configuration.
+ * <p>
+ * Reading ({@link #toConnectData}) is delegated to a {@code JsonConverter}. With pooled buffers the
+ * serialized bytes are copied from the per-thread buffer into a {@link BufferPool} buffer.
+ * Enable it with {@code converter.custom.json.converter=com.grafysi.horizpipes.utils.debezium.json.StreamingJsonConverter}.
+ */
+public class StreamingJsonConverter implements Converter, BufferedConverter {
+
+    public static final String SCHEMAS_ENABLE_CONFIG = "schemas.enable";
+    public static final String SCHEMAS_CACHE_SIZE_CONFIG = "schemas.cache.size";
+    public static final String DECIMAL_FORMAT_CONFIG = "decimal.format";
+    public static final String REPLACE_NULL_WITH_DEFAULT_CONFIG = "replace.null.with.default";
+
+    private static final int DEFAULT_SCHEMAS_CACHE_SIZE = 1000;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] SCHEMALESS_PREFIX = "{\"schema\":null,\"payload\":".getBytes(StandardCharsets.UTF_8);
+
+    private final JsonConverter delegate = new JsonConverter();
+    private final ConcurrentHashMap<SchemaIdentity, WritePlan> plans = new ConcurrentHashMap<>();
+    private final ThreadLocal<JsonOutput> outputs = ThreadLocal.withInitial(() -> new JsonOutput(INITIAL_BUFFER_SIZE));
+
+    private boolean schemasEnabled = true;
+    private boolean decimalNumeric = false;
+    private boolean replaceNullWithDefault = true;
+    private int schemasCacheSize = DEFAULT_SCHEMAS_CACHE_SIZE;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+        schemasEnabled = booleanConfig(configs, SCHEMAS_ENABLE_CONFIG, true);
+        replaceNullWithDefault = booleanConfig(configs, REPLACE_NULL_WITH_DEFAULT_CONFIG, true);
+        schemasCacheSize = intConfig(configs, SCHEMAS_CACHE_SIZE_CONFIG, DEFAULT_SCHEMAS_CACHE_SIZE);
+
+        var decimalFormat = configs.get(DECIMAL_FORMAT_CONFIG);
+        var format = decimalFormat == null ? "BASE64" : decimalFormat.toString().trim().toUpperCase(Locale.ROOT);
+        switch (format) {
+            case "BASE64" -> decimalNumeric = false;
+            case "NUMERIC" -> decimalNumeric = true;
+            default -> throw new ConfigException(DECIMAL_FORMAT_CONFIG, decimalFormat, "Must be one of BASE64, NUMERIC");
+        }
+        plans.clear();
+    }
+
+    @Override
+    public byte[] fromConnectData(String topic, Schema schema, Object value) {
+        if (schema == null && value == null) {
+            return null;
+        }
+        var out = outputs.get();
+        out.reset();
+        write(out, schema, value);
+        var bytes = out.toByteArray();
+        if (out.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            outputs.remove();
+        }
+        return bytes;
+    }
+
+    @Override
+    public PooledBuffer fromConnectData(String topic, Headers headers, Schema schema, Object value, BufferPool pool) {
+        if (schema == null && value == null) {
+            return null;
+        }
+        var out = outputs.get();
+        out.reset();
+        write(out, schema, value);
+        var buffer = pool.acquire(out.length());
+        buffer.put(out.buffer(), 0, out.length());
+        if (out.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            outputs.remove();
+        }
+        return buffer;
+    }
+
+    /**
+     * Appends the serialized form of {@code value} to {@code out}, as {@link #fromConnectData} would return it.
+     */
+    public void write(JsonOutput out, Schema schema, Object value) {
+        if (schema == null) {
+            if (schemasEnabled) {
+                out.writeBytes(SCHEMALESS_PREFIX);
+            }
+            writeSchemaless(out, value);
+            if (schemasEnabled) {
+                out.writeByte('}');
+            }
+            return;
+        }
+
+        var plan = plan(schema);
+        if (schemasEnabled) {
+            out.writeBytes(plan.envelopePrefix());
+            plan.writer().write(out, value);
+            out.writeByte('}');
+        } else {
+            plan.writer().write(out, value);
+        }
+    }
+
+    @Override
+    public SchemaAndValue toConnectData(String topic, byte[] value) {
+        return delegate.toConnectData(topic, value);
+    }
+
+    @Override
+    public ConfigDef config() {
+        return delegate.config();
+    }
+
+    public void close() {
+        delegate.close();
+    }
+
+    private WritePlan plan(Schema schema) {
+        var identity = new SchemaIdentity(schema);
+        var plan = plans.get(identity);
+        if (plan == null) {
+            plan = compilePlan(schema);
+            if (plans.size() >= schemasCacheSize) {
+                plans.clear();
+            }
+            plans.put(identity, plan);
+        }
+        return plan;
+    }
+
+    private WritePlan compilePlan(Schema schema) {
+        var writer = compile(schema);
+        var out = new JsonOutput(256);
+        out.writeAscii("{\"schema\":");
+        writeSchema(out, schema, writer);
+        out.writeAscii(",\"payload\":");
+        return new WritePlan(out.toByteArray(), writer);
+    }
+
+    // Same key order as JsonConverter#asJsonSchema
+    private void writeSchema(JsonOutput out, Schema schema, ValueWriter writer) {
+        writeSchema(out, schema, writer, null);
+    }
+
+    private void writeSchema(JsonOutput out, Schema schema, ValueWriter writer, String fieldName) {
+        out.writeAscii("{\"type\":");
+        switch (schema.type()) {
+            case BOOLEAN -> out.writeAscii("\"boolean\"");
+            case BYTES -> out.writeAscii("\"bytes\"");
+            case FLOAT64 -> out.writeAscii("\"double\"");
+            case FLOAT32 -> out.writeAscii("\"float\"");
+            case INT8 -> out.writeAscii("\"int8\"");
+            case INT16 -> out.writeAscii("\"int16\"");
+            case INT32 -> out.writeAscii("\"int32\"");
+            case INT64 -> out.writeAscii("\"int64\"");
+            case STRING -> out.writeAscii("\"string\"");
+            case ARRAY -> {
+                out.writeAscii("\"array\",\"items\":");
+                writeSchema(out, schema.valueSchema(), compile(schema.valueSchema()));
+            }
+            case MAP -> {
+                out.writeAscii("\"map\",\"keys\":");
+                writeSchema(out, schema.keySchema(), compile(schema.keySchema()));
+                out.writeAscii(",\"values\":");
+                writeSchema(out, schema.valueSchema(), compile(schema.valueSchema()));
+            }
+            case STRUCT -> {
+                out.writeAscii("\"struct\",\"fields\":[");
+                var first = true;
+                for (Field field : schema.fields()) {
+                    if (!first) {
+                        out.writeByte(',');
+                    }
+                    first = false;
+                    writeSchema(out, field.schema(), compile(field.schema()), field.name());
+                }
+                out.writeByte(']');
+            }
+            default -> throw new DataException("Couldn't translate unsupported schema type " + schema + ".");
+        }
+
+        out.writeAscii(",\"optional\":");
+        out.writeBoolean(schema.isOptional());
+        if (schema.name() != null) {
+            out.writeAscii(",\"name\":");
+            out.writeString(schema.name());
+        }
+        if (schema.version() != null) {
+            out.writeAscii(",\"version\":");
+            out.writeLong(schema.version());
+        }
+        if (schema.doc() != null) {
+            out.writeAscii(",\"doc\":");
+            out.writeString(schema.doc());
+        }
+        if (schema.parameters() != null) {
+            out.writeAscii(",\"parameters\":{");
+            var first = true;
+            for (var parameter : schema.parameters().entrySet()) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                out.writeString(parameter.getKey());
+                out.writeByte(':');
+                out.writeString(parameter.getValue());
+            }
+            out.writeByte('}');
+        }
+        if (schema.defaultValue() != null) {
+            out.writeAscii(",\"default\":");
+            writer.write(out, schema.defaultValue());
+        }
+        if (fieldName != null) {
+            out.writeAscii(",\"field\":");
+            out.writeString(fieldName);
+        }
+        out.writeByte('}');
+    }
+
+    private ValueWriter compile(Schema schema) {
+        if (schema.name() != null) {
+            switch (schema.name()) {
+                case Decimal.LOGICAL_NAME -> {
+                    return new DecimalWriter(schema);
+                }
+                case Date.LOGICAL_NAME -> {
+                    return new DateWriter(schema);
+                }
+                case Time.LOGICAL_NAME -> {
+                    return new TimeWriter(schema);
+                }
+                case Timestamp.LOGICAL_NAME -> {
+                    return new TimestampWriter(schema);
+                }
+                default -> {
+                }
+            }
+        }
+        return switch (schema.type()) {
+            case INT8, INT16, INT32, INT64 -> new IntegerWriter(schema);
+            case FLOAT32 -> new FloatWriter(schema);
+            case FLOAT64 -> new DoubleWriter(schema);
+            case BOOLEAN -> new BooleanWriter(schema);
+            case STRING -> new StringWriter(schema);
+            case BYTES -> new BytesWriter(schema);
+            case ARRAY -> new ArrayWriter(schema, compile(schema.valueSchema()));
+            case MAP -> new MapWriter(schema, compile(schema.keySchema()), compile(schema.valueSchema()));
+            case STRUCT -> new StructWriter(schema, schema.fields().stream().map(f -> compile(f.schema())).toArray(ValueWriter[]::new));
+        };
+    }
+
+    private void writeSchemaless(JsonOutput out, Object value) {
+        if (value == null) {
+            out.writeNull();
+            return;
+        }
+        var type = ConnectSchema.schemaType(value.getClass());
+        if (type == null) {
+            throw new DataException("Java class " + value.getClass() + " does not have corresponding schema type.");
+        }
+        switch (type) {
+            case INT8, INT16, INT32, INT64 -> out.writeLong(((Number) value).longValue());
+            case FLOAT32 -> out.writeFloat((Float) value);
+            case FLOAT64 -> out.writeDouble((Double) value);
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case STRING -> out.writeString(((CharSequence) value).toString());
+            case BYTES -> out.writeBase64(bytesOf(value));
+            case ARRAY -> {
+                out.writeByte('[');
+                var first = true;
+                for (Object element : (Collection<?>) value) {
+                    if (!first) {
+                        out.writeByte(',');
+                    }
+                    first = false;
+                    writeSchemaless(out, element);
+                }
+                out.writeByte(']');
+            }
+            case MAP -> {
+                var map = (Map<?, ?>) value;
+                var objectMode = true;
+                for (Object key : map.keySet()) {
+                    if (!(key instanceof String)) {
+                        objectMode = false;
+                        break;
+                    }
+                }
+                out.writeByte(objectMode ? '{' : '[');
+                var first = true;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    if (!first) {
+                        out.writeByte(',');
+                    }
+                    first = false;
+                    if (objectMode) {
+                        out.writeString((String) entry.getKey());
+                        out.writeByte(':');
+                        writeSchemaless(out, entry.getValue());
+                    } else {
+                        out.writeByte('[');
+                        writeSchemaless(out, entry.getKey());
+                        out.writeByte(',');
+                        writeSchemaless(out, entry.getValue());
+                        out.writeByte(']');
+                    }
+                }
+                out.writeByte(objectMode ? '}' : ']');
+            }
+            // a Struct always carries its own schema, which never equals a missing one
+            case STRUCT -> throw new DataException("Mismatching schema.");
+        }
+    }
+
+    private static byte[] bytesOf(Object value) {
+        if (value instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (value instanceof ByteBuffer buffer) {
+            return buffer.array();
+        }
+        throw new DataException("Invalid type for bytes type: " + value.getClass());
+    }
+
+    private static boolean booleanConfig(Map<String, ?> configs, String name, boolean defaultValue) {
+        var value = configs.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Boolean b ? b : Boolean.parseBoolean(value.toString().trim());
+    }
+
+    private static int intConfig(Map<String, ?> configs, String name, int defaultValue) {
+        var value = configs.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number n ? n.intValue() : Integer.parseInt(value.toString().trim());
+    }
+
+    private record WritePlan(byte[] envelopePrefix, ValueWriter writer) {
+    }
+
+    /**
+     * Plans are looked up by schema instance: Debezium reuses the same schema objects for every record of a table,
+     * whereas {@code ConnectSchema#hashCode} walks the whole schema.
+     */
+    private record SchemaIdentity(Schema schema) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SchemaIdentity other && other.schema == schema;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(schema);
+        }
+    }
+
+    private abstract class ValueWriter {
+
+        protected final Schema schema;
+
+        ValueWriter(Schema schema) {
+            this.schema = schema;
+        }
+
+        final void write(JsonOutput out, Object value) {
+            if (value == null) {
+                if (schema.defaultValue() != null && replaceNullWithDefault) {
+                    value = schema.defaultValue();
+                } else if (schema.isOptional()) {
+                    out.writeNull();
+                    return;
+                } else {
+                    throw new DataException("Conversion error: null value for field that is required and has no default value");
+                }
+            }
+            try {
+                writeValue(out, value);
+            } catch (ClassCastException e) {
+                throw new DataException("Invalid type for " + schema.type() + ": " + value.getClass());
+            }
+        }
+
+        abstract void writeValue(JsonOutput out, Object value);
+    }
+
+    private final class IntegerWriter extends ValueWriter {
+
+        IntegerWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            switch (schema.type()) {
+                case INT8 -> out.writeLong((Byte) value);
+                case INT16 -> out.writeLong((Short) value);
+                case INT32 -> out.writeLong((Integer) value);
+                default -> out.writeLong((Long) value);
+            }
+        }
+    }
+
+    private final class FloatWriter extends ValueWriter {
+
+        FloatWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            out.writeFloat((Float) value);
+        }
+    }
+
+    private final class DoubleWriter extends ValueWriter {
+
+        DoubleWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            out.writeDouble((Double) value);
+        }
+    }
+
+    private final class BooleanWriter extends ValueWriter {
+
+        BooleanWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            out.writeBoolean((Boolean) value);
+        }
+    }
+
+    private final class StringWriter extends ValueWriter {
+
+        StringWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            out.writeString(((CharSequence) value).toString());
+        }
+    }
+
+    private final class BytesWriter extends ValueWriter {
+
+        BytesWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            out.writeBase64(bytesOf(value));
+        }
+    }
+
+    private final class DecimalWriter extends ValueWriter {
+
+        DecimalWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            if (!(value instanceof BigDecimal decimal)) {
+                throw new DataException("Invalid type for Decimal, expected BigDecimal but was " + value.getClass());
+            }
+            if (decimalNumeric) {
+                out.writeAscii(decimal.toString());
+            } else {
+                out.writeBase64(Decimal.fromLogical(schema, decimal));
+            }
+        }
+    }
+
+    private final class DateWriter extends ValueWriter {
+
+        DateWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            if (!(value instanceof java.util.Date date)) {
+                throw new DataException("Invalid type for Date, expected Date but was " + value.getClass());
+            }
+            out.writeLong(Date.fromLogical(schema, date));
+        }
+    }
+
+    private final class TimeWriter extends ValueWriter {
+
+        TimeWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            if (!(value instanceof java.util.Date date)) {
+                throw new DataException("Invalid type for Time, expected Date but was " + value.getClass());
+            }
+            out.writeLong(Time.fromLogical(schema, date));
+        }
+    }
+
+    private final class TimestampWriter extends ValueWriter {
+
+        TimestampWriter(Schema schema) {
+            super(schema);
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            if (!(value instanceof java.util.Date date)) {
+                throw new DataException("Invalid type for Timestamp, expected Date but was " + value.getClass());
+            }
+            out.writeLong(Timestamp.fromLogical(schema, date));
+        }
+    }
+
+    private final class ArrayWriter extends ValueWriter {
+
+        private final ValueWriter elementWriter;
+
+        ArrayWriter(Schema schema, ValueWriter elementWriter) {
+            super(schema);
+            this.elementWriter = elementWriter;
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            out.writeByte('[');
+            var first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                elementWriter.write(out, element);
+            }
+            out.writeByte(']');
+        }
+    }
+
+    private final class MapWriter extends ValueWriter {
+
+        private final ValueWriter keyWriter;
+        private final ValueWriter valueWriter;
+        private final boolean objectMode;
+
+        MapWriter(Schema schema, ValueWriter keyWriter, ValueWriter valueWriter) {
+            super(schema);
+            this.keyWriter = keyWriter;
+            this.valueWriter = valueWriter;
+            this.objectMode = schema.keySchema().type() == Schema.Type.STRING;
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            out.writeByte(objectMode ? '{' : '[');
+            var first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                if (objectMode) {
+                    out.writeString(keyText(entry.getKey()));
+                    out.writeByte(':');
+                    valueWriter.write(out, entry.getValue());
+                } else {
+                    out.writeByte('[');
+                    keyWriter.write(out, entry.getKey());
+                    out.writeByte(',');
+                    valueWriter.write(out, entry.getValue());
+                    out.writeByte(']');
+                }
+            }
+            out.writeByte(objectMode ? '}' : ']');
+        }
+
+        // JsonConverter converts the key to a node and takes its text
+        private String keyText(Object key) {
+            var keySchema = schema.keySchema();
+            if (key == null) {
+                if (keySchema.defaultValue() != null && replaceNullWithDefault) {
+                    key = keySchema.defaultValue();
+                } else if (keySchema.isOptional()) {
+                    return "null";
+                } else {
+                    throw new DataException("Conversion error: null value for field that is required and has no default value");
+                }
+            }
+            if (!(key instanceof CharSequence text)) {
+                throw new DataException("Invalid type for " + keySchema.type() + ": " + key.getClass());
+            }
+            return text.toString();
+        }
+    }
+
+    private final class StructWriter extends ValueWriter {
+
+        private final List<Field> fields;
+        private final byte[][] fieldNames;
+        private final ValueWriter[] fieldWriters;
+
+        StructWriter(Schema schema, ValueWriter[] fieldWriters) {
+            super(schema);
+            this.fields = schema.fields();
+            this.fieldWriters = fieldWriters;
+            this.fieldNames = new byte[fields.size()][];
+            for (int i = 0; i < fieldNames.length; i++) {
+                var name = new JsonOutput(fields.get(i).name().length() + 3);
+                name.writeString(fields.get(i).name());
+                name.writeByte(':');
+                fieldNames[i] = name.toByteArray();
+            }
+        }
+
+        @Override
+        void writeValue(JsonOutput out, Object value) {
+            var struct = (Struct) value;
+            if (struct.schema() != schema && !struct.schema().equals(schema)) {
+                throw new DataException("Mismatching schema.");
+            }
+            out.writeByte('{');
+            for (int i = 0; i < fieldWriters.length; i++) {
+                if (i > 0) {
+                    out.writeByte(',');
+                }
+                out.writeBytes(fieldNames[i]);
+                var field = fields.get(i);
+                fieldWriters[i].write(out, replaceNullWithDefault ? struct.get(field) : struct.getWithoutDefault(field.name()));
+            }
+            out.writeByte('}');
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the size of the next batch handed to a consumer and how long to linger for a batch to fill,
+ * from the queue fill, the consumer latency and the observed records/s.
+ * <ul>
+ *     <li>Backlog (queue above half full, or full batches while the queue is not idle) grows the batch size
+ *     and the linger additively, trading latency for throughput.</li>
+ *     <li>An idle queue drops the linger to zero so that single events are delivered right away.</li>
+ *     <li>A consumer slower than the target latency halves the batch size and the linger.</li>
+ * </ul>
+ * Both stay within the configured bounds. Decisions are counted and exposed by {@link #snapshot()}.
+ */
+public class AdaptiveBatchController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveBatchController.class);
+
+    public static final int DEFAULT_MIN_BATCH_SIZE = 1;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+    public static final long DEFAULT_MAX_LINGER_MS = 5;
+    public static final long DEFAULT_TARGET_LATENCY_MS = 50;
+
+    private static final double HIGH_FILL = 0.5;
+    private static final double LOW_FILL = 0.05;
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final int STEPS = 16;
+
+    /**
+     * The current decision and the signals it was based on.
+     */
+    public record Snapshot(int batchSize, long lingerNanos, double recordsPerSecond, double queueFill,
+                           long consumerLatencyNanos, long increases, long decreases, long idles) {
+    }
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final long targetLatencyNanos;
+    private final int batchStep;
+    private final long lingerStep;
+
+    private volatile int batchSize;
+    private volatile long lingerNanos;
+
+    private double recordsPerSecond;
+    private double queueFill;
+    private double consumerLatencyNanos;
+    private long lastBatchNanos;
+    private long increases;
+    private long decreases;
+    private long idles;
+
+    public AdaptiveBatchController(int minBatchSize, int maxBatchSize, long maxLinger, long targetLatency, TimeUnit unit) {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Invalid batch size bounds: [" + minBatchSize + ", " + maxBatchSize + "]");
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = unit.toNanos(maxLinger);
+        this.targetLatencyNanos = unit.toNanos(targetLatency);
+        this.batchStep = Math.max(1, (maxBatchSize - minBatchSize) / STEPS);
+        this.lingerStep = Math.max(1, maxLingerNanos / STEPS);
+        this.batchSize = minBatchSize;
+        this.lingerNanos = 0;
+    }
+
+    public static AdaptiveBatchController create(Properties props) {
+        var maxBatchSize = props.getProperty(Configs.BATCH_ADAPTIVE_MAX_SIZE,
+                props.getProperty(Configs.MAX_BATCH_SIZE, String.valueOf(DEFAULT_MAX_BATCH_SIZE)));
+        return new AdaptiveBatchController(
+                Integer.parseInt(props.getProperty(Configs.BATCH_ADAPTIVE_MIN_SIZE, String.valueOf(DEFAULT_MIN_BATCH_SIZE))),
+                Integer.parseInt(maxBatchSize),
+                Long.parseLong(props.getProperty(Configs.BATCH_ADAPTIVE_MAX_LINGER_MS, String.valueOf(DEFAULT_MAX_LINGER_MS))),
+                Long.parseLong(props.getProperty(Configs.BATCH_ADAPTIVE_TARGET_LATENCY_MS, String.valueOf(DEFAULT_TARGET_LATENCY_MS))),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public long lingerNanos() {
+        return lingerNanos;
+    }
+
+    /**
+     * Records a delivered batch and adjusts the next decision.
+     *
+     * @param records number of records in the batch
+     * @param fill queue fill ratio after the batch was taken, between 0 and 1
+     * @param consumerNanos time the consumer took for the batch
+     */
+    public synchronized void onBatch(int records, double fill, long consumerNanos) {
+        var now = System.nanoTime();
+        if (lastBatchNanos != 0 && now > lastBatchNanos) {
+            recordsPerSecond = ewma(recordsPerSecond, records * 1e9 / (now - lastBatchNanos));
+        }
+        lastBatchNanos = now;
+        queueFill = ewma(queueFill, fill);
+        consumerLatencyNanos = ewma(consumerLatencyNanos, consumerNanos);
+
+        var previousSize = batchSize;
+        var previousLinger = lingerNanos;
+        if (consumerNanos > targetLatencyNanos) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+            lingerNanos = lingerNanos / 2;
+            decreases++;
+        } else if (fill >= HIGH_FILL) {
+            grow();
+        } else if (fill <= LOW_FILL) {
+            // checked before full batches, a single idle event fills a batch of the minimum size
+            batchSize = Math.max(minBatchSize, batchSize - batchStep);
+            lingerNanos = 0;
+            idles++;
+        } else if (records >= batchSize) {
+            grow();
+        }
+
+        if (LOGGER.isDebugEnabled() && (batchSize != previousSize || lingerNanos != previousLinger)) {
+            LOGGER.debug("Batch size {} -> {}, linger {} -> {} ns at {} records/s", previousSize, batchSize,
+                    previousLinger, lingerNanos, (long) recordsPerSecond);
+        }
+    }
+
+    private void grow() {
+        batchSize = Math.min(maxBatchSize, batchSize + batchStep);
+        lingerNanos = Math.min(maxLingerNanos, lingerNanos + lingerStep);
+        increases++;
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(batchSize, lingerNanos, recordsPerSecond, queueFill,
+                (long) consumerLatencyNanos, increases, decreases, idles);
+    }
+
+    private static double ewma(double average, double sample) {
+        return average == 0 ? sample : average + EWMA_WEIGHT * (sample - average);
+    }
+}
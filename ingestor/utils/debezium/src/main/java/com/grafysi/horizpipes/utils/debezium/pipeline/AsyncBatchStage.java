@@ -0,0 +1,192 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.PooledHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.trace.LatencyTracer;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Adapts a {@link BatchConsumer} to the engine's change consumer. The engine thread returns as soon as
+ * the sink accepted a batch; the batch's offsets are committed when the sink finishes it and every earlier
+ * batch has been committed. At most {@code hzp.batch.max.in.flight} batches are pending, after which the
+ * engine thread blocks until the oldest one is finished.
+ * <p>
+ * Stop the stage with {@link #drain} before closing the engine: pending batches are committed through the
+ * engine's committer, which no longer works once the engine is closed.
+ */
+public class AsyncBatchStage<K, V> implements DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncBatchStage.class);
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final BatchConsumer<K, V> consumer;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    // written under the lock of this, read by drain and awaitCommitted
+    private volatile CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+    private volatile boolean draining;
+
+    public AsyncBatchStage(BatchConsumer<K, V> consumer, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in-flight batches must be positive: " + maxInFlight);
+        }
+        this.consumer = consumer;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public static <K, V> AsyncBatchStage<K, V> create(Properties props, BatchConsumer<K, V> consumer) {
+        return new AsyncBatchStage<>(LatencyTracer.tracing(props, consumer),
+                Integer.parseInt(props.getProperty(Configs.BATCH_MAX_IN_FLIGHT, String.valueOf(DEFAULT_MAX_IN_FLIGHT))));
+    }
+
+    @Override
+    public void handleBatch(List<ChangeEvent<K, V>> records, DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer)
+            throws InterruptedException {
+        throwIfFailed();
+        permits.acquire();
+
+        var batch = new PendingBatch(records, committer);
+        synchronized (this) {
+            if (draining) {
+                // the connector is stopping, the batch is not committed and delivered again on restart
+                permits.release();
+                PooledHzpChangeEvent.releaseAll(records);
+                return;
+            }
+            tail = tail.thenCombine(batch.finished, (previous, current) -> current)
+                    .thenRun(batch::commit)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            failure.compareAndSet(null, unwrap(error));
+                        }
+                        permits.release();
+                    });
+        }
+
+        try {
+            consumer.handleBatch(records, batch);
+        } catch (RuntimeException | InterruptedException e) {
+            batch.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of batches handed to the sink and not yet committed.
+     */
+    public int inFlightBatches() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Waits until every batch handed to the sink so far is committed or failed.
+     */
+    public boolean awaitCommitted(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(tail, timeout, unit);
+    }
+
+    /**
+     * Stops handing batches to the sink and waits until every batch handed to it so far is committed or failed.
+     * Batches the engine passes afterwards are dropped uncommitted and delivered again on restart.
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            draining = true;
+            last = tail;
+        }
+        return await(last, timeout, unit);
+    }
+
+    private static boolean await(CompletableFuture<Void> future, long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            future.get(timeout, unit);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Drains the stage, waiting a few seconds for pending batches. Batches finished after that are not
+     * committed and are delivered again on restart.
+     */
+    @Override
+    public void close() {
+        try {
+            if (!drain(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("{} batches were not finished before close", inFlightBatches());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void throwIfFailed() {
+        var cause = failure.get();
+        if (cause != null) {
+            if (cause instanceof RuntimeException e) {
+                throw e;
+            }
+            throw new RuntimeException("Batch consumer failed", cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private final class PendingBatch implements BatchCommitter {
+
+        private final List<ChangeEvent<K, V>> records;
+        private final DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        private PendingBatch(List<ChangeEvent<K, V>> records, DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer) {
+            this.records = records;
+            this.committer = committer;
+        }
+
+        @Override
+        public void markBatchFinished() {
+            finished.complete(null);
+        }
+
+        @Override
+        public void fail(Throwable cause) {
+            finished.completeExceptionally(cause);
+        }
+
+        private void commit() {
+            try {
+                for (var record : records) {
+                    committer.markProcessed(record);
+                }
+                committer.markBatchFinished();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+    }
+}
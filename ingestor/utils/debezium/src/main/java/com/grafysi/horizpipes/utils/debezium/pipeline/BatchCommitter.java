@@ -0,0 +1,20 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+/**
+ * Completes one batch handed to a {@link BatchConsumer}. Its methods may be called from any thread,
+ * also after {@code handleBatch} returned, and only the first call has an effect.
+ * Batches are committed in order: a batch finished early is committed once all batches before it are finished.
+ */
+public interface BatchCommitter {
+
+    /**
+     * Marks every record of the batch as written to the sink, so their offsets can be committed.
+     */
+    void markBatchFinished();
+
+    /**
+     * Fails the batch. Neither this batch nor any later one is committed, and the engine stops
+     * with {@code cause} on its next batch.
+     */
+    void fail(Throwable cause);
+}
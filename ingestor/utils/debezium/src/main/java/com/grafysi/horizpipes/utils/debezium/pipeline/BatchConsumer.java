@@ -0,0 +1,16 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import io.debezium.engine.ChangeEvent;
+
+import java.util.List;
+
+/**
+ * Batch-oriented sink for the connectors. Receives every converted poll batch with a committer
+ * that may be completed after {@code handleBatch} returns, so the engine keeps polling while
+ * the sink flushes.
+ */
+@FunctionalInterface
+public interface BatchConsumer<K, V> {
+
+    void handleBatch(List<ChangeEvent<K, V>> records, BatchCommitter committer) throws InterruptedException;
+}
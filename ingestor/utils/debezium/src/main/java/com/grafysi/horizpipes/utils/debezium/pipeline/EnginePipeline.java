@@ -0,0 +1,182 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.HzpConverterBuilder;
+import com.grafysi.horizpipes.utils.debezium.HzpConvertingAsyncEngineBuilderFactory;
+import com.grafysi.horizpipes.utils.debezium.PooledHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.trace.LatencyTracer;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The engine of a connector with the stages between it and the connector's consumer, as configured in {@code props}:
+ * <ul>
+ *     <li>{@code hzp.handoff.capacity}: a {@link RingBufferHandoff}, for record and batch consumers.</li>
+ *     <li>A batch consumer without handoff: an {@link AsyncBatchStage}.</li>
+ *     <li>{@code hzp.lanes}: a {@link KeyAffineLaneExecutor}, record consumers without handoff only.</li>
+ *     <li>{@code hzp.conversion.parallel.threads}: a {@link ParallelConversionStage} in front of the engine's
+ *     consumer, the handoff or the batch stage.</li>
+ * </ul>
+ * Lanes combined with a handoff or a batch consumer are rejected. Lanes convert on their own threads,
+ * so conversion threads configured with them are ignored with a warning.
+ */
+public final class EnginePipeline<K, V> implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EnginePipeline.class);
+
+    private static final long DRAIN_TIMEOUT_SECONDS = 5;
+
+    private final DebeziumEngine<ChangeEvent<K, V>> engine;
+    private final ParallelConversionStage<K, V> conversionStage;
+    private final AsyncBatchStage<K, V> batchStage;
+    private final RingBufferHandoff<K, V> handoff;
+    private final KeyAffineLaneExecutor<K, V> laneExecutor;
+    private final HzpConverterBuilder<?> converterBuilder;
+
+    private EnginePipeline(Properties props, DebeziumEngine.Builder<ChangeEvent<K, V>> builder, Consumer<ChangeEvent<K, V>> consumer,
+                           AsyncBatchStage<K, V> batchStage, RingBufferHandoff<K, V> handoff) {
+        // stamps sampled records at the poll when tracing is enabled
+        props = LatencyTracer.engineProperties(props);
+        this.batchStage = batchStage;
+        this.handoff = handoff;
+        this.converterBuilder = HzpConvertingAsyncEngineBuilderFactory.converterBuilder(builder);
+
+        final Consumer<ChangeEvent<K, V>> recordConsumer = consumer != null
+                ? PooledHzpChangeEvent.releasing(LatencyTracer.tracing(props, consumer))
+                : null;
+        // both commit the offsets of a batch once the consumer has handled it
+        final DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>> changeConsumer = batchStage != null ? batchStage : handoff;
+
+        if (KeyAffineLaneExecutor.lanes(props) > 0) {
+            this.conversionStage = null;
+            this.laneExecutor = KeyAffineLaneExecutor.create(props, recordConsumer);
+            this.engine = builder
+                    .using(ParallelConversionStage.engineProperties(props))
+                    .notifying(laneExecutor)
+                    .build();
+        } else if (ParallelConversionStage.parallelism(props) > 0) {
+            this.laneExecutor = null;
+            this.conversionStage = changeConsumer != null
+                    ? ParallelConversionStage.create(props, changeConsumer)
+                    : ParallelConversionStage.create(props, recordConsumer);
+            this.engine = builder
+                    .using(ParallelConversionStage.engineProperties(props))
+                    .notifying(conversionStage)
+                    .build();
+        } else if (changeConsumer != null) {
+            this.laneExecutor = null;
+            this.conversionStage = null;
+            this.engine = builder
+                    .using(props)
+                    .notifying(changeConsumer)
+                    .build();
+        } else {
+            this.laneExecutor = null;
+            this.conversionStage = null;
+            this.engine = builder
+                    .using(props)
+                    .notifying(recordConsumer)
+                    .build();
+        }
+    }
+
+    public static <K, V> EnginePipeline<K, V> create(Properties props, DebeziumEngine.Builder<ChangeEvent<K, V>> builder,
+                                                     Consumer<ChangeEvent<K, V>> consumer) {
+        validate(props, false);
+        return new EnginePipeline<>(props, builder, consumer, null,
+                RingBufferHandoff.capacity(props) > 0 ? RingBufferHandoff.create(props, consumer) : null);
+    }
+
+    public static <K, V> EnginePipeline<K, V> create(Properties props, DebeziumEngine.Builder<ChangeEvent<K, V>> builder,
+                                                     BatchConsumer<K, V> consumer) {
+        validate(props, true);
+        var handoff = RingBufferHandoff.capacity(props) > 0;
+        return new EnginePipeline<>(props, builder, null,
+                handoff ? null : AsyncBatchStage.create(props, consumer),
+                handoff ? RingBufferHandoff.create(props, consumer) : null);
+    }
+
+    /**
+     * Rejects lanes with a handoff or batch consumer, whose batches they would bypass, and warns about
+     * options the chosen stages ignore.
+     */
+    static void validate(Properties props, boolean batchConsumer) {
+        var handoff = RingBufferHandoff.capacity(props) > 0;
+        if (KeyAffineLaneExecutor.lanes(props) > 0) {
+            if (handoff) {
+                throw new IllegalArgumentException(Configs.LANES + " cannot be combined with " + Configs.HANDOFF_CAPACITY);
+            }
+            if (batchConsumer) {
+                throw new IllegalArgumentException(Configs.LANES + " cannot be combined with a batch consumer");
+            }
+            if (ParallelConversionStage.parallelism(props) > 0) {
+                LOGGER.warn("Ignoring {}, the {} lanes convert their own records", Configs.CONVERSION_PARALLEL_THREADS,
+                        KeyAffineLaneExecutor.lanes(props));
+            }
+        }
+        if (handoff && batchConsumer && props.getProperty(Configs.BATCH_MAX_IN_FLIGHT) != null) {
+            LOGGER.warn("Ignoring {}, batches are drained from the handoff", Configs.BATCH_MAX_IN_FLIGHT);
+        }
+    }
+
+    public DebeziumEngine<ChangeEvent<K, V>> engine() {
+        return engine;
+    }
+
+    /**
+     * Returns the ring buffer between engine and consumer, null unless {@code hzp.handoff.capacity} is set.
+     */
+    public RingBufferHandoff<K, V> handoff() {
+        return handoff;
+    }
+
+    /**
+     * Drains the batch stage or handoff while the engine can still commit their batches, then closes the engine,
+     * the stages behind it and the engine's converters. Batches not committed within a few seconds are delivered
+     * again on restart.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            engine.close();
+        } finally {
+            if (conversionStage != null) {
+                conversionStage.close();
+            }
+            if (laneExecutor != null) {
+                laneExecutor.close();
+            }
+            if (batchStage != null) {
+                batchStage.close();
+            }
+            if (handoff != null) {
+                handoff.close();
+            }
+            if (converterBuilder != null) {
+                converterBuilder.close();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            if (batchStage != null && !batchStage.drain(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("{} batches were not committed before the engine closed", batchStage.inFlightBatches());
+            }
+            if (handoff != null && !handoff.drain(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("{} batches were not committed before the engine closed", handoff.pendingBatches());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.ThreadPools;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Processes a poll batch on parallel lanes while keeping the order of each row (or table).
+ * Every record is routed to a fixed lane by a hash of its topic and key {@code Struct}; with
+ * {@code hzp.lanes.affinity=table}, by its table instead. Each lane converts its records and passes
+ * them to the consumer in source order, different lanes run concurrently, so the consumer must be
+ * thread-safe. The batch is committed once every lane has finished it. If a lane fails, the others stop
+ * at their next record and the batch fails once all of them returned, so no lane still passes records to
+ * the consumer when the failure reaches the engine.
+ * <p>
+ * Like {@link ParallelConversionStage}, it runs after the transforms, which the engine applies to
+ * lazy events, and before the key/value conversion. After a router such as {@code ByLogicalTableRouter}
+ * the topic no longer names the table; set {@code hzp.lanes.table.header} to the header added by
+ * {@code ExtractTopicName} to route by the original table. Records without a key go by table.
+ */
+public class KeyAffineLaneExecutor<K, V> implements DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>>, Closeable {
+
+    public enum Affinity {
+        KEY, TABLE;
+
+        public static Affinity parse(String value) {
+            return value == null ? KEY : Affinity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final Consumer<ChangeEvent<K, V>> consumer;
+    private final int lanes;
+    private final Affinity affinity;
+    private final String tableHeader;
+    private final ExecutorService pool;
+
+    public KeyAffineLaneExecutor(Consumer<ChangeEvent<K, V>> consumer, int lanes, Affinity affinity, String tableHeader,
+                                 ThreadPools.Kind poolKind) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("Lane count must be positive: " + lanes);
+        }
+        this.consumer = consumer;
+        this.lanes = lanes;
+        this.affinity = affinity;
+        this.tableHeader = tableHeader;
+        this.pool = ThreadPools.create(poolKind, lanes, "hzp-lane");
+    }
+
+    /**
+     * Returns the number of lanes configured in {@code props}, 0 if lanes are disabled.
+     */
+    public static int lanes(Properties props) {
+        return Integer.parseInt(props.getProperty(Configs.LANES, "0"));
+    }
+
+    public static <K, V> KeyAffineLaneExecutor<K, V> create(Properties props, Consumer<ChangeEvent<K, V>> consumer) {
+        return new KeyAffineLaneExecutor<>(consumer, lanes(props),
+                Affinity.parse(props.getProperty(Configs.LANES_AFFINITY)),
+                props.getProperty(Configs.LANES_TABLE_HEADER),
+                ThreadPools.Kind.parse(props.getProperty(Configs.LANES_POOL)));
+    }
+
+    @Override
+    public void handleBatch(List<ChangeEvent<K, V>> records, DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer)
+            throws InterruptedException {
+        process(records);
+        for (var record : records) {
+            committer.markProcessed(record);
+        }
+        committer.markBatchFinished();
+    }
+
+    /**
+     * Splits {@code records} by lane and runs the lanes, the calling thread takes the first non-empty one.
+     * Waits for every lane before rethrowing the first failure, the others are added to it as suppressed.
+     */
+    public void process(List<ChangeEvent<K, V>> records) throws InterruptedException {
+        var byLane = new ArrayList<List<ChangeEvent<K, V>>>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        for (var record : records) {
+            byLane.get(lane(record)).add(record);
+        }
+
+        var failed = new AtomicBoolean();
+        List<ChangeEvent<K, V>> ownLane = null;
+        var futures = new ArrayList<Future<RuntimeException>>(lanes);
+        for (var laneRecords : byLane) {
+            if (laneRecords.isEmpty()) {
+                continue;
+            }
+            if (ownLane == null) {
+                ownLane = laneRecords;
+            } else {
+                futures.add(pool.submit(() -> run(laneRecords, failed)));
+            }
+        }
+        var failure = ownLane == null ? null : run(ownLane, failed);
+
+        for (var future : futures) {
+            RuntimeException laneFailure;
+            try {
+                laneFailure = future.get();
+            } catch (ExecutionException e) {
+                laneFailure = e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                failed.set(true);
+                futures.forEach(pending -> pending.cancel(true));
+                throw e;
+            }
+            if (failure == null) {
+                failure = laneFailure;
+            } else if (laneFailure != null) {
+                failure.addSuppressed(laneFailure);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the lane of {@code event}, stable for the same topic and key (or table).
+     */
+    public int lane(ChangeEvent<?, ?> event) {
+        if (!(event instanceof HzpChangeEvent<?, ?, ?> hzpEvent) || hzpEvent.sourceRecord() == null) {
+            return 0;
+        }
+        var record = hzpEvent.sourceRecord();
+        var hash = affinity == Affinity.KEY && record.key() != null
+                ? 31 * table(record).hashCode() + record.key().hashCode()
+                : table(record).hashCode();
+        // spread the bits, Struct and String hashes are weak in the low bits
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return Math.floorMod(hash, lanes);
+    }
+
+    private String table(SourceRecord record) {
+        if (tableHeader != null) {
+            var header = record.headers().lastWithName(tableHeader);
+            if (header != null && header.value() != null) {
+                return header.value().toString();
+            }
+        }
+        return Objects.requireNonNullElse(record.topic(), "");
+    }
+
+    /**
+     * Runs one lane until its end or a failure of any lane. The failure is returned rather than thrown,
+     * a ForkJoin task rethrows a copy of it on the joining thread.
+     */
+    private RuntimeException run(List<ChangeEvent<K, V>> laneRecords, AtomicBoolean failed) {
+        try {
+            for (var record : laneRecords) {
+                if (failed.get()) {
+                    return null;
+                }
+                record.key();
+                record.value();
+                consumer.accept(record);
+            }
+            return null;
+        } catch (RuntimeException e) {
+            failed.set(true);
+            return e;
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.LazyHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.ThreadPools;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Batch-aware conversion stage. The engine hands over a poll batch of {@link LazyHzpChangeEvent}s,
+ * whose key/value conversion is fanned out in chunks across a ForkJoin or virtual-thread pool.
+ * The consumer then receives the events in source order.
+ */
+public class ParallelConversionStage<K, V> implements DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>>, Closeable {
+
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final Consumer<ChangeEvent<K, V>> consumer;
+    private final DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>> downstream;
+    private final int parallelism;
+    private final ExecutorService pool;
+
+    public ParallelConversionStage(Consumer<ChangeEvent<K, V>> consumer, int parallelism, ThreadPools.Kind poolKind) {
+        this(consumer, null, parallelism, poolKind);
+    }
+
+    /**
+     * Hands every converted batch as a whole to {@code downstream}, which commits it.
+     */
+    public ParallelConversionStage(DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>> downstream, int parallelism,
+                                   ThreadPools.Kind poolKind) {
+        this(null, downstream, parallelism, poolKind);
+    }
+
+    private ParallelConversionStage(Consumer<ChangeEvent<K, V>> consumer, DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>> downstream,
+                                    int parallelism, ThreadPools.Kind poolKind) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Conversion parallelism must be positive: " + parallelism);
+        }
+        this.consumer = consumer;
+        this.downstream = downstream;
+        this.parallelism = parallelism;
+        this.pool = ThreadPools.create(poolKind, parallelism, "hzp-conversion");
+    }
+
+    /**
+     * Returns the number of conversion threads configured in {@code props}, 0 if the stage is disabled.
+     */
+    public static int parallelism(Properties props) {
+        return Integer.parseInt(props.getProperty(Configs.CONVERSION_PARALLEL_THREADS, "0"));
+    }
+
+    public static <K, V> ParallelConversionStage<K, V> create(Properties props, Consumer<ChangeEvent<K, V>> consumer) {
+        return new ParallelConversionStage<>(consumer, parallelism(props),
+                ThreadPools.Kind.parse(props.getProperty(Configs.CONVERSION_PARALLEL_POOL)));
+    }
+
+    public static <K, V> ParallelConversionStage<K, V> create(Properties props, DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>> downstream) {
+        return new ParallelConversionStage<>(downstream, parallelism(props),
+                ThreadPools.Kind.parse(props.getProperty(Configs.CONVERSION_PARALLEL_POOL)));
+    }
+
+    /**
+     * Copies {@code props} with lazy conversion enabled, so the engine threads only
+     * apply the transforms and leave key/value conversion to this stage.
+     */
+    public static Properties engineProperties(Properties props) {
+        var engineProps = new Properties();
+        engineProps.putAll(props);
+        engineProps.setProperty(Configs.CONVERSION_LAZY, "true");
+        return engineProps;
+    }
+
+    @Override
+    public void handleBatch(List<ChangeEvent<K, V>> records, DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer)
+            throws InterruptedException {
+        convert(records);
+        if (downstream != null) {
+            downstream.handleBatch(records, committer);
+            return;
+        }
+        for (var record : records) {
+            consumer.accept(record);
+            committer.markProcessed(record);
+        }
+        committer.markBatchFinished();
+    }
+
+    /**
+     * Converts the key and value of every event in {@code records}. The calling thread
+     * converts the first chunk itself, the remaining chunks run on the pool.
+     */
+    public void convert(List<? extends ChangeEvent<?, ?>> records) throws InterruptedException {
+        var size = records.size();
+        var chunks = Math.min(parallelism, (size + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        if (chunks <= 1) {
+            records.forEach(ParallelConversionStage::materialize);
+            return;
+        }
+
+        var chunkSize = (size + chunks - 1) / chunks;
+        var futures = new ArrayList<Future<RuntimeException>>(chunks - 1);
+        for (int from = chunkSize; from < size; from += chunkSize) {
+            var chunk = records.subList(from, Math.min(size, from + chunkSize));
+            futures.add(pool.submit(() -> {
+                // returned rather than thrown, a ForkJoin task rethrows a copy of it on the joining thread
+                try {
+                    chunk.forEach(ParallelConversionStage::materialize);
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }));
+        }
+        records.subList(0, chunkSize).forEach(ParallelConversionStage::materialize);
+
+        for (var future : futures) {
+            RuntimeException failure;
+            try {
+                failure = future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new RuntimeException(e.getCause());
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private static void materialize(ChangeEvent<?, ?> event) {
+        event.key();
+        event.value();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
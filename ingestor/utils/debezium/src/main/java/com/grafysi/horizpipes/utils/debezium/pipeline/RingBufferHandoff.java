@@ -0,0 +1,465 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.PooledHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.trace.LatencyTracer;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Buffers converted events between the engine and the user consumer in a {@link SpmcRingBuffer}.
+ * The engine publishes a poll batch into the ring and returns; consumer threads drain it and call the user consumer.
+ * With more than one consumer thread the user consumer is called concurrently and events of different
+ * threads are not ordered.
+ * <p>
+ * A poll batch is committed once the user consumer has handled all of its events and every earlier batch
+ * has been committed, as in {@link AsyncBatchStage}, so no committed offset is ahead of what the consumer saw.
+ * Events still in the ring when the process dies are delivered again on restart.
+ * <p>
+ * With a {@link BatchConsumer} the consumer threads drain batches sized by an {@link AdaptiveBatchController}
+ * and linger for a batch to fill under load, waiting with the configured {@link WaitStrategy}. The events of a
+ * drained batch count as handled when its committer is finished, which is what commits their offsets.
+ * <p>
+ * When the user consumer fails, the consumer threads release the events left in the ring and stop,
+ * nothing from the failed poll batch on is committed and the engine stops on its next batch.
+ * <p>
+ * Stop the handoff with {@link #drain} before closing the engine: poll batches are committed through the
+ * engine's committer, which no longer works once the engine is closed.
+ */
+public class RingBufferHandoff<K, V> implements DebeziumEngine.ChangeConsumer<ChangeEvent<K, V>>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RingBufferHandoff.class);
+
+    public static final int DEFAULT_CONSUMERS = 1;
+
+    private final SpmcRingBuffer<Slot> ring;
+    private final WaitStrategy waitStrategy;
+    private final Consumer<ChangeEvent<K, V>> consumer;
+    private final BatchConsumer<K, V> batchConsumer;
+    private final AdaptiveBatchController controller;
+    private final Thread[] consumerThreads;
+    private final Set<PendingBatch> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong producerBlockedNanos = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    // written under the lock of this, the ring takes one producer at a time while the engine may call from several tasks
+    private volatile CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    private volatile boolean draining;
+    private volatile boolean closed;
+
+    public RingBufferHandoff(Consumer<ChangeEvent<K, V>> consumer, int capacity, int consumers, WaitStrategy waitStrategy) {
+        this(consumer, null, null, capacity, consumers, waitStrategy);
+    }
+
+    public RingBufferHandoff(BatchConsumer<K, V> consumer, AdaptiveBatchController controller, int capacity, int consumers,
+                             WaitStrategy waitStrategy) {
+        this(null, consumer, controller, capacity, consumers, waitStrategy);
+    }
+
+    private RingBufferHandoff(Consumer<ChangeEvent<K, V>> consumer, BatchConsumer<K, V> batchConsumer,
+                              AdaptiveBatchController controller, int capacity, int consumers, WaitStrategy waitStrategy) {
+        if (consumers < 1) {
+            throw new IllegalArgumentException("Handoff consumers must be positive: " + consumers);
+        }
+        this.ring = new SpmcRingBuffer<>(SpmcRingBuffer.roundCapacity(capacity));
+        this.waitStrategy = waitStrategy;
+        this.consumer = consumer;
+        this.batchConsumer = batchConsumer;
+        this.controller = controller;
+        this.consumerThreads = new Thread[consumers];
+        for (int i = 0; i < consumers; i++) {
+            consumerThreads[i] = new Thread(batchConsumer != null ? this::drainBatches : this::drainEvents, "hzp-handoff-" + (i + 1));
+            consumerThreads[i].setDaemon(true);
+            consumerThreads[i].start();
+        }
+    }
+
+    /**
+     * Returns the ring capacity configured in {@code props}, 0 if the handoff is disabled.
+     */
+    public static int capacity(Properties props) {
+        return Integer.parseInt(props.getProperty(Configs.HANDOFF_CAPACITY, "0"));
+    }
+
+    public static <K, V> RingBufferHandoff<K, V> create(Properties props, Consumer<ChangeEvent<K, V>> consumer) {
+        return new RingBufferHandoff<>(LatencyTracer.tracing(props, consumer), capacity(props),
+                Integer.parseInt(props.getProperty(Configs.HANDOFF_CONSUMERS, String.valueOf(DEFAULT_CONSUMERS))),
+                WaitStrategy.parse(props.getProperty(Configs.HANDOFF_WAIT_STRATEGY)));
+    }
+
+    public static <K, V> RingBufferHandoff<K, V> create(Properties props, BatchConsumer<K, V> consumer) {
+        return new RingBufferHandoff<>(LatencyTracer.tracing(props, consumer), AdaptiveBatchController.create(props), capacity(props),
+                Integer.parseInt(props.getProperty(Configs.HANDOFF_CONSUMERS, String.valueOf(DEFAULT_CONSUMERS))),
+                WaitStrategy.parse(props.getProperty(Configs.HANDOFF_WAIT_STRATEGY)));
+    }
+
+    @Override
+    public void handleBatch(List<ChangeEvent<K, V>> records, DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer) {
+        throwIfFailed();
+        synchronized (this) {
+            if (draining) {
+                // the connector is stopping, the batch is not committed and delivered again on restart
+                PooledHzpChangeEvent.releaseAll(records);
+                return;
+            }
+            var batch = new PendingBatch(records, committer);
+            pending.add(batch);
+            tail = tail.thenCombine(batch.consumed, (previous, current) -> current)
+                    .thenRun(batch::commit)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            failure.compareAndSet(null, unwrap(error));
+                        }
+                    });
+            var published = 0;
+            try {
+                for (var slot : batch.slots) {
+                    publish(slot);
+                    published++;
+                }
+            } catch (RuntimeException e) {
+                batch.fail(e);
+                batch.slots.subList(published, batch.slots.size()).forEach(Slot::release);
+                throw e;
+            }
+        }
+        if (failure.get() != null) {
+            // the consumer threads may have stopped before seeing the last events
+            discardRemaining();
+            throwIfFailed();
+        }
+    }
+
+    private void publish(Slot slot) {
+        if (ring.offer(slot)) {
+            return;
+        }
+        var start = System.nanoTime();
+        var attempt = 0;
+        do {
+            if (closed) {
+                throw new IllegalStateException("Handoff is closed");
+            }
+            waitStrategy.idle(attempt++);
+            throwIfFailed();
+        } while (!ring.offer(slot));
+        producerBlockedNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Number of events waiting in the ring.
+     */
+    public int depth() {
+        return ring.size();
+    }
+
+    public int capacity() {
+        return ring.capacity();
+    }
+
+    /**
+     * Total time the engine spent waiting on a full ring.
+     */
+    public long producerBlockedNanos() {
+        return producerBlockedNanos.get();
+    }
+
+    public long consumedEvents() {
+        return consumed.get();
+    }
+
+    /**
+     * Returns the number of poll batches published into the ring and not yet committed.
+     */
+    public int pendingBatches() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the batch size controller, null unless the handoff feeds a {@link BatchConsumer}.
+     */
+    public AdaptiveBatchController batchController() {
+        return controller;
+    }
+
+    /**
+     * Waits until every poll batch published so far is committed or failed.
+     */
+    public boolean awaitCommitted(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(tail, timeout, unit);
+    }
+
+    /**
+     * Stops publishing poll batches and waits until every poll batch published so far is committed or failed.
+     * Batches the engine passes afterwards are dropped uncommitted and delivered again on restart.
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            draining = true;
+            last = tail;
+        }
+        return await(last, timeout, unit);
+    }
+
+    private static boolean await(CompletableFuture<Void> future, long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            future.get(timeout, unit);
+            return true;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    private void drainEvents() {
+        var attempt = 0;
+        while (failure.get() == null) {
+            var slot = ring.poll();
+            if (slot == null) {
+                if (closed && ring.size() == 0) {
+                    return;
+                }
+                waitStrategy.idle(attempt++);
+                continue;
+            }
+            attempt = 0;
+            try {
+                consumer.accept(slot.event);
+                consumed.incrementAndGet();
+                slot.batch.consumedOne();
+            } catch (RuntimeException e) {
+                LOGGER.error("Handoff consumer failed", e);
+                fail(e, List.of(slot));
+            }
+        }
+        discardRemaining();
+    }
+
+    private void drainBatches() {
+        var attempt = 0;
+        while (failure.get() == null) {
+            var batchSize = controller.batchSize();
+            var slots = new ArrayList<Slot>(batchSize);
+            pollInto(slots, batchSize);
+            if (slots.isEmpty()) {
+                if (closed && ring.size() == 0) {
+                    return;
+                }
+                waitStrategy.idle(attempt++);
+                continue;
+            }
+            attempt = 0;
+
+            var linger = controller.lingerNanos();
+            if (slots.size() < batchSize && linger > 0 && !closed) {
+                var deadline = System.nanoTime() + linger;
+                var lingerAttempt = 0;
+                while (slots.size() < batchSize && System.nanoTime() < deadline) {
+                    if (pollInto(slots, batchSize)) {
+                        lingerAttempt = 0;
+                    } else {
+                        waitStrategy.idle(lingerAttempt++);
+                    }
+                }
+            }
+
+            var batch = new ArrayList<ChangeEvent<K, V>>(slots.size());
+            for (var slot : slots) {
+                batch.add(slot.event);
+            }
+            var fill = (double) ring.size() / ring.capacity();
+            var start = System.nanoTime();
+            try {
+                batchConsumer.handleBatch(batch, new BatchCommitter() {
+                    private final AtomicBoolean done = new AtomicBoolean();
+
+                    @Override
+                    public void markBatchFinished() {
+                        if (done.compareAndSet(false, true)) {
+                            consumed.addAndGet(slots.size());
+                            slots.forEach(slot -> slot.batch.consumedOne());
+                        }
+                    }
+
+                    @Override
+                    public void fail(Throwable cause) {
+                        if (done.compareAndSet(false, true)) {
+                            RingBufferHandoff.this.fail(cause, slots);
+                        }
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e, slots);
+            } catch (RuntimeException e) {
+                LOGGER.error("Handoff consumer failed", e);
+                fail(e, slots);
+            }
+            controller.onBatch(batch.size(), fill, System.nanoTime() - start);
+        }
+        discardRemaining();
+    }
+
+    private boolean pollInto(List<Slot> slots, int batchSize) {
+        var polled = false;
+        Slot slot;
+        while (slots.size() < batchSize && (slot = ring.poll()) != null) {
+            slots.add(slot);
+            polled = true;
+        }
+        return polled;
+    }
+
+    /**
+     * Fails the poll batches of {@code slots}, whose events the consumer is done with, and releases them.
+     */
+    private void fail(Throwable cause, List<Slot> slots) {
+        failure.compareAndSet(null, cause);
+        for (var slot : slots) {
+            slot.batch.fail(cause);
+            slot.release();
+        }
+    }
+
+    /**
+     * Releases the events left in the ring after a failure, their batches are never committed.
+     */
+    private void discardRemaining() {
+        var cause = failure.get();
+        Slot slot;
+        while ((slot = ring.poll()) != null) {
+            slot.batch.fail(cause);
+            slot.release();
+        }
+    }
+
+    private void throwIfFailed() {
+        var cause = failure.get();
+        if (cause != null) {
+            throw new RuntimeException("Handoff consumer failed", cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Lets the consumer threads drain the ring and waits a few seconds for them. Events of batches that were
+     * not committed by then are released and delivered again on restart.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (var thread : consumerThreads) {
+                thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+            awaitCommitted(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (var thread : consumerThreads) {
+            if (thread.isAlive()) {
+                LOGGER.warn("{} events were left in the handoff ring on close", ring.size());
+                return;
+            }
+        }
+        if (!pending.isEmpty()) {
+            LOGGER.warn("{} batches were not committed before close", pending.size());
+            for (var batch : pending) {
+                batch.slots.forEach(Slot::release);
+            }
+        }
+    }
+
+    private final class Slot {
+
+        private final ChangeEvent<K, V> event;
+        private final PendingBatch batch;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(ChangeEvent<K, V> event, PendingBatch batch) {
+            this.event = event;
+            this.batch = batch;
+        }
+
+        /**
+         * Returns pooled buffers of an event that is not committed, committed events are released by the engine.
+         */
+        private void release() {
+            if (released.compareAndSet(false, true) && event instanceof PooledHzpChangeEvent<?, ?, ?> pooled) {
+                pooled.release();
+            }
+        }
+    }
+
+    private final class PendingBatch {
+
+        private final List<ChangeEvent<K, V>> records;
+        private final DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer;
+        private final List<Slot> slots;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> consumed = new CompletableFuture<>();
+
+        private PendingBatch(List<ChangeEvent<K, V>> records, DebeziumEngine.RecordCommitter<ChangeEvent<K, V>> committer) {
+            this.records = records;
+            this.committer = committer;
+            this.slots = new ArrayList<>(records.size());
+            for (var record : records) {
+                slots.add(new Slot(record, this));
+            }
+            this.remaining = new AtomicInteger(records.size());
+            if (records.isEmpty()) {
+                consumed.complete(null);
+            }
+        }
+
+        private void consumedOne() {
+            if (remaining.decrementAndGet() == 0) {
+                consumed.complete(null);
+            }
+        }
+
+        private void fail(Throwable cause) {
+            consumed.completeExceptionally(cause);
+        }
+
+        private void commit() {
+            pending.remove(this);
+            try {
+                for (var record : records) {
+                    committer.markProcessed(record);
+                }
+                committer.markBatchFinished();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+    }
+}
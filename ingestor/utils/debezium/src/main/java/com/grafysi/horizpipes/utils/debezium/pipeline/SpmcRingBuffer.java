@@ -0,0 +1,85 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free single-producer/multi-consumer ring buffer with pre-allocated slots.
+ * Every slot carries a sequence number telling whether it is free for the lap of the producer
+ * or filled for the lap of the consumers, so neither side takes a lock or allocates.
+ * {@link #offer} must only be called from one thread at a time.
+ */
+public final class SpmcRingBuffer<E> {
+
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerCursor = new AtomicLong();
+    private final AtomicLong consumerCursor = new AtomicLong();
+
+    public SpmcRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Returns the smallest power of two greater or equal to {@code capacity}.
+     */
+    public static int roundCapacity(int capacity) {
+        return capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Publishes {@code element}, returns false if the buffer is full.
+     */
+    public boolean offer(E element) {
+        var position = producerCursor.get();
+        var index = (int) position & mask;
+        if (sequences.get(index) != position) {
+            return false;
+        }
+        slots[index] = element;
+        sequences.lazySet(index, position + 1);
+        producerCursor.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest element, returns null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        while (true) {
+            var position = consumerCursor.get();
+            var index = (int) position & mask;
+            var ready = sequences.get(index) - (position + 1);
+            if (ready == 0) {
+                if (consumerCursor.compareAndSet(position, position + 1)) {
+                    var element = (E) slots[index];
+                    slots[index] = null;
+                    sequences.lazySet(index, position + mask + 1);
+                    return element;
+                }
+            } else if (ready < 0) {
+                return null;
+            }
+            // another consumer took this position, retry with the next one
+        }
+    }
+
+    public int size() {
+        var size = producerCursor.get() - consumerCursor.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
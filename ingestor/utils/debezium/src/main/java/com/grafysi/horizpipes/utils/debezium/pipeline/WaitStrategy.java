@@ -0,0 +1,64 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits on a full or empty {@link SpmcRingBuffer}.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /**
+     * Called between two failed attempts, {@code attempt} counts the failed attempts so far.
+     */
+    void idle(int attempt);
+
+    /**
+     * Spins on the CPU, lowest latency at the cost of a core per waiting thread.
+     */
+    static WaitStrategy busySpin() {
+        return attempt -> Thread.onSpinWait();
+    }
+
+    /**
+     * Spins briefly, then yields the CPU to other threads.
+     */
+    static WaitStrategy yielding() {
+        return attempt -> {
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        };
+    }
+
+    /**
+     * Spins and yields briefly, then parks for {@code parkNanos}.
+     */
+    static WaitStrategy parking(long parkNanos) {
+        return attempt -> {
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else if (attempt < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        };
+    }
+
+    static WaitStrategy parse(String name) {
+        if (name == null) {
+            return parking(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "busy-spin" -> busySpin();
+            case "yield" -> yielding();
+            case "park" -> parking(TimeUnit.MICROSECONDS.toNanos(100));
+            default -> throw new IllegalArgumentException("Unknown wait strategy '" + name + "', expected busy-spin, yield or park");
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package com.grafysi.horizpipes.utils.debezium.registry;
+
+import com.grafysi.horizpipes.utils.connect.apicurio.CustomStrategy;
+import com.grafysi.horizpipes.utils.connect.apicurio.SchemaPrefetch;
+import com.grafysi.horizpipes.utils.connect.transforms.ExtractTopicName;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.snapshot.SnapshotPlanner;
+import com.grafysi.horizpipes.utils.debezium.snapshot.TableSize;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Warm-up of the registry schemas of a connector before it starts, with {@code hzp.registry.warmup}.
+ * Lists the tables selected by the include lists, derives the {@code <table>-key} and {@code <table>-value}
+ * artifact ids {@code CustomStrategy} names records after, and prefetches their latest schemas in parallel,
+ * so the first records of every table find them in the resolver cache instead of waiting for the registry.
+ * <p>
+ * Artifacts that are not registered yet, i.e. tables never seen before, are still registered by their
+ * first record, their schemas are derived from the data by the converter.
+ */
+public final class SchemaWarmup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaWarmup.class);
+
+    private static final String REGISTRY_URL = "apicurio.registry.url";
+
+    public static boolean enabled(Properties props) {
+        return Boolean.parseBoolean(props.getProperty(Configs.REGISTRY_WARMUP, "false"));
+    }
+
+    public static int parallelism(Properties props) {
+        return Integer.parseInt(props.getProperty(Configs.REGISTRY_WARMUP_PARALLELISM, "8"));
+    }
+
+    /**
+     * Prefetches the schemas of the connector configured by {@code props} if the warm-up is enabled.
+     * Failures are logged, the connector then resolves its schemas on the first records as usual.
+     */
+    public static void run(Properties props) {
+        if (!enabled(props)) {
+            return;
+        }
+        var converterConfig = converterConfig(props, Configs.VALUE_CONVERTER);
+        if (!converterConfig.containsKey(REGISTRY_URL)) {
+            converterConfig = converterConfig(props, Configs.KEY_CONVERTER);
+        }
+        if (!converterConfig.containsKey(REGISTRY_URL)) {
+            LOGGER.warn("Skipping schema warm-up, no {} configured", REGISTRY_URL);
+            return;
+        }
+
+        var start = System.nanoTime();
+        List<TableSize> tables;
+        try (var connection = SnapshotPlanner.connect(props)) {
+            tables = SnapshotPlanner.includedTables(connection, props);
+        } catch (SQLException e) {
+            LOGGER.warn("Skipping schema warm-up, failed to list tables", e);
+            return;
+        }
+        var artifactIds = artifactIds(props, tables.stream().map(TableSize::id).toList());
+        var fetched = SchemaPrefetch.prefetch(converterConfig, artifactIds, parallelism(props));
+        LOGGER.info("Prefetched {} of {} schemas of {} tables in {} ms", fetched, artifactIds.size(), tables.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Returns the config of the converter at {@code prefix}, e.g. {@code value.converter}, without the prefix.
+     */
+    static Map<String, Object> converterConfig(Properties props, String prefix) {
+        var config = new HashMap<String, Object>();
+        for (var key : props.stringPropertyNames()) {
+            if (key.startsWith(prefix + ".")) {
+                config.put(key.substring(prefix.length() + 1), props.getProperty(key));
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Returns the key and value artifact ids of {@code tableIds} ({@code schema.table}), named after the
+     * {@code __from_table} header of the first {@link ExtractTopicName} transform adding it, or after the
+     * Debezium topic {@code <topic.prefix>.<schema>.<table>} without one.
+     */
+    static List<String> artifactIds(Properties props, List<String> tableIds) {
+        var artifactNames = artifactNames(props);
+        var artifactIds = new LinkedHashSet<String>();
+        for (var tableId : tableIds) {
+            var name = artifactNames.apply(props.getProperty(Configs.TOPIC_PREFIX) + "." + tableId);
+            if (name != null) {
+                artifactIds.add(name + "-key");
+                artifactIds.add(name + "-value");
+            }
+        }
+        return new ArrayList<>(artifactIds);
+    }
+
+    private static Function<String, String> artifactNames(Properties props) {
+        var transforms = props.getProperty("transforms", "");
+        for (var name : transforms.split(",")) {
+            var prefix = "transforms." + name.trim() + ".";
+            if (!ExtractTopicName.class.getName().equals(props.getProperty(prefix + "type"))
+                    || !CustomStrategy.TABLE_ID_HEADER.equals(props.getProperty(prefix + ExtractTopicName.HEADER_NAME))) {
+                continue;
+            }
+            var config = new HashMap<String, Object>();
+            for (var key : props.stringPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    config.put(key.substring(prefix.length()), props.getProperty(key));
+                }
+            }
+            var transform = new ExtractTopicName<SourceRecord>();
+            transform.configure(config);
+            return transform::headerValue;
+        }
+        return Function.identity();
+    }
+
+    private SchemaWarmup() {
+    }
+}
@@ -0,0 +1,62 @@
+package com.grafysi.horizpipes.utils.debezium.replay;
+
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.apache.kafka.common.config.ConfigDef.NO_DEFAULT_VALUE;
+
+/**
+ * Records every {@link SourceRecord} passing through to a capture file and returns it unchanged.
+ * List it first in {@code transforms} to capture records as the connector emits them, then replay the
+ * file without a database with {@link ReplayDriver}, which skips this transform.
+ */
+public class CaptureSourceRecords<R extends ConnectRecord<R>> implements Transformation<R> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaptureSourceRecords.class);
+
+    public static final String FILE = "file";
+
+    private static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(FILE, ConfigDef.Type.STRING,
+                    NO_DEFAULT_VALUE, new ConfigDef.NonEmptyString(),
+                    ConfigDef.Importance.HIGH,
+                    "The file to write captured records to, replaced if it exists");
+
+    private SourceRecordWriter writer;
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+
+    @Override
+    public void configure(Map<String, ?> props) {
+        var config = new AbstractConfig(CONFIG_DEF, props);
+        writer = new SourceRecordWriter(Paths.get(config.getString(FILE)));
+        LOGGER.info("Capturing source records to {}", config.getString(FILE));
+    }
+
+    @Override
+    public R apply(R record) {
+        if (record instanceof SourceRecord sourceRecord) {
+            writer.write(sourceRecord);
+        }
+        return record;
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            LOGGER.info("Captured {} source records", writer.count());
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.grafysi.horizpipes.utils.debezium.replay;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+/**
+ * A record read from a capture file, {@code offsetNanos} after the first record was captured.
+ */
+public record CapturedRecord(long offsetNanos, SourceRecord record) {
+}
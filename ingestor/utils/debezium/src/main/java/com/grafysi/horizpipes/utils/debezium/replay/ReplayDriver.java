@@ -0,0 +1,141 @@
+package com.grafysi.horizpipes.utils.debezium.replay;
+
+import com.grafysi.horizpipes.utils.debezium.HzpConverterBuilder;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import io.debezium.config.Configuration;
+import io.debezium.embedded.Transformations;
+import io.debezium.engine.format.KeyValueHeaderChangeEventFormat;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds captured records through the configured transforms and {@link HzpConverterBuilder#toFormat} into a
+ * consumer, the path a record takes in the engine after the connector, without a database.
+ * <p>
+ * {@code props} are the connector properties, {@link CaptureSourceRecords} is left out of {@code transforms}.
+ * With {@code hzp.replay.pace=max} (the default) records are replayed as fast as the pipeline takes them,
+ * with {@code recorded} at the pace they were captured.
+ */
+public class ReplayDriver<R> implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayDriver.class);
+
+    public enum Pace {
+        MAX, RECORDED;
+
+        public static Pace parse(String value) {
+            return value == null ? MAX : Pace.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public record Result(long records, long filtered, long elapsedNanos) {
+
+        public double recordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+        }
+    }
+
+    private final Transformations transformations;
+    private final HzpConverterBuilder<R> converters;
+    private final Function<SourceRecord, R> toFormat;
+    private final Pace pace;
+
+    public ReplayDriver(Properties props, KeyValueHeaderChangeEventFormat<?, ?, ?> format) {
+        var replayProps = withoutCapture(props);
+        this.transformations = new Transformations(Configuration.from(replayProps));
+        this.converters = new HzpConverterBuilder<R>().using(format).using(replayProps);
+        this.toFormat = converters.toFormat(converters.headerConverter());
+        this.pace = Pace.parse(props.getProperty(Configs.REPLAY_PACE));
+    }
+
+    /**
+     * Replays the capture file {@code path}, reading it while replaying.
+     */
+    public Result replay(Path path, Consumer<R> consumer) {
+        try (var reader = new SourceRecordReader(path)) {
+            return replay(reader::next, consumer);
+        }
+    }
+
+    /**
+     * Replays records already in memory, e.g. from {@link SourceRecordReader#readAll}.
+     */
+    public Result replay(Iterable<CapturedRecord> records, Consumer<R> consumer) {
+        var iterator = records.iterator();
+        return replay(() -> iterator.hasNext() ? iterator.next() : null, consumer);
+    }
+
+    private Result replay(Supplier<CapturedRecord> records, Consumer<R> consumer) {
+        long count = 0;
+        long filtered = 0;
+        long firstOffset = -1;
+        var start = System.nanoTime();
+
+        CapturedRecord captured;
+        while ((captured = records.get()) != null) {
+            if (pace == Pace.RECORDED) {
+                if (firstOffset < 0) {
+                    firstOffset = captured.offsetNanos();
+                }
+                var due = start + captured.offsetNanos() - firstOffset;
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            var record = transformations.transform(captured.record());
+            if (record == null) {
+                filtered++;
+                continue;
+            }
+            consumer.accept(toFormat.apply(record));
+            count++;
+        }
+
+        var result = new Result(count, filtered, System.nanoTime() - start);
+        LOGGER.info("Replayed {} records ({} filtered) in {} ms, {} records/s", count, filtered,
+                result.elapsedNanos() / 1_000_000, (long) result.recordsPerSecond());
+        return result;
+    }
+
+    @Override
+    public void close() {
+        try {
+            transformations.close();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to close transforms", e);
+        }
+        converters.close();
+    }
+
+    static Properties withoutCapture(Properties props) {
+        var copy = new Properties();
+        copy.putAll(props);
+        var transforms = props.getProperty("transforms");
+        if (transforms == null || transforms.isBlank()) {
+            return copy;
+        }
+        var kept = Arrays.stream(transforms.split(","))
+                .map(String::trim)
+                .filter(name -> !CaptureSourceRecords.class.getName().equals(props.getProperty("transforms." + name + ".type")))
+                .collect(Collectors.joining(","));
+        if (kept.isEmpty()) {
+            copy.remove("transforms");
+        } else {
+            copy.setProperty("transforms", kept);
+        }
+        return copy;
+    }
+}
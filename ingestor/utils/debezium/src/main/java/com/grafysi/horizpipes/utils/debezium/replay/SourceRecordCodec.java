@@ -0,0 +1,473 @@
+package com.grafysi.horizpipes.utils.debezium.replay;
+
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of {@link SourceRecord}s for capture files.
+ * <p>
+ * A schema is written in full the first time it is seen and as a reference to its number afterwards, so a
+ * record costs little more than its values. Values are written according to their schema; schemaless values,
+ * like source partitions and offsets, carry a type tag. One codec instance encodes or decodes one stream.
+ */
+final class SourceRecordCodec {
+
+    private static final int FLAG_OPTIONAL = 1;
+    private static final int FLAG_NAME = 2;
+    private static final int FLAG_VERSION = 4;
+    private static final int FLAG_DOC = 8;
+    private static final int FLAG_DEFAULT = 16;
+    private static final int FLAG_PARAMETERS = 32;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_BOOLEAN = 1;
+    private static final int TAG_BYTE = 2;
+    private static final int TAG_SHORT = 3;
+    private static final int TAG_INT = 4;
+    private static final int TAG_LONG = 5;
+    private static final int TAG_FLOAT = 6;
+    private static final int TAG_DOUBLE = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_BYTES = 9;
+    private static final int TAG_LIST = 10;
+    private static final int TAG_MAP = 11;
+
+    private static final Schema.Type[] TYPES = Schema.Type.values();
+
+    // identity lookup first, connectors reuse their schema instances
+    private final Map<Schema, Integer> schemaIdsByIdentity = new IdentityHashMap<>();
+    private final Map<Schema, Integer> schemaIds = new HashMap<>();
+    private final List<Schema> schemas = new ArrayList<>();
+
+    void write(DataOutput out, SourceRecord record) throws IOException {
+        writeString(out, record.topic());
+        writeGeneric(out, record.kafkaPartition());
+        writeGeneric(out, record.sourcePartition());
+        writeGeneric(out, record.sourceOffset());
+        writeSchema(out, record.keySchema());
+        writeValue(out, record.keySchema(), record.key());
+        writeSchema(out, record.valueSchema());
+        writeValue(out, record.valueSchema(), record.value());
+        writeGeneric(out, record.timestamp());
+
+        var headers = new ArrayList<org.apache.kafka.connect.header.Header>();
+        record.headers().forEach(headers::add);
+        writeVarInt(out, headers.size());
+        for (var header : headers) {
+            writeString(out, header.key());
+            writeSchema(out, header.schema());
+            writeValue(out, header.schema(), header.value());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    SourceRecord read(DataInput in) throws IOException {
+        var topic = readString(in);
+        var partition = (Integer) readGeneric(in);
+        var sourcePartition = (Map<String, ?>) readGeneric(in);
+        var sourceOffset = (Map<String, ?>) readGeneric(in);
+        var keySchema = readSchema(in);
+        var key = readValue(in, keySchema);
+        var valueSchema = readSchema(in);
+        var value = readValue(in, valueSchema);
+        var timestamp = (Long) readGeneric(in);
+
+        var headers = new ConnectHeaders();
+        var headerCount = readVarInt(in);
+        for (int i = 0; i < headerCount; i++) {
+            var name = readString(in);
+            var schema = readSchema(in);
+            headers.add(name, readValue(in, schema), schema);
+        }
+        return new SourceRecord(sourcePartition, sourceOffset, topic, partition, keySchema, key, valueSchema, value,
+                timestamp, headers);
+    }
+
+    private void writeSchema(DataOutput out, Schema schema) throws IOException {
+        if (schema == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        var id = schemaIdsByIdentity.get(schema);
+        if (id == null) {
+            id = schemaIds.get(schema);
+            if (id != null) {
+                schemaIdsByIdentity.put(schema, id);
+            }
+        }
+        if (id != null) {
+            writeVarInt(out, id + 1);
+            return;
+        }
+
+        id = schemas.size();
+        schemas.add(schema);
+        schemaIds.put(schema, id);
+        schemaIdsByIdentity.put(schema, id);
+        writeVarInt(out, id + 1);
+
+        var flags = (schema.isOptional() ? FLAG_OPTIONAL : 0)
+                | (schema.name() != null ? FLAG_NAME : 0)
+                | (schema.version() != null ? FLAG_VERSION : 0)
+                | (schema.doc() != null ? FLAG_DOC : 0)
+                | (schema.defaultValue() != null ? FLAG_DEFAULT : 0)
+                | (schema.parameters() != null ? FLAG_PARAMETERS : 0);
+        out.writeByte(schema.type().ordinal());
+        out.writeByte(flags);
+        if (schema.name() != null) {
+            writeString(out, schema.name());
+        }
+        if (schema.version() != null) {
+            writeVarInt(out, schema.version());
+        }
+        if (schema.doc() != null) {
+            writeString(out, schema.doc());
+        }
+        if (schema.parameters() != null) {
+            writeGeneric(out, schema.parameters());
+        }
+        switch (schema.type()) {
+            case STRUCT -> {
+                writeVarInt(out, schema.fields().size());
+                for (var field : schema.fields()) {
+                    writeString(out, field.name());
+                    writeSchema(out, field.schema());
+                }
+            }
+            case ARRAY -> writeSchema(out, schema.valueSchema());
+            case MAP -> {
+                writeSchema(out, schema.keySchema());
+                writeSchema(out, schema.valueSchema());
+            }
+            default -> {
+            }
+        }
+        if (schema.defaultValue() != null) {
+            writeValue(out, schema, schema.defaultValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Schema readSchema(DataInput in) throws IOException {
+        var ref = readVarInt(in);
+        if (ref == 0) {
+            return null;
+        }
+        if (ref <= schemas.size()) {
+            return schemas.get(ref - 1);
+        }
+        if (ref != schemas.size() + 1) {
+            throw new IOException("Unexpected schema reference " + ref);
+        }
+        // reserve the number before nested schemas take theirs, like the writer
+        var id = schemas.size();
+        schemas.add(null);
+
+        var type = TYPES[in.readUnsignedByte()];
+        var flags = in.readUnsignedByte();
+        var name = (flags & FLAG_NAME) != 0 ? readString(in) : null;
+        var version = (flags & FLAG_VERSION) != 0 ? readVarInt(in) : null;
+        var doc = (flags & FLAG_DOC) != 0 ? readString(in) : null;
+        var parameters = (flags & FLAG_PARAMETERS) != 0 ? (Map<String, String>) readGeneric(in) : null;
+
+        SchemaBuilder builder = switch (type) {
+            case STRUCT -> {
+                var struct = SchemaBuilder.struct();
+                var fieldCount = readVarInt(in);
+                for (int i = 0; i < fieldCount; i++) {
+                    struct.field(readString(in), readSchema(in));
+                }
+                yield struct;
+            }
+            case ARRAY -> SchemaBuilder.array(readSchema(in));
+            case MAP -> SchemaBuilder.map(readSchema(in), readSchema(in));
+            default -> SchemaBuilder.type(type);
+        };
+        if ((flags & FLAG_OPTIONAL) != 0) {
+            builder.optional();
+        }
+        if (name != null) {
+            builder.name(name);
+        }
+        if (version != null) {
+            builder.version(version);
+        }
+        if (doc != null) {
+            builder.doc(doc);
+        }
+        if (parameters != null) {
+            builder.parameters(parameters);
+        }
+        if ((flags & FLAG_DEFAULT) != 0) {
+            builder.defaultValue(readValue(in, builder));
+        }
+        var schema = builder.build();
+        schemas.set(id, schema);
+        return schema;
+    }
+
+    private void writeValue(DataOutput out, Schema schema, Object value) throws IOException {
+        if (schema == null) {
+            writeGeneric(out, value);
+            return;
+        }
+        if (value == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        switch (schema.type()) {
+            case INT8 -> out.writeByte((Byte) value);
+            case INT16 -> out.writeShort((Short) value);
+            case INT32 -> out.writeInt(value instanceof java.util.Date date
+                    ? (Date.LOGICAL_NAME.equals(schema.name()) ? Date.fromLogical(schema, date) : Time.fromLogical(schema, date))
+                    : (Integer) value);
+            case INT64 -> out.writeLong(value instanceof java.util.Date date ? Timestamp.fromLogical(schema, date) : (Long) value);
+            case FLOAT32 -> out.writeFloat((Float) value);
+            case FLOAT64 -> out.writeDouble((Double) value);
+            case BOOLEAN -> out.writeBoolean((Boolean) value);
+            case STRING -> writeString(out, (String) value);
+            case BYTES -> writeBytes(out, value instanceof BigDecimal decimal ? Decimal.fromLogical(schema, decimal) : bytes(value));
+            case ARRAY -> {
+                var list = (List<?>) value;
+                writeVarInt(out, list.size());
+                for (var element : list) {
+                    writeValue(out, schema.valueSchema(), element);
+                }
+            }
+            case MAP -> {
+                var map = (Map<?, ?>) value;
+                writeVarInt(out, map.size());
+                for (var entry : map.entrySet()) {
+                    writeValue(out, schema.keySchema(), entry.getKey());
+                    writeValue(out, schema.valueSchema(), entry.getValue());
+                }
+            }
+            case STRUCT -> {
+                var struct = (Struct) value;
+                for (Field field : schema.fields()) {
+                    writeValue(out, field.schema(), struct.getWithoutDefault(field.name()));
+                }
+            }
+        }
+    }
+
+    private Object readValue(DataInput in, Schema schema) throws IOException {
+        if (schema == null) {
+            return readGeneric(in);
+        }
+        if (!in.readBoolean()) {
+            return null;
+        }
+        var name = schema.name();
+        return switch (schema.type()) {
+            case INT8 -> in.readByte();
+            case INT16 -> in.readShort();
+            case INT32 -> {
+                var value = in.readInt();
+                yield Date.LOGICAL_NAME.equals(name) ? Date.toLogical(schema, value)
+                        : Time.LOGICAL_NAME.equals(name) ? Time.toLogical(schema, value) : (Object) value;
+            }
+            case INT64 -> {
+                var value = in.readLong();
+                yield Timestamp.LOGICAL_NAME.equals(name) ? Timestamp.toLogical(schema, value) : (Object) value;
+            }
+            case FLOAT32 -> in.readFloat();
+            case FLOAT64 -> in.readDouble();
+            case BOOLEAN -> in.readBoolean();
+            case STRING -> readString(in);
+            case BYTES -> {
+                var value = readBytes(in);
+                yield Decimal.LOGICAL_NAME.equals(name) ? Decimal.toLogical(schema, value) : value;
+            }
+            case ARRAY -> {
+                var size = readVarInt(in);
+                var list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, schema.valueSchema()));
+                }
+                yield list;
+            }
+            case MAP -> {
+                var size = readVarInt(in);
+                var map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in, schema.keySchema()), readValue(in, schema.valueSchema()));
+                }
+                yield map;
+            }
+            case STRUCT -> {
+                var struct = new Struct(schema);
+                for (var field : schema.fields()) {
+                    var value = readValue(in, field.schema());
+                    if (value != null) {
+                        struct.put(field, value);
+                    }
+                }
+                yield struct;
+            }
+        };
+    }
+
+    private void writeGeneric(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean(bool);
+        } else if (value instanceof Byte b) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte(b);
+        } else if (value instanceof Short s) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort(s);
+        } else if (value instanceof Integer i) {
+            out.writeByte(TAG_INT);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(TAG_LONG);
+            out.writeLong(l);
+        } else if (value instanceof Float f) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat(f);
+        } else if (value instanceof Double d) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof String s) {
+            out.writeByte(TAG_STRING);
+            writeString(out, s);
+        } else if (value instanceof byte[] || value instanceof ByteBuffer) {
+            out.writeByte(TAG_BYTES);
+            writeBytes(out, bytes(value));
+        } else if (value instanceof List<?> list) {
+            out.writeByte(TAG_LIST);
+            writeVarInt(out, list.size());
+            for (var element : list) {
+                writeGeneric(out, element);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_MAP);
+            writeVarInt(out, map.size());
+            for (var entry : map.entrySet()) {
+                writeGeneric(out, entry.getKey());
+                writeGeneric(out, entry.getValue());
+            }
+        } else {
+            throw new IOException("Unsupported schemaless value of " + value.getClass());
+        }
+    }
+
+    private Object readGeneric(DataInput in) throws IOException {
+        var tag = in.readUnsignedByte();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_BOOLEAN -> in.readBoolean();
+            case TAG_BYTE -> in.readByte();
+            case TAG_SHORT -> in.readShort();
+            case TAG_INT -> in.readInt();
+            case TAG_LONG -> in.readLong();
+            case TAG_FLOAT -> in.readFloat();
+            case TAG_DOUBLE -> in.readDouble();
+            case TAG_STRING -> readString(in);
+            case TAG_BYTES -> readBytes(in);
+            case TAG_LIST -> {
+                var size = readVarInt(in);
+                var list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readGeneric(in));
+                }
+                yield list;
+            }
+            case TAG_MAP -> {
+                var size = readVarInt(in);
+                var map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readGeneric(in), readGeneric(in));
+                }
+                yield map;
+            }
+            default -> throw new IOException("Unknown value tag " + tag);
+        };
+    }
+
+    private static byte[] bytes(Object value) {
+        if (value instanceof ByteBuffer buffer) {
+            var bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return bytes;
+        }
+        return (byte[]) value;
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        var bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        var length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        var bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        var value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            var b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
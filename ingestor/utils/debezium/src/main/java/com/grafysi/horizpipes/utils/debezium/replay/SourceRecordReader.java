@@ -0,0 +1,85 @@
+package com.grafysi.horizpipes.utils.debezium.replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a capture file written by {@link SourceRecordWriter}.
+ */
+public class SourceRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final DataInputStream in;
+    private final SourceRecordCodec codec = new SourceRecordCodec();
+
+    public SourceRecordReader(Path path) {
+        this.path = path;
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            if (in.readInt() != SourceRecordWriter.MAGIC) {
+                throw new IOException("Not a capture file");
+            }
+            var version = in.readInt();
+            if (version != SourceRecordWriter.VERSION) {
+                throw new IOException("Unsupported capture file version " + version);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open capture file " + path, e);
+        }
+    }
+
+    /**
+     * Reads all records of {@code path}, e.g. to replay them without file IO.
+     */
+    public static List<CapturedRecord> readAll(Path path) {
+        try (var reader = new SourceRecordReader(path)) {
+            var records = new ArrayList<CapturedRecord>();
+            CapturedRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Returns the next record, or null at the end of the file. A record cut off by a crash of the
+     * capturing process also ends the file.
+     */
+    public CapturedRecord next() {
+        long offsetNanos;
+        try {
+            offsetNanos = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read capture file " + path, e);
+        }
+        try {
+            return new CapturedRecord(offsetNanos, codec.read(in));
+        } catch (EOFException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read capture file " + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close capture file " + path, e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.grafysi.horizpipes.utils.debezium.replay;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes {@link SourceRecord}s with their schemas, values and headers to a capture file, see {@link SourceRecordCodec}.
+ * File layout: {@code [int magic][int version]{[long nanos since first record][record]}}.
+ */
+public class SourceRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x485A5052;
+    static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final DataOutputStream out;
+    private final SourceRecordCodec codec = new SourceRecordCodec();
+    private long startNanos = -1;
+    private long count;
+
+    public SourceRecordWriter(Path path) {
+        this.path = path;
+        try {
+            var parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create capture file " + path, e);
+        }
+    }
+
+    public synchronized void write(SourceRecord record) {
+        var now = System.nanoTime();
+        if (startNanos < 0) {
+            startNanos = now;
+        }
+        try {
+            out.writeLong(now - startNanos);
+            codec.write(out, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write capture file " + path, e);
+        }
+        count++;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to flush capture file " + path, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close capture file " + path, e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.grafysi.horizpipes.utils.debezium.runtime;
+
+import com.grafysi.horizpipes.utils.debezium.HzpConnector;
+import com.grafysi.horizpipes.utils.debezium.LazyHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.PooledHzpChangeEvent;
+import io.debezium.engine.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A connector hosted by a {@link ConnectorRuntime}, with its lifecycle state and resource accounting.
+ */
+public final class ConnectorHandle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectorHandle.class);
+
+    public enum State {
+        STARTING, RUNNING, STOPPING, STOPPED, FAILED
+    }
+
+    /**
+     * Point-in-time accounting of one connector. {@code platformThreads} is the number of platform
+     * threads its configuration asks the engine and the horizpipes stages for. {@code bytes} counts
+     * converted keys and values only, lazily converted ones once the consumer has converted them.
+     */
+    public record Stats(String name, State state, Duration uptime, long events, long bytes,
+                        long lastEventMillis, int platformThreads, Throwable failure) {
+    }
+
+    private final String name;
+    private final int platformThreads;
+    private final AtomicReference<State> state = new AtomicReference<>(State.STARTING);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final LongAdder events = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    private volatile HzpConnector connector;
+    private volatile long startedAtNanos;
+    private volatile long stoppedAtNanos;
+    private volatile long lastEventMillis;
+    private volatile Throwable failure;
+
+    ConnectorHandle(String name, int platformThreads) {
+        this.name = name;
+        this.platformThreads = platformThreads;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    public Throwable failure() {
+        return failure;
+    }
+
+    public Stats stats() {
+        var started = startedAtNanos;
+        var stopped = stoppedAtNanos;
+        var uptime = started == 0
+                ? Duration.ZERO
+                : Duration.ofNanos((stopped == 0 ? System.nanoTime() : stopped) - started);
+        return new Stats(name, state.get(), uptime, events.sum(), bytes.sum(),
+                lastEventMillis, platformThreads, failure);
+    }
+
+    /**
+     * Stops the connector and waits up to {@code timeout} for its engine to return.
+     */
+    public boolean stop(long timeout, TimeUnit unit) throws InterruptedException {
+        if (state.compareAndSet(State.RUNNING, State.STOPPING) || state.compareAndSet(State.STARTING, State.STOPPING)) {
+            var current = connector;
+            if (current != null) {
+                current.stop();
+            }
+        }
+        return awaitStopped(timeout, unit);
+    }
+
+    public boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    <K, V> Consumer<ChangeEvent<K, V>> counting(Consumer<ChangeEvent<K, V>> consumer) {
+        return event -> {
+            events.increment();
+            lastEventMillis = System.currentTimeMillis();
+            if (event instanceof LazyHzpChangeEvent<?, ?, ?>) {
+                // counting must not convert, so count what the consumer converted
+                consumer.accept(event);
+                bytes.add(sizeOf(event));
+            } else {
+                bytes.add(sizeOf(event));
+                consumer.accept(event);
+            }
+        };
+    }
+
+    void bind(HzpConnector connector) {
+        this.connector = connector;
+    }
+
+    void run() {
+        startedAtNanos = System.nanoTime();
+        try {
+            if (!state.compareAndSet(State.STARTING, State.RUNNING)) {
+                return;
+            }
+            LOGGER.info("Connector {} started", name);
+            connector.run();
+            state.set(State.STOPPED);
+            LOGGER.info("Connector {} stopped", name);
+        } catch (Throwable e) {
+            failure = e;
+            state.set(State.FAILED);
+            LOGGER.error("Connector {} failed", name, e);
+        } finally {
+            if (state.get() == State.STOPPING) {
+                state.set(State.STOPPED);
+            }
+            stoppedAtNanos = System.nanoTime();
+            finished.countDown();
+        }
+    }
+
+    void fail(Throwable e) {
+        failure = e;
+        state.set(State.FAILED);
+        finished.countDown();
+    }
+
+    private static long sizeOf(ChangeEvent<?, ?> event) {
+        if (event instanceof PooledHzpChangeEvent<?, ?, ?> pooled) {
+            var key = pooled.keyBuffer();
+            var value = pooled.valueBuffer();
+            return (key == null ? 0 : key.remaining()) + (value == null ? 0 : value.remaining());
+        }
+        if (event instanceof LazyHzpChangeEvent<?, ?, ?> lazy) {
+            return (lazy.isKeyConverted() ? sizeOf(lazy.key()) : 0) + (lazy.isValueConverted() ? sizeOf(lazy.value()) : 0);
+        }
+        return sizeOf(event.key()) + sizeOf(event.value());
+    }
+
+    private static long sizeOf(Object data) {
+        if (data instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (data instanceof String string) {
+            // ASCII estimate, avoids encoding every event just to count it
+            return string.length();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,154 @@
+package com.grafysi.horizpipes.utils.debezium.runtime;
+
+import com.grafysi.horizpipes.utils.debezium.HzpConnector;
+import com.grafysi.horizpipes.utils.debezium.JsonConnector;
+import com.grafysi.horizpipes.utils.debezium.ThreadPools;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.pipeline.ParallelConversionStage;
+import com.grafysi.horizpipes.utils.debezium.pipeline.RingBufferHandoff;
+import io.debezium.engine.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Hosts many connectors in one JVM, each running on its own virtual thread.
+ * <p>
+ * Connector properties are layered over {@link #DEFAULTS} and the runtime-wide defaults given
+ * to the constructor, so by default connectors:
+ * <ul>
+ *     <li>share converter instances, and with them schema resolver caches, with every connector
+ *     whose converters are configured the same ({@code hzp.converter.shared}),</li>
+ *     <li>use a single engine processing thread ({@code record.processing.threads}) instead of one per core,</li>
+ *     <li>run parallel conversion, if enabled, on virtual threads.</li>
+ * </ul>
+ * Set {@code cache.shared=true} on {@code ExtractTopicName} transforms to share their caches too.
+ */
+public class ConnectorRuntime implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectorRuntime.class);
+
+    private static final long CLOSE_TIMEOUT_MS = 30_000;
+
+    public static final Map<String, String> DEFAULTS = Map.of(
+            Configs.CONVERTER_SHARED, "true",
+            Configs.RECORD_PROCESSING_THREADS, "1",
+            Configs.CONVERSION_PARALLEL_POOL, "virtual");
+
+    private final Properties defaults;
+
+    private final ExecutorService executor = ThreadPools.newThreadPerTaskExecutor("hzp-connector");
+
+    private final Map<String, ConnectorHandle> connectors = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    public ConnectorRuntime() {
+        this(new Properties());
+    }
+
+    public ConnectorRuntime(Properties defaults) {
+        this.defaults = new Properties();
+        this.defaults.putAll(DEFAULTS);
+        this.defaults.putAll(defaults);
+    }
+
+    public ConnectorHandle startJson(String name, Properties props, Consumer<ChangeEvent<String, String>> consumer) {
+        return start(name, props, consumer, JsonConnector::new);
+    }
+
+    /**
+     * Creates a connector with {@code factory}, e.g. {@code AvroConnector::new}, and runs it.
+     * The consumer is wrapped to account events and bytes to the connector.
+     */
+    public <K, V> ConnectorHandle start(String name, Properties props, Consumer<ChangeEvent<K, V>> consumer,
+                                        BiFunction<Properties, Consumer<ChangeEvent<K, V>>, ? extends HzpConnector> factory) {
+        if (closed) {
+            throw new IllegalStateException("Connector runtime is closed");
+        }
+        var connectorProps = connectorProperties(name, props);
+        var handle = new ConnectorHandle(name, platformThreads(connectorProps));
+        if (connectors.putIfAbsent(name, handle) != null) {
+            throw new IllegalArgumentException("Connector already exists: " + name);
+        }
+
+        try {
+            handle.bind(factory.apply(connectorProps, handle.counting(consumer)));
+            executor.execute(handle::run);
+        } catch (RuntimeException e) {
+            handle.fail(e);
+            connectors.remove(name);
+            throw e;
+        }
+        return handle;
+    }
+
+    /**
+     * Stops and removes a connector, returns false if it did not stop within the timeout.
+     */
+    public boolean stop(String name, long timeout, TimeUnit unit) throws InterruptedException {
+        var handle = connectors.get(name);
+        if (handle == null) {
+            return true;
+        }
+        var stopped = handle.stop(timeout, unit);
+        if (stopped) {
+            connectors.remove(name, handle);
+        }
+        return stopped;
+    }
+
+    public ConnectorHandle connector(String name) {
+        return connectors.get(name);
+    }
+
+    public List<ConnectorHandle.Stats> stats() {
+        return connectors.values().stream().map(ConnectorHandle::stats).toList();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            for (var name : List.copyOf(connectors.keySet())) {
+                if (!stop(name, CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("Connector {} did not stop within {} ms", name, CLOSE_TIMEOUT_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Properties connectorProperties(String name, Properties props) {
+        var result = new Properties();
+        result.putAll(defaults);
+        result.setProperty(Configs.CONNECTOR_NAME, name);
+        result.putAll(props);
+        return result;
+    }
+
+    private static int platformThreads(Properties props) {
+        var threads = Integer.parseInt(props.getProperty(Configs.RECORD_PROCESSING_THREADS,
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (RingBufferHandoff.capacity(props) > 0) {
+            threads += Integer.parseInt(props.getProperty(Configs.HANDOFF_CONSUMERS,
+                    String.valueOf(RingBufferHandoff.DEFAULT_CONSUMERS)));
+        }
+        if (!"virtual".equalsIgnoreCase(props.getProperty(Configs.CONVERSION_PARALLEL_POOL))) {
+            threads += ParallelConversionStage.parallelism(props);
+        }
+        return threads;
+    }
+}
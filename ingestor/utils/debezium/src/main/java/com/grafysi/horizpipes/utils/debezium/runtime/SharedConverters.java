@@ -0,0 +1,50 @@
+package com.grafysi.horizpipes.utils.debezium.runtime;
+
+import org.apache.kafka.connect.storage.Converter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * JVM-wide registry of configured converters, keyed by their full configuration.
+ * Connectors whose converters are configured identically get the same instance, and with it
+ * the same schema caches (e.g. the {@code CustomSchemaResolver} cache of an Apicurio converter).
+ * Only used for converters that are already shared between processing threads.
+ */
+public final class SharedConverters {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedConverters.class);
+
+    private record Key(Map<String, String> config, boolean isKey) {
+    }
+
+    private static final Map<Key, Converter> CONVERTERS = new ConcurrentHashMap<>();
+
+    public static Converter get(Map<String, String> config, boolean isKey, Supplier<Converter> factory) {
+        return CONVERTERS.computeIfAbsent(new Key(Map.copyOf(config), isKey), k -> {
+            var converter = factory.get();
+            LOGGER.info("Sharing {} {} converter", converter.getClass().getName(), isKey ? "key" : "value");
+            return converter;
+        });
+    }
+
+    /**
+     * Number of converter instances held in the registry.
+     */
+    public static int size() {
+        return CONVERTERS.size();
+    }
+
+    /**
+     * Forgets all shared converters, connectors started afterward create new ones.
+     */
+    public static void clear() {
+        CONVERTERS.clear();
+    }
+
+    private SharedConverters() {
+    }
+}
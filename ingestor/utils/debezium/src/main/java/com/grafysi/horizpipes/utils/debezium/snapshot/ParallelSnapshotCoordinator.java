@@ -0,0 +1,230 @@
+package com.grafysi.horizpipes.utils.debezium.snapshot;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.HzpConnector;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import io.debezium.engine.ChangeEvent;
+import org.apache.kafka.connect.data.Struct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Takes the initial snapshot of a Postgres connector with several snapshot-only connectors in parallel,
+ * then streams with a single connector.
+ * <ol>
+ *     <li>Creates the streaming replication slot, which retains every change from this point on.</li>
+ *     <li>Splits the non-empty tables of the include lists into {@code hzp.snapshot.parallelism} groups of
+ *     similar size and snapshots each group with {@code snapshot.mode=initial_only} and its own temporary slot.</li>
+ *     <li>Once every group delivered its last snapshot record, stops the snapshot connectors and streams
+ *     from the slot created first, with {@code snapshot.mode=no_data}.</li>
+ * </ol>
+ * Each table is read after the streaming slot was created, so changes made while the snapshot runs can be
+ * delivered twice, once in the snapshot and once streamed, but none are lost: the consumer must apply
+ * them idempotently (e.g. upsert by key). Completion is detected from the {@code source.snapshot} field,
+ * so transforms must keep the Debezium envelope.
+ */
+public class ParallelSnapshotCoordinator<K, V> implements HzpConnector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelSnapshotCoordinator.class);
+
+    private static final String SLOT_NAME = "slot.name";
+    private static final String SLOT_DROP_ON_STOP = "slot.drop.on.stop";
+    private static final String PLUGIN_NAME = "plugin.name";
+    private static final String SNAPSHOT_MODE = "snapshot.mode";
+    private static final String DEFAULT_SLOT_NAME = "debezium";
+    private static final String DEFAULT_PLUGIN_NAME = "decoderbufs";
+
+    private final Properties props;
+    private final Consumer<ChangeEvent<K, V>> consumer;
+    private final BiFunction<Properties, Consumer<ChangeEvent<K, V>>, ? extends HzpConnector> factory;
+    private final int parallelism;
+    private final List<HzpConnector> snapshotConnectors = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private volatile HzpConnector streamingConnector;
+    private volatile CountDownLatch snapshotsDone;
+    private volatile boolean stopped;
+
+    /**
+     * @param factory creates a connector from properties and a consumer, e.g. {@code JsonConnector::new}
+     */
+    public ParallelSnapshotCoordinator(Properties props, Consumer<ChangeEvent<K, V>> consumer,
+                                       BiFunction<Properties, Consumer<ChangeEvent<K, V>>, ? extends HzpConnector> factory) {
+        this.props = props;
+        this.consumer = consumer;
+        this.factory = factory;
+        this.parallelism = Integer.parseInt(props.getProperty(Configs.SNAPSHOT_PARALLELISM,
+                String.valueOf(Math.min(4, Runtime.getRuntime().availableProcessors()))));
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (!snapshot() || stopped) {
+                return;
+            }
+            var streaming = streamingProperties(props);
+            LOGGER.info("Parallel snapshot finished, streaming from slot {}", streaming.getProperty(SLOT_NAME));
+            streamingConnector = factory.apply(streaming, consumer);
+            if (!stopped) {
+                streamingConnector.run();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to plan the parallel snapshot", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        var done = snapshotsDone;
+        if (done != null) {
+            while (done.getCount() > 0) {
+                done.countDown();
+            }
+        }
+        var streaming = streamingConnector;
+        if (streaming != null) {
+            streaming.stop();
+        }
+    }
+
+    /**
+     * Runs the snapshot connectors, returns false if they failed or were stopped.
+     */
+    private boolean snapshot() throws SQLException, InterruptedException {
+        List<List<TableSize>> groups;
+        try (var connection = SnapshotPlanner.connect(props)) {
+            var slot = props.getProperty(SLOT_NAME, DEFAULT_SLOT_NAME);
+            var lsn = SnapshotPlanner.createSlot(connection, slot, props.getProperty(PLUGIN_NAME, DEFAULT_PLUGIN_NAME));
+            LOGGER.info("Created streaming slot {} at {}", slot, lsn);
+            groups = SnapshotPlanner.partition(SnapshotPlanner.tables(connection, props), parallelism);
+        }
+        if (groups.isEmpty()) {
+            return true;
+        }
+
+        snapshotsDone = new CountDownLatch(groups.size());
+        var threadCount = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(groups.size(), task -> {
+            var thread = new Thread(task, "hzp-snapshot-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < groups.size(); i++) {
+                var group = groups.get(i);
+                LOGGER.info("Snapshot group {}: {} ({} bytes)", i, group.stream().map(TableSize::id).toList(),
+                        group.stream().mapToLong(TableSize::bytes).sum());
+                startSnapshot(executor, i, group);
+            }
+            snapshotsDone.await();
+        } finally {
+            snapshotConnectors.forEach(ParallelSnapshotCoordinator::stopQuietly);
+            shutdown(executor);
+        }
+
+        if (failure.get() != null) {
+            LOGGER.error("Parallel snapshot failed, the streaming slot is kept", failure.get());
+            return false;
+        }
+        return !stopped;
+    }
+
+    private void startSnapshot(ExecutorService executor, int index, List<TableSize> group) {
+        var remainingLast = new AtomicInteger(1);
+        Consumer<ChangeEvent<K, V>> tracking = event -> {
+            consumer.accept(event);
+            if (isLastSnapshotRecord(event) && remainingLast.getAndDecrement() == 1) {
+                LOGGER.info("Snapshot group {} finished", index);
+                snapshotsDone.countDown();
+            }
+        };
+        var connector = factory.apply(snapshotProperties(props, index, group), tracking);
+        snapshotConnectors.add(connector);
+        executor.execute(() -> {
+            try {
+                connector.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                // an engine that returns early, e.g. on a connection error, must not block the coordinator
+                if (remainingLast.getAndSet(0) == 1) {
+                    if (!stopped) {
+                        failure.compareAndSet(null, new IllegalStateException("Snapshot group " + index + " stopped before it finished"));
+                    }
+                    snapshotsDone.countDown();
+                }
+            }
+        });
+    }
+
+    static Properties snapshotProperties(Properties props, int index, List<TableSize> group) {
+        var snapshot = new Properties();
+        snapshot.putAll(props);
+        snapshot.setProperty(Configs.CONNECTOR_NAME, props.getProperty(Configs.CONNECTOR_NAME) + "-snapshot-" + index);
+        snapshot.setProperty(SLOT_NAME, props.getProperty(SLOT_NAME, DEFAULT_SLOT_NAME) + "_snapshot_" + index);
+        snapshot.setProperty(SLOT_DROP_ON_STOP, "true");
+        snapshot.setProperty(SNAPSHOT_MODE, "initial_only");
+        snapshot.remove(Configs.SCHEMA_INCLUDE_LIST);
+        snapshot.setProperty(Configs.TABLE_INCLUDE_LIST, SnapshotPlanner.includeList(group));
+        snapshot.setProperty(Configs.OFFSET_STORAGE, "org.apache.kafka.connect.storage.MemoryOffsetBackingStore");
+        return snapshot;
+    }
+
+    static Properties streamingProperties(Properties props) {
+        var streaming = new Properties();
+        streaming.putAll(props);
+        streaming.setProperty(SNAPSHOT_MODE, "no_data");
+        return streaming;
+    }
+
+    /**
+     * Debezium marks the final record of a snapshot with {@code source.snapshot=last}.
+     */
+    static boolean isLastSnapshotRecord(ChangeEvent<?, ?> event) {
+        if (!(event instanceof HzpChangeEvent<?, ?, ?> hzpEvent) || hzpEvent.sourceRecord() == null
+                || !(hzpEvent.sourceRecord().value() instanceof Struct value)
+                || value.schema().field("source") == null) {
+            return false;
+        }
+        var source = value.getStruct("source");
+        return source != null && source.schema().field("snapshot") != null
+                && "last".equals(String.valueOf(source.get("snapshot")));
+    }
+
+    private static void stopQuietly(HzpConnector connector) {
+        try {
+            connector.stop();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to stop snapshot connector", e);
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.grafysi.horizpipes.utils.debezium.snapshot;
+
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the tables a connector would snapshot, estimates their size and splits them into groups
+ * of similar total size for parallel snapshots.
+ */
+public final class SnapshotPlanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotPlanner.class);
+
+    private static final String TABLE_SIZES = """
+            SELECT n.nspname, c.relname, pg_total_relation_size(c.oid)
+            FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE c.relkind IN ('r', 'p') AND NOT c.relispartition
+              AND n.nspname NOT IN ('pg_catalog', 'information_schema') AND n.nspname NOT LIKE 'pg_toast%'
+            """;
+
+    private static final String SLOT_EXISTS = "SELECT 1 FROM pg_replication_slots WHERE slot_name = ?";
+
+    private static final String CREATE_SLOT = "SELECT lsn FROM pg_create_logical_replication_slot(?, ?)";
+
+    public static Connection connect(Properties props) throws SQLException {
+        var url = "jdbc:postgresql://" + props.getProperty(Configs.DATABASE_HOSTNAME) + ":"
+                + props.getProperty(Configs.DATABASE_PORT, "5432") + "/" + props.getProperty(Configs.DATABASE_DBNAME);
+        return DriverManager.getConnection(url, props.getProperty(Configs.DATABASE_USER),
+                props.getProperty(Configs.DATABASE_PASSWORD));
+    }
+
+    /**
+     * Returns the non-empty tables selected by {@code schema.include.list} and {@code table.include.list}.
+     */
+    public static List<TableSize> tables(Connection connection, Properties props) throws SQLException {
+        var selected = new ArrayList<TableSize>();
+        for (var table : includedTables(connection, props)) {
+            try (var statement = connection.createStatement();
+                 var rs = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM " + quote(table.schema()) + "." + quote(table.table()) + ")")) {
+                if (rs.next() && rs.getBoolean(1)) {
+                    selected.add(table);
+                } else {
+                    LOGGER.info("Skipping empty table {}", table.id());
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns all tables selected by {@code schema.include.list} and {@code table.include.list}, empty or not.
+     */
+    public static List<TableSize> includedTables(Connection connection, Properties props) throws SQLException {
+        var all = new ArrayList<TableSize>();
+        try (var statement = connection.createStatement(); var rs = statement.executeQuery(TABLE_SIZES)) {
+            while (rs.next()) {
+                all.add(new TableSize(rs.getString(1), rs.getString(2), rs.getLong(3)));
+            }
+        }
+        return filter(all, props);
+    }
+
+    /**
+     * Creates the logical replication slot, returns its consistent point.
+     *
+     * @throws IllegalStateException if the slot already exists
+     */
+    public static String createSlot(Connection connection, String slotName, String plugin) throws SQLException {
+        try (var statement = connection.prepareStatement(SLOT_EXISTS)) {
+            statement.setString(1, slotName);
+            try (var rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    throw new IllegalStateException("Replication slot " + slotName + " already exists, drop it to take"
+                            + " a new parallel snapshot or start the streaming connector directly");
+                }
+            }
+        }
+        try (var statement = connection.prepareStatement(CREATE_SLOT)) {
+            statement.setString(1, slotName);
+            statement.setString(2, plugin);
+            try (var rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    /**
+     * Applies the connector's include lists, which are comma-separated regular expressions
+     * matched case-insensitively against the whole schema name and {@code schema.table}, as Debezium does.
+     */
+    public static List<TableSize> filter(List<TableSize> tables, Properties props) {
+        var schemas = patterns(props.getProperty(Configs.SCHEMA_INCLUDE_LIST));
+        var tableIds = patterns(props.getProperty(Configs.TABLE_INCLUDE_LIST));
+        return tables.stream()
+                .filter(table -> schemas.isEmpty() || schemas.stream().anyMatch(p -> p.matcher(table.schema()).matches()))
+                .filter(table -> tableIds.isEmpty() || tableIds.stream().anyMatch(p -> p.matcher(table.id()).matches()))
+                .toList();
+    }
+
+    /**
+     * Splits {@code tables} into at most {@code groups} groups by longest processing time first:
+     * the largest remaining table goes to the group with the smallest total.
+     */
+    public static List<List<TableSize>> partition(List<TableSize> tables, int groups) {
+        if (groups < 1) {
+            throw new IllegalArgumentException("Snapshot parallelism must be positive: " + groups);
+        }
+        var result = new ArrayList<List<TableSize>>();
+        var totals = new long[Math.min(groups, tables.size())];
+        for (int i = 0; i < totals.length; i++) {
+            result.add(new ArrayList<>());
+        }
+        var sorted = tables.stream().sorted(Comparator.comparingLong(TableSize::bytes).reversed()).toList();
+        for (var table : sorted) {
+            var smallest = 0;
+            for (int i = 1; i < totals.length; i++) {
+                if (totals[i] < totals[smallest]) {
+                    smallest = i;
+                }
+            }
+            result.get(smallest).add(table);
+            totals[smallest] += table.bytes();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a {@code table.include.list} selecting exactly {@code tables}.
+     */
+    public static String includeList(List<TableSize> tables) {
+        return String.join(",", tables.stream().map(table -> escape(table.id())).toList());
+    }
+
+    private static List<Pattern> patterns(String list) {
+        if (list == null || list.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(list.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(s -> Pattern.compile(s, Pattern.CASE_INSENSITIVE))
+                .toList();
+    }
+
+    private static String escape(String id) {
+        var escaped = new StringBuilder(id.length() + 8);
+        for (int i = 0; i < id.length(); i++) {
+            var c = id.charAt(i);
+            if ("\\.[]{}()<>*+-=!?^$|,".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private SnapshotPlanner() {
+    }
+}
@@ -0,0 +1,14 @@
+package com.grafysi.horizpipes.utils.debezium.snapshot;
+
+/**
+ * A table to snapshot with its estimated size, {@code bytes} is {@code pg_total_relation_size}.
+ */
+public record TableSize(String schema, String table, long bytes) {
+
+    /**
+     * Returns {@code schema.table}, the identifier matched by {@code table.include.list}.
+     */
+    public String id() {
+        return schema + "." + table;
+    }
+}
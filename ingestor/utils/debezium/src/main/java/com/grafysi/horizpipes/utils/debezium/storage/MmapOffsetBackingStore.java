@@ -0,0 +1,396 @@
+package com.grafysi.horizpipes.utils.debezium.storage;
+
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.runtime.WorkerConfig;
+import org.apache.kafka.connect.storage.MemoryOffsetBackingStore;
+import org.apache.kafka.connect.util.Callback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Offset store backed by a memory-mapped, append-only log.
+ * <p>
+ * Every {@link #set} appends one CRC-framed record holding the changed offsets, instead of rewriting
+ * the whole map like {@code FileOffsetBackingStore}. A background thread forces the mapping to disk
+ * every {@code hzp.offset.storage.flush.interval.ms}, covering all records appended meanwhile (group commit).
+ * With {@code hzp.offset.storage.sync=async} (the default) an offset flush completes once its record is
+ * in the mapping, which survives a process crash; with {@code group} it waits for the next fsync.
+ * <p>
+ * The log is compacted into a new file holding a single snapshot record once
+ * {@code hzp.offset.storage.compact.bytes} were appended after the last snapshot, once
+ * {@code hzp.offset.storage.compact.interval.ms} passed since it if anything was appended, and when it is
+ * full, doubling the size if the live offsets need it. This bounds the records a start replays: the log
+ * is scanned up to the first missing or corrupt record, the torn tail of an interrupted write, and compacted.
+ * <p>
+ * Record layout: {@code [int payload length][int crc32c][int entry count]{[int key length][key][int value length][value]}},
+ * a value length of -1 is a removed key.
+ */
+public class MmapOffsetBackingStore extends MemoryOffsetBackingStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MmapOffsetBackingStore.class);
+
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+    public static final int DEFAULT_FLUSH_INTERVAL_MS = 100;
+    public static final int DEFAULT_COMPACT_BYTES = 256 << 10;
+    public static final int DEFAULT_COMPACT_INTERVAL_MS = 10 * 60 * 1000;
+
+    private static final int MAGIC = 0x485A504F;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    public enum SyncMode {
+        ASYNC, GROUP;
+
+        public static SyncMode parse(String value) {
+            return value == null ? ASYNC : SyncMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private record Waiter(long sequence, CompletableFuture<Void> future, Callback<Void> callback) {
+    }
+
+    private final Object mapLock = new Object();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLong appendedSequence = new AtomicLong();
+    private final AtomicLong forcedSequence = new AtomicLong();
+
+    private Path path;
+    private int segmentBytes;
+    private int compactBytes;
+    private long compactIntervalMs;
+    private long flushIntervalMs;
+    private SyncMode syncMode;
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer mapped;
+    private int position;
+    // end of the snapshot record of the last compaction, the records after it are replayed on start
+    private int snapshotEnd;
+    private volatile long compactedNanos;
+    private ScheduledExecutorService flusher;
+
+    @Override
+    public void configure(WorkerConfig config) {
+        super.configure(config);
+        var originals = config.originals();
+        var filename = originals.get(Configs.OFFSET_STORAGE_FILE_FILENAME);
+        if (filename == null) {
+            throw new ConnectException(getClass().getSimpleName() + " requires '" + Configs.OFFSET_STORAGE_FILE_FILENAME + "'");
+        }
+        path = Paths.get(filename.toString());
+        segmentBytes = intValue(originals.get(Configs.OFFSET_STORAGE_SEGMENT_BYTES), DEFAULT_SEGMENT_BYTES);
+        compactBytes = intValue(originals.get(Configs.OFFSET_STORAGE_COMPACT_BYTES), DEFAULT_COMPACT_BYTES);
+        compactIntervalMs = intValue(originals.get(Configs.OFFSET_STORAGE_COMPACT_INTERVAL_MS), DEFAULT_COMPACT_INTERVAL_MS);
+        flushIntervalMs = intValue(originals.get(Configs.OFFSET_STORAGE_FLUSH_INTERVAL_MS), DEFAULT_FLUSH_INTERVAL_MS);
+        var sync = originals.get(Configs.OFFSET_STORAGE_SYNC);
+        syncMode = SyncMode.parse(sync == null ? null : sync.toString());
+    }
+
+    @Override
+    public synchronized void start() {
+        super.start();
+        try {
+            recover();
+            compact(segmentBytes);
+        } catch (IOException e) {
+            throw new ConnectException("Failed to open offset log " + path, e);
+        }
+        LOGGER.info("Loaded {} offsets from {}", data.size(), path);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "hzp-offset-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (compactIntervalMs > 0) {
+            flusher.scheduleWithFixedDelay(this::compactIfAged, compactIntervalMs, compactIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        super.stop();
+        if (channel != null) {
+            flush();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close offset log {}", path, e);
+            }
+            channel = null;
+            mapped = null;
+        }
+    }
+
+    @Override
+    public Future<Void> set(Map<ByteBuffer, ByteBuffer> values, Callback<Void> callback) {
+        var result = new CompletableFuture<Void>();
+        executor.execute(() -> {
+            try {
+                for (var entry : values.entrySet()) {
+                    if (entry.getValue() == null) {
+                        data.remove(entry.getKey());
+                    } else {
+                        data.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                var sequence = append(values);
+                if (syncMode == SyncMode.ASYNC || sequence <= forcedSequence.get()) {
+                    complete(result, callback, null);
+                } else {
+                    waiters.add(new Waiter(sequence, result, callback));
+                }
+            } catch (Throwable e) {
+                complete(result, callback, e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Current size of the mapped log in bytes.
+     */
+    public int capacity() {
+        var current = mapped;
+        return current == null ? 0 : current.capacity();
+    }
+
+    /**
+     * Bytes of the log in use, header included, i.e. what a start replays.
+     */
+    int length() {
+        return position;
+    }
+
+    private long append(Map<ByteBuffer, ByteBuffer> values) throws IOException {
+        var payloadSize = payloadSize(values);
+        if (position + RECORD_HEADER_SIZE + payloadSize > mapped.capacity()) {
+            var snapshotSize = HEADER_SIZE + RECORD_HEADER_SIZE + payloadSize(data);
+            var capacity = segmentBytes;
+            while (capacity < 2L * snapshotSize) {
+                capacity <<= 1;
+            }
+            // data already holds the new values, so the snapshot covers this record as well
+            compact(capacity);
+            return appendedSequence.get();
+        }
+        writeRecord(mapped, position, values, payloadSize);
+        position += RECORD_HEADER_SIZE + payloadSize;
+        var sequence = appendedSequence.incrementAndGet();
+        if (compactBytes > 0 && position - snapshotEnd >= compactBytes) {
+            compact(mapped.capacity());
+        }
+        return sequence;
+    }
+
+    /**
+     * Compacts the log on the executor, which owns it, if records were appended since the last compaction
+     * and it is older than {@code hzp.offset.storage.compact.interval.ms}.
+     */
+    private void compactIfAged() {
+        try {
+            executor.execute(() -> {
+                if (channel == null || position == snapshotEnd
+                        || System.nanoTime() - compactedNanos < TimeUnit.MILLISECONDS.toNanos(compactIntervalMs)) {
+                    return;
+                }
+                try {
+                    compact(mapped.capacity());
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to compact offset log {}", path, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Skipping compaction of offset log {}, the store is stopping", path);
+        }
+    }
+
+    private void recover() throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return;
+        }
+        try (var readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var log = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            if (log.getInt(0) != MAGIC || log.getInt(4) != VERSION) {
+                throw new ConnectException(path + " is not a horizpipes offset log");
+            }
+            var offset = HEADER_SIZE;
+            var records = 0;
+            while (offset + RECORD_HEADER_SIZE <= log.capacity()) {
+                var payloadSize = log.getInt(offset);
+                if (payloadSize <= 0 || offset + RECORD_HEADER_SIZE + payloadSize > log.capacity()) {
+                    break;
+                }
+                var payload = log.slice(offset + RECORD_HEADER_SIZE, payloadSize);
+                if (crc(payload) != log.getInt(offset + 4)) {
+                    LOGGER.warn("Dropping corrupt offset record at {} of {}", offset, path);
+                    break;
+                }
+                readEntries(payload);
+                offset += RECORD_HEADER_SIZE + payloadSize;
+                records++;
+            }
+            LOGGER.debug("Recovered {} offset records ({} bytes) from {}", records, offset, path);
+        }
+    }
+
+    /**
+     * Rewrites the live offsets into a new log of {@code capacity} bytes, which replaces the current one.
+     */
+    private void compact(int capacity) throws IOException {
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        var compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (var compactChannel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var log = compactChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            log.putInt(0, MAGIC);
+            log.putInt(4, VERSION);
+            var end = HEADER_SIZE;
+            if (!data.isEmpty()) {
+                var payloadSize = payloadSize(data);
+                writeRecord(log, end, data, payloadSize);
+                end += RECORD_HEADER_SIZE + payloadSize;
+            }
+            log.force();
+            position = end;
+            snapshotEnd = end;
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (mapLock) {
+            if (channel != null) {
+                channel.close();
+            }
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        forcedSequence.accumulateAndGet(appendedSequence.get(), Math::max);
+        compactedNanos = System.nanoTime();
+        LOGGER.debug("Compacted {} offsets into {} ({} of {} bytes)", data.size(), path, position, capacity);
+    }
+
+    private void flush() {
+        var target = appendedSequence.get();
+        try {
+            if (target > forcedSequence.get()) {
+                synchronized (mapLock) {
+                    var current = mapped;
+                    if (current != null) {
+                        current.force();
+                    }
+                }
+                forcedSequence.accumulateAndGet(target, Math::max);
+            }
+            completeWaiters(forcedSequence.get(), null);
+        } catch (Throwable e) {
+            LOGGER.error("Failed to sync offset log {}", path, e);
+            completeWaiters(Long.MAX_VALUE, e);
+        }
+    }
+
+    private void completeWaiters(long forced, Throwable error) {
+        Waiter waiter;
+        while ((waiter = waiters.peek()) != null && waiter.sequence() <= forced) {
+            if (waiters.remove(waiter)) {
+                complete(waiter.future(), waiter.callback(), error);
+            }
+        }
+    }
+
+    private static void complete(CompletableFuture<Void> future, Callback<Void> callback, Throwable error) {
+        if (callback != null) {
+            callback.onCompletion(error, null);
+        }
+        if (error == null) {
+            future.complete(null);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private static int payloadSize(Map<ByteBuffer, ByteBuffer> values) {
+        var size = 4;
+        for (var entry : values.entrySet()) {
+            size += 8 + entry.getKey().remaining() + (entry.getValue() == null ? 0 : entry.getValue().remaining());
+        }
+        return size;
+    }
+
+    private static void writeRecord(ByteBuffer log, int offset, Map<ByteBuffer, ByteBuffer> values, int payloadSize) {
+        var payload = log.slice(offset + RECORD_HEADER_SIZE, payloadSize);
+        payload.putInt(values.size());
+        for (var entry : values.entrySet()) {
+            payload.putInt(entry.getKey().remaining());
+            payload.put(entry.getKey().duplicate());
+            if (entry.getValue() == null) {
+                payload.putInt(-1);
+            } else {
+                payload.putInt(entry.getValue().remaining());
+                payload.put(entry.getValue().duplicate());
+            }
+        }
+        log.putInt(offset + 4, crc(payload.flip()));
+        // the length goes last, until then a torn record reads as the end of the log
+        log.putInt(offset, payloadSize);
+    }
+
+    private void readEntries(ByteBuffer payload) {
+        var count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            var key = ByteBuffer.wrap(readBytes(payload, payload.getInt()));
+            var valueSize = payload.getInt();
+            if (valueSize < 0) {
+                data.remove(key);
+            } else {
+                data.put(key, ByteBuffer.wrap(readBytes(payload, valueSize)));
+            }
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer, int size) {
+        var bytes = new byte[size];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int crc(ByteBuffer payload) {
+        var crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static int intValue(Object value, int defaultValue) {
+        return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+    }
+}
@@ -0,0 +1,80 @@
+package com.grafysi.horizpipes.utils.debezium.synthetic;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+/**
+ * The source and envelope schemas of the Debezium Postgres connector, shared by the synthetic source,
+ * the benchmark fixtures and the tests that need change records shaped like the connector's.
+ */
+public final class PostgresSchemas {
+
+    public static final String CONNECTOR_VERSION = "3.0.0.Alpha1";
+
+    public static final Schema SNAPSHOT_SCHEMA = SchemaBuilder.string().optional().name("io.debezium.data.Enum").version(1)
+            .parameter("allowed", "true,first,first_in_data_collection,last_in_data_collection,last,false,incremental")
+            .defaultValue("false").build();
+
+    public static final Schema SOURCE_SCHEMA = SchemaBuilder.struct()
+            .name("io.debezium.connector.postgresql.Source")
+            .field("version", Schema.STRING_SCHEMA)
+            .field("connector", Schema.STRING_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .field("ts_ms", Schema.INT64_SCHEMA)
+            .field("snapshot", SNAPSHOT_SCHEMA)
+            .field("db", Schema.STRING_SCHEMA)
+            .field("sequence", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("schema", Schema.STRING_SCHEMA)
+            .field("table", Schema.STRING_SCHEMA)
+            .field("txId", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("lsn", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("xmin", Schema.OPTIONAL_INT64_SCHEMA)
+            .build();
+
+    private PostgresSchemas() {
+    }
+
+    /**
+     * Returns the key schema of a table of {@code topic} with a single integer primary key column.
+     */
+    public static Schema keySchema(String topic, String field) {
+        return SchemaBuilder.struct()
+                .name(topic + ".Key")
+                .field(field, Schema.INT32_SCHEMA)
+                .build();
+    }
+
+    /**
+     * Returns the envelope schema of the change events of {@code topic}, i.e. {@code prefix.schema.table}.
+     */
+    public static Schema envelopeSchema(String topic, Schema rowSchema) {
+        return SchemaBuilder.struct()
+                .name(topic + ".Envelope")
+                .version(2)
+                .field("before", rowSchema)
+                .field("after", rowSchema)
+                .field("source", SOURCE_SCHEMA)
+                .field("op", Schema.STRING_SCHEMA)
+                .field("ts_ms", Schema.OPTIONAL_INT64_SCHEMA)
+                .field("ts_us", Schema.OPTIONAL_INT64_SCHEMA)
+                .field("ts_ns", Schema.OPTIONAL_INT64_SCHEMA)
+                .build();
+    }
+
+    /**
+     * Returns a source block of a streamed change with the required fields set, callers add the
+     * position, e.g. {@code txId} and {@code lsn}, or override the others.
+     */
+    public static Struct source(String topicPrefix, String db, String schema, String table, long tsMs) {
+        return new Struct(SOURCE_SCHEMA)
+                .put("version", CONNECTOR_VERSION)
+                .put("connector", "postgresql")
+                .put("name", topicPrefix)
+                .put("ts_ms", tsMs)
+                .put("snapshot", "false")
+                .put("db", db)
+                .put("schema", schema)
+                .put("table", table);
+    }
+}
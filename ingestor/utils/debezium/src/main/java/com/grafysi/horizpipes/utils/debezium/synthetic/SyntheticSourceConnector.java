@@ -0,0 +1,106 @@
+package com.grafysi.horizpipes.utils.debezium.synthetic;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.connector.Task;
+import org.apache.kafka.connect.source.SourceConnector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source connector generating Debezium-shaped Postgres change events ({@code before}/{@code after}/{@code source}/{@code op})
+ * for MIMIC-like tables, a stand-in for {@code PostgresConnector} in load tests. Set it as {@code connector.class} of a
+ * {@code JsonConnector} or {@code AvroConnector} to measure the whole pipeline without a database.
+ * <p>
+ * Tables are split across {@code tasks.max} tasks. Each task emits {@code synthetic.op.mix} weighted inserts, updates and
+ * deletes over a growing key space, padding rows with {@code synthetic.row.width} extra bytes, at up to
+ * {@code synthetic.rate} records per second (0 for as fast as possible).
+ */
+public class SyntheticSourceConnector extends SourceConnector {
+
+    public static final String TOPIC_PREFIX = "topic.prefix";
+    public static final String TABLES = "synthetic.tables";
+    public static final String SCHEMA = "synthetic.schema";
+    public static final String OP_MIX = "synthetic.op.mix";
+    public static final String ROW_WIDTH = "synthetic.row.width";
+    public static final String RATE = "synthetic.rate";
+    public static final String BATCH_SIZE = "synthetic.batch.size";
+    public static final String MAX_RECORDS = "synthetic.max.records";
+    public static final String INITIAL_ROWS = "synthetic.initial.rows";
+    public static final String TOMBSTONES_ON_DELETE = "tombstones.on.delete";
+    public static final String SEED = "synthetic.seed";
+
+    static final String TASK_ID = "synthetic.task.id";
+
+    static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(TOPIC_PREFIX, ConfigDef.Type.STRING, ConfigDef.NO_DEFAULT_VALUE, new ConfigDef.NonEmptyString(),
+                    ConfigDef.Importance.HIGH, "Prefix of the topic names, like the Postgres connector's")
+            .define(TABLES, ConfigDef.Type.LIST, "patients,admissions",
+                    ConfigDef.Importance.HIGH, "Tables to generate, of patients and admissions")
+            .define(SCHEMA, ConfigDef.Type.STRING, "mimiciv_hosp",
+                    ConfigDef.Importance.LOW, "Database schema the tables appear in")
+            .define(OP_MIX, ConfigDef.Type.STRING, "c:80,u:15,d:5",
+                    ConfigDef.Importance.MEDIUM, "Relative weights of inserts (c), updates (u) and deletes (d)")
+            .define(ROW_WIDTH, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.MEDIUM, "Bytes of padding added to every row as an extra string column")
+            .define(RATE, ConfigDef.Type.LONG, 0L, ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.MEDIUM, "Target records per second of each task, 0 for no limit")
+            .define(BATCH_SIZE, ConfigDef.Type.INT, 1024, ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.LOW, "Maximum records returned by one poll")
+            .define(MAX_RECORDS, ConfigDef.Type.LONG, -1L,
+                    ConfigDef.Importance.LOW, "Records each task emits before it goes idle, -1 for no limit")
+            .define(INITIAL_ROWS, ConfigDef.Type.INT, 0, ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW, "Rows every table is assumed to hold already, so updates and deletes start at once")
+            .define(TOMBSTONES_ON_DELETE, ConfigDef.Type.BOOLEAN, true,
+                    ConfigDef.Importance.LOW, "Whether a delete is followed by a tombstone, like the Postgres connector's option")
+            .define(SEED, ConfigDef.Type.LONG, 42L,
+                    ConfigDef.Importance.LOW, "Seed of the operation sequence");
+
+    private Map<String, String> props;
+
+    @Override
+    public String version() {
+        return "1.0";
+    }
+
+    @Override
+    public void start(Map<String, String> props) {
+        this.props = props;
+        // fail on start rather than in the tasks
+        new SyntheticSourceTask.Settings(props);
+    }
+
+    @Override
+    public Class<? extends Task> taskClass() {
+        return SyntheticSourceTask.class;
+    }
+
+    @Override
+    public List<Map<String, String>> taskConfigs(int maxTasks) {
+        var tables = new SyntheticSourceTask.Settings(props).tables();
+        var taskCount = Math.max(1, Math.min(maxTasks, tables.size()));
+        var configs = new ArrayList<Map<String, String>>(taskCount);
+        for (int task = 0; task < taskCount; task++) {
+            var assigned = new ArrayList<String>();
+            for (int i = task; i < tables.size(); i += taskCount) {
+                assigned.add(tables.get(i));
+            }
+            var config = new HashMap<>(props);
+            config.put(TABLES, String.join(",", assigned));
+            config.put(TASK_ID, String.valueOf(task));
+            configs.add(config);
+        }
+        return configs;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+}
@@ -0,0 +1,294 @@
+package com.grafysi.horizpipes.utils.debezium.synthetic;
+
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the change events of the tables assigned to it, see {@link SyntheticSourceConnector}.
+ * <p>
+ * Inserts take the next id, updates pick a live id at random and deletes remove the oldest live id, so updates
+ * and deletes always refer to rows inserted before. Updates and deletes carry the full row as it was before the
+ * change, as with {@code REPLICA IDENTITY FULL}; the task keeps the version of every updated live row for that.
+ * Every record is its own transaction and advances the LSN by its approximate size. Offsets are kept per source
+ * partition of the tables a task generates, the LSN, the transaction id and the live id range of every table are
+ * resumed from them, so a restarted task neither inserts ids again nor touches deleted ones. The row versions are
+ * not kept in the offset, the first update or delete of a row updated before a restart carries version 0 as its
+ * before image.
+ */
+public class SyntheticSourceTask extends SourceTask {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticSourceTask.class);
+
+    private static final long IDLE_POLL_MS = 100;
+    private static final long MAX_BATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long ROW_OVERHEAD_BYTES = 64;
+
+    enum Op {
+        CREATE("c"), UPDATE("u"), DELETE("d");
+
+        final String code;
+
+        Op(String code) {
+            this.code = code;
+        }
+    }
+
+    record Settings(String topicPrefix, List<String> tables, String schema, int[] opWeights, int rowWidth, long rate,
+                    int batchSize, long maxRecords, int initialRows, boolean tombstones, long seed) {
+
+        Settings(Map<String, String> props) {
+            this(new AbstractConfig(SyntheticSourceConnector.CONFIG_DEF, props));
+        }
+
+        private Settings(AbstractConfig config) {
+            this(config.getString(SyntheticSourceConnector.TOPIC_PREFIX),
+                    config.getList(SyntheticSourceConnector.TABLES),
+                    config.getString(SyntheticSourceConnector.SCHEMA),
+                    opWeights(config.getString(SyntheticSourceConnector.OP_MIX)),
+                    config.getInt(SyntheticSourceConnector.ROW_WIDTH),
+                    config.getLong(SyntheticSourceConnector.RATE),
+                    config.getInt(SyntheticSourceConnector.BATCH_SIZE),
+                    config.getLong(SyntheticSourceConnector.MAX_RECORDS),
+                    config.getInt(SyntheticSourceConnector.INITIAL_ROWS),
+                    config.getBoolean(SyntheticSourceConnector.TOMBSTONES_ON_DELETE),
+                    config.getLong(SyntheticSourceConnector.SEED));
+            if (tables.isEmpty()) {
+                throw new IllegalArgumentException(SyntheticSourceConnector.TABLES + " must not be empty");
+            }
+        }
+
+        /**
+         * Parses {@code c:80,u:15,d:5} into weights indexed by {@link Op} ordinal.
+         */
+        static int[] opWeights(String mix) {
+            var weights = new int[Op.values().length];
+            for (var part : mix.split(",")) {
+                var pair = part.trim().split(":");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Invalid " + SyntheticSourceConnector.OP_MIX + ": " + mix);
+                }
+                var op = switch (pair[0].trim()) {
+                    case "c" -> Op.CREATE;
+                    case "u" -> Op.UPDATE;
+                    case "d" -> Op.DELETE;
+                    default -> throw new IllegalArgumentException("Unknown operation in " + SyntheticSourceConnector.OP_MIX + ": " + pair[0]);
+                };
+                var weight = Integer.parseInt(pair[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative weight in " + SyntheticSourceConnector.OP_MIX + ": " + mix);
+                }
+                weights[op.ordinal()] = weight;
+            }
+            if (weights[Op.CREATE.ordinal()] == 0) {
+                throw new IllegalArgumentException(SyntheticSourceConnector.OP_MIX + " needs inserts: " + mix);
+            }
+            return weights;
+        }
+    }
+
+    private static final class TableState {
+
+        final SyntheticTable table;
+        // versions of the live rows updated since their insert, the others are at version 0
+        final Map<Long, Integer> versions = new HashMap<>();
+        long lowId;
+        long nextId;
+
+        TableState(SyntheticTable table, long initialRows) {
+            this.table = table;
+            this.nextId = initialRows;
+        }
+
+        String lowIdKey() {
+            return table.name + ".lowId";
+        }
+
+        String nextIdKey() {
+            return table.name + ".nextId";
+        }
+
+        void restore(Map<String, Object> offset) {
+            if (offset.get(nextIdKey()) instanceof Number next && offset.get(lowIdKey()) instanceof Number low) {
+                nextId = next.longValue();
+                lowId = low.longValue();
+            }
+        }
+    }
+
+    private Settings settings;
+    private Map<String, String> partition;
+    private List<TableState> tables;
+    private SplittableRandom random;
+    private int totalWeight;
+
+    private long lsn;
+    private long txId;
+    private long emitted;
+    private long startNanos;
+    private int nextTable;
+    private volatile boolean stopped;
+
+    @Override
+    public String version() {
+        return "1.0";
+    }
+
+    @Override
+    public void start(Map<String, String> props) {
+        settings = new Settings(props);
+        // tasks generate disjoint tables, each resumes from the offsets of its own slice
+        partition = Map.of("server", settings.topicPrefix(), "tables", String.join(",", settings.tables()));
+        tables = new ArrayList<>();
+        for (var name : settings.tables()) {
+            var table = SyntheticTable.create(name.trim(), settings.topicPrefix(), settings.schema(), settings.rowWidth());
+            tables.add(new TableState(table, settings.initialRows()));
+        }
+        var taskId = Long.parseLong(props.getOrDefault(SyntheticSourceConnector.TASK_ID, "0"));
+        random = new SplittableRandom(settings.seed() + taskId);
+        for (var weight : settings.opWeights()) {
+            totalWeight += weight;
+        }
+
+        var offset = context == null ? null : context.offsetStorageReader().offset(partition);
+        if (offset != null) {
+            lsn = ((Number) offset.get("lsn")).longValue();
+            txId = ((Number) offset.get("txId")).longValue();
+            tables.forEach(state -> state.restore(offset));
+        } else {
+            lsn = 0x1_0000_0000L * (taskId + 1);
+        }
+        startNanos = System.nanoTime();
+        LOGGER.info("Generating {} from lsn {} at {} records/s", settings.tables(), lsn,
+                settings.rate() > 0 ? settings.rate() : "max");
+    }
+
+    @Override
+    public List<SourceRecord> poll() throws InterruptedException {
+        if (stopped) {
+            return null;
+        }
+        var remaining = settings.maxRecords() < 0 ? Long.MAX_VALUE : settings.maxRecords() - emitted;
+        if (remaining <= 0) {
+            Thread.sleep(IDLE_POLL_MS);
+            return null;
+        }
+
+        var count = (int) Math.min(settings.batchSize(), remaining);
+        if (settings.rate() > 0) {
+            // small batches keep the pace smooth, 10 ms worth of records at most
+            count = (int) Math.min(count, Math.max(1, settings.rate() * MAX_BATCH_NANOS / 1_000_000_000L));
+            var due = startNanos + emitted * 1_000_000_000L / settings.rate();
+            var wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(wait, TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MS)));
+                if (due - System.nanoTime() > 0) {
+                    return null;
+                }
+            }
+        }
+
+        var records = new ArrayList<SourceRecord>(count + count / 8);
+        for (int i = 0; i < count; i++) {
+            var state = tables.get(nextTable);
+            nextTable = (nextTable + 1) % tables.size();
+            generate(state, records);
+        }
+        emitted += count;
+        return records;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Returns the number of change events generated, tombstones excluded.
+     */
+    long emitted() {
+        return emitted;
+    }
+
+    private void generate(TableState state, List<SourceRecord> records) {
+        var op = pick();
+        if (state.nextId == state.lowId) {
+            op = Op.CREATE;
+        }
+        var table = state.table;
+        long id;
+        Struct before = null;
+        Struct after = null;
+        switch (op) {
+            case CREATE -> {
+                id = state.nextId++;
+                after = table.row(id, 0);
+            }
+            case UPDATE -> {
+                id = state.lowId + random.nextLong(state.nextId - state.lowId);
+                var version = state.versions.getOrDefault(id, 0);
+                var nextVersion = 1 + version % 3;
+                before = table.row(id, version);
+                after = table.row(id, nextVersion);
+                state.versions.put(id, nextVersion);
+            }
+            default -> {
+                id = state.lowId++;
+                var version = state.versions.remove(id);
+                before = table.row(id, version != null ? version : 0);
+            }
+        }
+
+        var nowMillis = System.currentTimeMillis();
+        lsn += ROW_OVERHEAD_BYTES + settings.rowWidth();
+        txId++;
+
+        var source = PostgresSchemas.source(settings.topicPrefix(), "synthetic", settings.schema(), table.name, nowMillis)
+                .put("txId", txId)
+                .put("lsn", lsn);
+        var envelope = new Struct(table.envelopeSchema)
+                .put("before", before)
+                .put("after", after)
+                .put("source", source)
+                .put("op", op.code)
+                .put("ts_ms", nowMillis)
+                .put("ts_us", nowMillis * 1_000)
+                .put("ts_ns", nowMillis * 1_000_000);
+
+        var offset = new HashMap<String, Object>();
+        offset.put("lsn", lsn);
+        offset.put("txId", txId);
+        offset.put("ts_usec", nowMillis * 1_000);
+        // the offset replaces the previous one of the partition, it carries the id range of every table
+        for (var tableState : tables) {
+            offset.put(tableState.lowIdKey(), tableState.lowId);
+            offset.put(tableState.nextIdKey(), tableState.nextId);
+        }
+        var key = table.key(id);
+        records.add(new SourceRecord(partition, offset, table.topic, null, table.keySchema, key, table.envelopeSchema, envelope));
+        if (op == Op.DELETE && settings.tombstones()) {
+            records.add(new SourceRecord(partition, offset, table.topic, null, table.keySchema, key, null, null));
+        }
+    }
+
+    private Op pick() {
+        var value = random.nextInt(totalWeight);
+        for (var op : Op.values()) {
+            value -= settings.opWeights()[op.ordinal()];
+            if (value < 0) {
+                return op;
+            }
+        }
+        return Op.CREATE;
+    }
+}
@@ -0,0 +1,188 @@
+package com.grafysi.horizpipes.utils.debezium.synthetic;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+import java.util.Arrays;
+
+/**
+ * Row shapes modelled on the MIMIC-IV {@code patients} and {@code admissions} tables, with the key,
+ * row and envelope schemas the Postgres connector would emit for them. A row is a pure function of its
+ * id and version, so updates change some columns and any row can be regenerated as a before image.
+ */
+abstract class SyntheticTable {
+
+    static final String PADDING_FIELD = "padding";
+
+    private static final Schema OPTIONAL_DATE_SCHEMA = SchemaBuilder.int32().optional().name("io.debezium.time.Date").version(1).build();
+    private static final Schema MICRO_TIMESTAMP_SCHEMA = SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").version(1).build();
+    private static final Schema OPTIONAL_MICRO_TIMESTAMP_SCHEMA = SchemaBuilder.int64().optional().name("io.debezium.time.MicroTimestamp").version(1).build();
+
+    private static final String[] GENDERS = {"F", "M"};
+    private static final String[] YEAR_GROUPS = {"2008 - 2010", "2011 - 2013", "2014 - 2016", "2017 - 2019"};
+    private static final String[] ADMISSION_TYPES = {"URGENT", "EW EMER.", "ELECTIVE", "OBSERVATION ADMIT", "SURGICAL SAME DAY ADMISSION"};
+    private static final String[] LOCATIONS = {"EMERGENCY ROOM", "PHYSICIAN REFERRAL", "TRANSFER FROM HOSPITAL", "WALK-IN/SELF REFERRAL"};
+    private static final String[] DISCHARGE_LOCATIONS = {"HOME", "HOME HEALTH CARE", "SKILLED NURSING FACILITY", "REHAB"};
+    private static final String[] INSURANCES = {"Medicare", "Medicaid", "Other"};
+    private static final String[] RACES = {"WHITE", "BLACK/AFRICAN AMERICAN", "HISPANIC/LATINO - PUERTO RICAN", "ASIAN", "OTHER"};
+
+    final String name;
+    final String topic;
+    final Schema keySchema;
+    final Schema rowSchema;
+    final Schema envelopeSchema;
+    private final String padding;
+
+    SyntheticTable(String name, String topicPrefix, String schemaName, int rowWidth) {
+        this.name = name;
+        this.topic = topicPrefix + "." + schemaName + "." + name;
+
+        this.keySchema = PostgresSchemas.keySchema(topic, keyField());
+
+        var row = SchemaBuilder.struct().name(topic + ".Value").optional();
+        rowFields(row);
+        if (rowWidth > 0) {
+            row.field(PADDING_FIELD, Schema.OPTIONAL_STRING_SCHEMA);
+        }
+        this.rowSchema = row.build();
+
+        this.envelopeSchema = PostgresSchemas.envelopeSchema(topic, rowSchema);
+
+        if (rowWidth > 0) {
+            var chars = new char[rowWidth];
+            Arrays.fill(chars, 'x');
+            this.padding = new String(chars);
+        } else {
+            this.padding = null;
+        }
+    }
+
+    static SyntheticTable create(String name, String topicPrefix, String schemaName, int rowWidth) {
+        return switch (name) {
+            case "patients" -> new Patients(topicPrefix, schemaName, rowWidth);
+            case "admissions" -> new Admissions(topicPrefix, schemaName, rowWidth);
+            default -> throw new IllegalArgumentException("Unknown synthetic table: " + name);
+        };
+    }
+
+    Struct key(long id) {
+        var key = new Struct(keySchema);
+        fillKey(key, id);
+        return key;
+    }
+
+    Struct row(long id, int version) {
+        var row = new Struct(rowSchema);
+        fillRow(row, id, version);
+        if (padding != null) {
+            row.put(PADDING_FIELD, padding);
+        }
+        return row;
+    }
+
+    protected abstract String keyField();
+
+    protected abstract void rowFields(SchemaBuilder row);
+
+    protected abstract void fillKey(Struct key, long id);
+
+    protected abstract void fillRow(Struct row, long id, int version);
+
+    private static final class Patients extends SyntheticTable {
+
+        Patients(String topicPrefix, String schemaName, int rowWidth) {
+            super("patients", topicPrefix, schemaName, rowWidth);
+        }
+
+        @Override
+        protected String keyField() {
+            return "subject_id";
+        }
+
+        @Override
+        protected void rowFields(SchemaBuilder row) {
+            row.field("subject_id", Schema.INT32_SCHEMA)
+                    .field("gender", Schema.STRING_SCHEMA)
+                    .field("anchor_age", Schema.INT16_SCHEMA)
+                    .field("anchor_year", Schema.INT16_SCHEMA)
+                    .field("anchor_year_group", Schema.STRING_SCHEMA)
+                    .field("dod", OPTIONAL_DATE_SCHEMA);
+        }
+
+        @Override
+        protected void fillKey(Struct key, long id) {
+            key.put("subject_id", 10_000_000 + (int) id);
+        }
+
+        @Override
+        protected void fillRow(Struct row, long id, int version) {
+            var n = (int) id;
+            row.put("subject_id", 10_000_000 + n);
+            row.put("gender", GENDERS[n % GENDERS.length]);
+            row.put("anchor_age", (short) (18 + (n + version) % 73));
+            row.put("anchor_year", (short) (2110 + n % 80));
+            row.put("anchor_year_group", YEAR_GROUPS[n % YEAR_GROUPS.length]);
+            row.put("dod", version > 0 && n % 7 == 0 ? 60_000 + n % 3_650 : null);
+        }
+    }
+
+    private static final class Admissions extends SyntheticTable {
+
+        Admissions(String topicPrefix, String schemaName, int rowWidth) {
+            super("admissions", topicPrefix, schemaName, rowWidth);
+        }
+
+        @Override
+        protected String keyField() {
+            return "hadm_id";
+        }
+
+        @Override
+        protected void rowFields(SchemaBuilder row) {
+            row.field("subject_id", Schema.INT32_SCHEMA)
+                    .field("hadm_id", Schema.INT32_SCHEMA)
+                    .field("admittime", MICRO_TIMESTAMP_SCHEMA)
+                    .field("dischtime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("deathtime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("admission_type", Schema.STRING_SCHEMA)
+                    .field("admit_provider_id", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("admission_location", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("discharge_location", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("insurance", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("language", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("marital_status", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("race", Schema.OPTIONAL_STRING_SCHEMA)
+                    .field("edregtime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("edouttime", OPTIONAL_MICRO_TIMESTAMP_SCHEMA)
+                    .field("hospital_expire_flag", Schema.OPTIONAL_INT16_SCHEMA);
+        }
+
+        @Override
+        protected void fillKey(Struct key, long id) {
+            key.put("hadm_id", 20_000_000 + (int) id);
+        }
+
+        @Override
+        protected void fillRow(Struct row, long id, int version) {
+            var n = (int) id;
+            var admittime = 4_102_444_800_000_000L + n * 3_600_000_000L;
+            row.put("subject_id", 10_000_000 + n / 3);
+            row.put("hadm_id", 20_000_000 + n);
+            row.put("admittime", admittime);
+            row.put("dischtime", version > 0 ? admittime + (1 + n % 14) * 86_400_000_000L : null);
+            row.put("deathtime", version > 1 && n % 17 == 0 ? admittime + 43_200_000_000L : null);
+            row.put("admission_type", ADMISSION_TYPES[n % ADMISSION_TYPES.length]);
+            row.put("admit_provider_id", "P" + (10_000 + n % 5_000));
+            row.put("admission_location", LOCATIONS[n % LOCATIONS.length]);
+            row.put("discharge_location", version > 0 ? DISCHARGE_LOCATIONS[n % DISCHARGE_LOCATIONS.length] : null);
+            row.put("insurance", INSURANCES[n % INSURANCES.length]);
+            row.put("language", "ENGLISH");
+            row.put("marital_status", n % 2 == 0 ? "MARRIED" : "SINGLE");
+            row.put("race", RACES[n % RACES.length]);
+            row.put("edregtime", admittime - 7_200_000_000L);
+            row.put("edouttime", admittime - 600_000_000L);
+            row.put("hospital_expire_flag", (short) (version > 1 && n % 17 == 0 ? 1 : 0));
+        }
+    }
+}
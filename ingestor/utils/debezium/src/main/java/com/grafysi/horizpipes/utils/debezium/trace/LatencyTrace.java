@@ -0,0 +1,17 @@
+package com.grafysi.horizpipes.utils.debezium.trace;
+
+/**
+ * Trace carried by a sampled {@code HzpChangeEvent} from conversion to the consumer.
+ *
+ * @param sourceMillis   the source {@code ts_ms}, -1 if the record has none
+ * @param convertedNanos {@link System#nanoTime()} at the end of conversion, or of the SMT chain for lazy conversion
+ */
+public record LatencyTrace(TableLatencies latencies, long sourceMillis, long convertedNanos) {
+
+    /**
+     * Records the conversion of a lazily converted event, which ends after the trace is attached.
+     */
+    public void lazyConverted(long nanos) {
+        latencies.record(Stage.CONVERT, nanos);
+    }
+}
@@ -0,0 +1,265 @@
+package com.grafysi.horizpipes.utils.debezium.trace;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.pipeline.BatchConsumer;
+import io.debezium.engine.ChangeEvent;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Per-connector latency tracing with {@code hzp.trace.enabled}. Sampled records are stamped by {@link TracePoll},
+ * at the end of the SMT chain and of conversion in {@code HzpConverterBuilder}, and when the consumer receives
+ * them. The time spent in every {@link Stage} goes into per-table histograms, which can be logged with
+ * {@link #dump()} or exposed in the Prometheus text format with {@link #scrape()}. Records that are not sampled
+ * only pay for a header lookup.
+ * <p>
+ * The engine offers no hook at the poll itself, so the poll stamp is taken by {@link TracePoll} as the first
+ * SMT. The wait of a polled batch for a processing thread therefore counts as {@link Stage#SOURCE}, not as
+ * {@link Stage#TRANSFORM}. With lazy conversion the key and value are converted after this function returns,
+ * the event records {@link Stage#CONVERT} itself when both are materialized, and {@link Stage#HANDOFF} is
+ * measured from the end of the SMT chain, so it includes a conversion done before the consumer receives it.
+ */
+public final class LatencyTracer {
+
+    /**
+     * Header carrying the poll time of a sampled record between {@link TracePoll} and conversion.
+     */
+    public static final String POLL_HEADER = "__hzp_trace_poll";
+
+    static final String TRANSFORM_NAME = "hzptrace";
+
+    private static final String METRIC = "hzp_stage_latency_seconds";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final Map<String, LatencyTracer> TRACERS = new ConcurrentHashMap<>();
+
+    private final String connector;
+
+    private final Map<String, TableLatencies> tables = new ConcurrentHashMap<>();
+
+    private LatencyTracer(String connector) {
+        this.connector = connector;
+    }
+
+    public static boolean enabled(Properties props) {
+        return Boolean.parseBoolean(props.getProperty(Configs.TRACE_ENABLED, "false"));
+    }
+
+    /**
+     * Returns the tracer of the connector named {@code name}, created on first use.
+     */
+    public static LatencyTracer forConnector(String name) {
+        return TRACERS.computeIfAbsent(name != null ? name : "", LatencyTracer::new);
+    }
+
+    public static Collection<LatencyTracer> tracers() {
+        return Collections.unmodifiableCollection(TRACERS.values());
+    }
+
+    /**
+     * Copies {@code props} with {@link TracePoll} prepended to the transforms if tracing is enabled,
+     * returns {@code props} itself otherwise.
+     */
+    public static Properties engineProperties(Properties props) {
+        var transforms = props.getProperty("transforms", "").trim();
+        if (!enabled(props) || transforms.equals(TRANSFORM_NAME) || transforms.startsWith(TRANSFORM_NAME + ",")) {
+            return props;
+        }
+        var engineProps = new Properties();
+        engineProps.putAll(props);
+        engineProps.setProperty("transforms", transforms.isEmpty() ? TRANSFORM_NAME : TRANSFORM_NAME + "," + transforms);
+        engineProps.setProperty("transforms." + TRANSFORM_NAME + ".type", TracePoll.class.getName());
+        engineProps.setProperty("transforms." + TRANSFORM_NAME + "." + TracePoll.SAMPLE_RATE,
+                props.getProperty(Configs.TRACE_SAMPLE_RATE, "1"));
+        return engineProps;
+    }
+
+    /**
+     * Wraps {@code consumer} to record the handoff of traced events if tracing is enabled.
+     */
+    public static <K, V> Consumer<ChangeEvent<K, V>> tracing(Properties props, Consumer<ChangeEvent<K, V>> consumer) {
+        if (consumer == null || !enabled(props)) {
+            return consumer;
+        }
+        var tracer = forConnector(props.getProperty(Configs.CONNECTOR_NAME));
+        return event -> {
+            tracer.handedOff(event, System.nanoTime(), System.currentTimeMillis());
+            consumer.accept(event);
+        };
+    }
+
+    /**
+     * Wraps {@code consumer} to record the handoff of traced events if tracing is enabled.
+     */
+    public static <K, V> BatchConsumer<K, V> tracing(Properties props, BatchConsumer<K, V> consumer) {
+        if (consumer == null || !enabled(props)) {
+            return consumer;
+        }
+        var tracer = forConnector(props.getProperty(Configs.CONNECTOR_NAME));
+        return (records, committer) -> {
+            var nanos = System.nanoTime();
+            var millis = System.currentTimeMillis();
+            for (var event : records) {
+                tracer.handedOff(event, nanos, millis);
+            }
+            consumer.handleBatch(records, committer);
+        };
+    }
+
+    /**
+     * Wraps the conversion function of {@code HzpConverterBuilder}, which runs right after the SMT chain.
+     * Strips the poll header before {@code toFormat} converts the headers and attaches a {@link LatencyTrace}
+     * to the event.
+     */
+    public <R> Function<SourceRecord, R> tracing(Function<SourceRecord, R> toFormat, boolean lazy) {
+        return record -> {
+            var poll = record.headers().lastWithName(POLL_HEADER);
+            if (poll == null) {
+                return toFormat.apply(record);
+            }
+            var transformedNanos = System.nanoTime();
+            record.headers().remove(POLL_HEADER);
+
+            var result = toFormat.apply(record);
+
+            var convertedNanos = lazy ? transformedNanos : System.nanoTime();
+            if (result instanceof HzpChangeEvent<?, ?, ?> event) {
+                var pollNanos = ((Number) poll.value()).longValue();
+                var source = source(record);
+                var sourceMillis = field(source, "ts_ms") instanceof Long ts ? ts : -1L;
+                var latencies = latencies(record, source);
+
+                if (sourceMillis >= 0) {
+                    latencies.record(Stage.SOURCE,
+                            (System.currentTimeMillis() - sourceMillis) * 1_000_000 - (transformedNanos - pollNanos));
+                }
+                latencies.record(Stage.TRANSFORM, transformedNanos - pollNanos);
+                if (!lazy) {
+                    latencies.record(Stage.CONVERT, convertedNanos - transformedNanos);
+                }
+                event.trace(new LatencyTrace(latencies, sourceMillis, convertedNanos));
+            }
+            return result;
+        };
+    }
+
+    void handedOff(ChangeEvent<?, ?> event, long nanos, long millis) {
+        if (event instanceof HzpChangeEvent<?, ?, ?> hzpEvent && hzpEvent.trace() != null) {
+            var trace = hzpEvent.trace();
+            trace.latencies().record(Stage.HANDOFF, nanos - trace.convertedNanos());
+            if (trace.sourceMillis() >= 0) {
+                trace.latencies().record(Stage.END_TO_END, (millis - trace.sourceMillis()) * 1_000_000);
+            }
+        }
+    }
+
+    public String connector() {
+        return connector;
+    }
+
+    /**
+     * Returns the latencies of {@code table} ({@code <schema>.<table>} of the source block, or the topic
+     * of records without one), null if none of its records was traced.
+     */
+    public TableLatencies latencies(String table) {
+        return tables.get(table);
+    }
+
+    public Map<String, TableLatencies> tables() {
+        return Collections.unmodifiableMap(tables);
+    }
+
+    public void reset() {
+        tables.values().forEach(TableLatencies::reset);
+    }
+
+    /**
+     * Renders the latencies as a table in microseconds, one line per table and stage.
+     */
+    public String dump() {
+        var out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Stage latencies of connector '%s' (us)%n", connector));
+        out.append(String.format(Locale.ROOT, "%-40s %-10s %10s %10s %10s %10s %10s %10s%n",
+                "table", "stage", "count", "p50", "p90", "p99", "p99.9", "max"));
+        tables.values().stream()
+                .sorted((a, b) -> a.table().compareTo(b.table()))
+                .forEach(latencies -> {
+                    for (var stage : Stage.values()) {
+                        var histogram = latencies.histogram(stage);
+                        if (histogram.count() == 0) {
+                            continue;
+                        }
+                        out.append(String.format(Locale.ROOT, "%-40s %-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                                latencies.table(), stage.label(), histogram.count(),
+                                histogram.percentileNanos(50) / 1e3, histogram.percentileNanos(90) / 1e3,
+                                histogram.percentileNanos(99) / 1e3, histogram.percentileNanos(99.9) / 1e3,
+                                histogram.maxNanos() / 1e3));
+                    }
+                });
+        return out.toString();
+    }
+
+    /**
+     * Renders the latencies of all connectors as Prometheus summaries.
+     */
+    public static String scrape() {
+        var out = new StringBuilder();
+        out.append("# HELP ").append(METRIC).append(" Latency of change events per pipeline stage.\n");
+        out.append("# TYPE ").append(METRIC).append(" summary\n");
+        TRACERS.values().forEach(tracer -> tracer.scrape(out));
+        return out.toString();
+    }
+
+    private void scrape(StringBuilder out) {
+        tables.values().forEach(latencies -> {
+            for (var stage : Stage.values()) {
+                var histogram = latencies.histogram(stage);
+                var labels = "connector=\"" + escape(connector) + "\",table=\"" + escape(latencies.table())
+                        + "\",stage=\"" + stage.label() + "\"";
+                for (var quantile : QUANTILES) {
+                    out.append(METRIC).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                            .append(histogram.percentileNanos(quantile * 100) / 1e9).append('\n');
+                }
+                out.append(METRIC).append("_sum{").append(labels).append("} ").append(histogram.sumNanos() / 1e9).append('\n');
+                out.append(METRIC).append("_count{").append(labels).append("} ").append(histogram.count()).append('\n');
+            }
+        });
+    }
+
+    private TableLatencies latencies(SourceRecord record, Struct source) {
+        String table = null;
+        if (field(source, "table") instanceof String name) {
+            table = field(source, "schema") instanceof String schema ? schema + "." + name : name;
+        }
+        if (table == null) {
+            table = record.topic() != null ? record.topic() : "unknown";
+        }
+        return tables.computeIfAbsent(table, TableLatencies::new);
+    }
+
+    private static Struct source(SourceRecord record) {
+        return record.value() instanceof Struct value && field(value, "source") instanceof Struct source ? source : null;
+    }
+
+    private static Object field(Struct struct, String name) {
+        if (struct == null) {
+            return null;
+        }
+        var field = struct.schema().field(name);
+        return field != null ? struct.get(field) : null;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
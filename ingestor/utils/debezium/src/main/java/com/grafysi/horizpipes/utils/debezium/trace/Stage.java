@@ -0,0 +1,37 @@
+package com.grafysi.horizpipes.utils.debezium.trace;
+
+import java.util.Locale;
+
+/**
+ * Pipeline stages whose latency is traced, each measured from the end of the previous one.
+ */
+public enum Stage {
+    /**
+     * From the source {@code ts_ms} (commit time in the database) to the start of the SMT chain, i.e. the
+     * engine poll and the wait of the polled batch for a processing thread.
+     */
+    SOURCE,
+    /**
+     * The SMT chain, from its first transform to its end.
+     */
+    TRANSFORM,
+    /**
+     * Key, value and header conversion in {@code HzpConverterBuilder}. For lazy conversion, the time to
+     * materialize the key and value, recorded once both are, wherever that happens.
+     */
+    CONVERT,
+    /**
+     * From the end of conversion until the consumer receives the event, i.e. queueing in the
+     * lanes, the conversion stage, the batch stage or the handoff ring. For lazy conversion, from the
+     * end of the SMT chain, including a conversion in the lanes or the conversion stage.
+     */
+    HANDOFF,
+    /**
+     * From the source {@code ts_ms} until the consumer receives the event.
+     */
+    END_TO_END;
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,36 @@
+package com.grafysi.horizpipes.utils.debezium.trace;
+
+/**
+ * Latency histograms of one table, one per {@link Stage}.
+ */
+public final class TableLatencies {
+
+    private final String table;
+    private final LatencyHistogram[] histograms;
+
+    TableLatencies(String table) {
+        this.table = table;
+        this.histograms = new LatencyHistogram[Stage.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    void reset() {
+        for (var histogram : histograms) {
+            histogram.reset();
+        }
+    }
+}
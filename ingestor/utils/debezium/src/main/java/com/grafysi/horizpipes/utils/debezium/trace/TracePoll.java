@@ -0,0 +1,50 @@
+package com.grafysi.horizpipes.utils.debezium.trace;
+
+import org.apache.kafka.common.config.AbstractConfig;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.transforms.Transformation;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stamps sampled records with the time the SMT chain starts on them, as a {@link LatencyTracer#POLL_HEADER}
+ * header that {@code HzpConverterBuilder} strips again before conversion. Put first in {@code transforms}
+ * by {@link LatencyTracer#engineProperties}. The engine applies the chain after the poll once a processing
+ * thread takes the record, this is the closest point to the poll a transform can observe.
+ */
+public class TracePoll<R extends ConnectRecord<R>> implements Transformation<R> {
+
+    public static final String SAMPLE_RATE = "sample.rate";
+
+    private static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(SAMPLE_RATE, ConfigDef.Type.INT,
+                    1, ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.MEDIUM,
+                    "Trace one in this many records");
+
+    private int sampleRate;
+
+    @Override
+    public ConfigDef config() {
+        return CONFIG_DEF;
+    }
+
+    @Override
+    public void configure(Map<String, ?> props) {
+        sampleRate = new AbstractConfig(CONFIG_DEF, props).getInt(SAMPLE_RATE);
+    }
+
+    @Override
+    public R apply(R record) {
+        if (record != null && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0)) {
+            record.headers().addLong(LatencyTracer.POLL_HEADER, System.nanoTime());
+        }
+        return record;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,89 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.storage.Converter;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConverterPoolTest {
+
+    private final List<ClosingConverter> converters = Collections.synchronizedList(new ArrayList<>());
+
+    private ConverterPool.ConverterSet converterSet() {
+        var key = new ClosingConverter();
+        var value = new ClosingConverter();
+        converters.add(key);
+        converters.add(value);
+        return new ConverterPool.ConverterSet(key, value, new HeaderConversionStage(null, false));
+    }
+
+    @Test
+    void perThreadSetsAreClosedWithThePool() throws Exception {
+        var pool = ConverterPool.perThread(this::converterSet);
+        var own = pool.select();
+        var other = new ConverterPool.ConverterSet[1];
+        var thread = new Thread(() -> other[0] = pool.select());
+        thread.start();
+        thread.join();
+
+        assertSame(own, pool.select());
+        assertNotSame(own, other[0]);
+        assertEquals(4, converters.size());
+
+        pool.close();
+        assertTrue(converters.stream().allMatch(converter -> converter.closed));
+    }
+
+    @Test
+    void stripedSetsAreClosedWithThePool() {
+        var pool = ConverterPool.striped(3, this::converterSet);
+
+        pool.close();
+        assertEquals(6, converters.size());
+        assertTrue(converters.stream().allMatch(converter -> converter.closed));
+    }
+
+    @Test
+    void sharedSetIsLeftToTheCaller() {
+        var pool = ConverterPool.shared(converterSet());
+
+        pool.close();
+        assertFalse(converters.stream().anyMatch(converter -> converter.closed));
+    }
+
+    private static class ClosingConverter implements Converter, Closeable {
+
+        private volatile boolean closed;
+
+        @Override
+        public void configure(Map<String, ?> configs, boolean isKey) {
+        }
+
+        @Override
+        public byte[] fromConnectData(String topic, Schema schema, Object value) {
+            return new byte[0];
+        }
+
+        @Override
+        public SchemaAndValue toConnectData(String topic, byte[] value) {
+            return SchemaAndValue.NULL;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.header.Headers;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeaderConversionStageTest {
+
+    private static final String TABLE_HEADER = "__from_table";
+    private static final String TABLE_VALUE = "__from_table__test_dbz.mimiciv_hosp.patients";
+
+    private JsonConverter headerConverter() {
+        var converter = new JsonConverter();
+        converter.configure(Map.of(ConverterConfig.TYPE_CONFIG, "header"));
+        return converter;
+    }
+
+    private SourceRecord sourceRecord(Headers headers) {
+        return new SourceRecord(Map.of(), Map.of(), "test_dbz.mimic4demo.hosp.all", null,
+                Schema.STRING_SCHEMA, "key", Schema.STRING_SCHEMA, "value", 0L, headers);
+    }
+
+    @Test
+    void serializedBytesAreSharedBetweenKafkaAndEventHeaders() {
+        var stage = new HeaderConversionStage(headerConverter(), false);
+        var headers = new ConnectHeaders().addString(TABLE_HEADER, TABLE_VALUE).addInt("version", 3);
+
+        var converted = stage.convert(sourceRecord(headers), "test_dbz.mimic4demo.hosp.all");
+
+        assertEquals(2, converted.headers().size());
+        assertSame(converted.kafkaHeaders().lastHeader(TABLE_HEADER).value(), converted.headers().get(0).getValue());
+        assertSame(converted.kafkaHeaders().lastHeader("version").value(), converted.headers().get(1).getValue());
+    }
+
+    @Test
+    void constantHeadersAreSerializedOnce() {
+        var stage = new HeaderConversionStage(headerConverter(), true);
+
+        var first = stage.convert(sourceRecord(new ConnectHeaders().addString(TABLE_HEADER, TABLE_VALUE)), "topic");
+        var second = stage.convert(sourceRecord(new ConnectHeaders().addString(TABLE_HEADER, TABLE_VALUE)), "topic");
+
+        assertSame(first.kafkaHeaders().lastHeader(TABLE_HEADER).value(), second.kafkaHeaders().lastHeader(TABLE_HEADER).value());
+        assertSame(first.headers().get(0), second.headers().get(0));
+        assertTrue(((String) second.headers().get(0).getValue()).contains(TABLE_VALUE));
+    }
+
+    @Test
+    void recordsWithoutHeadersProduceNoHeaders() {
+        var stage = new HeaderConversionStage(headerConverter(), false);
+
+        var converted = stage.convert(sourceRecord(new ConnectHeaders()), "topic");
+
+        assertTrue(converted.headers().isEmpty());
+        assertEquals(0, converted.kafkaHeaders().toArray().length);
+    }
+}
@@ -41,6 +41,9 @@ public abstract class JsonConfigAbstractTest {
         cfg.set(Configs.DATABASE_DBNAME, "mimic4demo");
         cfg.set(Configs.SCHEMA_INCLUDE_LIST, "mimiciv_hosp");
 
+        // every test run starts from a fresh snapshot
+        cfg.set(Configs.OFFSET_STORAGE, "org.apache.kafka.connect.storage.MemoryOffsetBackingStore");
+
         cfg.set(Configs.KEY_CONVERTER, "org.apache.kafka.connect.json.JsonConverter");
         cfg.set(Configs.VALUE_CONVERTER, "org.apache.kafka.connect.json.JsonConverter");
 
@@ -0,0 +1,148 @@
+package com.grafysi.horizpipes.utils.debezium;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazyHzpChangeEventTest {
+
+    private static final String TOPIC = "test_dbz.mimiciv_hosp.patients";
+
+    private static SourceRecord sourceRecord() {
+        return new SourceRecord(Map.of(), Map.of(), TOPIC, null,
+                Schema.STRING_SCHEMA, "key", Schema.STRING_SCHEMA, "value");
+    }
+
+    private static <T> Supplier<T> counting(AtomicInteger conversions, Supplier<T> converter) {
+        return () -> {
+            conversions.incrementAndGet();
+            return converter.get();
+        };
+    }
+
+    @Test
+    void conversionIsDeferredUntilKeyOrValueIsRead() {
+        var keyConversions = new AtomicInteger();
+        var valueConversions = new AtomicInteger();
+        var event = new LazyHzpChangeEvent<String, String, Object>(
+                counting(keyConversions, () -> "{\"id\":1}"),
+                counting(valueConversions, () -> "{\"after\":{\"id\":1}}"),
+                Collections.emptyList(), sourceRecord());
+
+        assertEquals(TOPIC, event.destination());
+        assertEquals(0, event.headers().size());
+        assertFalse(event.isKeyConverted());
+        assertFalse(event.isValueConverted());
+        assertEquals(0, keyConversions.get());
+        assertEquals(0, valueConversions.get());
+
+        assertEquals("{\"after\":{\"id\":1}}", event.value());
+        assertTrue(event.isValueConverted());
+        assertFalse(event.isKeyConverted());
+        assertEquals(0, keyConversions.get());
+
+        assertEquals("{\"id\":1}", event.key());
+        assertTrue(event.isKeyConverted());
+    }
+
+    @Test
+    void keyAndValueAreConvertedOnce() {
+        var keyConversions = new AtomicInteger();
+        var valueConversions = new AtomicInteger();
+        var event = new LazyHzpChangeEvent<byte[], byte[], Object>(
+                counting(keyConversions, () -> new byte[]{1}),
+                counting(valueConversions, () -> new byte[]{2}),
+                Collections.emptyList(), sourceRecord());
+
+        var value = event.value();
+        var key = event.key();
+        for (int i = 0; i < 10; i++) {
+            assertSame(value, event.value());
+            assertSame(value, event.record());
+            assertSame(key, event.key());
+        }
+        assertEquals(1, keyConversions.get());
+        assertEquals(1, valueConversions.get());
+    }
+
+    @Test
+    void concurrentReadsFromConsumerThreadsConvertOnce() throws Exception {
+        var threads = 16;
+        var conversions = new AtomicInteger();
+        var inConverter = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var event = new LazyHzpChangeEvent<Void, Object, Object>(() -> null, counting(conversions, () -> {
+            inConverter.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        }), Collections.emptyList(), sourceRecord());
+
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var start = new CountDownLatch(1);
+            var reads = new ArrayList<Future<Object>>();
+            for (int i = 0; i < threads; i++) {
+                reads.add(executor.submit(() -> {
+                    start.await();
+                    return event.value();
+                }));
+            }
+            start.countDown();
+            assertTrue(inConverter.await(5, TimeUnit.SECONDS));
+            // the others pile up behind the first conversion
+            Thread.sleep(20);
+            assertFalse(event.isValueConverted());
+            release.countDown();
+
+            var value = reads.get(0).get(5, TimeUnit.SECONDS);
+            for (var read : reads) {
+                assertSame(value, read.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, conversions.get());
+            assertTrue(event.isValueConverted());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void converterFailuresSurfaceOnAccess() {
+        var failure = new IllegalStateException("Failed to serialize value");
+        var attempts = new AtomicInteger();
+        var event = new LazyHzpChangeEvent<String, String, Object>(() -> "key", () -> {
+            attempts.incrementAndGet();
+            throw failure;
+        }, Collections.emptyList(), sourceRecord());
+
+        // building the event and reading everything but the value does not fail
+        assertEquals(TOPIC, event.destination());
+        assertEquals("key", event.key());
+        assertEquals(0, attempts.get());
+
+        assertSame(failure, assertThrows(IllegalStateException.class, event::value));
+        assertFalse(event.isValueConverted());
+        // not memoized, every access reports the failure
+        assertSame(failure, assertThrows(IllegalStateException.class, event::record));
+        assertEquals(2, attempts.get());
+    }
+}
@@ -0,0 +1,62 @@
+package com.grafysi.horizpipes.utils.debezium.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BufferPoolTest {
+
+    @Test
+    void buffersAreRoundedUpToTheirSizeClass() {
+        var pool = new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+
+        assertEquals(256, pool.acquire(1).capacity());
+        assertEquals(512, pool.acquire(257).capacity());
+        assertEquals(1024, pool.acquire(1024).capacity());
+    }
+
+    @Test
+    void releasedBuffersAreReused() {
+        var pool = new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+        var bytes = "{\"subject_id\":10000032}".getBytes(StandardCharsets.UTF_8);
+
+        var first = pool.acquire(bytes.length);
+        first.put(bytes, 0, bytes.length);
+        var view = first.view();
+        var copy = new byte[view.remaining()];
+        view.get(copy);
+        assertArrayEquals(bytes, copy);
+
+        first.release();
+        first.release();
+        assertThrows(IllegalStateException.class, first::view);
+
+        assertSame(first.array(), pool.acquire(bytes.length).array());
+        assertEquals(1 << 20, pool.slabBytes());
+
+        // the largest size class holds a single buffer per slab
+        var large = pool.acquire(1 << 20);
+        large.release();
+        assertSame(large, pool.acquire(1 << 20));
+        assertEquals(2 << 20, pool.slabBytes());
+    }
+
+    @Test
+    void fallsBackToHeapArraysOutsideThePool() {
+        var pool = new BufferPool(1 << 20);
+
+        assertFalse(pool.acquire(2 << 20).isPooled());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pool.acquire(256 << 10).isPooled());
+        }
+        assertFalse(pool.acquire(256 << 10).isPooled());
+        assertEquals(2, pool.unpooledAllocations());
+    }
+}
@@ -0,0 +1,291 @@
+package com.grafysi.horizpipes.utils.debezium.changelog;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.pipeline.BatchCommitter;
+import io.debezium.embedded.EmbeddedEngineHeader;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.Header;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangeLogSinkTest {
+
+    @TempDir
+    Path dir;
+
+    private static ChangeEvent<String, String> event(int id, long lsn) {
+        var record = new SourceRecord(Map.of(), Map.of("lsn", lsn), "test_dbz.mimiciv_hosp.patients", null, null);
+        List<Header<String>> headers = List.of(new EmbeddedEngineHeader<>("__from_table", "patients"));
+        return new HzpChangeEvent<>("{\"subject_id\":" + id + "}", id % 10 == 9 ? null : "{\"row\":" + id + "}", headers, record);
+    }
+
+    private ChangeLogSink<String, String> sink(int segmentBytes, long retentionBytes) {
+        return new ChangeLogSink<>(dir, segmentBytes, 256, retentionBytes, -1, 0);
+    }
+
+    private static List<ChangeLogRecord> drain(ChangeLogReader reader) {
+        var records = new ArrayList<ChangeLogRecord>();
+        ChangeLogRecord record;
+        while ((record = reader.poll()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static BatchCommitter committer(Runnable onFinished) {
+        return new BatchCommitter() {
+            @Override
+            public void markBatchFinished() {
+                onFinished.run();
+            }
+
+            @Override
+            public void fail(Throwable cause) {
+            }
+        };
+    }
+
+    @Test
+    void readsBackAcrossSegments() throws Exception {
+        try (var sink = sink(1024, -1); var reader = new ChangeLogReader(dir)) {
+            for (int i = 0; i < 100; i++) {
+                sink.accept(event(i, 1000 + i * 8));
+            }
+            var records = drain(reader);
+            assertEquals(100, records.size());
+            for (int i = 0; i < 100; i++) {
+                var record = records.get(i);
+                assertEquals(i, record.sequence());
+                assertEquals(1000 + i * 8, record.lsn());
+                assertEquals("{\"subject_id\":" + i + "}", record.keyAsString());
+                assertEquals(i % 10 == 9 ? null : "{\"row\":" + i + "}", record.valueAsString());
+                assertEquals("__from_table", record.headers().get(0).name());
+                assertEquals("patients", record.headers().get(0).valueAsString());
+            }
+            assertTrue(ChangeLogFormat.segments(dir).size() > 1);
+
+            sink.accept(event(100, 1800));
+            assertEquals(100, reader.poll().sequence());
+            assertNull(reader.poll());
+        }
+    }
+
+    @Test
+    void batchIsFinishedOnceAppended() {
+        var finished = new ArrayList<Long>();
+        try (var sink = sink(1024, -1)) {
+            var batch = new ArrayList<ChangeEvent<String, String>>();
+            for (int i = 0; i < 20; i++) {
+                batch.add(event(i, 1000 + i * 8));
+            }
+            sink.handleBatch(batch, committer(() -> finished.add(sink.nextSequence())));
+        }
+        assertEquals(List.of(20L), finished);
+    }
+
+    @Test
+    void failedBatchIsNotFinished() {
+        var finished = new ArrayList<Long>();
+        var sink = sink(1024, -1);
+        sink.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> sink.handleBatch(List.of(event(0, 1000)), committer(() -> finished.add(0L))));
+        assertEquals(List.of(), finished);
+    }
+
+    @Test
+    void seeksBySequenceLsnAndTime() {
+        try (var sink = sink(2048, -1); var reader = new ChangeLogReader(dir)) {
+            for (int i = 0; i < 200; i++) {
+                sink.accept(event(i, 1000 + i * 8));
+            }
+            reader.seek(137);
+            assertEquals(137, reader.poll().sequence());
+
+            reader.seekToLsn(1000 + 42 * 8 - 3);
+            assertEquals(42, reader.poll().sequence());
+
+            reader.seekToLsn(0);
+            assertEquals(0, reader.poll().sequence());
+
+            reader.seekToTime(0);
+            assertEquals(0, reader.poll().sequence());
+
+            reader.seekToTime(Long.MAX_VALUE);
+            assertNull(reader.poll());
+            sink.accept(event(200, 5000));
+            assertEquals(200, reader.poll().sequence());
+        }
+    }
+
+    @Test
+    void transfersRawRecords() throws Exception {
+        try (var sink = sink(1 << 16, -1); var reader = new ChangeLogReader(dir)) {
+            for (int i = 0; i < 50; i++) {
+                sink.accept(event(i, i));
+            }
+            var out = new ByteArrayOutputStream();
+            var target = Channels.newChannel(out);
+            var sent = 0;
+            int count;
+            while ((count = reader.transferTo(target, 512)) > 0) {
+                sent += count;
+            }
+            assertEquals(50, sent);
+            assertEquals(50, reader.nextSequence());
+
+            var bytes = ByteBuffer.wrap(out.toByteArray());
+            for (int i = 0; i < 50; i++) {
+                var length = bytes.getInt();
+                bytes.getInt();
+                var body = bytes.slice(bytes.position(), length);
+                bytes.position(bytes.position() + length);
+                assertEquals(i, ChangeLogFormat.decode(body).sequence());
+            }
+        }
+    }
+
+    @Test
+    void transfersRecordsLargerThanTheReadAhead() {
+        try (var sink = sink(1 << 20, -1); var reader = new ChangeLogReader(dir)) {
+            var value = "x".repeat(200_000);
+            for (int i = 0; i < 3; i++) {
+                sink.accept(new HzpChangeEvent<>("{\"subject_id\":" + i + "}", value, List.of(), null));
+            }
+            var out = new ByteArrayOutputStream();
+            assertEquals(1, reader.transferTo(Channels.newChannel(out), 1));
+            assertEquals(2, reader.transferTo(Channels.newChannel(out), 1 << 20));
+            assertEquals(3, reader.nextSequence());
+        }
+    }
+
+    @Test
+    void transferRejectsNonBlockingTarget() throws Exception {
+        var pipe = Pipe.open();
+        try (var sink = sink(1 << 16, -1); var reader = new ChangeLogReader(dir);
+             var source = pipe.source(); var target = pipe.sink()) {
+            sink.accept(event(0, 1000));
+            target.configureBlocking(false);
+
+            assertThrows(IllegalArgumentException.class, () -> reader.transferTo(target, 1 << 16));
+            assertEquals(0, reader.nextSequence());
+        }
+    }
+
+    @Test
+    void transferStopsBeforeCorruptRecord() throws Exception {
+        try (var sink = sink(1 << 16, -1)) {
+            for (int i = 0; i < 10; i++) {
+                sink.accept(event(i, i));
+            }
+        }
+        // flip a byte in the body of record 5
+        var segment = ChangeLogFormat.segmentPath(dir, 0);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var header = ByteBuffer.allocate(4);
+            var position = 0L;
+            for (int i = 0; i < 5; i++) {
+                channel.read(header.clear(), position);
+                position += 8 + header.getInt(0);
+            }
+            var body = ByteBuffer.allocate(1);
+            channel.read(body, position + 20);
+            body.put(0, (byte) (body.get(0) ^ 1));
+            channel.write(body.flip(), position + 20);
+        }
+
+        try (var reader = new ChangeLogReader(dir)) {
+            var out = new ByteArrayOutputStream();
+            assertEquals(5, reader.transferTo(Channels.newChannel(out), 1 << 16));
+            assertEquals(0, reader.transferTo(Channels.newChannel(out), 1 << 16));
+            assertEquals(5, reader.nextSequence());
+            assertNull(reader.poll());
+        }
+    }
+
+    @Test
+    void retentionExpiresQuietLog() throws Exception {
+        try (var sink = new ChangeLogSink<String, String>(dir, 1 << 16, 256, -1, 100, 0);
+             var reader = new ChangeLogReader(dir)) {
+            for (int i = 0; i < 10; i++) {
+                sink.accept(event(i, i));
+            }
+            assertEquals(0, reader.poll().sequence());
+
+            // no further appends, so no roll, the sealed segment still expires
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (Files.exists(ChangeLogFormat.segmentPath(dir, 0))) {
+                assertTrue(System.nanoTime() < deadline, "Segment not expired in time");
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(10L), ChangeLogFormat.segments(dir));
+
+            sink.accept(event(10, 10));
+            var records = drain(reader);
+            assertEquals(10, records.get(records.size() - 1).sequence());
+        }
+    }
+
+    @Test
+    void recoversAfterTornWrite() throws Exception {
+        try (var sink = sink(1 << 16, -1)) {
+            for (int i = 0; i < 10; i++) {
+                sink.accept(event(i, i));
+            }
+        }
+        // a record whose payload was written but not its length, as after a crash mid-append
+        var segment = ChangeLogFormat.segmentPath(dir, 0);
+        var size = Files.size(segment);
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 0, 1, 2, 3, 4, 5, 6, 7}), size);
+        }
+
+        try (var sink = sink(1 << 16, -1); var reader = new ChangeLogReader(dir)) {
+            assertEquals(10, sink.nextSequence());
+            assertEquals(size, Files.size(segment));
+            sink.accept(event(10, 10));
+            var records = drain(reader);
+            assertEquals(11, records.size());
+            assertEquals(10, records.get(10).sequence());
+        }
+    }
+
+    @Test
+    void retentionDeletesOldestSegments() throws Exception {
+        try (var sink = sink(1024, 4096); var reader = new ChangeLogReader(dir)) {
+            for (int i = 0; i < 500; i++) {
+                sink.accept(event(i, i));
+            }
+            var segments = ChangeLogFormat.segments(dir);
+            var total = 0L;
+            for (var base : segments.subList(0, segments.size() - 1)) {
+                total += Files.size(ChangeLogFormat.segmentPath(dir, base));
+            }
+            assertTrue(total <= 4096);
+            assertTrue(segments.get(0) > 0);
+
+            var first = reader.poll();
+            assertEquals(segments.get(0).longValue(), first.sequence());
+        }
+    }
+}
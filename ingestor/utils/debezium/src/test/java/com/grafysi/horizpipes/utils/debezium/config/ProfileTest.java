@@ -0,0 +1,106 @@
+package com.grafysi.horizpipes.utils.debezium.config;
+
+import com.grafysi.horizpipes.utils.debezium.json.StreamingJsonConverter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProfileTest {
+
+    private static final long GiB = 1024L * 1024 * 1024;
+
+    private static final Map<String, String> STREAMING_JSON =
+            Map.of("converter.custom.json.converter", StreamingJsonConverter.class.getName());
+
+    private static DbzConfigurer configurer(String profile) {
+        var cfg = new DbzConfigurer();
+        cfg.set(Configs.CONNECTOR_NAME, "test-connector");
+        cfg.set(Configs.CONNECTOR_CLASS, "io.debezium.connector.postgresql.PostgresConnector");
+        cfg.set(Configs.TOPIC_PREFIX, "test_dbz");
+        cfg.set(Configs.DATABASE_HOSTNAME, "localhost");
+        cfg.set(Configs.DATABASE_PORT, "5433");
+        cfg.set(Configs.DATABASE_USER, "postgres");
+        cfg.set(Configs.DATABASE_PASSWORD, "abcd1234");
+        cfg.set(Configs.DATABASE_DBNAME, "mimic4demo");
+        cfg.set(Configs.PROFILE, profile);
+        return cfg;
+    }
+
+    @Test
+    void throughputScalesWithCoresAndHeap() {
+        var small = Profile.THROUGHPUT.settings(4, GiB, STREAMING_JSON);
+        assertEquals("4", small.get(Configs.RECORD_PROCESSING_THREADS));
+        assertEquals("4", small.get(Configs.CONVERTER_STRIPES));
+        assertEquals("2048", small.get(Configs.MAX_BATCH_SIZE));
+        assertEquals("8192", small.get(Configs.MAX_QUEUE_SIZE));
+        assertEquals(String.valueOf(64L * 1024 * 1024), small.get(Configs.BUFFER_POOL_MAX_BYTES));
+
+        var large = Profile.THROUGHPUT.settings(32, 16 * GiB, STREAMING_JSON);
+        assertEquals("32", large.get(Configs.RECORD_PROCESSING_THREADS));
+        assertEquals("4096", large.get(Configs.MAX_BATCH_SIZE));
+        assertEquals(String.valueOf(256L * 1024 * 1024), large.get(Configs.BUFFER_POOL_MAX_BYTES));
+    }
+
+    @Test
+    void throughputPoolsBuffersOnlyForStreamingJson() {
+        assertEquals("pooled", Profile.THROUGHPUT.settings(4, GiB, STREAMING_JSON).get(Configs.CONVERSION_BUFFERS));
+        assertNull(Profile.THROUGHPUT.settings(4, GiB, Map.of()).get(Configs.CONVERSION_BUFFERS));
+        assertNull(Profile.THROUGHPUT.settings(4, GiB, Map.of(
+                "converter.custom.json.converter", StreamingJsonConverter.class.getName(),
+                "value.converter.class", "org.apache.kafka.connect.json.JsonConverter")).get(Configs.CONVERSION_BUFFERS));
+        assertNull(Profile.THROUGHPUT.settings(4, GiB, Map.of(
+                "converter.custom.json.converter", StreamingJsonConverter.class.getName(),
+                "converter.apicurio.registry.url", "http://localhost:8080/apis/registry/v2")).get(Configs.CONVERSION_BUFFERS));
+
+        var props = configurer("throughput").buildProperties();
+        assertNull(props.getProperty(Configs.CONVERSION_BUFFERS));
+    }
+
+    @Test
+    void latencyCapsThreads() {
+        assertEquals("1", Profile.LATENCY.settings(1, GiB, Map.of()).get(Configs.RECORD_PROCESSING_THREADS));
+        assertEquals("shared", Profile.LATENCY.settings(1, GiB, Map.of()).get(Configs.CONVERTER_SHARDING));
+        assertEquals("4", Profile.LATENCY.settings(64, GiB, Map.of()).get(Configs.RECORD_PROCESSING_THREADS));
+    }
+
+    @Test
+    void explicitSettingsWinOverTheProfile() {
+        var cfg = configurer("low-memory");
+        cfg.set(Configs.MAX_BATCH_SIZE, "100");
+
+        var props = cfg.buildProperties();
+        assertEquals("100", props.getProperty(Configs.MAX_BATCH_SIZE));
+        assertEquals("1024", props.getProperty(Configs.MAX_QUEUE_SIZE));
+        assertEquals("1", props.getProperty(Configs.RECORD_PROCESSING_THREADS));
+        assertEquals("heap", props.getProperty(Configs.CONVERSION_BUFFERS));
+    }
+
+    @Test
+    void conflictingSettingsAreRejected() {
+        var queueTooSmall = configurer("throughput");
+        queueTooSmall.set(Configs.MAX_QUEUE_SIZE, "100");
+        assertThrows(IllegalArgumentException.class, queueTooSmall::buildProperties);
+
+        var lazyPooled = configurer("throughput");
+        lazyPooled.set("converter.custom.json.converter", StreamingJsonConverter.class.getName());
+        lazyPooled.set(Configs.CONVERSION_LAZY, "true");
+        assertThrows(IllegalArgumentException.class, lazyPooled::buildProperties);
+
+        var pooledLowMemory = configurer("low-memory");
+        pooledLowMemory.set(Configs.CONVERSION_BUFFERS, "pooled");
+        assertThrows(IllegalArgumentException.class, pooledLowMemory::buildProperties);
+
+        var stripesWithoutStriping = configurer("latency");
+        stripesWithoutStriping.set(Configs.CONVERTER_STRIPES, "8");
+        assertThrows(IllegalArgumentException.class, stripesWithoutStriping::buildProperties);
+    }
+
+    @Test
+    void unknownProfileIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> configurer("fastest").buildProperties());
+    }
+}
@@ -0,0 +1,193 @@
+package com.grafysi.horizpipes.utils.debezium.json;
+
+import com.grafysi.horizpipes.utils.debezium.synthetic.PostgresSchemas;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingJsonConverterTest {
+
+    private static final String TOPIC = "test_dbz.mimic4demo.hosp.all";
+
+    private static final Schema ROW_SCHEMA = SchemaBuilder.struct()
+            .name("test_dbz.mimiciv_hosp.admissions.Value")
+            .doc("admissions \"row\"")
+            .optional()
+            .field("hadm_id", Schema.INT32_SCHEMA)
+            .field("flag", Schema.OPTIONAL_INT8_SCHEMA)
+            .field("age", Schema.INT16_SCHEMA)
+            .field("admittime", SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").version(1).build())
+            .field("race", SchemaBuilder.string().optional().defaultValue("UNKNOWN").build())
+            .field("snapshot", PostgresSchemas.SNAPSHOT_SCHEMA)
+            .field("weight", Schema.OPTIONAL_FLOAT32_SCHEMA)
+            .field("score", Schema.OPTIONAL_FLOAT64_SCHEMA)
+            .field("expired", Schema.BOOLEAN_SCHEMA)
+            .field("payload", Schema.OPTIONAL_BYTES_SCHEMA)
+            .field("amount", Decimal.builder(3).optional().build())
+            .field("dod", Date.builder().optional().build())
+            .field("shift_start", Time.builder().optional().build())
+            .field("updated", Timestamp.builder().optional().build())
+            .field("notes", SchemaBuilder.array(Schema.OPTIONAL_STRING_SCHEMA).optional().build())
+            .field("labels", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT64_SCHEMA).optional().build())
+            .field("ranges", SchemaBuilder.map(Schema.INT32_SCHEMA, Schema.STRING_SCHEMA).optional().build())
+            .build();
+
+    private static final Schema ENVELOPE_SCHEMA = PostgresSchemas.envelopeSchema("test_dbz.mimiciv_hosp.admissions", ROW_SCHEMA);
+
+    private static Map<String, Object> configs(Object... keyValues) {
+        var configs = new HashMap<String, Object>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            configs.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return configs;
+    }
+
+    private static void assertSameOutput(Map<String, Object> configs, Schema schema, Object value) {
+        var expected = new JsonConverter();
+        expected.configure(configs, false);
+        var actual = new StreamingJsonConverter();
+        actual.configure(configs, false);
+
+        var expectedBytes = expected.fromConnectData(TOPIC, schema, value);
+        var actualBytes = actual.fromConnectData(TOPIC, schema, value);
+        if (expectedBytes == null) {
+            assertNull(actualBytes);
+            return;
+        }
+        assertEquals(new String(expectedBytes, StandardCharsets.UTF_8), new String(actualBytes, StandardCharsets.UTF_8));
+        // the second call goes through the cached plan
+        assertEquals(new String(expectedBytes, StandardCharsets.UTF_8),
+                new String(actual.fromConnectData(TOPIC, schema, value), StandardCharsets.UTF_8));
+    }
+
+    private static Struct row(int id) {
+        var labels = new LinkedHashMap<String, Long>();
+        labels.put("ward", 7L);
+        labels.put("bed \"A\"", -3L);
+        var ranges = new LinkedHashMap<Integer, String>();
+        ranges.put(1, "low");
+        ranges.put(2, null);
+        return new Struct(ROW_SCHEMA)
+                .put("hadm_id", 20_000_000 + id)
+                .put("flag", (byte) -1)
+                .put("age", (short) 73)
+                .put("admittime", 4_400_000_000_000_000L + id)
+                .put("weight", 71.25f)
+                .put("score", 1.0E-7)
+                .put("expired", id % 2 == 0)
+                .put("payload", new byte[]{0, 1, 2, (byte) 0xFF, 127})
+                .put("amount", new BigDecimal("-12345.678"))
+                .put("dod", new java.util.Date(19_000L * 24 * 60 * 60 * 1000))
+                .put("shift_start", new java.util.Date(8 * 60 * 60 * 1000))
+                .put("updated", new java.util.Date(1_726_000_000_123L))
+                .put("notes", List.of("line\nbreak\ttab", "\u00fcn\u00efc\u00f6d\u00e9 \u2013 \u4e2d\u6587 \ud83d\ude00", "ctrl\u0001\u001f\b\f\r", "slash \\ /"))
+                .put("labels", labels)
+                .put("ranges", ranges);
+    }
+
+    private static Struct source() {
+        return PostgresSchemas.source("test_dbz", "mimic4demo", "mimiciv_hosp", "admissions", 1_726_000_000_000L)
+                .put("sequence", "[null,\"40000064\"]")
+                .put("lsn", 40_000_064L);
+    }
+
+    private static Struct envelope(int id) {
+        return new Struct(ENVELOPE_SCHEMA)
+                .put("before", row(id))
+                .put("after", row(id + 1))
+                .put("source", source())
+                .put("op", "u")
+                .put("ts_ms", 1_726_000_000_000L);
+    }
+
+    @Test
+    void matchesJsonConverterWithSchemas() {
+        assertSameOutput(configs(), ENVELOPE_SCHEMA, envelope(1));
+        assertSameOutput(configs(), ROW_SCHEMA, row(2));
+    }
+
+    @Test
+    void matchesJsonConverterWithoutSchemas() {
+        assertSameOutput(configs("schemas.enable", "false"), ENVELOPE_SCHEMA, envelope(3));
+    }
+
+    @Test
+    void matchesJsonConverterWithNumericDecimals() {
+        assertSameOutput(configs("decimal.format", "NUMERIC"), ENVELOPE_SCHEMA, envelope(4));
+    }
+
+    @Test
+    void matchesJsonConverterForNullsAndDefaults() {
+        var sparse = new Struct(ROW_SCHEMA)
+                .put("hadm_id", 1)
+                .put("age", (short) 1)
+                .put("admittime", 0L)
+                .put("expired", true);
+        var value = new Struct(ENVELOPE_SCHEMA).put("after", sparse).put("source", source()).put("op", "c");
+
+        assertSameOutput(configs(), ENVELOPE_SCHEMA, value);
+        assertSameOutput(configs("replace.null.with.default", "false"), ENVELOPE_SCHEMA, value);
+        assertSameOutput(configs(), ROW_SCHEMA, null);
+        assertSameOutput(configs(), null, null);
+    }
+
+    @Test
+    void matchesJsonConverterForSpecialNumbers() {
+        var schema = SchemaBuilder.struct()
+                .field("f", Schema.FLOAT32_SCHEMA)
+                .field("d", Schema.FLOAT64_SCHEMA)
+                .field("min", Schema.INT64_SCHEMA)
+                .field("max", Schema.INT64_SCHEMA)
+                .field("bytes", Schema.BYTES_SCHEMA)
+                .build();
+        var value = new Struct(schema)
+                .put("f", Float.NaN)
+                .put("d", Double.NEGATIVE_INFINITY)
+                .put("min", Long.MIN_VALUE)
+                .put("max", Long.MAX_VALUE)
+                .put("bytes", ByteBuffer.wrap(new byte[]{1, 2}));
+
+        assertSameOutput(configs(), schema, value);
+    }
+
+    @Test
+    void matchesJsonConverterWithoutSchema() {
+        var value = new LinkedHashMap<String, Object>();
+        value.put("id", 1);
+        value.put("name", "patient");
+        value.put("tags", List.of("a", "b"));
+        value.put("missing", null);
+        value.put("nested", Map.of(1, true));
+
+        assertSameOutput(configs(), null, value);
+        assertSameOutput(configs("schemas.enable", "false"), null, value);
+    }
+
+    @Test
+    void rejectsRequiredNullField() {
+        var converter = new StreamingJsonConverter();
+        converter.configure(configs(), false);
+        var value = new Struct(ENVELOPE_SCHEMA).put("after", new Struct(ROW_SCHEMA));
+
+        assertThrows(DataException.class, () -> converter.fromConnectData(TOPIC, ENVELOPE_SCHEMA, value));
+    }
+}
@@ -0,0 +1,172 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveBatchControllerTest {
+
+    private static AdaptiveBatchController controller() {
+        return new AdaptiveBatchController(1, 161, 16, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void backlogGrowsBatchesUpToTheBound() {
+        var controller = controller();
+        for (int i = 0; i < 100; i++) {
+            controller.onBatch(controller.batchSize(), 0.9, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(161, controller.batchSize());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(16), controller.lingerNanos());
+        assertEquals(100, controller.snapshot().increases());
+    }
+
+    @Test
+    void idleQueueStopsLingering() {
+        var controller = controller();
+        for (int i = 0; i < 5; i++) {
+            controller.onBatch(controller.batchSize(), 0.9, 0);
+        }
+        assertEquals(51, controller.batchSize());
+        assertTrue(controller.lingerNanos() > 0);
+
+        controller.onBatch(1, 0.0, 0);
+        assertEquals(41, controller.batchSize());
+        assertEquals(0, controller.lingerNanos());
+        assertEquals(1, controller.snapshot().idles());
+    }
+
+    @Test
+    void singleIdleEventsDoNotLinger() {
+        var controller = controller();
+        for (int i = 0; i < 10; i++) {
+            controller.onBatch(1, 0.0, 0);
+        }
+        assertEquals(1, controller.batchSize());
+        assertEquals(0, controller.lingerNanos());
+        assertEquals(0, controller.snapshot().increases());
+        assertEquals(10, controller.snapshot().idles());
+    }
+
+    @Test
+    void slowConsumerHalvesBatches() {
+        var controller = controller();
+        for (int i = 0; i < 16; i++) {
+            controller.onBatch(controller.batchSize(), 0.9, 0);
+        }
+        assertEquals(161, controller.batchSize());
+
+        controller.onBatch(161, 0.9, TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(80, controller.batchSize());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(8), controller.lingerNanos());
+        assertEquals(1, controller.snapshot().decreases());
+    }
+
+    @Test
+    void boundsAreValidated() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveBatchController(0, 10, 1, 1, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveBatchController(10, 5, 1, 1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void handoffDeliversBatchesInOrder() throws Exception {
+        var received = Collections.synchronizedList(new ArrayList<String>());
+        var done = new CountDownLatch(1000);
+        BatchConsumer<String, String> consumer = (records, committer) -> {
+            records.forEach(record -> received.add(record.value()));
+            committer.markBatchFinished();
+            records.forEach(record -> done.countDown());
+        };
+        var handoff = new RingBufferHandoff<>(consumer, controller(), 64, 1, WaitStrategy.yielding());
+        var committer = new CountingCommitter();
+
+        for (int i = 0; i < 1000; i += 10) {
+            var records = new ArrayList<ChangeEvent<String, String>>();
+            for (int j = i; j < i + 10; j++) {
+                records.add(event(String.valueOf(j)));
+            }
+            handoff.handleBatch(records, committer);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        handoff.close();
+
+        var expected = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(String.valueOf(i));
+        }
+        assertEquals(expected, received);
+        assertEquals(1000, handoff.consumedEvents());
+        assertTrue(handoff.awaitCommitted(5, TimeUnit.SECONDS));
+        assertEquals(1000, committer.processed);
+        assertEquals(100, committer.batches);
+        assertTrue(handoff.batchController().snapshot().increases() > 0);
+    }
+
+    @Test
+    void handoffCommitsOffsetsWhenBatchIsFinished() throws Exception {
+        var committers = Collections.synchronizedList(new ArrayList<BatchCommitter>());
+        BatchConsumer<String, String> consumer = (records, committer) -> committers.add(committer);
+        var handoff = new RingBufferHandoff<>(consumer, controller(), 64, 1, WaitStrategy.parking(TimeUnit.MICROSECONDS.toNanos(100)));
+        var committer = new CountingCommitter();
+
+        handoff.handleBatch(List.of(event("a1"), event("a2")), committer);
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handoff.depth() > 0 || committers.isEmpty()) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        assertFalse(handoff.awaitCommitted(20, TimeUnit.MILLISECONDS));
+        assertEquals(0, committer.processed);
+
+        committers.forEach(BatchCommitter::markBatchFinished);
+        assertTrue(handoff.awaitCommitted(5, TimeUnit.SECONDS));
+        handoff.close();
+        assertEquals(2, committer.processed);
+        assertEquals(1, committer.batches);
+    }
+
+    private static ChangeEvent<String, String> event(String value) {
+        return new HzpChangeEvent<>(null, value, List.of(), null);
+    }
+
+    private static class CountingCommitter implements DebeziumEngine.RecordCommitter<ChangeEvent<String, String>> {
+
+        private volatile int processed;
+        private volatile int batches;
+
+        @Override
+        public synchronized void markProcessed(ChangeEvent<String, String> record) {
+            processed++;
+        }
+
+        @Override
+        public synchronized void markBatchFinished() {
+            batches++;
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record, DebeziumEngine.Offsets sourceOffsets) {
+            markProcessed(record);
+        }
+
+        @Override
+        public DebeziumEngine.Offsets buildOffsets() {
+            return (key, value) -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncBatchStageTest {
+
+    private static List<ChangeEvent<String, String>> batch(String... values) {
+        var records = new ArrayList<ChangeEvent<String, String>>();
+        for (var value : values) {
+            records.add(new HzpChangeEvent<>(null, value, Collections.emptyList(), null));
+        }
+        return records;
+    }
+
+    @Test
+    void batchesAreCommittedInOrder() throws Exception {
+        var committers = new ArrayList<BatchCommitter>();
+        var stage = new AsyncBatchStage<String, String>((records, committer) -> committers.add(committer), 4);
+        var engineCommitter = new RecordingCommitter();
+
+        stage.handleBatch(batch("a1", "a2"), engineCommitter);
+        stage.handleBatch(batch("b1"), engineCommitter);
+        assertEquals(2, stage.inFlightBatches());
+
+        committers.get(1).markBatchFinished();
+        assertEquals(List.of(), engineCommitter.committed);
+
+        committers.get(0).markBatchFinished();
+        assertTrue(stage.awaitCommitted(1, TimeUnit.SECONDS));
+        assertEquals(List.of("a1", "a2", "|", "b1", "|"), engineCommitter.committed);
+        assertEquals(0, stage.inFlightBatches());
+    }
+
+    @Test
+    void failedBatchStopsCommitsAndTheEngine() throws Exception {
+        var committers = new ArrayList<BatchCommitter>();
+        var stage = new AsyncBatchStage<String, String>((records, committer) -> committers.add(committer), 4);
+        var engineCommitter = new RecordingCommitter();
+
+        stage.handleBatch(batch("a1"), engineCommitter);
+        stage.handleBatch(batch("b1"), engineCommitter);
+        committers.get(1).markBatchFinished();
+        committers.get(0).fail(new IllegalStateException("sink unavailable"));
+        assertTrue(stage.awaitCommitted(1, TimeUnit.SECONDS));
+
+        assertEquals(List.of(), engineCommitter.committed);
+        assertThrows(IllegalStateException.class, () -> stage.handleBatch(batch("c1"), engineCommitter));
+    }
+
+    private static class RecordingCommitter implements DebeziumEngine.RecordCommitter<ChangeEvent<String, String>> {
+
+        private final List<String> committed = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record) {
+            committed.add(record.value());
+        }
+
+        @Override
+        public void markBatchFinished() {
+            committed.add("|");
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record, DebeziumEngine.Offsets sourceOffsets) {
+            committed.add(record.value());
+        }
+
+        @Override
+        public DebeziumEngine.Offsets buildOffsets() {
+            return (key, value) -> {
+            };
+        }
+    }
+}
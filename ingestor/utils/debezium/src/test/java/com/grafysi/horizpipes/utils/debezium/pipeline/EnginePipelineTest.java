@@ -0,0 +1,150 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EnginePipelineTest {
+
+    private static Properties props(String... keyValues) {
+        var props = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            props.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return props;
+    }
+
+    @Test
+    void lanesAreRejectedWithHandoff() {
+        var props = props(Configs.LANES, "4", Configs.HANDOFF_CAPACITY, "1024");
+
+        var thrown = assertThrows(IllegalArgumentException.class, () -> EnginePipeline.validate(props, false));
+        assertTrue(thrown.getMessage().contains(Configs.HANDOFF_CAPACITY));
+    }
+
+    @Test
+    void lanesAreRejectedWithBatchConsumer() {
+        var props = props(Configs.LANES, "4");
+        BatchConsumer<String, String> consumer = (records, committer) -> committer.markBatchFinished();
+
+        // rejected before any stage or the engine is built
+        assertThrows(IllegalArgumentException.class, () -> EnginePipeline.create(props, null, consumer));
+    }
+
+    @Test
+    void lanesAreAcceptedWithRecordConsumer() {
+        assertDoesNotThrow(() -> EnginePipeline.validate(props(Configs.LANES, "4"), false));
+        assertDoesNotThrow(() -> EnginePipeline.validate(
+                props(Configs.LANES, "4", Configs.CONVERSION_PARALLEL_THREADS, "4"), false));
+    }
+
+    @Test
+    void stagesWithoutLanesCombine() {
+        assertDoesNotThrow(() -> EnginePipeline.validate(
+                props(Configs.HANDOFF_CAPACITY, "1024", Configs.CONVERSION_PARALLEL_THREADS, "4"), false));
+        assertDoesNotThrow(() -> EnginePipeline.validate(
+                props(Configs.HANDOFF_CAPACITY, "1024", Configs.BATCH_MAX_IN_FLIGHT, "8"), true));
+    }
+
+    @Test
+    void closeCommitsBatchesInFlightBeforeClosingTheEngine() throws Exception {
+        var events = Collections.synchronizedList(new ArrayList<String>());
+        var changeConsumer = new AtomicReference<DebeziumEngine.ChangeConsumer<ChangeEvent<String, String>>>();
+        var handed = new CompletableFuture<BatchCommitter>();
+        BatchConsumer<String, String> consumer = (records, committer) -> handed.complete(committer);
+        var pipeline = EnginePipeline.create(new Properties(), builder(events, changeConsumer), consumer);
+
+        changeConsumer.get().handleBatch(List.of(new HzpChangeEvent<>(null, "a1", List.of(), null)),
+                new RecordingCommitter(events));
+        var closed = new CountDownLatch(1);
+        var closer = new Thread(() -> {
+            try {
+                pipeline.close();
+                closed.countDown();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        closer.start();
+        assertFalse(closed.await(20, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(), events);
+
+        handed.get(5, TimeUnit.SECONDS).markBatchFinished();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a1", "|", "engine closed"), events);
+    }
+
+    /**
+     * Returns a builder whose engine records when it is closed, the pipeline's change consumer is captured
+     * to feed batches as the engine would.
+     */
+    @SuppressWarnings("unchecked")
+    private static DebeziumEngine.Builder<ChangeEvent<String, String>> builder(
+            List<String> events, AtomicReference<DebeziumEngine.ChangeConsumer<ChangeEvent<String, String>>> changeConsumer) {
+        var engine = (DebeziumEngine<ChangeEvent<String, String>>) Proxy.newProxyInstance(
+                EnginePipelineTest.class.getClassLoader(), new Class<?>[]{DebeziumEngine.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        events.add("engine closed");
+                    }
+                    return null;
+                });
+        return (DebeziumEngine.Builder<ChangeEvent<String, String>>) Proxy.newProxyInstance(
+                EnginePipelineTest.class.getClassLoader(), new Class<?>[]{DebeziumEngine.Builder.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("build")) {
+                        return engine;
+                    }
+                    if (args != null && args[0] instanceof DebeziumEngine.ChangeConsumer<?> captured) {
+                        changeConsumer.set((DebeziumEngine.ChangeConsumer<ChangeEvent<String, String>>) captured);
+                    }
+                    return proxy;
+                });
+    }
+
+    private static class RecordingCommitter implements DebeziumEngine.RecordCommitter<ChangeEvent<String, String>> {
+
+        private final List<String> events;
+
+        private RecordingCommitter(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record) {
+            events.add(record.value());
+        }
+
+        @Override
+        public void markBatchFinished() {
+            events.add("|");
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record, DebeziumEngine.Offsets sourceOffsets) {
+            markProcessed(record);
+        }
+
+        @Override
+        public DebeziumEngine.Offsets buildOffsets() {
+            return (key, value) -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.ThreadPools;
+import com.grafysi.horizpipes.utils.debezium.synthetic.PostgresSchemas;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyAffineLaneExecutorTest {
+
+    private static final Schema KEY_SCHEMA = PostgresSchemas.keySchema("test_dbz.mimiciv_hosp.patients", "subject_id");
+
+    private static ChangeEvent<String, String> event(String topic, int subjectId, String value, String table) {
+        var headers = new ConnectHeaders();
+        if (table != null) {
+            headers.addString("__from_table", table);
+        }
+        var key = new Struct(KEY_SCHEMA).put("subject_id", subjectId);
+        var record = new SourceRecord(Map.of(), Map.of(), topic, null, KEY_SCHEMA, key, null, value, null, headers);
+        return new HzpChangeEvent<>(null, value, List.of(), record);
+    }
+
+    @Test
+    void rowsKeepTheirOrderAcrossLanes() throws Exception {
+        var seen = new ConcurrentHashMap<Integer, List<Integer>>();
+        Map<String, Integer> lanesUsed = new ConcurrentHashMap<>();
+        var executor = new KeyAffineLaneExecutor<String, String>(event -> {
+            var parts = event.value().split(":");
+            seen.computeIfAbsent(Integer.parseInt(parts[0]), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.parseInt(parts[1]));
+            lanesUsed.put(Thread.currentThread().getName(), 1);
+        }, 4, KeyAffineLaneExecutor.Affinity.KEY, null, ThreadPools.Kind.FORKJOIN);
+
+        var batch = new ArrayList<ChangeEvent<String, String>>();
+        for (int version = 0; version < 50; version++) {
+            for (int subjectId = 0; subjectId < 40; subjectId++) {
+                batch.add(event("test_dbz.mimiciv_hosp.patients", subjectId, subjectId + ":" + version, null));
+            }
+        }
+        var committed = new AtomicInteger();
+        var finished = new AtomicInteger();
+        executor.handleBatch(batch, new CountingCommitter(committed, finished));
+        executor.close();
+
+        assertEquals(40, seen.size());
+        for (var versions : seen.values()) {
+            var expected = new ArrayList<Integer>();
+            for (int version = 0; version < 50; version++) {
+                expected.add(version);
+            }
+            assertEquals(expected, versions);
+        }
+        assertEquals(2000, committed.get());
+        assertEquals(1, finished.get());
+        assertNotEquals(1, lanesUsed.size());
+    }
+
+    @Test
+    void sameKeyGoesToTheSameLane() {
+        var executor = new KeyAffineLaneExecutor<String, String>(event -> { }, 8,
+                KeyAffineLaneExecutor.Affinity.KEY, null, ThreadPools.Kind.FORKJOIN);
+        var lanes = new HashSet<Integer>();
+        for (int subjectId = 0; subjectId < 64; subjectId++) {
+            var lane = executor.lane(event("topic", subjectId, "a", null));
+            assertEquals(lane, executor.lane(event("topic", subjectId, "b", null)));
+            lanes.add(lane);
+        }
+        assertNotEquals(1, lanes.size());
+        executor.close();
+    }
+
+    @Test
+    void tableAffinityUsesTheTableHeader() {
+        var executor = new KeyAffineLaneExecutor<String, String>(event -> { }, 8,
+                KeyAffineLaneExecutor.Affinity.TABLE, "__from_table", ThreadPools.Kind.FORKJOIN);
+        var lane = executor.lane(event("all", 1, "a", "patients"));
+        for (int subjectId = 2; subjectId < 64; subjectId++) {
+            assertEquals(lane, executor.lane(event("all", subjectId, "a", "patients")));
+        }
+        executor.close();
+    }
+
+    @Test
+    void laneFailureFailsTheBatch() {
+        var executor = new KeyAffineLaneExecutor<String, String>(event -> {
+            throw new IllegalStateException("sink unavailable");
+        }, 4, KeyAffineLaneExecutor.Affinity.KEY, null, ThreadPools.Kind.FORKJOIN);
+        var batch = new ArrayList<ChangeEvent<String, String>>();
+        for (int subjectId = 0; subjectId < 16; subjectId++) {
+            batch.add(event("topic", subjectId, "v", null));
+        }
+        var committed = new AtomicInteger();
+        assertThrows(IllegalStateException.class,
+                () -> executor.handleBatch(batch, new CountingCommitter(committed, new AtomicInteger())));
+        assertEquals(0, committed.get());
+        executor.close();
+    }
+
+    @Test
+    void callerLaneFailureWaitsForTheOtherLanes() throws Exception {
+        var caller = Thread.currentThread();
+        var active = new AtomicInteger();
+        var accepted = new AtomicInteger();
+        var executor = new KeyAffineLaneExecutor<String, String>(event -> {
+            if (Thread.currentThread() == caller) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            active.incrementAndGet();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            accepted.incrementAndGet();
+            active.decrementAndGet();
+        }, 4, KeyAffineLaneExecutor.Affinity.KEY, null, ThreadPools.Kind.FORKJOIN);
+        var batch = new ArrayList<ChangeEvent<String, String>>();
+        for (int version = 0; version < 20; version++) {
+            for (int subjectId = 0; subjectId < 16; subjectId++) {
+                batch.add(event("topic", subjectId, "v" + version, null));
+            }
+        }
+
+        var failure = assertThrows(IllegalStateException.class,
+                () -> executor.handleBatch(batch, new CountingCommitter(new AtomicInteger(), new AtomicInteger())));
+        assertEquals("sink unavailable", failure.getMessage());
+        assertEquals(0, active.get());
+        var acceptedAtFailure = accepted.get();
+        // the other lanes stopped early rather than running through the batch
+        assertTrue(acceptedAtFailure < batch.size() / 2, acceptedAtFailure + " accepted");
+        Thread.sleep(50);
+        assertEquals(acceptedAtFailure, accepted.get());
+        executor.close();
+    }
+
+    private record CountingCommitter(AtomicInteger processed, AtomicInteger finished)
+            implements DebeziumEngine.RecordCommitter<ChangeEvent<String, String>> {
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record) {
+            processed.incrementAndGet();
+        }
+
+        @Override
+        public void markBatchFinished() {
+            finished.incrementAndGet();
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record, DebeziumEngine.Offsets sourceOffsets) {
+            processed.incrementAndGet();
+        }
+
+        @Override
+        public DebeziumEngine.Offsets buildOffsets() {
+            return (key, value) -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.LazyHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.ThreadPools;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelConversionStageTest {
+
+    private static final String TOPIC = "test_dbz.mimiciv_hosp.patients";
+
+    /**
+     * One converter shared by all events, as with the default {@code shared} converter sharding.
+     */
+    private static JsonConverter sharedConverter() {
+        var converter = new JsonConverter();
+        converter.configure(Map.of("schemas.enable", false), false);
+        return converter;
+    }
+
+    private static String json(String value) {
+        return "\"" + value + "\"";
+    }
+
+    /**
+     * Lazy events {@code v0..v<count-1>} converted by {@code converter}, calling {@code beforeConversion}
+     * with the index of the event first.
+     */
+    private static List<ChangeEvent<String, String>> batch(int count, JsonConverter converter, Set<Thread> threads,
+                                                           IntConsumer beforeConversion) {
+        var records = new ArrayList<ChangeEvent<String, String>>();
+        for (int i = 0; i < count; i++) {
+            var index = i;
+            records.add(new LazyHzpChangeEvent<>(() -> null, () -> {
+                threads.add(Thread.currentThread());
+                beforeConversion.accept(index);
+                var bytes = converter.fromConnectData(TOPIC, Schema.STRING_SCHEMA, "v" + index);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }, Collections.emptyList(), null));
+        }
+        return records;
+    }
+
+    private static List<String> expected(int count) {
+        var values = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            values.add(json("v" + i));
+        }
+        return values;
+    }
+
+    @Test
+    void eventsAreConsumedInSourceOrderOnceConverted() throws Exception {
+        var threads = ConcurrentHashMap.<Thread>newKeySet();
+        var consumed = new ArrayList<String>();
+        var stage = new ParallelConversionStage<String, String>(event -> {
+            assertTrue(((LazyHzpChangeEvent<?, ?, ?>) event).isValueConverted());
+            consumed.add(event.value());
+        }, 4, ThreadPools.Kind.FORKJOIN);
+        var engineCommitter = new RecordingCommitter();
+
+        var records = batch(1000, sharedConverter(), threads, index -> {
+        });
+        stage.handleBatch(records, engineCommitter);
+        stage.close();
+
+        assertEquals(expected(1000), consumed);
+        var committed = new ArrayList<>(expected(1000));
+        committed.add("|");
+        assertEquals(committed, engineCommitter.committed);
+        // the calling thread converts the first chunk, the pool the others
+        assertTrue(threads.contains(Thread.currentThread()));
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test
+    void downstreamReceivesTheWholeConvertedBatch() throws Exception {
+        var handed = new ArrayList<List<ChangeEvent<String, String>>>();
+        var stage = new ParallelConversionStage<String, String>((records, committer) -> {
+            for (var record : records) {
+                assertTrue(((LazyHzpChangeEvent<?, ?, ?>) record).isValueConverted());
+            }
+            handed.add(records);
+            committer.markBatchFinished();
+        }, 4, ThreadPools.Kind.FORKJOIN);
+        var engineCommitter = new RecordingCommitter();
+
+        var records = batch(200, sharedConverter(), ConcurrentHashMap.newKeySet(), index -> {
+        });
+        stage.handleBatch(records, engineCommitter);
+        stage.close();
+
+        assertEquals(1, handed.size());
+        assertSame(records, handed.get(0));
+        assertEquals(List.of("|"), engineCommitter.committed);
+    }
+
+    @Test
+    void conversionFailureOnThePoolFailsTheBatchBeforeAnythingIsConsumed() throws Exception {
+        var failure = new IllegalStateException("Failed to serialize v700");
+        var consumed = new ArrayList<String>();
+        var stage = new ParallelConversionStage<String, String>(event -> consumed.add(event.value()), 4,
+                ThreadPools.Kind.FORKJOIN);
+        var engineCommitter = new RecordingCommitter();
+
+        var records = batch(1000, sharedConverter(), ConcurrentHashMap.newKeySet(), index -> {
+            if (index == 700) {
+                throw failure;
+            }
+        });
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> stage.handleBatch(records, engineCommitter)));
+        stage.close();
+
+        assertEquals(List.of(), consumed);
+        assertEquals(List.of(), engineCommitter.committed);
+    }
+
+    @Test
+    void closeLetsConversionsInFlightFinish() throws Exception {
+        var converting = new CountDownLatch(3);
+        var release = new CountDownLatch(1);
+        var consumed = Collections.synchronizedList(new ArrayList<String>());
+        var stage = new ParallelConversionStage<String, String>(event -> consumed.add(event.value()), 4,
+                ThreadPools.Kind.FORKJOIN);
+        var engineCommitter = new RecordingCommitter();
+
+        // the first event of each pool chunk blocks until released
+        var records = batch(64, sharedConverter(), ConcurrentHashMap.newKeySet(), index -> {
+            if (index % 16 == 0 && index > 0) {
+                converting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        var engine = new Thread(() -> {
+            try {
+                stage.handleBatch(records, engineCommitter);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        engine.start();
+        assertTrue(converting.await(5, TimeUnit.SECONDS));
+
+        var closer = new Thread(stage::close);
+        closer.start();
+        closer.join(100);
+        assertTrue(closer.isAlive());
+        assertEquals(List.of(), consumed);
+
+        release.countDown();
+        engine.join(5000);
+        closer.join(5000);
+        assertFalse(engine.isAlive());
+        assertFalse(closer.isAlive());
+        assertEquals(expected(64), consumed);
+
+        // a closed stage no longer converts on its pool
+        assertThrows(RejectedExecutionException.class, () -> stage.handleBatch(
+                batch(64, sharedConverter(), ConcurrentHashMap.newKeySet(), index -> {
+                }), engineCommitter));
+    }
+
+    private static class RecordingCommitter implements DebeziumEngine.RecordCommitter<ChangeEvent<String, String>> {
+
+        private final List<String> committed = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record) {
+            committed.add(record.value());
+        }
+
+        @Override
+        public void markBatchFinished() {
+            committed.add("|");
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record, DebeziumEngine.Offsets sourceOffsets) {
+            committed.add(record.value());
+        }
+
+        @Override
+        public DebeziumEngine.Offsets buildOffsets() {
+            return (key, value) -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.PooledHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.buffer.PooledBuffer;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.DebeziumEngine;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferHandoffTest {
+
+    private static List<ChangeEvent<String, String>> batch(String... values) {
+        var records = new ArrayList<ChangeEvent<String, String>>();
+        for (var value : values) {
+            records.add(new HzpChangeEvent<>(null, value, Collections.emptyList(), null));
+        }
+        return records;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void batchesAreCommittedOnceConsumed() throws Exception {
+        var consumed = ConcurrentHashMap.<String>newKeySet();
+        var engineCommitter = new RecordingCommitter(consumed);
+        var handoff = new RingBufferHandoff<String, String>(event -> consumed.add(event.value()), 64, 2,
+                WaitStrategy.yielding());
+
+        for (int i = 0; i < 100; i++) {
+            handoff.handleBatch(batch("a" + i, "b" + i, "c" + i), engineCommitter);
+        }
+        assertTrue(handoff.awaitCommitted(5, TimeUnit.SECONDS));
+        handoff.close();
+
+        assertEquals(400, engineCommitter.committed.size());
+        assertEquals(List.of(), engineCommitter.aheadOfConsumer);
+        assertEquals(300, handoff.consumedEvents());
+        assertEquals(0, handoff.pendingBatches());
+    }
+
+    @Test
+    void noOffsetIsCommittedAheadOfTheConsumerWhenKilledMidDrain() throws Exception {
+        var consumed = ConcurrentHashMap.<String>newKeySet();
+        var engineCommitter = new RecordingCommitter(consumed);
+        var reached = new CountDownLatch(1);
+        var kill = new CountDownLatch(1);
+        var handoff = new RingBufferHandoff<String, String>(event -> {
+            if (event.value().equals("b2")) {
+                reached.countDown();
+                try {
+                    kill.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("killed");
+            }
+            consumed.add(event.value());
+        }, 16, 1, WaitStrategy.yielding());
+
+        handoff.handleBatch(batch("a1", "a2"), engineCommitter);
+        handoff.handleBatch(batch("b1", "b2", "b3"), engineCommitter);
+        handoff.handleBatch(batch("c1"), engineCommitter);
+        assertTrue(reached.await(5, TimeUnit.SECONDS));
+        await(() -> engineCommitter.committed.contains("|"));
+        assertEquals(List.of("a1", "a2", "|"), engineCommitter.committed);
+
+        kill.countDown();
+        assertTrue(handoff.awaitCommitted(5, TimeUnit.SECONDS));
+        await(() -> handoff.depth() == 0);
+        handoff.close();
+
+        // b1 was consumed, but b2 was not, so nothing from b1 on is committed and it is delivered again on restart
+        assertEquals(List.of("a1", "a2", "|"), engineCommitter.committed);
+        assertEquals(List.of(), engineCommitter.aheadOfConsumer);
+        assertEquals(Set.of("a1", "a2", "b1"), consumed);
+        assertEquals(2, handoff.pendingBatches());
+    }
+
+    @Test
+    void failureReleasesEventsLeftInTheRingAndStopsTheEngine() throws Exception {
+        var failure = new IllegalStateException("sink unavailable");
+        var published = new CountDownLatch(1);
+        var handoff = new RingBufferHandoff<String, String>(event -> {
+            try {
+                published.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw failure;
+        }, 16, 1, WaitStrategy.yielding());
+        var engineCommitter = new RecordingCommitter(Set.of());
+        var records = new ArrayList<ChangeEvent<String, String>>();
+        var buffers = new ArrayList<PooledBuffer>();
+        for (int i = 0; i < 8; i++) {
+            var buffer = PooledBuffer.wrap(("value" + i).getBytes(StandardCharsets.UTF_8));
+            buffers.add(buffer);
+            records.add(new PooledHzpChangeEvent<>(null, buffer, false, true, Collections.emptyList(), null));
+        }
+
+        handoff.handleBatch(records, engineCommitter);
+        published.countDown();
+        await(() -> buffers.stream().allMatch(PooledBuffer::isReleased));
+        assertEquals(0, handoff.depth());
+
+        var thrown = assertThrows(RuntimeException.class, () -> handoff.handleBatch(batch("b1"), engineCommitter));
+        assertSame(failure, thrown.getCause());
+        handoff.close();
+        assertEquals(List.of(), engineCommitter.committed);
+        assertEquals(0, handoff.consumedEvents());
+    }
+
+    @Test
+    void metricsTrackDepthAndBlockedProducer() throws Exception {
+        var entered = new CountDownLatch(1);
+        var unblock = new CountDownLatch(1);
+        var handoff = new RingBufferHandoff<String, String>(event -> {
+            entered.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 2, 1, WaitStrategy.yielding());
+        var engineCommitter = new RecordingCommitter(Set.of("e1", "e2", "e3", "e4"));
+        assertEquals(2, handoff.capacity());
+
+        var producer = new Thread(() -> handoff.handleBatch(batch("e1", "e2", "e3", "e4"), engineCommitter));
+        producer.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        await(() -> handoff.depth() == 2);
+        Thread.sleep(20);
+        assertEquals(0, handoff.consumedEvents());
+        assertEquals(1, handoff.pendingBatches());
+
+        unblock.countDown();
+        producer.join(5000);
+        assertTrue(handoff.awaitCommitted(5, TimeUnit.SECONDS));
+        handoff.close();
+
+        assertTrue(handoff.producerBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(0, handoff.depth());
+        assertEquals(4, handoff.consumedEvents());
+        assertEquals(0, handoff.pendingBatches());
+        assertEquals(List.of("e1", "e2", "e3", "e4", "|"), engineCommitter.committed);
+    }
+
+    @Test
+    void drainCommitsPublishedBatchesAndDropsLaterOnes() throws Exception {
+        var consumed = ConcurrentHashMap.<String>newKeySet();
+        var engineCommitter = new RecordingCommitter(consumed);
+        var unblock = new CountDownLatch(1);
+        var handoff = new RingBufferHandoff<String, String>(event -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            consumed.add(event.value());
+        }, 16, 1, WaitStrategy.yielding());
+
+        handoff.handleBatch(batch("a1", "a2"), engineCommitter);
+        var drained = new CountDownLatch(1);
+        var drainer = new Thread(() -> {
+            try {
+                if (handoff.drain(5, TimeUnit.SECONDS)) {
+                    drained.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        drainer.start();
+        assertFalse(drained.await(20, TimeUnit.MILLISECONDS));
+
+        unblock.countDown();
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        // the engine is closed only now, the batch published before is already committed
+        assertEquals(List.of("a1", "a2", "|"), engineCommitter.committed);
+
+        var buffer = PooledBuffer.wrap("b1".getBytes(StandardCharsets.UTF_8));
+        handoff.handleBatch(List.of(new PooledHzpChangeEvent<>(null, buffer, false, true, Collections.emptyList(), null)),
+                engineCommitter);
+        handoff.close();
+
+        assertTrue(buffer.isReleased());
+        assertEquals(List.of("a1", "a2", "|"), engineCommitter.committed);
+        assertEquals(2, handoff.consumedEvents());
+        assertEquals(0, handoff.pendingBatches());
+    }
+
+    private static class RecordingCommitter implements DebeziumEngine.RecordCommitter<ChangeEvent<String, String>> {
+
+        private final Set<String> consumed;
+        private final List<String> committed = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> aheadOfConsumer = Collections.synchronizedList(new ArrayList<>());
+
+        private RecordingCommitter(Set<String> consumed) {
+            this.consumed = consumed;
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record) {
+            if (!consumed.contains(record.value())) {
+                aheadOfConsumer.add(record.value());
+            }
+            committed.add(record.value());
+        }
+
+        @Override
+        public void markBatchFinished() {
+            committed.add("|");
+        }
+
+        @Override
+        public void markProcessed(ChangeEvent<String, String> record, DebeziumEngine.Offsets sourceOffsets) {
+            markProcessed(record);
+        }
+
+        @Override
+        public DebeziumEngine.Offsets buildOffsets() {
+            return (key, value) -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.grafysi.horizpipes.utils.debezium.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpmcRingBufferTest {
+
+    @Test
+    void offerFailsWhenFullAndPollWhenEmpty() {
+        var ring = new SpmcRingBuffer<Integer>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.offer(5));
+        assertEquals(5, ring.poll());
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new SpmcRingBuffer<>(6));
+        assertEquals(1024, SpmcRingBuffer.roundCapacity(1000));
+    }
+
+    @Test
+    void everyElementIsTakenExactlyOnce() throws InterruptedException {
+        var ring = new SpmcRingBuffer<Long>(64);
+        var wait = WaitStrategy.parse("yield");
+        var count = 200_000L;
+        var sum = new AtomicLong();
+        var taken = new AtomicLong();
+
+        var consumers = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            var consumer = new Thread(() -> {
+                var attempt = 0;
+                while (taken.get() < count) {
+                    var element = ring.poll();
+                    if (element == null) {
+                        wait.idle(attempt++);
+                        continue;
+                    }
+                    attempt = 0;
+                    sum.addAndGet(element);
+                    taken.incrementAndGet();
+                }
+            });
+            consumer.start();
+            consumers.add(consumer);
+        }
+        for (long i = 1; i <= count; i++) {
+            var attempt = 0;
+            while (!ring.offer(i)) {
+                wait.idle(attempt++);
+            }
+        }
+        for (var consumer : consumers) {
+            consumer.join();
+        }
+
+        assertEquals(count, taken.get());
+        assertEquals(count * (count + 1) / 2, sum.get());
+    }
+}
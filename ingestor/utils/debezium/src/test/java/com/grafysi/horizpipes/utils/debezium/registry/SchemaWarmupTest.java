@@ -0,0 +1,70 @@
+package com.grafysi.horizpipes.utils.debezium.registry;
+
+import com.grafysi.horizpipes.utils.connect.transforms.ExtractTopicName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SchemaWarmupTest {
+
+    private static Properties props() {
+        var props = new Properties();
+        props.setProperty("topic.prefix", "test_dbz");
+        props.setProperty("hzp.registry.warmup", "true");
+        return props;
+    }
+
+    @Test
+    void converterConfigKeepsRegistryAuthAndTlsSettings() {
+        var props = props();
+        props.setProperty("value.converter", "io.apicurio.registry.utils.converter.AvroConverter");
+        props.setProperty("value.converter.apicurio.registry.url", "https://registry:8443/apis/registry/v2");
+        props.setProperty("value.converter.apicurio.auth.username", "ingestor");
+        props.setProperty("value.converter.apicurio.registry.request.ssl.truststore.location", "/etc/hzp/truststore.jks");
+        props.setProperty("value.converter.apicurio.registry.artifact.group-id", "mimic");
+        props.setProperty("key.converter.apicurio.registry.url", "http://other:8080");
+
+        assertEquals(Map.of(
+                        "apicurio.registry.url", "https://registry:8443/apis/registry/v2",
+                        "apicurio.auth.username", "ingestor",
+                        "apicurio.registry.request.ssl.truststore.location", "/etc/hzp/truststore.jks",
+                        "apicurio.registry.artifact.group-id", "mimic"),
+                SchemaWarmup.converterConfig(props, "value.converter"));
+    }
+
+    @Test
+    void artifactIdsFollowTableHeaderFormat() {
+        var props = props();
+        props.setProperty("transforms", "ExtractTopic,Reroute");
+        props.setProperty("transforms.ExtractTopic.type", ExtractTopicName.class.getName());
+        props.setProperty("transforms.ExtractTopic.topic.regex", "test_dbz.mimiciv_hosp.(.*)");
+        props.setProperty("transforms.ExtractTopic.header.name", "__from_table");
+        props.setProperty("transforms.ExtractTopic.header.value.format", "__from_table__test_dbz.mimiciv_hosp.$1");
+        props.setProperty("transforms.Reroute.type", "io.debezium.transforms.ByLogicalTableRouter");
+
+        assertEquals(List.of(
+                        "__from_table__test_dbz.mimiciv_hosp.admissions-key",
+                        "__from_table__test_dbz.mimiciv_hosp.admissions-value",
+                        "__from_table__test_dbz.mimiciv_hosp.patients-key",
+                        "__from_table__test_dbz.mimiciv_hosp.patients-value"),
+                SchemaWarmup.artifactIds(props, List.of("mimiciv_hosp.admissions", "mimiciv_hosp.patients",
+                        "mimiciv_icu.icustays")));
+    }
+
+    @Test
+    void artifactIdsFollowTopicWithoutTableHeader() {
+        var props = props();
+        props.setProperty("transforms", "ExtractTopic");
+        props.setProperty("transforms.ExtractTopic.type", ExtractTopicName.class.getName());
+        props.setProperty("transforms.ExtractTopic.topic.regex", "test_dbz.mimiciv_hosp.(.*)");
+        props.setProperty("transforms.ExtractTopic.header.name", "__other");
+        props.setProperty("transforms.ExtractTopic.header.value.format", "$1");
+
+        assertEquals(List.of("test_dbz.mimiciv_hosp.patients-key", "test_dbz.mimiciv_hosp.patients-value"),
+                SchemaWarmup.artifactIds(props, List.of("mimiciv_hosp.patients")));
+    }
+}
@@ -0,0 +1,157 @@
+package com.grafysi.horizpipes.utils.debezium.replay;
+
+import com.grafysi.horizpipes.utils.connect.transforms.ExtractTopicName;
+import com.grafysi.horizpipes.utils.debezium.synthetic.PostgresSchemas;
+import io.debezium.engine.ChangeEvent;
+import io.debezium.engine.format.Json;
+import io.debezium.engine.format.KeyValueHeaderChangeEventFormat;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.header.ConnectHeaders;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplayDriverTest {
+
+    private static final Schema KEY_SCHEMA = PostgresSchemas.keySchema("test_dbz.mimiciv_hosp.admissions", "hadm_id");
+
+    private static final Schema ROW_SCHEMA = SchemaBuilder.struct()
+            .name("test_dbz.mimiciv_hosp.admissions.Value")
+            .optional()
+            .field("hadm_id", Schema.INT32_SCHEMA)
+            .field("admission_type", Schema.STRING_SCHEMA)
+            .field("deathtime", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("admitdate", Date.builder().optional().build())
+            .field("charge", Decimal.builder(2).optional().build())
+            .field("flags", SchemaBuilder.array(Schema.BOOLEAN_SCHEMA).optional().build())
+            .field("labels", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.OPTIONAL_STRING_SCHEMA).optional().build())
+            .build();
+
+    private static final Schema ENVELOPE_SCHEMA = PostgresSchemas.envelopeSchema("test_dbz.mimiciv_hosp.admissions", ROW_SCHEMA);
+
+    private static SourceRecord record(int id) {
+        var row = new Struct(ROW_SCHEMA)
+                .put("hadm_id", 20_000_000 + id)
+                .put("admission_type", id % 2 == 0 ? "URGENT" : "ELECTIVE")
+                .put("admitdate", new java.util.Date(86_400_000L * (18_000 + id)))
+                .put("charge", new BigDecimal("1234.5" + id % 10))
+                .put("flags", List.of(true, false))
+                .put("labels", Map.of("ward", "MICU"));
+        var source = PostgresSchemas.source("test_dbz", "mimic4demo", "mimiciv_hosp", "admissions", 1_700_000_000_000L + id)
+                .put("txId", (long) id)
+                .put("lsn", 10_000L + id);
+        var envelope = new Struct(ENVELOPE_SCHEMA)
+                .put("after", row)
+                .put("source", source)
+                .put("op", "c")
+                .put("ts_ms", 1_700_000_000_000L + id);
+        var headers = new ConnectHeaders();
+        headers.addString("origin", "capture");
+        return new SourceRecord(Map.of("server", "test_dbz"), Map.of("lsn", 10_000L + id, "txId", id),
+                "test_dbz.mimiciv_hosp.admissions", null, KEY_SCHEMA, new Struct(KEY_SCHEMA).put("hadm_id", 20_000_000 + id),
+                ENVELOPE_SCHEMA, envelope, 1_700_000_000_000L + id, headers);
+    }
+
+    private static Properties properties(Path file) {
+        var props = new Properties();
+        props.put("key.converter", JsonConverter.class.getName());
+        props.put("value.converter", JsonConverter.class.getName());
+        props.put("transforms", "Capture,ExtractTopic");
+        props.put("transforms.Capture.type", CaptureSourceRecords.class.getName());
+        props.put("transforms.Capture.file", file.toString());
+        props.put("transforms.ExtractTopic.type", ExtractTopicName.class.getName());
+        props.put("transforms.ExtractTopic.topic.regex", "test_dbz.mimiciv_hosp.(.*)");
+        props.put("transforms.ExtractTopic.header.name", "__from_table");
+        props.put("transforms.ExtractTopic.header.value.format", "$1");
+        return props;
+    }
+
+    @Test
+    void roundTripsRecords(@TempDir Path dir) {
+        var file = dir.resolve("records.capture");
+        var written = new ArrayList<SourceRecord>();
+        try (var writer = new SourceRecordWriter(file)) {
+            for (int i = 0; i < 100; i++) {
+                var record = record(i);
+                written.add(record);
+                writer.write(record);
+            }
+        }
+
+        var read = SourceRecordReader.readAll(file);
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.get(i), read.get(i).record());
+        }
+        // decoded records share schema instances, like the connector's
+        assertTrue(read.get(0).record().valueSchema() == read.get(99).record().valueSchema());
+    }
+
+    @Test
+    void replaysThroughTransformsAndConverters(@TempDir Path dir) {
+        var file = dir.resolve("records.capture");
+        var props = properties(file);
+
+        var capture = new CaptureSourceRecords<SourceRecord>();
+        capture.configure(Map.of(CaptureSourceRecords.FILE, file.toString()));
+        for (int i = 0; i < 10; i++) {
+            capture.apply(record(i));
+        }
+        capture.close();
+
+        var events = new ArrayList<ChangeEvent<String, String>>();
+        try (var driver = new ReplayDriver<ChangeEvent<String, String>>(props,
+                KeyValueHeaderChangeEventFormat.of(Json.class, Json.class, Json.class))) {
+            var result = driver.replay(file, events::add);
+            assertEquals(10, result.records());
+            assertEquals(0, result.filtered());
+        }
+
+        assertEquals(10, events.size());
+        var first = events.get(0);
+        assertTrue(first.key().contains("20000000"));
+        assertTrue(first.value().contains("\"admission_type\":\"URGENT\""));
+        assertTrue(first.headers().stream().anyMatch(header -> header.getKey().equals("__from_table")));
+    }
+
+    @Test
+    void replaysAtRecordedPace(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("records.capture");
+        try (var writer = new SourceRecordWriter(file)) {
+            for (int i = 0; i < 3; i++) {
+                writer.write(record(i));
+                Thread.sleep(50);
+            }
+        }
+
+        var props = properties(file);
+        props.put("hzp.replay.pace", "recorded");
+        try (var driver = new ReplayDriver<ChangeEvent<String, String>>(props,
+                KeyValueHeaderChangeEventFormat.of(Json.class, Json.class, Json.class))) {
+            var result = driver.replay(file, event -> { });
+            assertEquals(3, result.records());
+            assertTrue(result.elapsedNanos() >= 100_000_000L);
+        }
+    }
+
+    @Test
+    void dropsCaptureFromTransforms() {
+        var props = ReplayDriver.withoutCapture(properties(Path.of("records.capture")));
+        assertEquals("ExtractTopic", props.getProperty("transforms"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.grafysi.horizpipes.utils.debezium.runtime;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.HzpConnector;
+import com.grafysi.horizpipes.utils.debezium.LazyHzpChangeEvent;
+import io.debezium.engine.ChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConnectorRuntimeTest {
+
+    private static final Consumer<ChangeEvent<String, String>> NO_OP = event -> {
+    };
+
+    /**
+     * Emits the given values, then blocks until stopped like an engine waiting for changes.
+     */
+    private static class FakeConnector implements HzpConnector {
+
+        private final Properties props;
+        private final Consumer<ChangeEvent<String, String>> consumer;
+        private final String[] values;
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        FakeConnector(Properties props, Consumer<ChangeEvent<String, String>> consumer, String... values) {
+            this.props = props;
+            this.consumer = consumer;
+            this.values = values;
+        }
+
+        @Override
+        public void run() {
+            for (var value : values) {
+                consumer.accept(new HzpChangeEvent<>(null, value, Collections.emptyList(), null));
+            }
+            try {
+                stopped.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void stop() {
+            stopped.countDown();
+        }
+    }
+
+    @Test
+    void connectorsAreAccountedSeparately() throws Exception {
+        try (var runtime = new ConnectorRuntime()) {
+            var delivered = new CountDownLatch(3);
+            Consumer<ChangeEvent<String, String>> consumer = event -> delivered.countDown();
+
+            var first = runtime.start("db1", new Properties(), consumer,
+                    (props, c) -> new FakeConnector(props, c, "ab", "cde"));
+            var second = runtime.start("db2", new Properties(), consumer,
+                    (props, c) -> new FakeConnector(props, c, "fghi"));
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+            assertEquals(ConnectorHandle.State.RUNNING, first.state());
+            assertEquals(2, first.stats().events());
+            assertEquals(5, first.stats().bytes());
+            assertEquals(1, second.stats().events());
+            assertEquals(4, second.stats().bytes());
+            assertEquals(1, first.stats().platformThreads());
+            assertEquals(2, runtime.stats().size());
+
+            assertTrue(runtime.stop("db1", 5, TimeUnit.SECONDS));
+            assertEquals(ConnectorHandle.State.STOPPED, first.state());
+            assertEquals(ConnectorHandle.State.RUNNING, second.state());
+            assertEquals(1, runtime.stats().size());
+        }
+    }
+
+    @Test
+    void connectorsGetRuntimeDefaults() throws Exception {
+        var received = new AtomicReference<Properties>();
+        var defaults = new Properties();
+        defaults.setProperty("record.processing.threads", "2");
+        var props = new Properties();
+        props.setProperty("hzp.converter.shared", "false");
+
+        try (var runtime = new ConnectorRuntime(defaults)) {
+            runtime.start("db1", props, NO_OP, (p, c) -> {
+                received.set(p);
+                return new FakeConnector(p, c);
+            });
+        }
+
+        assertEquals("db1", received.get().getProperty("name"));
+        assertEquals("2", received.get().getProperty("record.processing.threads"));
+        assertEquals("false", received.get().getProperty("hzp.converter.shared"));
+        assertEquals("virtual", received.get().getProperty("hzp.conversion.parallel.pool"));
+    }
+
+    @Test
+    void duplicateNamesAreRejected() {
+        try (var runtime = new ConnectorRuntime()) {
+            runtime.start("db1", new Properties(), NO_OP, (props, consumer) -> new FakeConnector(props, consumer));
+            assertThrows(IllegalArgumentException.class,
+                    () -> runtime.start("db1", new Properties(), NO_OP, (props, consumer) -> new FakeConnector(props, consumer)));
+        }
+    }
+
+    @Test
+    void failingConnectorIsReported() throws Exception {
+        try (var runtime = new ConnectorRuntime()) {
+            var handle = runtime.start("db1", new Properties(), NO_OP, (props, consumer) -> new FakeConnector(props, consumer) {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("replication slot is in use");
+                }
+            });
+
+            assertTrue(handle.awaitStopped(5, TimeUnit.SECONDS));
+            assertEquals(ConnectorHandle.State.FAILED, handle.state());
+            assertEquals("replication slot is in use", handle.failure().getMessage());
+        }
+    }
+
+    @Test
+    void countingDoesNotConvertLazyEvents() {
+        var handle = new ConnectorHandle("db1", 1);
+        var conversions = new AtomicInteger();
+        var skipped = new LazyHzpChangeEvent<String, String, Object>(
+                () -> "key" + conversions.incrementAndGet(), () -> "value" + conversions.incrementAndGet(), List.of(), null);
+        var read = new LazyHzpChangeEvent<String, String, Object>(
+                () -> "key" + conversions.incrementAndGet(), () -> "value" + conversions.incrementAndGet(), List.of(), null);
+        Consumer<ChangeEvent<String, String>> counting = handle.counting(event -> {
+            if (event == read) {
+                event.value();
+            }
+        });
+
+        counting.accept(skipped);
+        counting.accept(read);
+
+        // only the value the consumer read is converted and counted
+        assertEquals(1, conversions.get());
+        assertEquals(2, handle.stats().events());
+        assertEquals(6, handle.stats().bytes());
+    }
+}
@@ -0,0 +1,114 @@
+package com.grafysi.horizpipes.utils.debezium.snapshot;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.synthetic.PostgresSchemas;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotPlannerTest {
+
+    private static final List<TableSize> TABLES = List.of(
+            new TableSize("mimiciv_hosp", "labevents", 900),
+            new TableSize("mimiciv_hosp", "prescriptions", 500),
+            new TableSize("mimiciv_hosp", "admissions", 300),
+            new TableSize("mimiciv_hosp", "patients", 200),
+            new TableSize("mimiciv_hosp", "services", 100),
+            new TableSize("mimiciv_icu", "icustays", 400));
+
+    @Test
+    void partitionBalancesByLargestFirst() {
+        var groups = SnapshotPlanner.partition(TABLES, 3);
+
+        assertEquals(3, groups.size());
+        assertEquals(List.of("labevents"), groups.get(0).stream().map(TableSize::table).toList());
+        assertEquals(List.of("prescriptions", "patients", "services"), groups.get(1).stream().map(TableSize::table).toList());
+        assertEquals(List.of("icustays", "admissions"), groups.get(2).stream().map(TableSize::table).toList());
+    }
+
+    @Test
+    void partitionNeverCreatesEmptyGroups() {
+        assertEquals(2, SnapshotPlanner.partition(TABLES.subList(0, 2), 8).size());
+        assertTrue(SnapshotPlanner.partition(List.of(), 4).isEmpty());
+    }
+
+    @Test
+    void includeListsSelectTables() {
+        var props = new Properties();
+        props.setProperty("schema.include.list", "mimiciv_hosp");
+        assertEquals(5, SnapshotPlanner.filter(TABLES, props).size());
+
+        props.setProperty("table.include.list", "mimiciv_hosp.pat.*,mimiciv_icu.icustays");
+        assertEquals(List.of("patients"), SnapshotPlanner.filter(TABLES, props).stream().map(TableSize::table).toList());
+    }
+
+    @Test
+    void includeListsIgnoreCase() {
+        var props = new Properties();
+        props.setProperty("schema.include.list", "MIMICIV_HOSP");
+        props.setProperty("table.include.list", "MimicIV_Hosp.PAT.*");
+        assertEquals(List.of("patients"), SnapshotPlanner.filter(TABLES, props).stream().map(TableSize::table).toList());
+    }
+
+    @Test
+    void includeListMatchesExactlyTheGroup() {
+        var group = List.of(new TableSize("mimiciv_hosp", "patients", 1), new TableSize("public", "odd.name$", 1));
+        var includeList = SnapshotPlanner.includeList(group);
+
+        var patterns = includeList.split("(?<!\\\\),");
+        assertEquals(2, patterns.length);
+        assertTrue(Pattern.compile(patterns[0]).matcher("mimiciv_hosp.patients").matches());
+        assertFalse(Pattern.compile(patterns[0]).matcher("mimiciv_hospXpatients").matches());
+        assertTrue(Pattern.compile(patterns[1]).matcher("public.odd.name$").matches());
+    }
+
+    @Test
+    void snapshotConnectorsGetTheirOwnSlotAndTables() {
+        var props = new Properties();
+        props.setProperty("name", "mimic");
+        props.setProperty("slot.name", "hzp");
+        props.setProperty("schema.include.list", "mimiciv_hosp");
+
+        var snapshot = ParallelSnapshotCoordinator.snapshotProperties(props, 2, TABLES.subList(3, 5));
+        assertEquals("mimic-snapshot-2", snapshot.getProperty("name"));
+        assertEquals("hzp_snapshot_2", snapshot.getProperty("slot.name"));
+        assertEquals("true", snapshot.getProperty("slot.drop.on.stop"));
+        assertEquals("initial_only", snapshot.getProperty("snapshot.mode"));
+        assertEquals("mimiciv_hosp\\.patients,mimiciv_hosp\\.services", snapshot.getProperty("table.include.list"));
+        assertEquals(null, snapshot.getProperty("schema.include.list"));
+
+        var streaming = ParallelSnapshotCoordinator.streamingProperties(props);
+        assertEquals("hzp", streaming.getProperty("slot.name"));
+        assertEquals("no_data", streaming.getProperty("snapshot.mode"));
+    }
+
+    @Test
+    void lastSnapshotRecordIsDetected() {
+        assertTrue(ParallelSnapshotCoordinator.isLastSnapshotRecord(event("last")));
+        assertFalse(ParallelSnapshotCoordinator.isLastSnapshotRecord(event("true")));
+        assertFalse(ParallelSnapshotCoordinator.isLastSnapshotRecord(event("false")));
+        assertFalse(ParallelSnapshotCoordinator.isLastSnapshotRecord(new HzpChangeEvent<>(null, "v", List.of(), null)));
+    }
+
+    private static HzpChangeEvent<String, String, String> event(String snapshot) {
+        var rowSchema = SchemaBuilder.struct().optional().field("subject_id", Schema.INT32_SCHEMA).build();
+        var valueSchema = PostgresSchemas.envelopeSchema("test_dbz.mimiciv_hosp.patients", rowSchema);
+        var source = PostgresSchemas.source("test_dbz", "mimic4demo", "mimiciv_hosp", "patients", 1_726_000_000_000L)
+                .put("snapshot", snapshot);
+        var value = new Struct(valueSchema).put("source", source).put("op", "r");
+        var record = new SourceRecord(Map.of(), Map.of(), "test_dbz.mimiciv_hosp.patients", null, null, null,
+                valueSchema, value);
+        return new HzpChangeEvent<>(null, "v", List.of(), record);
+    }
+}
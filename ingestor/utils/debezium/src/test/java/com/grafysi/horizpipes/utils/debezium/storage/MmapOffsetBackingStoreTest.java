@@ -0,0 +1,178 @@
+package com.grafysi.horizpipes.utils.debezium.storage;
+
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.runtime.standalone.StandaloneConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MmapOffsetBackingStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private MmapOffsetBackingStore start(Path file, Map<String, String> overrides) {
+        var props = new HashMap<String, String>();
+        props.put("key.converter", JsonConverter.class.getName());
+        props.put("value.converter", JsonConverter.class.getName());
+        props.put("offset.storage.file.filename", file.toString());
+        props.putAll(overrides);
+
+        var store = new MmapOffsetBackingStore();
+        store.configure(new StandaloneConfig(props));
+        store.start();
+        return store;
+    }
+
+    private static ByteBuffer buffer(String value) {
+        return value == null ? null : ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void set(MmapOffsetBackingStore store, String key, String value) throws Exception {
+        var values = new HashMap<ByteBuffer, ByteBuffer>();
+        values.put(buffer(key), buffer(value));
+        store.set(values, null).get(5, TimeUnit.SECONDS);
+    }
+
+    private static String get(MmapOffsetBackingStore store, String key) throws Exception {
+        var value = store.get(List.of(buffer(key))).get(5, TimeUnit.SECONDS).get(buffer(key));
+        return value == null ? null : StandardCharsets.UTF_8.decode(value.duplicate()).toString();
+    }
+
+    @Test
+    void offsetsSurviveRestart() throws Exception {
+        var file = dir.resolve("connector.offsets");
+        var store = start(file, Map.of());
+        set(store, "k1", "v1");
+        set(store, "k2", "v2");
+        set(store, "k1", "v3");
+        set(store, "k2", null);
+        store.stop();
+
+        var restarted = start(file, Map.of());
+        assertEquals("v3", get(restarted, "k1"));
+        assertNull(get(restarted, "k2"));
+        restarted.stop();
+    }
+
+    @Test
+    void tornTailIsDropped() throws Exception {
+        var file = dir.resolve("connector.offsets");
+        var store = start(file, Map.of());
+        set(store, "k1", "v1");
+        set(store, "k2", "v2");
+        store.stop();
+
+        // header (8) + first record (8 + 16), then cut the second record short
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(32 + 10);
+        }
+
+        var restarted = start(file, Map.of());
+        assertEquals("v1", get(restarted, "k1"));
+        assertNull(get(restarted, "k2"));
+        set(restarted, "k2", "v4");
+        restarted.stop();
+
+        var again = start(file, Map.of());
+        assertEquals("v4", get(again, "k2"));
+        again.stop();
+    }
+
+    @Test
+    void fullLogIsCompacted() throws Exception {
+        var file = dir.resolve("connector.offsets");
+        var store = start(file, Map.of("hzp.offset.storage.segment.bytes", "256"));
+        for (int i = 0; i < 1000; i++) {
+            set(store, "k1", "v" + i);
+        }
+        assertEquals(256, store.capacity());
+        store.stop();
+
+        var restarted = start(file, Map.of("hzp.offset.storage.segment.bytes", "256"));
+        assertEquals("v999", get(restarted, "k1"));
+        restarted.stop();
+    }
+
+    @Test
+    void logIsCompactedAfterCompactBytes() throws Exception {
+        var file = dir.resolve("connector.offsets");
+        var store = start(file, Map.of("hzp.offset.storage.compact.bytes", "256"));
+        for (int i = 0; i < 1000; i++) {
+            set(store, "k1", "v" + i);
+        }
+        assertEquals(MmapOffsetBackingStore.DEFAULT_SEGMENT_BYTES, store.capacity());
+        assertTrue(store.length() < 8 + 256 + 32, "log of " + store.length() + " bytes");
+        store.stop();
+
+        var restarted = start(file, Map.of());
+        assertEquals("v999", get(restarted, "k1"));
+        restarted.stop();
+    }
+
+    @Test
+    void agedLogIsCompacted() throws Exception {
+        var file = dir.resolve("connector.offsets");
+        var store = start(file, Map.of("hzp.offset.storage.compact.bytes", "0",
+                "hzp.offset.storage.compact.interval.ms", "20"));
+        for (int i = 0; i < 10; i++) {
+            set(store, "k1", "v" + i);
+        }
+        // header (8) + a single record (8 + 16)
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            // reads on the executor, which compacts the log, so its length is visible afterwards
+            assertEquals("v9", get(store, "k1"));
+            if (store.length() == 32) {
+                break;
+            }
+            assertTrue(System.nanoTime() < deadline, "log of " + store.length() + " bytes");
+            Thread.sleep(10);
+        }
+        store.stop();
+
+        var restarted = start(file, Map.of());
+        assertEquals("v9", get(restarted, "k1"));
+        restarted.stop();
+    }
+
+    @Test
+    void logGrowsWithLiveOffsets() throws Exception {
+        var file = dir.resolve("connector.offsets");
+        var store = start(file, Map.of("hzp.offset.storage.segment.bytes", "256"));
+        for (int i = 0; i < 100; i++) {
+            set(store, "key-" + i, "value-" + i);
+        }
+        assertEquals(4096, store.capacity());
+        store.stop();
+
+        var restarted = start(file, Map.of());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value-" + i, get(restarted, "key-" + i));
+        }
+        restarted.stop();
+    }
+
+    @Test
+    void groupSyncCompletesAfterFlush() throws Exception {
+        var file = dir.resolve("connector.offsets");
+        var store = start(file, Map.of("hzp.offset.storage.sync", "group", "hzp.offset.storage.flush.interval.ms", "10"));
+        set(store, "k1", "v1");
+        set(store, "k1", "v2");
+        assertEquals("v2", get(store, "k1"));
+        store.stop();
+    }
+}
@@ -0,0 +1,258 @@
+package com.grafysi.horizpipes.utils.debezium.synthetic;
+
+import com.grafysi.horizpipes.utils.debezium.JsonConnector;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import io.debezium.engine.ChangeEvent;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTaskContext;
+import org.apache.kafka.connect.storage.MemoryOffsetBackingStore;
+import org.apache.kafka.connect.storage.OffsetStorageReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SyntheticSourceConnectorTest {
+
+    private static Map<String, String> config(Map<String, String> overrides) {
+        var config = new HashMap<String, String>();
+        config.put(SyntheticSourceConnector.TOPIC_PREFIX, "test_dbz");
+        config.putAll(overrides);
+        return config;
+    }
+
+    private static List<SourceRecord> poll(SyntheticSourceTask task, int count) throws InterruptedException {
+        var records = new ArrayList<SourceRecord>();
+        while (records.size() < count) {
+            var batch = task.poll();
+            if (batch != null) {
+                records.addAll(batch);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void generatesDebeziumEnvelopes() throws Exception {
+        var task = new SyntheticSourceTask();
+        task.start(config(Map.of(SyntheticSourceConnector.OP_MIX, "c:60,u:30,d:10",
+                SyntheticSourceConnector.ROW_WIDTH, "100",
+                SyntheticSourceConnector.BATCH_SIZE, "500")));
+
+        var records = poll(task, 10_000);
+        var ops = new HashMap<String, Integer>();
+        var deleted = new HashSet<Object>();
+        var rows = new HashMap<Object, Struct>();
+        var lastLsn = 0L;
+        for (var record : records) {
+            assertTrue(record.topic().equals("test_dbz.mimiciv_hosp.patients")
+                    || record.topic().equals("test_dbz.mimiciv_hosp.admissions"));
+            assertNotNull(record.key());
+            if (record.value() == null) {
+                // tombstones follow deletes
+                assertTrue(deleted.contains(record.key()));
+                continue;
+            }
+            var envelope = (Struct) record.value();
+            var op = envelope.getString("op");
+            ops.merge(op, 1, Integer::sum);
+            var source = envelope.getStruct("source");
+            assertTrue(source.getInt64("lsn") > lastLsn);
+            lastLsn = source.getInt64("lsn");
+            assertEquals(lastLsn, record.sourceOffset().get("lsn"));
+
+            switch (op) {
+                case "c" -> {
+                    assertNull(envelope.get("before"));
+                    assertEquals(100, envelope.getStruct("after").getString("padding").length());
+                    assertTrue(!deleted.contains(record.key()));
+                    rows.put(record.key(), envelope.getStruct("after"));
+                }
+                case "u" -> {
+                    // full before image, the row as the previous event of the key left it
+                    assertNotNull(envelope.getStruct("before"));
+                    assertTrue(!deleted.contains(record.key()));
+                    var previous = rows.put(record.key(), envelope.getStruct("after"));
+                    if (previous != null) {
+                        assertEquals(previous, envelope.getStruct("before"));
+                    }
+                }
+                case "d" -> {
+                    assertNull(envelope.get("after"));
+                    assertNotNull(envelope.getStruct("before"));
+                    var previous = rows.remove(record.key());
+                    if (previous != null) {
+                        assertEquals(previous, envelope.getStruct("before"));
+                    }
+                    deleted.add(record.key());
+                }
+                default -> throw new AssertionError(op);
+            }
+        }
+        var total = ops.values().stream().mapToInt(Integer::intValue).sum();
+        assertEquals(0.6, ops.get("c") / (double) total, 0.05);
+        assertEquals(0.3, ops.get("u") / (double) total, 0.05);
+        assertEquals(0.1, ops.get("d") / (double) total, 0.05);
+    }
+
+    @Test
+    void keepsTargetRate() throws Exception {
+        var task = new SyntheticSourceTask();
+        task.start(config(Map.of(SyntheticSourceConnector.RATE, "2000",
+                SyntheticSourceConnector.TOMBSTONES_ON_DELETE, "false")));
+
+        var start = System.nanoTime();
+        poll(task, 1_000);
+        var elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 400, "took " + elapsedMs + " ms");
+        assertTrue(elapsedMs < 2_000, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void splitsTablesAcrossTasks() {
+        var connector = new SyntheticSourceConnector();
+        connector.start(config(Map.of()));
+        var configs = connector.taskConfigs(4);
+        assertEquals(2, configs.size());
+        assertEquals("patients", configs.get(0).get(SyntheticSourceConnector.TABLES));
+        assertEquals("admissions", configs.get(1).get(SyntheticSourceConnector.TABLES));
+    }
+
+    @Test
+    void tasksKeepOffsetsInTheirOwnPartition() throws Exception {
+        var connector = new SyntheticSourceConnector();
+        connector.start(config(Map.of()));
+        var partitions = new ArrayList<Map<String, ?>>();
+        for (var taskConfig : connector.taskConfigs(2)) {
+            var task = new SyntheticSourceTask();
+            task.start(taskConfig);
+            partitions.add(poll(task, 1).get(0).sourcePartition());
+        }
+        assertEquals(List.of(Map.of("server", "test_dbz", "tables", "patients"),
+                Map.of("server", "test_dbz", "tables", "admissions")), partitions);
+    }
+
+    @Test
+    void resumesTheKeySpaceFromTheOffset() throws Exception {
+        var taskConfig = config(Map.of(SyntheticSourceConnector.TABLES, "patients",
+                SyntheticSourceConnector.OP_MIX, "c:60,u:30,d:10",
+                SyntheticSourceConnector.TOMBSTONES_ON_DELETE, "false"));
+        var first = new SyntheticSourceTask();
+        first.start(taskConfig);
+        var records = poll(first, 2_000);
+        var inserted = new HashSet<Object>();
+        var deleted = new HashSet<Object>();
+        for (var record : records) {
+            switch (((Struct) record.value()).getString("op")) {
+                case "c" -> inserted.add(record.key());
+                case "d" -> deleted.add(record.key());
+                default -> {
+                }
+            }
+        }
+        var last = records.get(records.size() - 1);
+        var offset = last.sourceOffset();
+        assertEquals(inserted.size(), ((Number) offset.get("patients.nextId")).longValue());
+        assertEquals(deleted.size(), ((Number) offset.get("patients.lowId")).longValue());
+
+        var restarted = new SyntheticSourceTask();
+        restarted.initialize(context(last.sourcePartition(), offset));
+        restarted.start(taskConfig);
+        for (var record : poll(restarted, 2_000)) {
+            var envelope = (Struct) record.value();
+            assertTrue(envelope.getStruct("source").getInt64("lsn") > (Long) offset.get("lsn"));
+            if (envelope.getString("op").equals("c")) {
+                assertTrue(inserted.add(record.key()), "inserted again: " + record.key());
+            } else {
+                assertTrue(inserted.contains(record.key()), "never inserted: " + record.key());
+                assertTrue(!deleted.contains(record.key()), "deleted before: " + record.key());
+            }
+            if (envelope.getString("op").equals("d")) {
+                deleted.add(record.key());
+            }
+        }
+    }
+
+    private static SourceTaskContext context(Map<String, ?> partition, Map<String, ?> offset) {
+        var reader = new OffsetStorageReader() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Map<String, Object> offset(Map<String, T> requested) {
+                return requested.equals(partition) ? (Map<String, Object>) offset : null;
+            }
+
+            @Override
+            public <T> Map<Map<String, T>, Map<String, Object>> offsets(Collection<Map<String, T>> partitions) {
+                var offsets = new HashMap<Map<String, T>, Map<String, Object>>();
+                partitions.forEach(requested -> offsets.put(requested, offset(requested)));
+                return offsets;
+            }
+        };
+        return new SourceTaskContext() {
+            @Override
+            public Map<String, String> configs() {
+                return Map.of();
+            }
+
+            @Override
+            public OffsetStorageReader offsetStorageReader() {
+                return reader;
+            }
+        };
+    }
+
+    @Test
+    void rejectsInvalidOpMix() {
+        assertThrows(IllegalArgumentException.class, () -> SyntheticSourceTask.Settings.opWeights("u:1,d:1"));
+        assertThrows(IllegalArgumentException.class, () -> SyntheticSourceTask.Settings.opWeights("c:1,x:1"));
+    }
+
+    @Test
+    void runsThroughJsonConnector() throws Exception {
+        var props = new Properties();
+        props.put(Configs.CONNECTOR_NAME, "synthetic");
+        props.put(Configs.CONNECTOR_CLASS, SyntheticSourceConnector.class.getName());
+        props.put(Configs.TOPIC_PREFIX, "test_dbz");
+        props.put(Configs.OFFSET_STORAGE, MemoryOffsetBackingStore.class.getName());
+        props.put(Configs.OFFSET_FLUSH_INTERVAL_MS, "1000");
+        props.put(Configs.KEY_CONVERTER, JsonConverter.class.getName());
+        props.put(Configs.VALUE_CONVERTER, JsonConverter.class.getName());
+        props.put(SyntheticSourceConnector.MAX_RECORDS, "5000");
+        props.put(SyntheticSourceConnector.TOMBSTONES_ON_DELETE, "false");
+
+        var received = new AtomicInteger();
+        var done = new CountDownLatch(1);
+        var connector = new JsonConnector(props, (ChangeEvent<String, String> event) -> {
+            assertTrue(event.value().contains("\"op\":"));
+            if (received.incrementAndGet() == 5000) {
+                done.countDown();
+            }
+        });
+        var executor = Executors.newSingleThreadExecutor();
+        executor.submit(connector);
+        try {
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        } finally {
+            connector.stop();
+            executor.shutdown();
+        }
+        assertEquals(5000, received.get());
+    }
+}
@@ -0,0 +1,159 @@
+package com.grafysi.horizpipes.utils.debezium.trace;
+
+import com.grafysi.horizpipes.utils.debezium.HzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.LazyHzpChangeEvent;
+import com.grafysi.horizpipes.utils.debezium.config.Configs;
+import com.grafysi.horizpipes.utils.debezium.synthetic.PostgresSchemas;
+import io.debezium.engine.ChangeEvent;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyTracerTest {
+
+    private static final Schema ROW_SCHEMA = SchemaBuilder.struct()
+            .optional()
+            .field("subject_id", Schema.INT32_SCHEMA)
+            .build();
+
+    private static SourceRecord record(String table, long sourceMillis) {
+        var topic = "hzp.mimiciv_hosp." + table;
+        var envelopeSchema = PostgresSchemas.envelopeSchema(topic, ROW_SCHEMA);
+        var source = PostgresSchemas.source("hzp", "mimic4demo", "mimiciv_hosp", table, sourceMillis);
+        return new SourceRecord(Map.of(), Map.of(), topic, envelopeSchema,
+                new Struct(envelopeSchema).put("source", source).put("op", "c"));
+    }
+
+    private static Properties tracingProperties(String connector) {
+        var props = new Properties();
+        props.setProperty(Configs.CONNECTOR_NAME, connector);
+        props.setProperty(Configs.TRACE_ENABLED, "true");
+        return props;
+    }
+
+    @Test
+    void histogramPercentilesAreWithinTwoSignificantDigits() {
+        var histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.maxNanos());
+        for (var percentile : new double[]{50, 90, 99, 99.9}) {
+            var expected = percentile * 1_000_000;
+            var actual = histogram.percentileNanos(percentile);
+            assertTrue(Math.abs(actual - expected) <= expected / 64, percentile + ": " + actual);
+        }
+        assertEquals(100_000_000, histogram.percentileNanos(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileNanos(99));
+    }
+
+    @Test
+    void histogramIndexRoundTrips() {
+        for (long value : new long[]{0, 1, 127, 128, 129, 1_000, 65_535, 1L << 40, LatencyHistogram.MAX_TRACKABLE_VALUE}) {
+            var lowest = LatencyHistogram.valueFromIndex(LatencyHistogram.countsIndex(value));
+            assertTrue(lowest <= value && value - lowest <= Math.max(value / 64, 0), value + " -> " + lowest);
+        }
+    }
+
+    @Test
+    void enginePropertiesPrependPollStampOnce() {
+        var props = tracingProperties("prepend-test");
+        props.setProperty("transforms", "topic");
+        props.setProperty(Configs.TRACE_SAMPLE_RATE, "10");
+
+        var engineProps = LatencyTracer.engineProperties(props);
+        assertEquals("hzptrace,topic", engineProps.getProperty("transforms"));
+        assertEquals(TracePoll.class.getName(), engineProps.getProperty("transforms.hzptrace.type"));
+        assertEquals("10", engineProps.getProperty("transforms.hzptrace.sample.rate"));
+        assertSame(engineProps, LatencyTracer.engineProperties(engineProps));
+
+        var disabled = new Properties();
+        assertSame(disabled, LatencyTracer.engineProperties(disabled));
+    }
+
+    @Test
+    void recordsEveryStageOfSampledRecords() throws Exception {
+        var props = tracingProperties("stage-test");
+        var tracer = LatencyTracer.forConnector("stage-test");
+        tracer.reset();
+
+        var poll = new TracePoll<SourceRecord>();
+        poll.configure(Map.of());
+        var toFormat = tracer.<ChangeEvent<String, String>>tracing(record -> {
+            assertNull(record.headers().lastWithName(LatencyTracer.POLL_HEADER));
+            return new HzpChangeEvent<>(null, "converted", Collections.emptyList(), record);
+        }, false);
+        var received = new ArrayList<ChangeEvent<String, String>>();
+        Consumer<ChangeEvent<String, String>> consumer = LatencyTracer.tracing(props, event -> received.add(event));
+
+        var sourceMillis = System.currentTimeMillis() - 5;
+        for (int i = 0; i < 10; i++) {
+            consumer.accept(toFormat.apply(poll.apply(record("patients", sourceMillis))));
+        }
+        // not stamped at the poll, e.g. filtered by sampling
+        consumer.accept(toFormat.apply(record("admissions", sourceMillis)));
+
+        assertEquals(11, received.size());
+        var latencies = tracer.latencies("mimiciv_hosp.patients");
+        assertNotNull(latencies);
+        for (var stage : Stage.values()) {
+            assertEquals(10, latencies.histogram(stage).count(), stage.label());
+        }
+        assertTrue(latencies.histogram(Stage.END_TO_END).percentileNanos(50) >= 4_000_000);
+        assertNull(tracer.latencies("mimiciv_hosp.admissions"));
+
+        assertTrue(tracer.dump().contains("mimiciv_hosp.patients"));
+        var scraped = LatencyTracer.scrape();
+        assertTrue(scraped.contains("hzp_stage_latency_seconds_count{connector=\"stage-test\",table=\"mimiciv_hosp.patients\",stage=\"convert\"} 10"),
+                scraped);
+    }
+
+    @Test
+    void lazyConversionRecordsConvertOnceMaterialized() throws Exception {
+        var props = tracingProperties("lazy-test");
+        var tracer = LatencyTracer.forConnector("lazy-test");
+        tracer.reset();
+
+        var poll = new TracePoll<SourceRecord>();
+        poll.configure(Map.of());
+        var toFormat = tracer.<ChangeEvent<String, String>>tracing(
+                record -> new LazyHzpChangeEvent<>(() -> "key", () -> "lazy", Collections.emptyList(), record), true);
+        var batches = new ArrayList<List<ChangeEvent<String, String>>>();
+        var consumer = LatencyTracer.<String, String>tracing(props, (records, committer) -> batches.add(records));
+
+        var event = toFormat.apply(poll.apply(record("admissions", System.currentTimeMillis())));
+        consumer.handleBatch(List.of(event), null);
+
+        assertEquals(1, batches.size());
+        var latencies = tracer.latencies("mimiciv_hosp.admissions");
+        assertEquals(0, latencies.histogram(Stage.CONVERT).count());
+        assertEquals(1, latencies.histogram(Stage.TRANSFORM).count());
+        assertEquals(1, latencies.histogram(Stage.HANDOFF).count());
+
+        assertEquals("lazy", event.value());
+        assertEquals(0, latencies.histogram(Stage.CONVERT).count());
+        assertEquals("key", event.key());
+        assertEquals("lazy", event.value());
+        assertEquals(1, latencies.histogram(Stage.CONVERT).count());
+    }
+}